@@ -0,0 +1,24 @@
+package com.mycompany.sistemabiblioteca; // Mismo paquete que el programa, para usar sus métodos de paquete.
+
+import java.util.ArrayList; // Para listas dinámicas.
+import java.util.Arrays; // Para convertir los argumentos en lista.
+import java.util.List; // Para usar listas.
+
+// Punto de entrada de "benchmarks.jar": lanza JMH (org.openjdk.jmh.Main) con los mismos
+// argumentos, añadiendo "-prof gc" si no se pidió ningún perfilador, para que cada
+// resultado incluya también la memoria asignada por operación (gc.alloc.rate.norm).
+// Las opciones que solo listan o muestran ayuda se pasan tal cual.
+public class Benchmarks {
+
+    private static final List<String> SOLO_LISTAR = Arrays.asList("-h", "-l", "-lp", "-lprof", "-lrf");
+
+    public static void main(String[] args) throws Exception {
+        List<String> argumentos = new ArrayList<>(Arrays.asList(args));
+        boolean soloListar = argumentos.stream().anyMatch(SOLO_LISTAR::contains);
+        if (!soloListar && !argumentos.contains("-prof")) {
+            argumentos.add(0, "-prof");
+            argumentos.add(1, "gc");
+        }
+        org.openjdk.jmh.Main.main(argumentos.toArray(new String[0]));
+    }
+}
@@ -0,0 +1,94 @@
+package com.mycompany.sistemabiblioteca; // Mismo paquete que el programa, para usar sus métodos de paquete.
+
+import java.io.IOException; // Para manejar errores de archivo.
+import java.util.List; // Para usar listas.
+import java.util.concurrent.TimeUnit; // Para indicar la unidad de los resultados.
+import org.openjdk.jmh.annotations.Benchmark; // Marca un método medido.
+import org.openjdk.jmh.annotations.BenchmarkMode; // Qué se mide (tiempo medio, rendimiento...).
+import org.openjdk.jmh.annotations.Fork; // Cuántas JVM nuevas se lanzan.
+import org.openjdk.jmh.annotations.Level; // Cuándo se ejecuta la preparación.
+import org.openjdk.jmh.annotations.Measurement; // Iteraciones medidas.
+import org.openjdk.jmh.annotations.Mode; // Modos de medición.
+import org.openjdk.jmh.annotations.OutputTimeUnit; // Unidad de los resultados.
+import org.openjdk.jmh.annotations.Param; // Parámetros del benchmark.
+import org.openjdk.jmh.annotations.Scope; // Alcance del estado compartido.
+import org.openjdk.jmh.annotations.Setup; // Preparación antes de medir.
+import org.openjdk.jmh.annotations.State; // Estado compartido entre invocaciones.
+import org.openjdk.jmh.annotations.TearDown; // Limpieza al terminar.
+import org.openjdk.jmh.annotations.Warmup; // Iteraciones de calentamiento.
+
+// Mide Biblioteca.buscarLibro con cada tipo de búsqueda y las tres formas de
+// Biblioteca.librosDisponibles, con el catálogo ya cargado en memoria (el caso normal
+// del programa en marcha). Las consultas se eligen para que devuelvan resultados: el
+// título de un libro, uno de los 1000 autores, un código existente, la mitad del
+// catálogo por sede o por biblioteca.
+//
+// Uso: java -jar target/benchmarks.jar BusquedaBenchmark -p filas=100000
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class BusquedaBenchmark {
+
+    @Param({ "1000", "10000", "100000", "1000000" })
+    private int filas; // Libros, miembros y préstamos de los datos.
+
+    private DatosBenchmark datos;
+    private Biblioteca biblioteca; // La biblioteca 1.
+    private String codigo; // Un código que existe (el del libro del medio).
+
+    @Setup(Level.Trial)
+    public void generar() throws IOException {
+        datos = DatosBenchmark.generar(filas);
+        biblioteca = Biblioteca.cargarTodasLasBibliotecas().get(0);
+        codigo = DatosBenchmark.codigoLibro(filas / 2);
+        Libro.cargarTodosLosLibros(); // Carga el catálogo antes de medir.
+    }
+
+    @TearDown(Level.Trial)
+    public void borrar() throws IOException {
+        datos.borrar();
+    }
+
+    @Benchmark
+    public List<Libro> buscarPorNombre() {
+        return biblioteca.buscarLibro("silencio rio", "nombre");
+    }
+
+    @Benchmark
+    public List<Libro> buscarPorAutor() {
+        return biblioteca.buscarLibro("Autor 7", "autor");
+    }
+
+    @Benchmark
+    public List<Libro> buscarPorCodigo() {
+        return biblioteca.buscarLibro(codigo, "codigo");
+    }
+
+    @Benchmark
+    public List<Libro> buscarPorSede() {
+        return biblioteca.buscarLibro("Bogota", "sede");
+    }
+
+    @Benchmark
+    public List<Libro> buscarPorIdBiblioteca() {
+        return biblioteca.buscarLibro("2", "idbiblioteca");
+    }
+
+    @Benchmark
+    public List<Libro> disponiblesPorSede() {
+        return biblioteca.librosDisponibles("Medellin");
+    }
+
+    @Benchmark
+    public List<Libro> disponiblesPorId() {
+        return biblioteca.librosDisponibles(1);
+    }
+
+    @Benchmark
+    public List<Libro> disponiblesPorSedeEId() {
+        return biblioteca.librosDisponibles("Medellin", 1);
+    }
+}
@@ -0,0 +1,96 @@
+package com.mycompany.sistemabiblioteca; // Mismo paquete que el programa, para usar sus métodos de paquete.
+
+import java.io.IOException; // Para manejar errores de archivo.
+import java.util.List; // Para usar listas.
+import java.util.concurrent.TimeUnit; // Para indicar la unidad de los resultados.
+import org.openjdk.jmh.annotations.Benchmark; // Marca un método medido.
+import org.openjdk.jmh.annotations.BenchmarkMode; // Qué se mide (tiempo medio, rendimiento...).
+import org.openjdk.jmh.annotations.Fork; // Cuántas JVM nuevas se lanzan.
+import org.openjdk.jmh.annotations.Level; // Cuándo se ejecuta la preparación.
+import org.openjdk.jmh.annotations.Measurement; // Iteraciones medidas.
+import org.openjdk.jmh.annotations.Mode; // Modos de medición.
+import org.openjdk.jmh.annotations.OutputTimeUnit; // Unidad de los resultados.
+import org.openjdk.jmh.annotations.Param; // Parámetros del benchmark.
+import org.openjdk.jmh.annotations.Scope; // Alcance del estado compartido.
+import org.openjdk.jmh.annotations.Setup; // Preparación antes de medir.
+import org.openjdk.jmh.annotations.State; // Estado compartido entre invocaciones.
+import org.openjdk.jmh.annotations.TearDown; // Limpieza al terminar.
+import org.openjdk.jmh.annotations.Warmup; // Iteraciones de calentamiento.
+
+// Mide los cargarTodos* (Libro.cargarTodosLosLibros, Miembro.cargarTodosLosMiembros,
+// Prestamo.cargarTodosLosPrestamos y Biblioteca.cargarTodasLasBibliotecas) de dos formas:
+// - "EnFrio": antes de cada invocación se olvida el índice en memoria (invalidar), así
+//   se mide la lectura del archivo y la construcción del índice, como al arrancar.
+// - Sin sufijo: con el índice ya cargado, como en el programa en marcha (copia de la
+//   lista). Las bibliotecas no tienen índice: siempre se leen del archivo.
+//
+// Uso: java -jar target/benchmarks.jar CargaBenchmark -p filas=100000
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CargaBenchmark {
+
+    @Param({ "1000", "10000", "100000", "1000000" })
+    private int filas; // Libros, miembros y préstamos de los datos.
+
+    private DatosBenchmark datos;
+
+    @Setup(Level.Trial)
+    public void generar() throws IOException {
+        datos = DatosBenchmark.generar(filas);
+    }
+
+    @TearDown(Level.Trial)
+    public void borrar() throws IOException {
+        datos.borrar();
+    }
+
+    // Olvida los índices antes de cada invocación de los benchmarks "EnFrio".
+    @State(Scope.Thread)
+    public static class EnFrio {
+        @Setup(Level.Invocation)
+        public void invalidar() {
+            LibroRepository.getInstancia().invalidar();
+            IndiceMiembros.getInstancia().invalidar();
+            IndicePrestamos.getInstancia().invalidar();
+        }
+    }
+
+    @Benchmark
+    public List<Libro> librosEnFrio(EnFrio enFrio) {
+        return Libro.cargarTodosLosLibros();
+    }
+
+    @Benchmark
+    public List<Libro> libros() {
+        return Libro.cargarTodosLosLibros();
+    }
+
+    @Benchmark
+    public List<Miembro> miembrosEnFrio(EnFrio enFrio) {
+        return Miembro.cargarTodosLosMiembros();
+    }
+
+    @Benchmark
+    public List<Miembro> miembros() {
+        return Miembro.cargarTodosLosMiembros();
+    }
+
+    @Benchmark
+    public List<Prestamo> prestamosEnFrio(EnFrio enFrio) {
+        return Prestamo.cargarTodosLosPrestamos();
+    }
+
+    @Benchmark
+    public List<Prestamo> prestamos() {
+        return Prestamo.cargarTodosLosPrestamos();
+    }
+
+    @Benchmark
+    public List<Biblioteca> bibliotecas() {
+        return Biblioteca.cargarTodasLasBibliotecas();
+    }
+}
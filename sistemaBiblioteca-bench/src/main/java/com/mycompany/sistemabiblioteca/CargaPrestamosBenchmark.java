@@ -0,0 +1,147 @@
+package com.mycompany.sistemabiblioteca; // Mismo paquete que el programa, para usar sus métodos de paquete.
+
+import java.io.BufferedReader; // Para leer archivos de texto.
+import java.io.BufferedWriter; // Para escribir el archivo de prueba.
+import java.io.IOException; // Para manejar errores de archivo.
+import java.nio.charset.StandardCharsets; // Codificación de los archivos de datos.
+import java.nio.file.Files; // Para operar con archivos.
+import java.nio.file.Path; // Para rutas de archivos.
+import java.text.ParseException; // Error al convertir texto a fecha (lector anterior).
+import java.text.SimpleDateFormat; // Formateador de fechas del lector anterior.
+import java.util.ArrayList; // Para listas dinámicas.
+import java.util.Date; // Para manejar fechas.
+import java.util.List; // Para usar listas.
+import java.util.Random; // Para generar datos de prueba reproducibles.
+import java.util.concurrent.TimeUnit; // Para indicar la unidad de los resultados.
+import org.openjdk.jmh.annotations.Benchmark; // Marca un método medido.
+import org.openjdk.jmh.annotations.BenchmarkMode; // Qué se mide (tiempo medio, rendimiento...).
+import org.openjdk.jmh.annotations.Fork; // Cuántas JVM nuevas se lanzan.
+import org.openjdk.jmh.annotations.Level; // Cuándo se ejecuta la preparación.
+import org.openjdk.jmh.annotations.Measurement; // Iteraciones medidas.
+import org.openjdk.jmh.annotations.Mode; // Modos de medición.
+import org.openjdk.jmh.annotations.OutputTimeUnit; // Unidad de los resultados.
+import org.openjdk.jmh.annotations.Param; // Parámetros del benchmark.
+import org.openjdk.jmh.annotations.Scope; // Alcance del estado compartido.
+import org.openjdk.jmh.annotations.Setup; // Preparación antes de medir.
+import org.openjdk.jmh.annotations.State; // Estado compartido entre invocaciones.
+import org.openjdk.jmh.annotations.TearDown; // Limpieza al terminar.
+import org.openjdk.jmh.annotations.Warmup; // Iteraciones de calentamiento.
+
+// Mide la carga de "LibroPrestado.txt": el lector anterior (split con expresión regular +
+// trim + SimpleDateFormat y un Date por fecha) contra LectorCampos, que lee los campos
+// directamente de un arreglo de caracteres y guarda las fechas como número de día.
+// También mide la foto binaria (PrestamosBinario) del mismo archivo.
+//
+// Uso (desde la carpeta sistemaBiblioteca-bench, con el programa instalado con "mvn install"):
+//   mvn package
+//   java -jar target/benchmarks.jar CargaPrestamosBenchmark -prof gc
+// "-prof gc" añade la memoria asignada por operación (gc.alloc.rate.norm).
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CargaPrestamosBenchmark {
+
+    @Param({ "1000", "10000", "100000", "1000000" })
+    private int filas; // Líneas del archivo de prueba.
+
+    private Path archivo; // Archivo de préstamos generado.
+    private Path binario; // El mismo archivo en formato binario.
+    private final SimpleDateFormat formatoAnterior = new SimpleDateFormat("yyyy-MM-dd"); // Lo que usaba Fecha antes.
+
+    // Genera un "LibroPrestado.txt" con 'filas' préstamos (mitad devueltos, mitad activos).
+    @Setup(Level.Trial)
+    public void generarArchivo() throws IOException {
+        archivo = Files.createTempFile("LibroPrestado", ".txt");
+        Random aleatorio = new Random(42); // Semilla fija: siempre el mismo archivo.
+        try (BufferedWriter writer = Files.newBufferedWriter(archivo, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < filas; i++) {
+                int mes = 1 + aleatorio.nextInt(12);
+                int dia = 1 + aleatorio.nextInt(28);
+                boolean devuelto = aleatorio.nextBoolean();
+                writer.write("LIB-" + (1 + aleatorio.nextInt(50000)));
+                writer.write('\\');
+                writer.write(Long.toString(1000000L + aleatorio.nextInt(100000)));
+                writer.write('\\');
+                writer.write(String.format("2024-%02d-%02d", mes, dia));
+                writer.write('\\');
+                writer.write(String.format("2024-%02d-%02d", mes, Math.min(28, dia + 14)));
+                writer.write('\\');
+                writer.write(devuelto ? String.format("2024-%02d-%02d", mes, Math.min(28, dia + 7)) : "null");
+                writer.write('\\');
+                writer.write(Integer.toString(1 + aleatorio.nextInt(5)));
+                writer.write('\\');
+                writer.write(devuelto ? "DEVUELTO" : "PRESTADO");
+                writer.newLine();
+            }
+        }
+        binario = Files.createTempFile("LibroPrestado", ".bin");
+        PrestamosBinario.convertirTextoABinario(archivo, binario);
+    }
+
+    @TearDown(Level.Trial)
+    public void borrarArchivo() throws IOException {
+        Files.deleteIfExists(archivo);
+        Files.deleteIfExists(binario);
+    }
+
+    // Carga con LectorCampos (el lector actual de Prestamo).
+    @Benchmark
+    public List<Prestamo> lectorCampos() throws IOException {
+        List<Prestamo> prestamos = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(archivo, StandardCharsets.UTF_8)) {
+            Prestamo.leerPrestamos(reader, prestamos);
+        }
+        return prestamos;
+    }
+
+    // Carga desde la foto binaria (proyección en memoria + creación de los préstamos).
+    @Benchmark
+    public List<Prestamo> binarioTodos() throws IOException {
+        return PrestamosBinario.abrir(binario).todos();
+    }
+
+    // Recorrido completo de una columna de la foto binaria, sin crear préstamos.
+    @Benchmark
+    public int binarioContarActivos() throws IOException {
+        return PrestamosBinario.abrir(binario).contarPorEstado("PRESTADO");
+    }
+
+    // Carga con el lector anterior, tal como estaba en Prestamo antes de LectorCampos.
+    @Benchmark
+    public List<Prestamo> splitRegex() throws IOException {
+        List<Prestamo> prestamos = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(archivo, StandardCharsets.UTF_8)) {
+            String linea;
+            while ((linea = reader.readLine()) != null) {
+                String[] parts = linea.split("\\\\");
+                if (parts.length >= 7) {
+                    try {
+                        String codigoLibro = parts[0].trim();
+                        long numeroDocumentoMiembro = Long.parseLong(parts[1].trim());
+                        Date fechaPrestamo = parseDateAnterior(parts[2].trim());
+                        Date fechaDevolucionEstimada = parseDateAnterior(parts[3].trim());
+                        Date fechaDevolucionReal = parseDateAnterior(parts[4].trim());
+                        int idBiblioteca = Integer.parseInt(parts[5].trim());
+                        String estado = parts[6].trim();
+                        prestamos.add(new Prestamo(codigoLibro, numeroDocumentoMiembro, fechaPrestamo,
+                                fechaDevolucionEstimada, fechaDevolucionReal, idBiblioteca, estado));
+                    } catch (NumberFormatException | ParseException e) {
+                        System.err.println("Error de parseo en linea de prestamo: " + linea + " - " + e.getMessage());
+                    }
+                }
+            }
+        }
+        return prestamos;
+    }
+
+    // Fecha.parseDate tal como era antes (SimpleDateFormat).
+    private Date parseDateAnterior(String dateString) throws ParseException {
+        if (dateString.isEmpty() || dateString.equalsIgnoreCase("null")) {
+            return null;
+        }
+        return formatoAnterior.parse(dateString);
+    }
+}
@@ -0,0 +1,53 @@
+package com.mycompany.sistemabiblioteca; // Mismo paquete que el programa, para usar sus métodos de paquete.
+
+import java.io.IOException; // Para manejar errores de archivo.
+import java.util.concurrent.TimeUnit; // Para indicar la unidad de los resultados.
+import org.openjdk.jmh.annotations.Benchmark; // Marca un método medido.
+import org.openjdk.jmh.annotations.BenchmarkMode; // Qué se mide (tiempo medio, rendimiento...).
+import org.openjdk.jmh.annotations.Fork; // Cuántas JVM nuevas se lanzan.
+import org.openjdk.jmh.annotations.Level; // Cuándo se ejecuta la preparación.
+import org.openjdk.jmh.annotations.Measurement; // Iteraciones medidas.
+import org.openjdk.jmh.annotations.Mode; // Modos de medición.
+import org.openjdk.jmh.annotations.OutputTimeUnit; // Unidad de los resultados.
+import org.openjdk.jmh.annotations.Param; // Parámetros del benchmark.
+import org.openjdk.jmh.annotations.Scope; // Alcance del estado compartido.
+import org.openjdk.jmh.annotations.Setup; // Preparación antes de medir.
+import org.openjdk.jmh.annotations.State; // Estado compartido entre invocaciones.
+import org.openjdk.jmh.annotations.TearDown; // Limpieza al terminar.
+import org.openjdk.jmh.annotations.Warmup; // Iteraciones de calentamiento.
+
+// Mide Libro.generarSiguienteCodigoLibro. El primer código de un prefijo recorre el
+// catálogo (ver SecuenciasCodigos.numeroInicial) y se pide en la preparación; lo medido
+// es el caso de siempre: entregar un número ya reservado y, cada 64 códigos, reservar
+// otro bloque en "SecuenciasLibros.txt".
+//
+// Uso: java -jar target/benchmarks.jar CodigoLibroBenchmark -p filas=100000
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CodigoLibroBenchmark {
+
+    @Param({ "1000", "10000", "100000", "1000000" })
+    private int filas; // Libros, miembros y préstamos de los datos.
+
+    private DatosBenchmark datos;
+
+    @Setup(Level.Trial)
+    public void generar() throws IOException {
+        datos = DatosBenchmark.generar(filas);
+        Libro.generarSiguienteCodigoLibro(1, "Medellin");
+    }
+
+    @TearDown(Level.Trial)
+    public void borrar() throws IOException {
+        datos.borrar();
+    }
+
+    @Benchmark
+    public String generarSiguienteCodigoLibro() {
+        return Libro.generarSiguienteCodigoLibro(1, "Medellin");
+    }
+}
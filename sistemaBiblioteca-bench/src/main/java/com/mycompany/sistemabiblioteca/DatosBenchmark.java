@@ -0,0 +1,174 @@
+package com.mycompany.sistemabiblioteca; // Mismo paquete que el programa, para usar sus métodos de paquete.
+
+import java.io.BufferedWriter; // Para escribir los archivos de prueba.
+import java.io.IOException; // Para manejar errores de archivo.
+import java.nio.charset.StandardCharsets; // Codificación de los archivos de datos.
+import java.nio.file.Files; // Para operar con archivos.
+import java.nio.file.Path; // Para rutas de archivos.
+import java.util.Comparator; // Para borrar la carpeta de adentro hacia afuera.
+import java.util.Random; // Para generar datos de prueba reproducibles.
+import java.util.stream.Stream; // Archivos de la carpeta temporal.
+
+// Carpeta de datos de prueba para los benchmarks: genera en una carpeta temporal los
+// cuatro archivos del programa ("Bibliotecas.txt", "Libros.txt", "Miembros.txt" y
+// "LibroPrestado.txt") con 'filas' libros, 'filas' miembros y 'filas' préstamos, y la
+// fija como carpeta de datos (propiedad "biblioteca.datos.dir").
+//
+// Forma de los datos (siempre la misma, semilla fija):
+// - Dos bibliotecas: 1 en "Medellin" y 2 en "Bogota". Los libros pares son de la 1
+//   (códigos "1-M-i") y los impares de la 2 ("2-B-i"), con 3 unidades cada uno.
+// - Un administrador y 'filas' estudiantes (rol 1, sin deuda), todos con la contraseña
+//   CONTRASENA. Documento del estudiante i: DOCUMENTO_BASE + i; usuario: "u" + i.
+// - Un préstamo por libro: uno de cada cuatro sigue activo (el libro queda con 2 unidades
+//   libres), el resto ya se devolvió. Los préstamos son todos de la segunda mitad de los
+//   estudiantes; la primera mitad no tiene ninguno y es la que usan los benchmarks que
+//   prestan y devuelven (ver miembrosSinPrestamos).
+//
+// La carpeta se debe preparar antes de que el programa resuelva cualquier ruta
+// (PathManager guarda la primera): los benchmarks lo hacen en su @Setup(Level.Trial), y
+// cada combinación de parámetros corre en una JVM nueva (@Fork).
+final class DatosBenchmark {
+
+    static final String CONTRASENA = "clave123"; // Contraseña de todos los miembros.
+    static final long DOCUMENTO_BASE = 100000000L; // Documento del estudiante 0.
+
+    private static final String[] PALABRAS = { "Cancion", "Historia", "Noche", "Mar", "Ciudad", "Tiempo", "Amor",
+            "Guerra", "Jardin", "Sombra", "Camino", "Fuego", "Silencio", "Rio", "Montana", "Viento" };
+
+    private final Path carpeta; // Carpeta temporal con los archivos.
+    private final int filas; // Libros, miembros y préstamos generados.
+
+    private DatosBenchmark(Path carpeta, int filas) {
+        this.carpeta = carpeta;
+        this.filas = filas;
+    }
+
+    // Genera la carpeta con 'filas' registros de cada tipo y la fija como carpeta de datos.
+    static DatosBenchmark generar(int filas) throws IOException {
+        if (filas < 2) {
+            throw new IllegalArgumentException("Se necesitan al menos 2 filas: " + filas);
+        }
+        Path carpeta = Files.createTempDirectory("biblioteca-bench");
+        DatosBenchmark datos = new DatosBenchmark(carpeta, filas);
+        datos.escribirBibliotecas();
+        datos.escribirLibros();
+        datos.escribirMiembros();
+        datos.escribirPrestamos();
+        System.setProperty(PathManager.PROPIEDAD_DATOS_DIR, carpeta.toString());
+        PathManager.limpiarCache();
+        return datos;
+    }
+
+    int getFilas() {
+        return filas;
+    }
+
+    // Código del libro i.
+    static String codigoLibro(int i) {
+        return (i % 2 == 0 ? "1-M-" : "2-B-") + i;
+    }
+
+    // Número de estudiantes sin préstamos (la primera mitad).
+    int miembrosSinPrestamos() {
+        return filas / 2;
+    }
+
+    // Documento del estudiante i (0 <= i < filas).
+    static long documento(int i) {
+        return DOCUMENTO_BASE + i;
+    }
+
+    // Guarda lo pendiente del repositorio de libros y borra la carpeta. Después de
+    // esto el programa no debe volver a escribir (el gancho de cierre de LibroRepository
+    // ya no tiene nada pendiente).
+    void borrar() throws IOException {
+        LibroRepository.getInstancia().sincronizar();
+        try (Stream<Path> archivos = Files.walk(carpeta)) {
+            for (Path archivo : (Iterable<Path>) archivos.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(archivo);
+            }
+        }
+    }
+
+    // Cada línea se arma con los constructores de las clases del programa y
+    // construirLineaConVersion (como GeneradorDatos), así un cambio de formato de los
+    // archivos llega también a los datos de los benchmarks.
+    private void escribirBibliotecas() throws IOException {
+        try (BufferedWriter writer = abrir("Bibliotecas.txt")) {
+            escribirLinea(writer, new Biblioteca(1, "Medellin", "Biblioteca Central"));
+            escribirLinea(writer, new Biblioteca(2, "Bogota", "Biblioteca Norte"));
+        }
+    }
+
+    // Títulos de dos o tres palabras del vocabulario y 1000 autores distintos.
+    private void escribirLibros() throws IOException {
+        Random aleatorio = new Random(42); // Semilla fija: siempre el mismo catálogo.
+        try (BufferedWriter writer = abrir("Libros.txt")) {
+            for (int i = 0; i < filas; i++) {
+                boolean prestado = i % 4 == 0; // Ver escribirPrestamos.
+                StringBuilder nombre = new StringBuilder(PALABRAS[aleatorio.nextInt(PALABRAS.length)]);
+                int palabras = 1 + aleatorio.nextInt(2);
+                for (int p = 0; p < palabras; p++) {
+                    nombre.append(' ').append(PALABRAS[aleatorio.nextInt(PALABRAS.length)]);
+                }
+                escribirLinea(writer, new Libro(nombre + " " + i, "Autor " + (i % 1000), codigoLibro(i),
+                        prestado ? 2 : 3, prestado ? 1 : 0, biblioteca(i), sede(i)));
+            }
+        }
+    }
+
+    // Todos con el mismo hash: calcular PBKDF2 por miembro haría la generación muy lenta.
+    // Los campos se cargan con cargarCampos, que no vuelve a calcular el hash.
+    private void escribirMiembros() throws IOException {
+        String hash = Miembro.hashPasswordEstatico(CONTRASENA);
+        try (BufferedWriter writer = abrir("Miembros.txt")) {
+            Admin admin = new Admin();
+            admin.cargarCampos((byte) 1, 1, (byte) 0, "Sys", "Admin", "admin", hash);
+            escribirLinea(writer, admin);
+            Usuario usuario = new Usuario(); // Se reutiliza: solo se usa para armar la línea.
+            for (int i = 0; i < filas; i++) {
+                usuario.cargarCampos((byte) 1, documento(i), (byte) 1, "Nombre" + i, "Apellido" + i, "u" + i, hash);
+                usuario.cargarCamposUsuario(0.0, sede(i), "Ingenieria de Sistemas");
+                escribirLinea(writer, usuario);
+            }
+        }
+    }
+
+    // Un préstamo por libro, de la segunda mitad de los estudiantes; los activos vencen
+    // entre hace 30 días y dentro de 29.
+    private void escribirPrestamos() throws IOException {
+        int hoy = Fecha.hoy();
+        int mitad = miembrosSinPrestamos();
+        try (BufferedWriter writer = abrir("LibroPrestado.txt")) {
+            for (int i = 0; i < filas; i++) {
+                boolean activo = i % 4 == 0;
+                int diaPrestamo = hoy - 1 - (i % 60);
+                long documento = documento(mitad + i % (filas - mitad));
+                int diaDevolucionEstimada = diaPrestamo + Biblioteca.DIAS_MAX_PRESTAMO;
+                escribirLinea(writer, activo
+                        ? new Prestamo(codigoLibro(i), documento, diaPrestamo, diaDevolucionEstimada, biblioteca(i))
+                        : new Prestamo(codigoLibro(i), documento, diaPrestamo, diaDevolucionEstimada,
+                                Math.min(hoy, diaPrestamo + i % 30), biblioteca(i), "DEVUELTO"));
+            }
+        }
+    }
+
+    // Biblioteca y sede del libro (o del estudiante) i: los pares son de Medellín.
+    private static int biblioteca(int i) {
+        return i % 2 == 0 ? 1 : 2;
+    }
+
+    private static String sede(int i) {
+        return i % 2 == 0 ? "Medellin" : "Bogota";
+    }
+
+    // Escribe la línea del registro, con versión 1 (recién creado).
+    private static void escribirLinea(BufferedWriter writer, IPersistible registro) throws IOException {
+        writer.write(registro.construirLineaConVersion(1));
+        writer.newLine();
+    }
+
+    private BufferedWriter abrir(String nombre) throws IOException {
+        return Files.newBufferedWriter(carpeta.resolve(nombre), StandardCharsets.UTF_8);
+    }
+}
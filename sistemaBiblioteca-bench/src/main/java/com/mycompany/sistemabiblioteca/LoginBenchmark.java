@@ -0,0 +1,77 @@
+package com.mycompany.sistemabiblioteca; // Mismo paquete que el programa, para usar sus métodos de paquete.
+
+import java.io.IOException; // Para manejar errores de archivo.
+import java.util.concurrent.TimeUnit; // Para indicar la unidad de los resultados.
+import org.openjdk.jmh.annotations.Benchmark; // Marca un método medido.
+import org.openjdk.jmh.annotations.BenchmarkMode; // Qué se mide (tiempo medio, rendimiento...).
+import org.openjdk.jmh.annotations.Fork; // Cuántas JVM nuevas se lanzan.
+import org.openjdk.jmh.annotations.Level; // Cuándo se ejecuta la preparación.
+import org.openjdk.jmh.annotations.Measurement; // Iteraciones medidas.
+import org.openjdk.jmh.annotations.Mode; // Modos de medición.
+import org.openjdk.jmh.annotations.OutputTimeUnit; // Unidad de los resultados.
+import org.openjdk.jmh.annotations.Param; // Parámetros del benchmark.
+import org.openjdk.jmh.annotations.Scope; // Alcance del estado compartido.
+import org.openjdk.jmh.annotations.Setup; // Preparación antes de medir.
+import org.openjdk.jmh.annotations.State; // Estado compartido entre invocaciones.
+import org.openjdk.jmh.annotations.TearDown; // Limpieza al terminar.
+import org.openjdk.jmh.annotations.Warmup; // Iteraciones de calentamiento.
+
+// Mide Miembro.login (búsqueda del usuario en el índice + PBKDF2 en el grupo de hilos de
+// VerificadorContrasenas) y Miembro.loginConToken (el mismo login con un token de
+// sesión, sin PBKDF2). Cada invocación entra con un usuario distinto.
+//
+// Uso: java -jar target/benchmarks.jar LoginBenchmark -p filas=1000
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Dbiblioteca.sesion.ttl.segundos=3600") // Activa los tokens de sesión.
+public class LoginBenchmark {
+
+    private static final int USUARIOS_CON_TOKEN = 1000; // Tokens emitidos antes de medir.
+
+    @Param({ "1000", "10000", "100000", "1000000" })
+    private int filas; // Libros, miembros y préstamos de los datos.
+
+    private DatosBenchmark datos;
+    private final Miembro miembro = new Miembro(); // login() no usa los datos del objeto.
+    private String[] tokens; // Token de sesión de los primeros usuarios.
+    private int siguiente = 0; // Próximo usuario.
+
+    @Setup(Level.Trial)
+    public void generar() throws IOException {
+        datos = DatosBenchmark.generar(filas);
+        int conToken = Math.min(USUARIOS_CON_TOKEN, filas);
+        tokens = new String[conToken];
+        for (int i = 0; i < conToken; i++) {
+            Miembro usuario = Miembro.encontrarMiembroPorUsuario("u" + i);
+            if (miembro.login(usuario.getUsuario(), DatosBenchmark.CONTRASENA).isEmpty()) {
+                throw new IllegalStateException("No se pudo iniciar sesion con u" + i);
+            }
+            tokens[i] = usuario.emitirTokenSesion();
+            if (tokens[i] == null) {
+                throw new IllegalStateException("Los tokens de sesion estan desactivados.");
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void borrar() throws IOException {
+        datos.borrar();
+    }
+
+    @Benchmark
+    public String login() {
+        int i = siguiente;
+        siguiente = (i + 1) % filas;
+        return miembro.login("u" + i, DatosBenchmark.CONTRASENA);
+    }
+
+    @Benchmark
+    public String loginConToken() {
+        int i = siguiente;
+        siguiente = (i + 1) % tokens.length;
+        return miembro.loginConToken("u" + i, tokens[i]);
+    }
+}
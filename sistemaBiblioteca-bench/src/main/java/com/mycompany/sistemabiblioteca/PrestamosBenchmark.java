@@ -0,0 +1,130 @@
+package com.mycompany.sistemabiblioteca; // Mismo paquete que el programa, para usar sus métodos de paquete.
+
+import java.io.IOException; // Para manejar errores de archivo.
+import java.util.concurrent.TimeUnit; // Para indicar la unidad de los resultados.
+import org.openjdk.jmh.annotations.Benchmark; // Marca un método medido.
+import org.openjdk.jmh.annotations.BenchmarkMode; // Qué se mide (tiempo medio, rendimiento...).
+import org.openjdk.jmh.annotations.Fork; // Cuántas JVM nuevas se lanzan.
+import org.openjdk.jmh.annotations.Level; // Cuándo se ejecuta la preparación.
+import org.openjdk.jmh.annotations.Measurement; // Iteraciones medidas.
+import org.openjdk.jmh.annotations.Mode; // Modos de medición.
+import org.openjdk.jmh.annotations.OutputTimeUnit; // Unidad de los resultados.
+import org.openjdk.jmh.annotations.Param; // Parámetros del benchmark.
+import org.openjdk.jmh.annotations.Scope; // Alcance del estado compartido.
+import org.openjdk.jmh.annotations.Setup; // Preparación antes de medir.
+import org.openjdk.jmh.annotations.State; // Estado compartido entre invocaciones.
+import org.openjdk.jmh.annotations.TearDown; // Limpieza al terminar.
+import org.openjdk.jmh.annotations.Warmup; // Iteraciones de calentamiento.
+
+// Mide Biblioteca.prestarLibro y Biblioteca.devolverLibro completos (verificaciones,
+// cerrojos y escritura de los archivos) sobre los datos de DatosBenchmark.
+// Cada invocación usa un par (estudiante, libro) nuevo, para repartir los préstamos entre
+// miembros, libros y franjas de cerrojos como en el uso real y no medir siempre la misma
+// línea del archivo (repetir el par también funcionaría: el préstamo nuevo se guarda con
+// la siguiente vez, ver Prestamo.getVez). Lo que no se mide (elegir el par, cargar el
+// miembro y deshacer o preparar el préstamo) va en @Setup/@TearDown(Level.Invocation).
+//
+// Uso: java -jar target/benchmarks.jar PrestamosBenchmark -p filas=10000
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PrestamosBenchmark {
+
+    // Datos de la prueba y el contador de pares ya usados.
+    @State(Scope.Benchmark)
+    public static class Datos {
+
+        @Param({ "1000", "10000", "100000", "1000000" })
+        private int filas; // Libros, miembros y préstamos de los datos.
+
+        private DatosBenchmark datos;
+        private Biblioteca biblioteca; // La biblioteca 1 (la de los libros pares).
+        private long usados = 0; // Pares (estudiante, libro) ya entregados.
+
+        @Setup(Level.Trial)
+        public void generar() throws IOException {
+            datos = DatosBenchmark.generar(filas);
+            biblioteca = Biblioteca.cargarTodasLasBibliotecas().get(0);
+        }
+
+        @TearDown(Level.Trial)
+        public void borrar() throws IOException {
+            datos.borrar();
+        }
+
+        // Siguiente par sin usar: el estudiante k % M (M = los que no tienen préstamos) y,
+        // de los libros de la biblioteca 1, el (k / M + k % M) % B. Para un mismo
+        // estudiante el libro cambia en cada vuelta, así no se repite ningún par en las
+        // primeras M * B invocaciones.
+        void elegir(Par par) {
+            int estudiantes = datos.miembrosSinPrestamos();
+            int librosBiblioteca = (filas + 1) / 2;
+            long k = usados++;
+            int estudiante = (int) (k % estudiantes);
+            int libro = (int) ((k / estudiantes + estudiante) % librosBiblioteca);
+            par.miembro = Miembro.encontrarMiembroPorNumeroDocumento(DatosBenchmark.documento(estudiante));
+            par.codigo = DatosBenchmark.codigoLibro(2 * libro);
+            par.resultado = null;
+        }
+    }
+
+    // Estudiante y libro de una invocación, y lo que devolvió la operación medida.
+    public static class Par {
+        Miembro miembro;
+        String codigo;
+        Resultado<Prestamo> resultado;
+    }
+
+    // Un par listo para prestar; al terminar, el préstamo se devuelve.
+    @State(Scope.Thread)
+    public static class ParaPrestar extends Par {
+
+        @Setup(Level.Invocation)
+        public void elegir(Datos datos) {
+            datos.elegir(this);
+        }
+
+        @TearDown(Level.Invocation)
+        public void devolver(Datos datos) {
+            comprobar(resultado);
+            comprobar(datos.biblioteca.devolverLibro(miembro, codigo));
+        }
+    }
+
+    // Un par con el préstamo ya hecho, listo para devolver.
+    @State(Scope.Thread)
+    public static class ParaDevolver extends Par {
+
+        @Setup(Level.Invocation)
+        public void prestar(Datos datos) {
+            datos.elegir(this);
+            comprobar(datos.biblioteca.prestarLibro(miembro, codigo));
+        }
+
+        @TearDown(Level.Invocation)
+        public void verificar() {
+            comprobar(resultado);
+        }
+    }
+
+    @Benchmark
+    public Resultado<Prestamo> prestarLibro(Datos datos, ParaPrestar par) {
+        par.resultado = datos.biblioteca.prestarLibro(par.miembro, par.codigo);
+        return par.resultado;
+    }
+
+    @Benchmark
+    public Resultado<Prestamo> devolverLibro(Datos datos, ParaDevolver par) {
+        par.resultado = datos.biblioteca.devolverLibro(par.miembro, par.codigo);
+        return par.resultado;
+    }
+
+    // Un préstamo o devolución que falla mediría otro camino (el del error): se detiene.
+    private static void comprobar(Resultado<Prestamo> resultado) {
+        if (!resultado.esExito()) {
+            throw new IllegalStateException("La operacion fallo: " + resultado.getMensaje());
+        }
+    }
+}
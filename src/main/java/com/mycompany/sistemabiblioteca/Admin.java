@@ -4,7 +4,10 @@
  */
 package com.mycompany.sistemabiblioteca; // Carpeta donde está organizado nuestro código.
 
+import java.io.IOException; // Para manejar errores al tomar el bloqueo de un archivo.
+import java.util.Iterator; // Para recorrer listados y quitar elementos mientras se recorren.
 import java.util.List; // Necesario para manejar listas de objetos.
+import java.util.concurrent.locks.ReentrantLock; // Cerrojo del libro al editarlo o eliminarlo.
 import java.util.stream.Collectors; // Herramienta para trabajar con listas de forma avanzada, como filtrarlas.
 
 public class Admin extends Miembro { // La clase 'Admin' es un tipo especial de 'Miembro'.
@@ -25,7 +28,8 @@ public class Admin extends Miembro { // La clase 'Admin' es un tipo especial de
     // --- Metodos de Administracion de Libros ---
 
     // Este método permite al administrador agregar un libro nuevo al sistema.
-    public String agregarLibro(String nombre, String autor, String codigoPropuesto, int unidadesTotales,
+    // Si sale bien, el valor del resultado es el libro creado (con su código final).
+    public Resultado<Libro> agregarLibro(String nombre, String autor, String codigoPropuesto, int unidadesTotales,
             int idBiblioteca,
             String sedeBiblioteca) {
         String codigoFinal = codigoPropuesto; // Toma el código que se propuso.
@@ -34,11 +38,15 @@ public class Admin extends Miembro { // La clase 'Admin' es un tipo especial de
         if (codigoFinal == null || codigoFinal.trim().isEmpty() || codigoFinal.equalsIgnoreCase("auto")) {
             codigoFinal = Libro.generarSiguienteCodigoLibro(idBiblioteca, sedeBiblioteca); // Genera un código único
                                                                                            // para el libro.
+            if (codigoFinal == null) { // No se pudo acceder al archivo de secuencias.
+                return Resultado.fallo(Resultado.Estado.ERROR, "Error: No se pudo generar el codigo del libro.");
+            }
         } else {
             // Si se propuso un código, verifica que no exista ya.
             if (Libro.encontrarLibroPorCodigo(codigoFinal) != null) {
-                return "Error: Ya existe un libro con el codigo " + codigoFinal + ". Intente con otro."; // Si existe,
-                                                                                                         // da un error.
+                return Resultado.fallo(Resultado.Estado.DUPLICADO,
+                        "Error: Ya existe un libro con el codigo " + codigoFinal + ". Intente con otro."); // Si existe,
+                                                                                                          // da un error.
             }
         }
 
@@ -46,53 +54,91 @@ public class Admin extends Miembro { // La clase 'Admin' es un tipo especial de
                                                                                                                  // el
                                                                                                                  // nuevo
                                                                                                                  // libro.
-        nuevoLibro.guardar(); // Guarda el libro en el sistema (lo escribe en un archivo).
-        return "Exito: Libro '" + nombre + "' agregado con exito. Codigo: " + codigoFinal + "."; // Mensaje de éxito.
+        try {
+            nuevoLibro.guardar(); // Guarda el libro en el sistema (lo escribe en un archivo).
+        } catch (ConflictoVersionException e) { // Otro proceso cambió el registro: no se escribió nada.
+            return Resultado.conflicto(e);
+        }
+        return Resultado.exito(nuevoLibro,
+                "Exito: Libro '" + nombre + "' agregado con exito. Codigo: " + codigoFinal + "."); // Mensaje de éxito.
     }
 
     // Este método permite al administrador cambiar la información de un libro
-    // existente.
-    public String editarLibro(String codigoLibro, String nuevoNombre, String nuevoAutor, int nuevasUnidadesTotales,
+    // existente. Si sale bien, el valor del resultado es el libro actualizado.
+    public Resultado<Libro> editarLibro(String codigoLibro, String nuevoNombre, String nuevoAutor, int nuevasUnidadesTotales,
             int nuevaIdBiblioteca, String nuevaSedeBiblioteca) {
+        ReentrantLock bloqueo = Biblioteca.BLOQUEOS_LIBROS.para(codigoLibro); // Mismo cerrojo que préstamos y devoluciones.
+        bloqueo.lock();
+        try {
+            return editarLibroBloqueado(codigoLibro, nuevoNombre, nuevoAutor, nuevasUnidadesTotales, nuevaIdBiblioteca,
+                    nuevaSedeBiblioteca);
+        } finally {
+            bloqueo.unlock();
+        }
+    }
+
+    // Edición del libro con su cerrojo tomado (las unidades no cambian mientras tanto).
+    private Resultado<Libro> editarLibroBloqueado(String codigoLibro, String nuevoNombre, String nuevoAutor,
+            int nuevasUnidadesTotales, int nuevaIdBiblioteca, String nuevaSedeBiblioteca) {
         Libro libro = Libro.encontrarLibroPorCodigo(codigoLibro); // Busca el libro por su código.
         if (libro == null) { // Si no encuentra el libro.
-            return "Error: Libro con codigo " + codigoLibro + " no encontrado."; // Da un error.
+            return Resultado.fallo(Resultado.Estado.NO_ENCONTRADO,
+                    "Error: Libro con codigo " + codigoLibro + " no encontrado."); // Da un error.
         }
 
         int unidadesPrestadasActuales = libro.getUnidadesPrestadas(); // Obtiene cuántas unidades están prestadas.
         // Impide que las nuevas unidades totales sean menos que las ya prestadas.
         if (nuevasUnidadesTotales < unidadesPrestadasActuales) {
-            return "Error: Las nuevas unidades totales (" + nuevasUnidadesTotales
-                    + ") no pueden ser menores que las unidades actualmente prestadas (" + unidadesPrestadasActuales
-                    + ").";
+            return Resultado.fallo(Resultado.Estado.RECHAZADO, "Error: Las nuevas unidades totales ("
+                    + nuevasUnidadesTotales + ") no pueden ser menores que las unidades actualmente prestadas ("
+                    + unidadesPrestadasActuales + ").");
         }
 
-        libro.setNombre(nuevoNombre); // Actualiza el nombre del libro.
-        libro.setAutor(nuevoAutor); // Actualiza el autor del libro.
-        libro.setUnidadesLibres(nuevasUnidadesTotales - unidadesPrestadasActuales); // Recalcula las unidades libres.
-        libro.setIdBiblioteca(nuevaIdBiblioteca); // Actualiza la ID de la biblioteca.
-        libro.setSedeBiblioteca(nuevaSedeBiblioteca); // Actualiza la sede de la biblioteca.
+        try (Persistencia.Transaccion tx = Persistencia.begin()) { // Todos los cambios se escriben juntos al final.
+            libro.setNombre(nuevoNombre); // Actualiza el nombre del libro.
+            libro.setAutor(nuevoAutor); // Actualiza el autor del libro.
+            libro.setUnidadesLibres(nuevasUnidadesTotales - unidadesPrestadasActuales); // Recalcula las unidades libres.
+            libro.setIdBiblioteca(nuevaIdBiblioteca); // Actualiza la ID de la biblioteca.
+            libro.setSedeBiblioteca(nuevaSedeBiblioteca); // Actualiza la sede de la biblioteca.
 
-        libro.guardar(); // Guarda los cambios del libro.
-        return "Exito: Libro '" + codigoLibro + "' actualizado con exito."; // Mensaje de éxito.
+            libro.guardar(); // Guarda los cambios del libro.
+            tx.confirmar();
+        } catch (ConflictoVersionException e) { // Otro proceso cambió el registro: no se escribió nada.
+            return Resultado.conflicto(e);
+        }
+        return Resultado.exito(libro, "Exito: Libro '" + codigoLibro + "' actualizado con exito."); // Mensaje de éxito.
     }
 
     // Este método elimina unidades de un libro, o el libro completo si se quedan
-    // sin unidades.
-    public String eliminarLibro(String codigoLibro, int unidadesAeliminar) {
+    // sin unidades. Si sale bien, el valor del resultado es el libro con sus unidades
+    // restantes (las dos en 0 si se eliminó por completo).
+    public Resultado<Libro> eliminarLibro(String codigoLibro, int unidadesAeliminar) {
+        ReentrantLock bloqueo = Biblioteca.BLOQUEOS_LIBROS.para(codigoLibro); // Mismo cerrojo que préstamos y devoluciones.
+        bloqueo.lock();
+        try {
+            return eliminarLibroBloqueado(codigoLibro, unidadesAeliminar);
+        } finally {
+            bloqueo.unlock();
+        }
+    }
+
+    // Eliminación de unidades con el cerrojo del libro tomado.
+    private Resultado<Libro> eliminarLibroBloqueado(String codigoLibro, int unidadesAeliminar) {
         Libro libro = Libro.encontrarLibroPorCodigo(codigoLibro); // Busca el libro.
         if (libro == null) { // Si no encuentra el libro.
-            return "Error: Libro con codigo " + codigoLibro + " no encontrado."; // Da un error.
+            return Resultado.fallo(Resultado.Estado.NO_ENCONTRADO,
+                    "Error: Libro con codigo " + codigoLibro + " no encontrado."); // Da un error.
         }
 
         if (unidadesAeliminar <= 0) { // Verifica que la cantidad a eliminar sea mayor a cero.
-            return "Error: El numero de unidades a eliminar debe ser mayor que 0."; // Da un error.
+            return Resultado.fallo(Resultado.Estado.INVALIDO,
+                    "Error: El numero de unidades a eliminar debe ser mayor que 0."); // Da un error.
         }
 
         // Si se intenta eliminar más de las unidades libres, ajusta la cantidad a las
         // unidades libres.
         if (unidadesAeliminar > libro.getUnidadesLibres()) {
-            System.out.println("Advertencia: Se intenta eliminar " + unidadesAeliminar + " unidades, pero solo hay "
+            Sesion.salida().println("Advertencia: Se intenta eliminar " + unidadesAeliminar + " unidades, pero solo hay "
                     + libro.getUnidadesLibres() + " unidades libres. Se eliminaran solo las unidades libres.");
             unidadesAeliminar = libro.getUnidadesLibres(); // Ajusta la cantidad a eliminar.
         }
@@ -100,42 +146,46 @@ public class Admin extends Miembro { // La clase 'Admin' es un tipo especial de
         // Si no hay unidades libres para eliminar y todavía hay prestadas, no se puede
         // eliminar.
         if (unidadesAeliminar == 0 && libro.getUnidadesPrestadas() > 0) {
-            return "No hay unidades libres para eliminar del libro '" + libro.getNombre()
-                    + "'. Las unidades prestadas (" + libro.getUnidadesPrestadas()
-                    + ") no se pueden eliminar hasta que sean devueltas.";
-        }
-
-        // Si hay unidades para eliminar.
-        if (unidadesAeliminar > 0) {
-            libro.setUnidadesLibres(libro.getUnidadesLibres() - unidadesAeliminar); // Resta las unidades eliminadas de
-                                                                                    // las libres.
-
-            // Si el libro se queda sin unidades libres y sin prestadas, se elimina por
-            // completo.
-            if (libro.getUnidadesLibres() == 0 && libro.getUnidadesPrestadas() == 0) {
-                libro.eliminar(); // Elimina el registro completo del libro.
-                return "Exito: Libro '" + libro.getNombre() + "' completamente eliminado (todas las unidades)."; // Mensaje
-                                                                                                                 // de
-                                                                                                                 // éxito.
+            return Resultado.fallo(Resultado.Estado.RECHAZADO, "No hay unidades libres para eliminar del libro '"
+                    + libro.getNombre() + "'. Las unidades prestadas (" + libro.getUnidadesPrestadas()
+                    + ") no se pueden eliminar hasta que sean devueltas.");
+        }
+
+        try (Persistencia.Transaccion tx = Persistencia.begin()) { // Los cambios se escriben juntos al final.
+            // Si hay unidades para eliminar.
+            if (unidadesAeliminar > 0) {
+                libro.setUnidadesLibres(libro.getUnidadesLibres() - unidadesAeliminar); // Resta las unidades eliminadas de
+                                                                                        // las libres.
+
+                // Si el libro se queda sin unidades libres y sin prestadas, se elimina por
+                // completo.
+                if (libro.getUnidadesLibres() == 0 && libro.getUnidadesPrestadas() == 0) {
+                    libro.eliminar(); // Elimina el registro completo del libro.
+                    tx.confirmar();
+                    return Resultado.exito(libro, "Exito: Libro '" + libro.getNombre()
+                            + "' completamente eliminado (todas las unidades)."); // Mensaje de éxito.
+                } else {
+                    libro.guardar(); // Si aún quedan unidades, guarda los cambios.
+                    tx.confirmar();
+                    return Resultado.exito(libro, "Exito: " + unidadesAeliminar + " unidades del libro '"
+                            + libro.getNombre() + "' eliminadas. Quedan " + libro.getUnidadesLibres() + " libres y "
+                            + libro.getUnidadesPrestadas() + " prestadas."); // Mensaje de éxito con detalles.
+                }
             } else {
-                libro.guardar(); // Si aún quedan unidades, guarda los cambios.
-                return "Exito: " + unidadesAeliminar + " unidades del libro '" + libro.getNombre()
-                        + "' eliminadas. Quedan " + libro.getUnidadesLibres() + " libres y "
-                        + libro.getUnidadesPrestadas() + " prestadas."; // Mensaje de éxito con detalles.
+                return Resultado.fallo(Resultado.Estado.RECHAZADO, "Error: No se realizaron cambios en las unidades del libro '"
+                        + libro.getNombre() + "'."); // Mensaje si no hubo cambios.
             }
-        } else {
-            return "Error: No se realizaron cambios en las unidades del libro '" + libro.getNombre() + "'."; // Mensaje
-                                                                                                             // si no
-                                                                                                             // hubo
-                                                                                                             // cambios.
+        } catch (ConflictoVersionException e) { // Otro proceso cambió el registro: no se escribió nada.
+            return Resultado.conflicto(e);
         }
     }
 
     // Versión simplificada para eliminar todas las unidades libres de un libro.
-    public String eliminarLibro(String codigoLibro) {
+    public Resultado<Libro> eliminarLibro(String codigoLibro) {
         Libro libro = Libro.encontrarLibroPorCodigo(codigoLibro); // Busca el libro.
         if (libro == null) { // Si no lo encuentra.
-            return "Error: Libro con codigo " + codigoLibro + " no encontrado."; // Da un error.
+            return Resultado.fallo(Resultado.Estado.NO_ENCONTRADO,
+                    "Error: Libro con codigo " + codigoLibro + " no encontrado."); // Da un error.
         }
         return eliminarLibro(codigoLibro, libro.getUnidadesLibres()); // Llama al método completo para eliminar todas
                                                                       // las unidades libres.
@@ -144,100 +194,123 @@ public class Admin extends Miembro { // La clase 'Admin' es un tipo especial de
     // --- Metodos de Administracion de Usuarios ---
 
     // Este método permite al administrador crear un nuevo usuario.
-    public String crearUsuario(byte tipoDocumento, long numeroDocumento, byte rol, String nombre, String apellido,
+    // Si sale bien, el valor del resultado es el usuario creado.
+    public Resultado<Usuario> crearUsuario(byte tipoDocumento, long numeroDocumento, byte rol, String nombre, String apellido,
             String usuario,
             String contrasena, double deuda, String sedeUniversidad, String carrera) {
         if (Miembro.encontrarMiembroPorUsuario(usuario) != null) { // Verifica si el nombre de usuario ya existe.
-            return "Error: Ya existe un usuario con el nombre de usuario '" + usuario + "'."; // Da un error.
+            return Resultado.fallo(Resultado.Estado.DUPLICADO,
+                    "Error: Ya existe un usuario con el nombre de usuario '" + usuario + "'."); // Da un error.
         }
         if (Miembro.encontrarMiembroPorNumeroDocumento(numeroDocumento) != null) { // Verifica si el número de documento
                                                                                    // ya existe.
-            return "Error: Ya existe un usuario con el numero de documento '" + numeroDocumento + "'."; // Da un error.
+            return Resultado.fallo(Resultado.Estado.DUPLICADO,
+                    "Error: Ya existe un usuario con el numero de documento '" + numeroDocumento + "'."); // Da un error.
         }
 
         Usuario nuevoUsuario = new Usuario(tipoDocumento, numeroDocumento, rol, nombre, apellido, usuario, contrasena,
                 deuda,
                 sedeUniversidad, carrera); // Crea el nuevo usuario.
-        nuevoUsuario.guardar(); // Guarda el usuario en el sistema.
-        return "Exito: Usuario '" + usuario + "' agregado con exito (Rol: " + rol + ")."; // Mensaje de éxito.
+        try {
+            nuevoUsuario.guardar(); // Guarda el usuario en el sistema.
+        } catch (ConflictoVersionException e) { // Otro proceso cambió el registro: no se escribió nada.
+            return Resultado.conflicto(e);
+        }
+        return Resultado.exito(nuevoUsuario,
+                "Exito: Usuario '" + usuario + "' agregado con exito (Rol: " + rol + ")."); // Mensaje de éxito.
     }
 
     // Este método permite al administrador editar la información de un usuario
-    // existente.
-    public String editarUsuario(String usuarioExistente, byte nuevoTipoDocumento, long nuevoNumeroDocumento,
+    // existente. Si sale bien, el valor del resultado es el miembro actualizado (un
+    // Usuario nuevo si un Admin pasó a ser Usuario).
+    public Resultado<Miembro> editarUsuario(String usuarioExistente, byte nuevoTipoDocumento, long nuevoNumeroDocumento,
             byte nuevoRol,
             String nuevoNombre, String nuevoApellido, String nuevoUsuario, String nuevaContrasena,
             double nuevaDeuda, String nuevaSedeUniversidad, String nuevaCarrera) {
         Miembro miembroBase = Miembro.encontrarMiembroPorUsuario(usuarioExistente); // Busca el miembro a editar.
         if (miembroBase == null) { // Si no lo encuentra.
-            return "Error: Usuario '" + usuarioExistente + "' no encontrado."; // Da un error.
+            return Resultado.fallo(Resultado.Estado.NO_ENCONTRADO,
+                    "Error: Usuario '" + usuarioExistente + "' no encontrado."); // Da un error.
         }
 
         // Verifica si el nuevo nombre de usuario ya existe y es diferente al actual.
         if (!usuarioExistente.equalsIgnoreCase(nuevoUsuario)
                 && Miembro.encontrarMiembroPorUsuario(nuevoUsuario) != null) {
-            return "Error: El nuevo nombre de usuario '" + nuevoUsuario + "' ya esta en uso."; // Da un error.
+            return Resultado.fallo(Resultado.Estado.DUPLICADO,
+                    "Error: El nuevo nombre de usuario '" + nuevoUsuario + "' ya esta en uso."); // Da un error.
         }
 
         // Verifica si el nuevo número de documento ya existe y es diferente al actual.
         if (miembroBase.getNumeroDocumento() != nuevoNumeroDocumento
                 && Miembro.encontrarMiembroPorNumeroDocumento(nuevoNumeroDocumento) != null) {
-            return "Error: El nuevo numero de documento '" + nuevoNumeroDocumento + "' ya esta en uso."; // Da un error.
-        }
-
-        // Actualiza los datos básicos del miembro.
-        miembroBase.setTipoDocumento(nuevoTipoDocumento);
-        miembroBase.setNumeroDocumento(nuevoNumeroDocumento);
-        miembroBase.setRol(nuevoRol); // Permite cambiar el rol.
-        miembroBase.setNombre(nuevoNombre);
-        miembroBase.setApellido(nuevoApellido);
-        miembroBase.setUsuario(nuevoUsuario);
-        if (nuevaContrasena != null && !nuevaContrasena.isEmpty()) { // Si se dio una nueva contraseña.
-            miembroBase.cambiarContrasena(nuevaContrasena); // La cambia, hasheándola.
-        }
-
-        // Maneja los campos específicos del 'Usuario' si el rol final no es
-        // Administrador.
-        if (miembroBase.getRol() != 0) { // Si el rol es de Usuario (no Admin).
-            Usuario usuarioEdit;
-            if (miembroBase instanceof Usuario) { // Si ya era un Usuario.
-                usuarioEdit = (Usuario) miembroBase; // Simplemente lo trata como tal.
+            return Resultado.fallo(Resultado.Estado.DUPLICADO,
+                    "Error: El nuevo numero de documento '" + nuevoNumeroDocumento + "' ya esta en uso."); // Da un error.
+        }
+
+        Miembro actualizado = miembroBase; // Objeto que queda guardado al final.
+        try (Persistencia.Transaccion tx = Persistencia.begin()) { // "Miembros.txt" se escribe una sola vez al final.
+            // Actualiza los datos básicos del miembro.
+            miembroBase.setTipoDocumento(nuevoTipoDocumento);
+            miembroBase.setNumeroDocumento(nuevoNumeroDocumento);
+            miembroBase.setRol(nuevoRol); // Permite cambiar el rol.
+            miembroBase.setNombre(nuevoNombre);
+            miembroBase.setApellido(nuevoApellido);
+            miembroBase.setUsuario(nuevoUsuario);
+            if (nuevaContrasena != null && !nuevaContrasena.isEmpty()) { // Si se dio una nueva contraseña.
+                miembroBase.cambiarContrasena(nuevaContrasena); // La cambia, hasheándola.
+            }
+
+            // Maneja los campos específicos del 'Usuario' si el rol final no es
+            // Administrador.
+            if (miembroBase.getRol() != 0) { // Si el rol es de Usuario (no Admin).
+                Usuario usuarioEdit;
+                if (miembroBase instanceof Usuario) { // Si ya era un Usuario.
+                    usuarioEdit = (Usuario) miembroBase; // Simplemente lo trata como tal.
+                } else {
+                    // Si era un Admin y su rol se cambió a Usuario, se crea un nuevo objeto Usuario
+                    // y se elimina el Admin original.
+                    Sesion.salida().println(
+                            "Advertencia: Un Admin fue cambiado a rol de Usuario. Se creara un nuevo objeto de Usuario y se eliminara el registro anterior.");
+                    miembroBase.setUsuario(null); // Marca el Admin para eliminación.
+                    miembroBase.guardar(); // Elimina el registro del Admin.
+
+                    usuarioEdit = new Usuario(miembroBase.getTipoDocumento(), miembroBase.getNumeroDocumento(), nuevoRol,
+                            miembroBase.getNombre(), miembroBase.getApellido(), miembroBase.getUsuario(),
+                            nuevaContrasena != null && !nuevaContrasena.isEmpty()
+                                    ? Miembro.hashPasswordEstatico(nuevaContrasena) // Si hay nueva contraseña, la hashea.
+                                    : miembroBase.getContrasena(), // Si no, usa la que tenía el Admin.
+                            0.0, "", ""); // Inicializa los campos de Usuario por defecto.
+                }
+                usuarioEdit.setDeuda(nuevaDeuda); // Actualiza la deuda.
+                usuarioEdit.setSedeUniversidad(nuevaSedeUniversidad); // Actualiza la sede de la universidad.
+                usuarioEdit.setCarrera(nuevaCarrera); // Actualiza la carrera.
+                usuarioEdit.guardar(); // Guarda el objeto Usuario completo.
+                actualizado = usuarioEdit;
             } else {
-                // Si era un Admin y su rol se cambió a Usuario, se crea un nuevo objeto Usuario
-                // y se elimina el Admin original.
-                System.out.println(
-                        "Advertencia: Un Admin fue cambiado a rol de Usuario. Se creara un nuevo objeto de Usuario y se eliminara el registro anterior.");
-                miembroBase.setUsuario(null); // Marca el Admin para eliminación.
-                miembroBase.guardar(); // Elimina el registro del Admin.
-
-                usuarioEdit = new Usuario(miembroBase.getTipoDocumento(), miembroBase.getNumeroDocumento(), nuevoRol,
-                        miembroBase.getNombre(), miembroBase.getApellido(), miembroBase.getUsuario(),
-                        nuevaContrasena != null && !nuevaContrasena.isEmpty()
-                                ? Miembro.hashPasswordEstatico(nuevaContrasena) // Si hay nueva contraseña, la hashea.
-                                : miembroBase.getContrasena(), // Si no, usa la que tenía el Admin.
-                        0.0, "", ""); // Inicializa los campos de Usuario por defecto.
+                miembroBase.guardar(); // Si sigue siendo Admin, solo guarda los campos básicos del Miembro.
             }
-            usuarioEdit.setDeuda(nuevaDeuda); // Actualiza la deuda.
-            usuarioEdit.setSedeUniversidad(nuevaSedeUniversidad); // Actualiza la sede de la universidad.
-            usuarioEdit.setCarrera(nuevaCarrera); // Actualiza la carrera.
-            usuarioEdit.guardar(); // Guarda el objeto Usuario completo.
-        } else {
-            miembroBase.guardar(); // Si sigue siendo Admin, solo guarda los campos básicos del Miembro.
+            tx.confirmar();
+        } catch (ConflictoVersionException e) { // Otro proceso cambió el registro: no se escribió nada.
+            return Resultado.conflicto(e);
         }
 
-        return "Exito: Miembro '" + usuarioExistente + "' actualizado con exito."; // Mensaje de éxito.
+        return Resultado.exito(actualizado,
+                "Exito: Miembro '" + usuarioExistente + "' actualizado con exito."); // Mensaje de éxito.
     }
 
     // Este método permite al administrador eliminar un usuario, pero con
-    // condiciones.
-    public String eliminarUsuario(String usuarioAEliminar) {
+    // condiciones. Si sale bien, el valor del resultado es el miembro eliminado (con
+    // el usuario en null, que es como se marca para eliminar).
+    public Resultado<Miembro> eliminarUsuario(String usuarioAEliminar) {
         Miembro miembro = Miembro.encontrarMiembroPorUsuario(usuarioAEliminar); // Busca el miembro.
         if (miembro == null) { // Si no lo encuentra.
-            return "Error: Usuario '" + usuarioAEliminar + "' no encontrado."; // Da un error.
+            return Resultado.fallo(Resultado.Estado.NO_ENCONTRADO,
+                    "Error: Usuario '" + usuarioAEliminar + "' no encontrado."); // Da un error.
         }
 
         if (miembro.getRol() == 0) { // No permite eliminar un administrador.
-            return "Error: No se puede eliminar a un usuario con rol de Administrador directamente."; // Da un error.
+            return Resultado.fallo(Resultado.Estado.NO_PERMITIDO,
+                    "Error: No se puede eliminar a un usuario con rol de Administrador directamente."); // Da un error.
         }
 
         // Verifica si el usuario tiene libros prestados actualmente.
@@ -245,190 +318,214 @@ public class Admin extends Miembro { // La clase 'Admin' es un tipo especial de
                 .filter(p -> "PRESTADO".equals(p.getEstado())) // Filtra solo los préstamos activos.
                 .collect(Collectors.toList());
         if (!prestamosActivos.isEmpty()) { // Si tiene préstamos activos.
-            return "Error: No se puede eliminar al usuario '" + usuarioAEliminar + "' porque tiene "
-                    + prestamosActivos.size() + " libros prestados."; // Da un error.
+            return Resultado.fallo(Resultado.Estado.RECHAZADO, "Error: No se puede eliminar al usuario '"
+                    + usuarioAEliminar + "' porque tiene " + prestamosActivos.size() + " libros prestados."); // Da un error.
         }
 
         // Verifica si el usuario tiene alguna deuda.
         if (miembro instanceof Usuario) { // Si es un objeto de tipo Usuario.
             Usuario user = (Usuario) miembro;
             if (user.getDeuda() > 0) { // Si la deuda es mayor a cero.
-                return "Error: No se puede eliminar al usuario '" + usuarioAEliminar
-                        + "' porque tiene una deuda pendiente de " + String.format("%.2f", user.getDeuda())
-                        + " pesos."; // Da un error.
+                return Resultado.fallo(Resultado.Estado.RECHAZADO, "Error: No se puede eliminar al usuario '"
+                        + usuarioAEliminar + "' porque tiene una deuda pendiente de "
+                        + String.format("%.2f", user.getDeuda()) + " pesos."); // Da un error.
             }
         }
-        miembro.setUsuario(null); // Marca el usuario para eliminación (poniendo su nombre de usuario a nulo).
-        miembro.guardar(); // Llama a guardar, que detecta el usuario nulo y lo elimina del archivo.
-        return "Exito: Usuario '" + usuarioAEliminar + "' eliminado con exito."; // Mensaje de éxito.
+        try (Persistencia.Transaccion tx = Persistencia.begin()) { // Una sola escritura del archivo.
+            miembro.setUsuario(null); // Marca el usuario para eliminación (poniendo su nombre de usuario a nulo).
+            miembro.guardar(); // Llama a guardar, que detecta el usuario nulo y lo elimina del archivo.
+            tx.confirmar();
+        } catch (ConflictoVersionException e) { // Otro proceso cambió el registro: no se escribió nada.
+            return Resultado.conflicto(e);
+        }
+        return Resultado.exito(miembro, "Exito: Usuario '" + usuarioAEliminar + "' eliminado con exito."); // Mensaje de éxito.
     }
 
     // --- Metodos de Administracion de Bibliotecas (NUEVO) ---
     // Este método permite al administrador añadir una nueva biblioteca al sistema.
-    public String agregarBiblioteca(int id, String sede, String nombreBiblioteca) {
-        if (Biblioteca.encontrarBibliotecaPorId(id) != null) { // Verifica si ya existe una biblioteca con esa ID.
-            return "Error: Ya existe una biblioteca con el ID " + id + "."; // Da un error.
-        }
-        if (Biblioteca.encontrarBibliotecaPorSede(sede) != null) { // Verifica si ya existe una biblioteca en esa sede.
-            return "Error: Ya existe una biblioteca en la sede " + sede + "."; // Da un error.
-        }
-        Biblioteca nuevaBiblioteca = new Biblioteca(id, sede, nombreBiblioteca); // Crea la nueva biblioteca.
-        List<Biblioteca> bibliotecas = Biblioteca.cargarTodasLasBibliotecas(); // Carga todas las bibliotecas
-                                                                               // existentes.
-        bibliotecas.add(nuevaBiblioteca); // Añade la nueva a la lista.
-        Biblioteca.guardarTodasLasBibliotecas(bibliotecas); // Guarda toda la lista actualizada en el archivo.
-        return "Exito: Biblioteca '" + nombreBiblioteca + "' agregada con exito."; // Mensaje de éxito.
+    // Si sale bien, el valor del resultado es la biblioteca creada.
+    public Resultado<Biblioteca> agregarBiblioteca(int id, String sede, String nombreBiblioteca) {
+        return conBloqueoBibliotecas(() -> {
+            if (Biblioteca.encontrarBibliotecaPorId(id) != null) { // Verifica si ya existe una biblioteca con esa ID.
+                return Resultado.fallo(Resultado.Estado.DUPLICADO,
+                        "Error: Ya existe una biblioteca con el ID " + id + "."); // Da un error.
+            }
+            if (Biblioteca.encontrarBibliotecaPorSede(sede) != null) { // Verifica si ya existe una biblioteca en esa sede.
+                return Resultado.fallo(Resultado.Estado.DUPLICADO,
+                        "Error: Ya existe una biblioteca en la sede " + sede + "."); // Da un error.
+            }
+            Biblioteca nuevaBiblioteca = new Biblioteca(id, sede, nombreBiblioteca); // Crea la nueva biblioteca.
+            List<Biblioteca> bibliotecas = Biblioteca.cargarTodasLasBibliotecas(); // Carga todas las bibliotecas
+                                                                                   // existentes.
+            bibliotecas.add(nuevaBiblioteca); // Añade la nueva a la lista.
+            Biblioteca.guardarTodasLasBibliotecas(bibliotecas); // Guarda toda la lista actualizada en el archivo.
+            return Resultado.exito(nuevaBiblioteca,
+                    "Exito: Biblioteca '" + nombreBiblioteca + "' agregada con exito."); // Mensaje de éxito.
+        });
     }
 
     // Este método permite al administrador editar los detalles de una biblioteca.
-    public String editarBiblioteca(int id, String nuevaSede, String nuevoNombre) {
-        List<Biblioteca> bibliotecas = Biblioteca.cargarTodasLasBibliotecas(); // Carga todas las bibliotecas.
-        boolean encontrada = false; // Bandera para saber si se encontró la biblioteca.
-        for (int i = 0; i < bibliotecas.size(); i++) { // Recorre la lista de bibliotecas.
-            if (bibliotecas.get(i).getId() == id) { // Si encuentra la biblioteca por su ID.
-                bibliotecas.get(i).setSede(nuevaSede); // Actualiza la sede.
-                bibliotecas.get(i).setNombreBiblioteca(nuevoNombre); // Actualiza el nombre.
-                encontrada = true; // Marca como encontrada.
-                break; // Sale del bucle.
+    // Si sale bien, el valor del resultado es la biblioteca actualizada.
+    public Resultado<Biblioteca> editarBiblioteca(int id, String nuevaSede, String nuevoNombre) {
+        return conBloqueoBibliotecas(() -> {
+            List<Biblioteca> bibliotecas = Biblioteca.cargarTodasLasBibliotecas(); // Carga todas las bibliotecas.
+            Biblioteca encontrada = null; // La biblioteca editada (null si no se encontró).
+            for (int i = 0; i < bibliotecas.size(); i++) { // Recorre la lista de bibliotecas.
+                if (bibliotecas.get(i).getId() == id) { // Si encuentra la biblioteca por su ID.
+                    bibliotecas.get(i).setSede(nuevaSede); // Actualiza la sede.
+                    bibliotecas.get(i).setNombreBiblioteca(nuevoNombre); // Actualiza el nombre.
+                    encontrada = bibliotecas.get(i); // Marca como encontrada.
+                    break; // Sale del bucle.
+                }
             }
-        }
-        if (encontrada) { // Si la biblioteca fue encontrada y editada.
-            Biblioteca.guardarTodasLasBibliotecas(bibliotecas); // Guarda la lista completa y actualizada.
-            return "Exito: Biblioteca con ID " + id + " actualizada con exito."; // Mensaje de éxito.
-        }
-        return "Error: Biblioteca con ID " + id + " no encontrada."; // Da un error si no se encontró.
+            if (encontrada != null) { // Si la biblioteca fue encontrada y editada.
+                Biblioteca.guardarTodasLasBibliotecas(bibliotecas); // Guarda la lista completa y actualizada.
+                return Resultado.exito(encontrada,
+                        "Exito: Biblioteca con ID " + id + " actualizada con exito."); // Mensaje de éxito.
+            }
+            return Resultado.fallo(Resultado.Estado.NO_ENCONTRADO,
+                    "Error: Biblioteca con ID " + id + " no encontrada."); // Da un error si no se encontró.
+        });
     }
 
     // Este método permite al administrador eliminar una biblioteca.
-    public String eliminarBiblioteca(int id) {
-        List<Biblioteca> bibliotecas = Biblioteca.cargarTodasLasBibliotecas(); // Carga todas las bibliotecas.
-        boolean eliminada = bibliotecas.removeIf(b -> b.getId() == id); // Elimina la biblioteca por su ID de la lista.
-        if (eliminada) { // Si se eliminó de la lista.
-            Biblioteca.guardarTodasLasBibliotecas(bibliotecas); // Guarda la lista actualizada.
-            return "Exito: Biblioteca con ID " + id + " eliminada con exito."; // Mensaje de éxito.
-        }
-        return "Error: Biblioteca con ID " + id + " no encontrada."; // Da un error si no se encontró.
+    // Si sale bien, el valor del resultado es la biblioteca eliminada.
+    public Resultado<Biblioteca> eliminarBiblioteca(int id) {
+        return conBloqueoBibliotecas(() -> {
+            List<Biblioteca> bibliotecas = Biblioteca.cargarTodasLasBibliotecas(); // Carga todas las bibliotecas.
+            Biblioteca eliminada = null; // La biblioteca quitada de la lista (null si no se encontró).
+            for (Iterator<Biblioteca> it = bibliotecas.iterator(); it.hasNext();) { // Busca la biblioteca por su ID.
+                Biblioteca b = it.next();
+                if (b.getId() == id) {
+                    it.remove(); // La quita de la lista.
+                    eliminada = b;
+                    break;
+                }
+            }
+            if (eliminada != null) { // Si se eliminó de la lista.
+                Biblioteca.guardarTodasLasBibliotecas(bibliotecas); // Guarda la lista actualizada.
+                return Resultado.exito(eliminada,
+                        "Exito: Biblioteca con ID " + id + " eliminada con exito."); // Mensaje de éxito.
+            }
+            return Resultado.fallo(Resultado.Estado.NO_ENCONTRADO,
+                    "Error: Biblioteca con ID " + id + " no encontrada."); // Da un error si no se encontró.
+        });
+    }
+
+    // Ejecuta una operación sobre las bibliotecas con el bloqueo de "Bibliotecas.txt"
+    // tomado: la lista que se lee, se revisa y se guarda no la cambia otro proceso en medio.
+    private static Resultado<Biblioteca> conBloqueoBibliotecas(BloqueoArchivo.Accion<Resultado<Biblioteca>> operacion) {
+        try {
+            return BloqueoArchivo.de(Biblioteca.resolverRutaBibliotecas()).ejecutar(operacion);
+        } catch (ConflictoVersionException e) { // Alguna biblioteca cambió en otro proceso.
+            return Resultado.conflicto(e);
+        } catch (IOException e) { // No se pudo tomar el bloqueo.
+            e.printStackTrace();
+            return Resultado.fallo(Resultado.Estado.ERROR, "Error: No se pudo acceder al archivo de bibliotecas.");
+        }
     }
 
     // --- Metodos de Visualizacion ---
 
     // Este método muestra por consola una lista de todos los miembros del sistema
-    // (Admins y Usuarios).
+    // (Admins y Usuarios). Los miembros se leen por páginas a medida que se imprimen.
     public void verTodosUsuarios() {
-        System.out.println("\n--- LISTADO DE TODOS LOS MIEMBROS DEL SISTEMA (incluye Admins y Usuarios) ---");
-        List<Miembro> miembros = Miembro.cargarTodosLosMiembros(); // Carga todos los miembros.
-        if (miembros.isEmpty()) { // Si no hay miembros.
-            System.out.println("No hay miembros registrados en el sistema.");
+        Sesion.salida().println("\n--- LISTADO DE TODOS LOS MIEMBROS DEL SISTEMA (incluye Admins y Usuarios) ---");
+        Iterator<Miembro> miembros = Miembro.recorrerTodosLosMiembros().iterator(); // Recorre los miembros.
+        if (!miembros.hasNext()) { // Si no hay miembros.
+            Sesion.salida().println("No hay miembros registrados en el sistema.");
         } else {
-            miembros.forEach(System.out::println); // Imprime la información de cada miembro.
+            miembros.forEachRemaining(Sesion.salida()::println); // Imprime la información de cada miembro.
         }
-        System.out.println("-------------------------------------------------------------------\n");
+        Sesion.salida().println("-------------------------------------------------------------------\n");
     }
 
     // Este método muestra por consola una lista de todos los libros registrados en
-    // el sistema.
+    // el sistema. Los libros se leen por páginas a medida que se imprimen.
     public void verTodosLibros() {
-        System.out.println("\n--- LISTADO DE TODOS LOS LIBROS ---");
-        List<Libro> libros = Libro.cargarTodosLosLibros(); // Carga todos los libros.
-        if (libros.isEmpty()) { // Si no hay libros.
-            System.out.println("No hay libros registrados en el sistema.");
+        Sesion.salida().println("\n--- LISTADO DE TODOS LOS LIBROS ---");
+        Iterator<Libro> libros = Libro.recorrerTodosLosLibros().iterator(); // Recorre los libros.
+        if (!libros.hasNext()) { // Si no hay libros.
+            Sesion.salida().println("No hay libros registrados en el sistema.");
         } else {
-            libros.forEach(System.out::println); // Imprime la información de cada libro.
+            libros.forEachRemaining(Sesion.salida()::println); // Imprime la información de cada libro.
         }
-        System.out.println("-----------------------------------\n");
+        Sesion.salida().println("-----------------------------------\n");
     }
 
     // Este método muestra la información de un libro específico y sus préstamos
-    // asociados.
+    // asociados. Los préstamos salen del índice por libro y sus miembros se buscan
+    // todos de una vez (ver ReportePrestamos).
     public void verLibro(String codigoLibro) {
         Libro libro = Libro.encontrarLibroPorCodigo(codigoLibro); // Busca el libro.
         if (libro == null) { // Si no lo encuentra.
-            System.out.println("Error: Libro con codigo " + codigoLibro + " no encontrado."); // Da un error.
+            Sesion.salida().println("Error: Libro con codigo " + codigoLibro + " no encontrado."); // Da un error.
             return;
         }
-        System.out.println("\n--- INFORMACION DEL LIBRO ---");
-        System.out.println(libro); // Imprime la información básica del libro.
+        Sesion.salida().println("\n--- INFORMACION DEL LIBRO ---");
+        Sesion.salida().println(libro); // Imprime la información básica del libro.
 
-        // Filtra todos los préstamos para encontrar los que corresponden a este libro.
-        List<Prestamo> prestamosLibro = Prestamo.cargarTodosLosPrestamos().stream()
-                .filter(p -> p.getCodigoLibro().equals(codigoLibro))
-                .collect(Collectors.toList());
+        List<Prestamo> prestamosLibro = Prestamo.encontrarPrestamosPorLibro(codigoLibro); // Préstamos de este libro.
         if (!prestamosLibro.isEmpty()) { // Si hay préstamos asociados al libro.
-            System.out.println("\n--- PRESTAMOS ASOCIADOS AL LIBRO " + libro.getNombre() + " ---");
-            for (Prestamo p : prestamosLibro) { // Recorre cada préstamo.
-                Miembro m = Miembro.encontrarMiembroPorNumeroDocumento(p.getNumeroDocumentoMiembro()); // Busca el
-                                                                                                       // miembro que
-                                                                                                       // hizo el
-                                                                                                       // préstamo.
-                System.out
-                        .println("  - Miembro: " + (m != null ? m.getNombre() + " " + m.getApellido() : "Desconocido") + // Imprime
-                                                                                                                         // el
-                                                                                                                         // miembro
-                                                                                                                         // (o
-                                                                                                                         // "Desconocido").
-                                ", Fecha Prestamo: " + Fecha.formatDate(p.getFechaPrestamo()) + // Imprime la fecha de
-                                                                                                // préstamo.
-                                ", Fecha Devolucion Estimada: " + Fecha.formatDate(p.getFechaDevolucionEstimada()) + // Imprime
-                                                                                                                     // la
-                                                                                                                     // fecha
-                                                                                                                     // de
-                                                                                                                     // devolución
-                                                                                                                     // estimada.
-                                ", Estado: " + p.getEstado()); // Imprime el estado del préstamo.
+            Sesion.salida().println("\n--- PRESTAMOS ASOCIADOS AL LIBRO " + libro.getNombre() + " ---");
+            for (ReportePrestamos.Fila fila : ReportePrestamos.unir(prestamosLibro, true)) { // Cada préstamo con su miembro.
+                Prestamo p = fila.getPrestamo();
+                Miembro m = fila.getMiembro(); // Miembro que hizo el préstamo (null si ya no existe).
+                Sesion.salida()
+                        .println("  - Miembro: " + (m != null ? m.getNombre() + " " + m.getApellido() : "Desconocido") // Miembro (o "Desconocido").
+                                + ", Fecha Prestamo: " + Fecha.formatear(p.getDiaPrestamo()) // Fecha de préstamo.
+                                + ", Fecha Devolucion Estimada: " + Fecha.formatear(p.getDiaDevolucionEstimada()) // Fecha estimada.
+                                + ", Estado: " + p.getEstado()); // Estado del préstamo.
             }
         } else {
-            System.out.println("No hay prestamos registrados para este libro."); // Mensaje si no hay préstamos.
+            Sesion.salida().println("No hay prestamos registrados para este libro."); // Mensaje si no hay préstamos.
         }
-        System.out.println("-----------------------------------\n");
+        Sesion.salida().println("-----------------------------------\n");
     }
 
     // Este método muestra por consola todos los libros que están actualmente
-    // prestados.
+    // prestados. Los préstamos se leen por páginas y cada página se une de una vez con
+    // sus miembros y libros (ver ReportePrestamos), así el reporte no hace una búsqueda
+    // por fila y tiene en memoria como mucho una página.
     public void verLibrosPrestados() {
-        System.out.println("\n--- LIBROS ACTUALMENTE PRESTADOS ---");
-        // Filtra todos los préstamos para encontrar solo los que están "PRESTADO".
-        List<Prestamo> prestamos = Prestamo.cargarTodosLosPrestamos().stream()
-                .filter(p -> "PRESTADO".equals(p.getEstado()))
-                .collect(Collectors.toList());
+        Sesion.salida().println("\n--- LIBROS ACTUALMENTE PRESTADOS ---");
+        // Recorre solo los préstamos que están "PRESTADO", con su miembro y su libro.
+        Iterator<ReportePrestamos.Fila> filas = ReportePrestamos.prestamosActivos().iterator();
 
-        if (prestamos.isEmpty()) { // Si no hay libros prestados.
-            System.out.println("No hay libros prestados actualmente.");
+        if (!filas.hasNext()) { // Si no hay libros prestados.
+            Sesion.salida().println("No hay libros prestados actualmente.");
         } else {
-            for (Prestamo prestamo : prestamos) { // Para cada préstamo.
-                Miembro miembro = Miembro.encontrarMiembroPorNumeroDocumento(prestamo.getNumeroDocumentoMiembro()); // Busca
-                                                                                                                    // el
-                                                                                                                    // miembro.
-                Libro libro = Libro.encontrarLibroPorCodigo(prestamo.getCodigoLibro()); // Busca el libro.
+            while (filas.hasNext()) { // Para cada préstamo.
+                ReportePrestamos.Fila fila = filas.next();
+                Prestamo prestamo = fila.getPrestamo();
+                Miembro miembro = fila.getMiembro();
+                Libro libro = fila.getLibro();
                 String infoMiembro = (miembro != null) // Formatea la información del miembro.
                         ? miembro.getNombre() + " " + miembro.getApellido() + " (Usuario: " + miembro.getUsuario() + ")"
                         : "Miembro Desconocido";
-                String infoLibro = (libro != null) ? libro.getNombre() + " (Codigo: " + libro.getCodigo() + ")" // Formatea
-                                                                                                                // la
-                                                                                                                // información
-                                                                                                                // del
-                                                                                                                // libro.
+                String infoLibro = (libro != null) ? libro.getNombre() + " (Codigo: " + libro.getCodigo() + ")" // Formatea el libro.
                         : "Libro Desconocido";
-                System.out.println("Prestamo: " + infoLibro + " a " + infoMiembro + " | Fecha Prestamo: "
-                        + Fecha.formatDate(prestamo.getFechaPrestamo()) + " | Fecha Devolucion Estimada: "
-                        + Fecha.formatDate(prestamo.getFechaDevolucionEstimada()) + " | Biblioteca ID: "
+                Sesion.salida().println("Prestamo: " + infoLibro + " a " + infoMiembro + " | Fecha Prestamo: "
+                        + Fecha.formatear(prestamo.getDiaPrestamo()) + " | Fecha Devolucion Estimada: "
+                        + Fecha.formatear(prestamo.getDiaDevolucionEstimada()) + " | Biblioteca ID: "
                         + prestamo.getIdBiblioteca()); // Imprime los detalles del préstamo.
             }
         }
-        System.out.println("------------------------------------\n");
+        Sesion.salida().println("------------------------------------\n");
     }
 
     // Este método muestra los libros prestados por un usuario específico, dado su
-    // número de documento.
+    // número de documento. Los libros se buscan todos de una vez (ver ReportePrestamos).
     public void verLibrosPrestadosPorUsuario(long numeroDocumentoMiembro) {
         Miembro miembro = Miembro.encontrarMiembroPorNumeroDocumento(numeroDocumentoMiembro); // Busca el miembro.
         if (miembro == null) { // Si no lo encuentra.
-            System.out.println("Error: Miembro con numero de documento " + numeroDocumentoMiembro + " no encontrado."); // Da
+            Sesion.salida().println("Error: Miembro con numero de documento " + numeroDocumentoMiembro + " no encontrado."); // Da
                                                                                                                         // un
                                                                                                                         // error.
             return;
         }
 
-        System.out.println("\n--- LIBROS PRESTADOS POR " + miembro.getNombre().toUpperCase() + " "
+        Sesion.salida().println("\n--- LIBROS PRESTADOS POR " + miembro.getNombre().toUpperCase() + " "
                 + miembro.getApellido().toUpperCase() + " ---"); // Encabezado.
         List<Prestamo> prestamosDelMiembro = Prestamo.encontrarPrestamosPorMiembro(numeroDocumentoMiembro); // Obtiene
                                                                                                             // todos los
@@ -437,23 +534,73 @@ public class Admin extends Miembro { // La clase 'Admin' es un tipo especial de
                                                                                                             // miembro.
 
         if (prestamosDelMiembro.isEmpty()) { // Si no tiene préstamos.
-            System.out.println(miembro.getNombre() + " no tiene ningun libro prestado o devuelto.");
+            Sesion.salida().println(miembro.getNombre() + " no tiene ningun libro prestado o devuelto.");
         } else {
-            for (Prestamo prestamo : prestamosDelMiembro) { // Para cada préstamo.
-                Libro libro = Libro.encontrarLibroPorCodigo(prestamo.getCodigoLibro()); // Busca el libro.
-                String infoLibro = (libro != null) ? libro.getNombre() + " (Codigo: " + libro.getCodigo() + ")" // Formatea
-                                                                                                                // la
-                                                                                                                // información
-                                                                                                                // del
-                                                                                                                // libro.
+            for (ReportePrestamos.Fila fila : ReportePrestamos.unir(prestamosDelMiembro, false)) { // Cada préstamo con su libro.
+                Prestamo prestamo = fila.getPrestamo();
+                Libro libro = fila.getLibro();
+                String infoLibro = (libro != null) ? libro.getNombre() + " (Codigo: " + libro.getCodigo() + ")" // Formatea el libro.
                         : "Libro Desconocido";
-                System.out.println("  - " + infoLibro + " | Fecha Prestamo: "
-                        + Fecha.formatDate(prestamo.getFechaPrestamo()) + " | Fecha Devolucion Estimada: "
-                        + Fecha.formatDate(prestamo.getFechaDevolucionEstimada()) + " | Estado: "
+                Sesion.salida().println("  - " + infoLibro + " | Fecha Prestamo: "
+                        + Fecha.formatear(prestamo.getDiaPrestamo()) + " | Fecha Devolucion Estimada: "
+                        + Fecha.formatear(prestamo.getDiaDevolucionEstimada()) + " | Estado: "
                         + prestamo.getEstado()); // Imprime los detalles.
             }
         }
-        System.out.println("-------------------------------------------------------------------\n");
+        Sesion.salida().println("-------------------------------------------------------------------\n");
+    }
+
+    // Este método muestra los préstamos activos que ya vencieron (su fecha de devolución
+    // estimada pasó), del más atrasado al menos atrasado. Salen del índice por fecha de
+    // vencimiento de IndicePrestamos: no se recorre todo el archivo de préstamos.
+    public void verPrestamosVencidos() {
+        int hoy = Fecha.hoy();
+        Sesion.salida().println("\n--- PRESTAMOS VENCIDOS AL " + Fecha.formatear(hoy) + " ---");
+        List<Prestamo> vencidos = Prestamo.encontrarPrestamosVencidos(hoy);
+        if (vencidos.isEmpty()) {
+            Sesion.salida().println("No hay prestamos vencidos.");
+        } else {
+            imprimirPorVencimiento(vencidos, hoy);
+        }
+        Sesion.salida().println("------------------------------------\n");
+    }
+
+    // Este método muestra los préstamos activos que vencen desde hoy hasta dentro de
+    // 'dias' días, del que vence antes al que vence después.
+    public void verPrestamosPorVencer(int dias) {
+        if (dias < 0) {
+            Sesion.salida().println("Error: El numero de dias no puede ser negativo.");
+            return;
+        }
+        int hoy = Fecha.hoy();
+        Sesion.salida().println("\n--- PRESTAMOS QUE VENCEN EN LOS PROXIMOS " + dias + " DIAS ---");
+        List<Prestamo> porVencer = Prestamo.encontrarPrestamosPorVencer(hoy, dias);
+        if (porVencer.isEmpty()) {
+            Sesion.salida().println("No hay prestamos que venzan en ese plazo.");
+        } else {
+            imprimirPorVencimiento(porVencer, hoy);
+        }
+        Sesion.salida().println("------------------------------------\n");
+    }
+
+    // Imprime préstamos con su miembro, su libro y los días que faltan o que lleva de
+    // retraso respecto a 'hoy' (miembros y libros se buscan de una vez, ver ReportePrestamos).
+    private static void imprimirPorVencimiento(List<Prestamo> prestamos, int hoy) {
+        for (ReportePrestamos.Fila fila : ReportePrestamos.unir(prestamos, true)) {
+            Prestamo prestamo = fila.getPrestamo();
+            Miembro miembro = fila.getMiembro();
+            Libro libro = fila.getLibro();
+            String infoMiembro = (miembro != null) // Formatea la información del miembro.
+                    ? miembro.getNombre() + " " + miembro.getApellido() + " (Documento: " + miembro.getNumeroDocumento() + ")"
+                    : "Miembro Desconocido (Documento: " + prestamo.getNumeroDocumentoMiembro() + ")";
+            String infoLibro = (libro != null) ? libro.getNombre() + " (Codigo: " + libro.getCodigo() + ")" // Formatea el libro.
+                    : "Libro Desconocido (Codigo: " + prestamo.getCodigoLibro() + ")";
+            long dias = Fecha.diasEntre(hoy, prestamo.getDiaDevolucionEstimada()); // Positivo: días de retraso.
+            String plazo = dias > 0 ? "Retraso: " + dias + " dias" : "Vence en: " + (-dias) + " dias";
+            Sesion.salida().println("Prestamo: " + infoLibro + " a " + infoMiembro + " | Fecha Devolucion Estimada: "
+                    + Fecha.formatear(prestamo.getDiaDevolucionEstimada()) + " | " + plazo + " | Biblioteca ID: "
+                    + prestamo.getIdBiblioteca());
+        }
     }
 
     // Este método devuelve una cadena de texto que representa al objeto Admin de
@@ -8,11 +8,14 @@ import java.io.BufferedReader; // Herramienta para leer archivos de texto.
 import java.io.IOException; // Para manejar errores al trabajar con archivos.
 import java.nio.file.Files; // Para interactuar con archivos y directorios.
 import java.nio.file.Path; // Para representar la ruta de un archivo.
-import java.nio.file.StandardOpenOption; // Opciones para abrir/guardar archivos.
 import java.util.ArrayList; // Para crear listas dinámicas.
-import java.util.Date; // Para manejar fechas.
+import java.util.HashMap; // Para buscar las bibliotecas del archivo por ID.
 import java.util.List; // Para usar listas.
+import java.util.Map; // Para usar mapas.
+import java.util.concurrent.ThreadLocalRandom; // Para esperar un tiempo al azar antes de reintentar.
+import java.util.concurrent.locks.ReentrantLock; // Cerrojos de préstamos y devoluciones.
 import java.util.stream.Collectors; // Para operar con listas de forma avanzada.
+import java.util.stream.Stream; // Para recorrer resultados sin copiarlos enteros.
 
 public class Biblioteca implements IPersistible { // La clase 'Biblioteca' representa una sede de la biblioteca y puede
                                                   // guardarse/cargarse.
@@ -20,11 +23,31 @@ public class Biblioteca implements IPersistible { // La clase 'Biblioteca' repre
     private int id; // Número único de la biblioteca.
     private String sede; // Ubicación de la biblioteca (ej. "Medellin").
     private String nombreBiblioteca; // Nombre completo de la biblioteca.
+    private long version; // Versión del registro en el archivo (0 si todavía no se ha guardado).
 
     public static final double MULTA_POR_DIA = 4.750; // Costo de multa por día de retraso (es fijo para todas las
                                                       // bibliotecas).
     public static final int DIAS_MAX_PRESTAMO = 30; // Días máximos para un préstamo sin multa (es fijo).
 
+    // Cerrojos por código de libro y por documento de miembro. Un préstamo o una
+    // devolución toma primero el del miembro y después el del libro (siempre en ese
+    // orden, así dos operaciones no se pueden bloquear mutuamente), y revisa y
+    // modifica las unidades y los préstamos sin que otro hilo se meta en medio.
+    // Préstamos de libros distintos a miembros distintos no se esperan entre sí.
+    static final BloqueoPorClave BLOQUEOS_LIBROS = new BloqueoPorClave();
+    static final BloqueoPorClave BLOQUEOS_MIEMBROS = new BloqueoPorClave();
+
+    // Veces que se intenta un préstamo o una devolución si otro proceso modificó los
+    // mismos registros (ver ConflictoVersionException). Cada intento vuelve a leerlos.
+    static final int INTENTOS_POR_CONFLICTO = 5;
+
+    // Latencias de las operaciones de la biblioteca (ver Metricas).
+    private static final Metricas.Operacion METRICA_CARGAR = Metricas.operacion("Biblioteca.cargarTodasLasBibliotecas");
+    private static final Metricas.Operacion METRICA_GUARDAR = Metricas.operacion("Biblioteca.guardarTodasLasBibliotecas");
+    private static final Metricas.Operacion METRICA_PRESTAR = Metricas.operacion("Biblioteca.prestarLibro");
+    private static final Metricas.Operacion METRICA_DEVOLVER = Metricas.operacion("Biblioteca.devolverLibro");
+    private static final Metricas.Operacion METRICA_BUSCAR = Metricas.operacion("Biblioteca.buscarLibro");
+
     public Biblioteca(int id, String sede, String nombreBiblioteca) { // Constructor para crear una biblioteca con
                                                                       // datos.
         this.id = id;
@@ -48,6 +71,11 @@ public class Biblioteca implements IPersistible { // La clase 'Biblioteca' repre
         return nombreBiblioteca;
     }
 
+    @Override
+    public long getVersion() {
+        return version;
+    }
+
     // Métodos para cambiar los valores de los atributos (Setters)
     public void setId(int id) {
         this.id = id;
@@ -70,60 +98,97 @@ public class Biblioteca implements IPersistible { // La clase 'Biblioteca' repre
     // Carga todas las bibliotecas del archivo "Bibliotecas.txt" y las devuelve en
     // una lista.
     public static List<Biblioteca> cargarTodasLasBibliotecas() {
-        List<Biblioteca> bibliotecas = new ArrayList<>(); // Lista donde se guardarán las bibliotecas.
-        Path path = resolverRutaBibliotecas(); // Obtiene la ruta del archivo.
-        if (!Files.exists(path)) { // Si el archivo no existe.
-            System.err.println("Advertencia: Archivo Bibliotecas.txt no encontrado en " + path.toAbsolutePath()); // Muestra
-                                                                                                                  // una
-                                                                                                                  // advertencia.
-            return bibliotecas; // Devuelve una lista vacía.
+        long inicio = System.nanoTime();
+        try {
+            Path path = resolverRutaBibliotecas(); // Obtiene la ruta del archivo.
+            if (!Files.exists(path)) { // Si el archivo no existe.
+                System.err.println("Advertencia: Archivo Bibliotecas.txt no encontrado en " + path.toAbsolutePath()); // Muestra
+                                                                                                                      // una
+                                                                                                                      // advertencia.
+                return new ArrayList<>(); // Devuelve una lista vacía.
+            }
+            try {
+                return BloqueoArchivo.de(path).ejecutar(() -> leerBibliotecas(path)); // Nunca a medio escribir.
+            } catch (IOException e) { // Si hay un problema al leer el archivo.
+                e.printStackTrace(); // Imprime el error.
+                return new ArrayList<>();
+            }
+        } finally {
+            METRICA_CARGAR.registrarDesde(inicio);
         }
+    }
 
-        try (BufferedReader reader = Files.newBufferedReader(path, java.nio.charset.StandardCharsets.UTF_8)) { // Abre
-                                                                                                               // el
-                                                                                                               // archivo
-                                                                                                               // para
-                                                                                                               // leer.
-            String linea; // Variable para cada línea.
-            while ((linea = reader.readLine()) != null) { // Lee el archivo línea por línea.
-                String[] parts = linea.split("\\\\"); // Divide la línea por '\' para obtener los datos.
-                if (parts.length >= 3) { // Si la línea tiene al menos 3 partes (ID, sede, nombre).
+    // Lee las bibliotecas del archivo (vacío si no existe). Se llama con el bloqueo
+    // del archivo tomado.
+    private static List<Biblioteca> leerBibliotecas(Path path) throws IOException {
+        List<Biblioteca> bibliotecas = new ArrayList<>(); // Lista donde se guardarán las bibliotecas.
+        if (!Files.exists(path)) {
+            return bibliotecas;
+        }
+        try (BufferedReader reader = Metricas.abrirLector(path)) { // Abre el archivo para leer.
+            LectorCampos lector = new LectorCampos(reader); // Lee los campos separados por '\'.
+            while (lector.siguienteLinea()) { // Lee el archivo línea por línea.
+                int campos = lector.contarCampos();
+                if (campos >= 3) { // Si la línea tiene al menos 3 partes (ID, sede, nombre).
                     try {
-                        int id = Integer.parseInt(parts[0].trim()); // Convierte la primera parte a ID.
-                        String sede = parts[1].trim(); // La segunda parte es la sede.
-                        String nombre = parts[2].trim(); // La tercera parte es el nombre.
-                        bibliotecas.add(new Biblioteca(id, sede, nombre)); // Crea una Biblioteca y la añade a la lista.
+                        int id = lector.siguienteInt(); // Convierte la primera parte a ID.
+                        String sede = lector.siguienteTexto(); // La segunda parte es la sede.
+                        String nombre = lector.siguienteTexto(); // La tercera parte es el nombre.
+                        Biblioteca biblioteca = new Biblioteca(id, sede, nombre); // Crea la Biblioteca.
+                        biblioteca.version = campos >= 4 ? lector.siguienteLong() : 1; // Sin versión cuenta como la 1.
+                        bibliotecas.add(biblioteca); // La añade a la lista.
                     } catch (NumberFormatException e) {
-                        System.err.println("Error de parseo en linea de Biblioteca: " + linea + " - " + e.getMessage()); // Error
-                                                                                                                         // si
-                                                                                                                         // el
-                                                                                                                         // ID
-                                                                                                                         // no
-                                                                                                                         // es
-                                                                                                                         // número.
+                        System.err.println("Error de parseo en linea de Biblioteca: " + lector.lineaActual() + " - "
+                                + e.getMessage()); // Error si el ID no es número.
                     }
                 }
             }
-        } catch (IOException e) { // Si hay un problema al leer el archivo.
-            e.printStackTrace(); // Imprime el error.
         }
         return bibliotecas; // Devuelve la lista de bibliotecas.
     }
 
     // Guarda una lista completa de bibliotecas en el archivo "Bibliotecas.txt",
     // reemplazando el contenido.
-    public static synchronized void guardarTodasLasBibliotecas(List<Biblioteca> bibliotecas) {
-        Path path = resolverRutaBibliotecas(); // Obtiene la ruta del archivo.
-        List<String> lineas = bibliotecas.stream()
-                .map(Biblioteca::construirLinea) // Convierte cada objeto Biblioteca a una línea de texto.
-                .collect(Collectors.toList()); // Recolecta todas las líneas en una lista.
+    // Antes de escribir compara las versiones con las del archivo: si otro proceso
+    // creó, cambió o eliminó alguna de estas bibliotecas desde que se leyeron, lanza
+    // ConflictoVersionException sin escribir nada. Solo sube la versión de las que cambiaron.
+    public static void guardarTodasLasBibliotecas(List<Biblioteca> bibliotecas) {
+        long inicio = System.nanoTime();
         try {
-            Files.write(path, lineas, java.nio.charset.StandardCharsets.UTF_8, StandardOpenOption.CREATE, // Crea el
-                                                                                                          // archivo si
-                                                                                                          // no existe.
-                    StandardOpenOption.TRUNCATE_EXISTING); // Borra el contenido existente antes de escribir.
-        } catch (IOException e) { // Si hay un problema al escribir.
-            e.printStackTrace(); // Imprime el error.
+            Path path = resolverRutaBibliotecas(); // Obtiene la ruta del archivo.
+            BloqueoArchivo bloqueo = BloqueoArchivo.de(path);
+            try {
+                bloqueo.ejecutar(() -> {
+                    Map<Integer, Biblioteca> enArchivo = new HashMap<>(); // ID -> biblioteca como está escrita.
+                    for (Biblioteca b : leerBibliotecas(path)) {
+                        enArchivo.putIfAbsent(b.id, b);
+                    }
+                    long[] versiones = new long[bibliotecas.size()]; // Versión con la que se escribe cada una.
+                    List<String> lineas = new ArrayList<>(bibliotecas.size());
+                    for (int i = 0; i < bibliotecas.size(); i++) {
+                        Biblioteca b = bibliotecas.get(i);
+                        Biblioteca actual = enArchivo.get(b.id);
+                        long encontrada = actual != null ? actual.version : ConflictoVersionException.NO_EXISTE;
+                        if (b.version == 0 ? actual != null : encontrada != b.version) {
+                            throw new ConflictoVersionException("Bibliotecas.txt", String.valueOf(b.id), b.version,
+                                    encontrada);
+                        }
+                        boolean igual = actual != null && actual.construirLinea().equals(b.construirLinea());
+                        versiones[i] = igual ? actual.version : b.version + 1;
+                        lineas.add(b.construirLineaConVersion(versiones[i])); // Convierte la Biblioteca a una línea de texto.
+                    }
+                    EscrituraAtomica.reemplazar(path, lineas); // Reemplaza el archivo completo de una sola vez.
+                    bloqueo.marcarCambio(); // Avisa a los demás procesos.
+                    for (int i = 0; i < bibliotecas.size(); i++) {
+                        bibliotecas.get(i).version = versiones[i];
+                    }
+                    return null;
+                });
+            } catch (IOException e) { // Si hay un problema al escribir.
+                e.printStackTrace(); // Imprime el error.
+            }
+        } finally {
+            METRICA_GUARDAR.registrarDesde(inicio);
         }
     }
 
@@ -148,19 +213,19 @@ public class Biblioteca implements IPersistible { // La clase 'Biblioteca' repre
     // como una lista completa.
     @Override
     public void guardar() {
-        System.out.println(
+        Sesion.salida().println(
                 "Advertencia: El metodo guardar() de Biblioteca no guarda instancias individuales. Use guardarTodasLasBibliotecas().");
     }
 
     // Este método tampoco hace nada, por la misma razón que 'guardar()'.
     @Override
     public void eliminar() {
-        System.out.println(
+        Sesion.salida().println(
                 "Advertencia: El metodo eliminar() de Biblioteca no elimina instancias individuales. Use la logica del Admin para eliminar de la lista.");
     }
 
     // Convierte los datos de la biblioteca a una línea de texto para guardarla en
-    // el archivo.
+    // el archivo (sin la versión, que se añade al guardar).
     @Override
     public String construirLinea() {
         return String.format("%d\\%s\\%s", id, sede, nombreBiblioteca); // Formato: ID\Sede\Nombre.
@@ -171,53 +236,106 @@ public class Biblioteca implements IPersistible { // La clase 'Biblioteca' repre
     // Este método solo muestra las sedes disponibles, la selección se hace en otra
     // parte del programa.
     public void seleccionarSede() {
-        System.out.println("Sedes de Bibliotecas disponibles:");
+        Sesion.salida().println("Sedes de Bibliotecas disponibles:");
         List<Biblioteca> bibliotecas = cargarTodasLasBibliotecas(); // Carga todas las bibliotecas para mostrarlas.
         if (bibliotecas.isEmpty()) { // Si no hay bibliotecas.
-            System.out.println("No hay bibliotecas registradas.");
+            Sesion.salida().println("No hay bibliotecas registradas.");
             return;
         }
 
         for (Biblioteca b : bibliotecas) { // Recorre y muestra cada biblioteca.
-            System.out.println("ID: " + b.getId() + ", Sede: " + b.getSede() + ", Nombre: " + b.getNombreBiblioteca());
+            Sesion.salida().println("ID: " + b.getId() + ", Sede: " + b.getSede() + ", Nombre: " + b.getNombreBiblioteca());
         }
 
-        System.out.println("La seleccion de la sede debe ser manejada por la logica de la interfaz de usuario.");
-        System.out.println(
+        Sesion.salida().println("La seleccion de la sede debe ser manejada por la logica de la interfaz de usuario.");
+        Sesion.salida().println(
                 "El objeto Biblioteca actual (this) representa la sede con ID: " + this.id + " y Sede: " + this.sede);
     }
 
     // Permite prestar un libro a un miembro, aplicando reglas de límite y deuda.
-    public String prestarLibro(Miembro miembro, String codigoLibro) {
-        if (miembro == null) { // Verifica que el miembro exista.
-            return "Error: Miembro no valido.";
+    // Es una operación atómica: se puede llamar desde varios hilos a la vez.
+    // Si sale bien, el valor del resultado es el préstamo creado.
+    public Resultado<Prestamo> prestarLibro(Miembro miembro, String codigoLibro) {
+        long inicio = System.nanoTime();
+        try {
+            if (miembro == null) { // Verifica que el miembro exista.
+                return Resultado.fallo(Resultado.Estado.INVALIDO, "Error: Miembro no valido.");
+            }
+            ReentrantLock bloqueoMiembro = BLOQUEOS_MIEMBROS.para(miembro.getNumeroDocumento());
+            ReentrantLock bloqueoLibro = BLOQUEOS_LIBROS.para(codigoLibro);
+            for (int intento = 1;; intento++) {
+                bloqueoMiembro.lock();
+                bloqueoLibro.lock();
+                try { // Todas las verificaciones y cambios se hacen con los cerrojos tomados.
+                    return prestarLibroBloqueado(miembro, codigoLibro);
+                } catch (ConflictoVersionException e) { // Otro proceso cambió el libro, el préstamo o el miembro.
+                    if (intento >= INTENTOS_POR_CONFLICTO) { // Cada intento vuelve a leer el miembro.
+                        return Resultado.conflicto(e);
+                    }
+                } finally {
+                    bloqueoLibro.unlock();
+                    bloqueoMiembro.unlock();
+                }
+                esperarAntesDeReintentar(intento); // Sin los cerrojos: no frena a quien comparte la franja.
+            }
+        } finally {
+            METRICA_PRESTAR.registrarDesde(inicio);
+        }
+    }
+
+    // Espera un poco (al azar, y más en cada intento) antes de repetir una operación que
+    // chocó con otro proceso, para que los dos no vuelvan a chocar en el mismo momento.
+    // Se llama con los cerrojos sueltos: son por franjas, y mientras se espera otros
+    // miembros y libros de las mismas franjas pueden seguir prestando y devolviendo.
+    // Cada intento vuelve a tomarlos y a leer todo desde el principio.
+    private static void esperarAntesDeReintentar(int intento) {
+        try {
+            Thread.sleep(1 + ThreadLocalRandom.current().nextInt(5 << intento));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt(); // Conserva la interrupción para quien llamó.
+        }
+    }
+
+    // Lógica del préstamo. Se llama con los cerrojos del miembro y del libro tomados,
+    // así el libro y los préstamos que se leen aquí no cambian hasta terminar.
+    // El miembro se vuelve a leer aquí (su deuda pudo subir después de que quien llama
+    // lo buscó, por ejemplo por MultasDiarias) y su versión se comprueba al escribir el
+    // préstamo: si otro proceso lo cambia entretanto, se lanza ConflictoVersionException.
+    private Resultado<Prestamo> prestarLibroBloqueado(Miembro miembro, String codigoLibro) {
+        if (!miembro.recargar()) { // Ya no está, o pasó de Admin a Usuario (o al revés).
+            return Resultado.fallo(Resultado.Estado.NO_ENCONTRADO,
+                    "Error: El miembro ya no esta registrado con ese rol. Inicie sesion de nuevo.");
         }
         if (miembro.getRol() == 0) { // Los administradores no pueden pedir libros prestados.
-            return "Error: Los administradores no pueden pedir libros prestados para si mismos.";
+            return Resultado.fallo(Resultado.Estado.NO_PERMITIDO,
+                    "Error: Los administradores no pueden pedir libros prestados para si mismos.");
         }
 
         // Si el miembro es un Usuario, verifica si tiene deuda.
         if (miembro instanceof Usuario) { // 'instanceof' comprueba si 'miembro' es un 'Usuario'.
             Usuario user = (Usuario) miembro; // Lo convierte a 'Usuario' para acceder a su deuda.
             if (user.getDeuda() > 0) { // Si tiene deuda.
-                return "Error: No puedes pedir prestado un libro. Tienes una deuda pendiente de "
-                        + String.format("%.2f", user.getDeuda()) + " pesos."; // Da un error.
+                return Resultado.fallo(Resultado.Estado.RECHAZADO,
+                        "Error: No puedes pedir prestado un libro. Tienes una deuda pendiente de "
+                                + String.format("%.2f", user.getDeuda()) + " pesos."); // Da un error.
             }
         }
 
         Libro libro = Libro.encontrarLibroPorCodigo(codigoLibro); // Busca el libro.
         if (libro == null) { // Si el libro no se encuentra.
-            return "Error: Libro con codigo " + codigoLibro + " no encontrado."; // Da un error.
+            return Resultado.fallo(Resultado.Estado.NO_ENCONTRADO,
+                    "Error: Libro con codigo " + codigoLibro + " no encontrado."); // Da un error.
         }
 
         // Verifica que el libro pertenezca a esta biblioteca.
         if (libro.getIdBiblioteca() != this.id) {
-            return "Error: El libro " + codigoLibro + " no se encuentra en esta biblioteca (" + this.nombreBiblioteca
-                    + ").";
+            return Resultado.fallo(Resultado.Estado.RECHAZADO, "Error: El libro " + codigoLibro
+                    + " no se encuentra en esta biblioteca (" + this.nombreBiblioteca + ").");
         }
 
         if (libro.getUnidadesLibres() <= 0) { // Verifica si hay unidades disponibles del libro.
-            return "Error: El libro '" + libro.getNombre() + "' no tiene unidades disponibles."; // Da un error.
+            return Resultado.fallo(Resultado.Estado.RECHAZADO,
+                    "Error: El libro '" + libro.getNombre() + "' no tiene unidades disponibles."); // Da un error.
         }
 
         // Obtiene la lista de libros que este miembro ya tiene prestados.
@@ -242,56 +360,86 @@ public class Biblioteca implements IPersistible { // La clase 'Biblioteca' repre
                 tipoMiembro = "Administrativo de la Universidad";
                 break;
             default:
-                return "Error: Rol de miembro desconocido."; // Error si el rol no es válido.
+                return Resultado.fallo(Resultado.Estado.INVALIDO, "Error: Rol de miembro desconocido."); // Rol no válido.
         }
 
         // Si el miembro ya alcanzó su límite de préstamos.
         if (prestamosActivosDelMiembro.size() >= limitePrestamos) {
-            return "Error: El " + tipoMiembro + " " + miembro.getNombre() + " ya ha alcanzado su limite de "
-                    + limitePrestamos + " libros prestados."; // Da un error.
+            return Resultado.fallo(Resultado.Estado.RECHAZADO, "Error: El " + tipoMiembro + " " + miembro.getNombre()
+                    + " ya ha alcanzado su limite de " + limitePrestamos + " libros prestados."); // Da un error.
         }
 
         // Verifica si el miembro ya tiene este mismo libro prestado.
         boolean yaTieneLibro = prestamosActivosDelMiembro.stream()
                 .anyMatch(p -> p.getCodigoLibro().equals(codigoLibro));
         if (yaTieneLibro) { // Si ya lo tiene.
-            return "Error: El miembro ya tiene este libro prestado."; // Da un error.
+            return Resultado.fallo(Resultado.Estado.RECHAZADO, "Error: El miembro ya tiene este libro prestado."); // Da un error.
         }
 
         // Si todas las condiciones son buenas, se realiza el préstamo.
-        libro.setUnidadesLibres(libro.getUnidadesLibres() - 1); // Disminuye una unidad libre.
-        libro.setUnidadesPrestadas(libro.getUnidadesPrestadas() + 1); // Aumenta una unidad prestada.
-        libro.guardar(); // Guarda los cambios del libro.
-
-        Date fechaPrestamo = Fecha.getToday(); // Obtiene la fecha actual.
-        Date fechaDevolucionEstimada = Fecha.addDays(fechaPrestamo, DIAS_MAX_PRESTAMO); // Calcula la fecha límite de
-                                                                                        // devolución.
-
-        Prestamo nuevoPrestamo = new Prestamo(codigoLibro, miembro.getNumeroDocumento(), fechaPrestamo,
-                fechaDevolucionEstimada,
-                this.id); // Crea un nuevo objeto Prestamo.
-        nuevoPrestamo.guardar(); // Guarda el registro del préstamo.
+        int diaPrestamo = Fecha.hoy(); // Obtiene la fecha actual.
+        int diaDevolucionEstimada = diaPrestamo + DIAS_MAX_PRESTAMO; // Calcula la fecha límite de devolución.
+
+        Prestamo nuevoPrestamo = new Prestamo(codigoLibro, miembro.getNumeroDocumento(), diaPrestamo,
+                diaDevolucionEstimada, this.id); // Crea un nuevo objeto Prestamo.
+        try (Persistencia.Transaccion tx = Persistencia.begin()) { // El libro y el préstamo se escriben juntos al final.
+            libro.setUnidadesLibres(libro.getUnidadesLibres() - 1); // Disminuye una unidad libre.
+            libro.setUnidadesPrestadas(libro.getUnidadesPrestadas() + 1); // Aumenta una unidad prestada.
+            libro.guardar(); // Guarda los cambios del libro.
+            nuevoPrestamo.guardar(); // Guarda el registro del préstamo.
+            tx.verificar(miembro); // La deuda revisada arriba debe seguir siendo la del archivo.
+            tx.confirmar();
+        }
 
-        return "Exito: Libro '" + libro.getNombre() + "' prestado a " + miembro.getNombre() + " "
-                + miembro.getApellido() + ". Debe ser devuelto antes de " + Fecha.formatDate(fechaDevolucionEstimada)
-                + "."; // Mensaje de éxito.
+        return Resultado.exito(nuevoPrestamo, "Exito: Libro '" + libro.getNombre() + "' prestado a "
+                + miembro.getNombre() + " " + miembro.getApellido() + ". Debe ser devuelto antes de "
+                + Fecha.formatear(diaDevolucionEstimada) + "."); // Mensaje de éxito.
     }
 
     // Permite devolver un libro y calcula multas si hay retraso.
-    public String devolverLibro(Miembro miembro, String codigoLibro) {
-        if (miembro == null) { // Verifica que el miembro exista.
-            return "Error: Miembro no valido.";
+    // Es una operación atómica: se puede llamar desde varios hilos a la vez.
+    // Si sale bien, el valor del resultado es el préstamo ya marcado como devuelto.
+    public Resultado<Prestamo> devolverLibro(Miembro miembro, String codigoLibro) {
+        long inicio = System.nanoTime();
+        try {
+            if (miembro == null) { // Verifica que el miembro exista.
+                return Resultado.fallo(Resultado.Estado.INVALIDO, "Error: Miembro no valido.");
+            }
+            ReentrantLock bloqueoMiembro = BLOQUEOS_MIEMBROS.para(miembro.getNumeroDocumento());
+            ReentrantLock bloqueoLibro = BLOQUEOS_LIBROS.para(codigoLibro);
+            for (int intento = 1;; intento++) {
+                bloqueoMiembro.lock();
+                bloqueoLibro.lock();
+                try { // Todas las verificaciones y cambios se hacen con los cerrojos tomados.
+                    return devolverLibroBloqueado(miembro, codigoLibro);
+                } catch (ConflictoVersionException e) { // Otro proceso cambió el libro, el préstamo o el miembro.
+                    if (intento >= INTENTOS_POR_CONFLICTO || !miembro.recargar()) {
+                        return Resultado.conflicto(e);
+                    }
+                } finally {
+                    bloqueoLibro.unlock();
+                    bloqueoMiembro.unlock();
+                }
+                esperarAntesDeReintentar(intento); // Sin los cerrojos: no frena a quien comparte la franja.
+            }
+        } finally {
+            METRICA_DEVOLVER.registrarDesde(inicio);
         }
+    }
+
+    // Lógica de la devolución. Se llama con los cerrojos del miembro y del libro tomados.
+    private Resultado<Prestamo> devolverLibroBloqueado(Miembro miembro, String codigoLibro) {
 
         Libro libro = Libro.encontrarLibroPorCodigo(codigoLibro); // Busca el libro.
         if (libro == null) { // Si no lo encuentra.
-            return "Error: Libro con codigo " + codigoLibro + " no encontrado."; // Da un error.
+            return Resultado.fallo(Resultado.Estado.NO_ENCONTRADO,
+                    "Error: Libro con codigo " + codigoLibro + " no encontrado."); // Da un error.
         }
 
         // Verifica que el libro pertenezca a esta biblioteca.
         if (libro.getIdBiblioteca() != this.id) {
-            return "Error: El libro " + codigoLibro + " no se encuentra en esta biblioteca (" + this.nombreBiblioteca
-                    + ").";
+            return Resultado.fallo(Resultado.Estado.RECHAZADO, "Error: El libro " + codigoLibro
+                    + " no se encuentra en esta biblioteca (" + this.nombreBiblioteca + ").");
         }
 
         Prestamo prestamoActivo = Prestamo.encontrarPrestamoActivo(miembro.getNumeroDocumento(), codigoLibro); // Busca
@@ -305,73 +453,79 @@ public class Biblioteca implements IPersistible { // La clase 'Biblioteca' repre
                                                                                                                // miembro.
 
         if (prestamoActivo == null) { // Si no se encuentra un préstamo activo.
-            return "Error: El miembro " + miembro.getNombre() + " no tiene prestado el libro '" + libro.getNombre()
-                    + "'."; // Da un error.
+            return Resultado.fallo(Resultado.Estado.NO_ENCONTRADO, "Error: El miembro " + miembro.getNombre()
+                    + " no tiene prestado el libro '" + libro.getNombre() + "'."); // Da un error.
         }
 
-        // Actualiza el préstamo como devuelto.
-        prestamoActivo.setFechaDevolucionReal(Fecha.getToday()); // Establece la fecha real de devolución (hoy).
-        prestamoActivo.setEstado("DEVUELTO"); // Cambia el estado a "DEVUELTO".
-        prestamoActivo.guardar(); // Guarda los cambios del préstamo.
-
-        libro.setUnidadesLibres(libro.getUnidadesLibres() + 1); // Aumenta una unidad libre del libro.
-        libro.setUnidadesPrestadas(libro.getUnidadesPrestadas() - 1); // Disminuye una unidad prestada.
-        libro.guardar(); // Guarda los cambios del libro.
-
+        // Días de retraso de este préstamo que MultasDiarias ya sumó a la deuda mientras
+        // estaba activo (si lo hizo después de leerlo aquí, el miembro cambió y el
+        // guardado da un conflicto de versión que repite la devolución).
+        int cobradoHasta = MultasDiarias.getInstancia().diaCobrado();
         String multaInfo = ""; // Mensaje de multa (vacío si no hay multa).
-        // Verifica si hubo retraso en la devolución para aplicar una multa.
-        if (prestamoActivo.getFechaDevolucionReal().after(prestamoActivo.getFechaDevolucionEstimada())) {
-            multaInfo = multar(miembro, libro, prestamoActivo); // Calcula y aplica la multa.
+        try (Persistencia.Transaccion tx = Persistencia.begin()) { // Préstamo, libro y multa se escriben juntos al final.
+            // Actualiza el préstamo como devuelto.
+            prestamoActivo.setDiaDevolucionReal(Fecha.hoy()); // Establece la fecha real de devolución (hoy).
+            prestamoActivo.setEstado("DEVUELTO"); // Cambia el estado a "DEVUELTO".
+            prestamoActivo.guardar(); // Guarda los cambios del préstamo.
+
+            libro.setUnidadesLibres(libro.getUnidadesLibres() + 1); // Aumenta una unidad libre del libro.
+            libro.setUnidadesPrestadas(libro.getUnidadesPrestadas() - 1); // Disminuye una unidad prestada.
+            libro.guardar(); // Guarda los cambios del libro.
+
+            // Verifica si hubo retraso en la devolución para aplicar una multa.
+            if (prestamoActivo.getDiaDevolucionReal() > prestamoActivo.getDiaDevolucionEstimada()) {
+                multaInfo = multar(miembro, libro, prestamoActivo, cobradoHasta).getMensaje(); // Calcula y aplica la multa.
+            }
+            tx.confirmar();
         }
 
-        return "Exito: Libro '" + libro.getNombre() + "' devuelto por " + miembro.getNombre() + " "
-                + miembro.getApellido() + ". " + multaInfo; // Mensaje de éxito.
+        return Resultado.exito(prestamoActivo, "Exito: Libro '" + libro.getNombre() + "' devuelto por "
+                + miembro.getNombre() + " " + miembro.getApellido() + ". " + multaInfo); // Mensaje de éxito.
     }
 
-    // Busca libros disponibles en una sede específica.
+    // Busca libros disponibles en una sede específica (sin importar mayúsculas).
+    // Las tres variantes usan el índice de disponibles del repositorio: no recorren todo
+    // el catálogo.
     public List<Libro> librosDisponibles(String sedeBusqueda) {
-        return Libro.cargarTodosLosLibros().stream()
-                .filter(libro -> libro.getSedeBiblioteca().equalsIgnoreCase(sedeBusqueda) // Filtra por sede (ignorando
-                                                                                          // mayúsculas/minúsculas).
-                        && libro.getUnidadesLibres() > 0) // Solo si hay unidades libres.
-                .collect(Collectors.toList()); // Devuelve la lista de libros.
+        return LibroRepository.getInstancia().disponiblesPorSede(sedeBusqueda);
     }
 
     // Busca libros disponibles por el ID de una biblioteca.
     public List<Libro> librosDisponibles(int idBibliotecaBusqueda) {
-        return Libro.cargarTodosLosLibros().stream()
-                .filter(libro -> libro.getIdBiblioteca() == idBibliotecaBusqueda && libro.getUnidadesLibres() > 0) // Filtra
-                                                                                                                   // por
-                                                                                                                   // ID
-                                                                                                                   // de
-                                                                                                                   // biblioteca
-                                                                                                                   // y
-                                                                                                                   // unidades
-                                                                                                                   // libres.
-                .collect(Collectors.toList());
+        return LibroRepository.getInstancia().disponiblesPorBiblioteca(idBibliotecaBusqueda);
     }
 
     // Busca libros disponibles por sede Y por ID de biblioteca.
     public List<Libro> librosDisponibles(String sedeBusqueda, int idBibliotecaBusqueda) {
-        return Libro.cargarTodosLosLibros().stream()
-                .filter(libro -> libro.getSedeBiblioteca().equalsIgnoreCase(sedeBusqueda) // Filtra por sede.
-                        && libro.getIdBiblioteca() == idBibliotecaBusqueda // Filtra por ID de biblioteca.
-                        && libro.getUnidadesLibres() > 0) // Y solo si hay unidades libres.
-                .collect(Collectors.toList());
+        return LibroRepository.getInstancia().disponiblesPorBibliotecaYSede(idBibliotecaBusqueda, sedeBusqueda);
     }
 
     // Realiza una búsqueda flexible de libros por varios criterios.
+    // Por nombre o autor usa el índice de trigramas del repositorio (no recorre todo el
+    // catálogo) e ignora mayúsculas y tildes: "cancion" encuentra "Canción".
     public List<Libro> buscarLibro(String query, String searchType) {
-        List<Libro> allBooks = Libro.cargarTodosLosLibros(); // Carga todos los libros.
-        return allBooks.stream()
+        long inicio = System.nanoTime();
+        try {
+            String tipo = searchType.toLowerCase();
+            if (tipo.equals("nombre") || tipo.equals("autor")) {
+                return LibroRepository.getInstancia().buscarPorTexto(query, tipo.equals("autor"));
+            }
+            return buscarLibroStream(query, searchType).collect(Collectors.toList()); // Lista de libros encontrados.
+        } finally {
+            METRICA_BUSCAR.registrarDesde(inicio);
+        }
+    }
+
+    // Igual que buscarLibro(), pero devuelve los libros a medida que se recorren (el
+    // catálogo se lee por páginas), para mostrar los primeros sin esperar a tenerlos todos.
+    public Stream<Libro> buscarLibroStream(String query, String searchType) {
+        String tipo = searchType.toLowerCase();
+        if (tipo.equals("nombre") || tipo.equals("autor")) {
+            return LibroRepository.getInstancia().recorrerPorTexto(query, tipo.equals("autor"));
+        }
+        return Libro.recorrerTodosLosLibros()
                 .filter(libro -> { // Para cada libro, aplica un filtro según el tipo de búsqueda.
-                    switch (searchType.toLowerCase()) {
-                        case "nombre":
-                            return libro.getNombre().toLowerCase().contains(query.toLowerCase()); // Busca si el nombre
-                                                                                                  // contiene el texto.
-                        case "autor":
-                            return libro.getAutor().toLowerCase().contains(query.toLowerCase()); // Busca si el autor
-                                                                                                 // contiene el texto.
+                    switch (tipo) {
                         case "codigo":
                             return libro.getCodigo().equalsIgnoreCase(query); // Busca por código exacto.
                         case "sede":
@@ -386,19 +540,47 @@ public class Biblioteca implements IPersistible { // La clase 'Biblioteca' repre
                         default:
                             return false; // Si el tipo de búsqueda no es válido.
                     }
-                })
-                .collect(Collectors.toList()); // Devuelve la lista de libros encontrados.
+                });
     }
 
     // Calcula y aplica multas por retraso en la devolución de libros.
-    public String multar(Miembro miembro, Libro libro, Prestamo prestamo) {
+    // El valor del resultado es el monto aplicado (0 si no hubo multa). La deuda se
+    // guarda con el miembro (Usuario.setDeuda). Cobra todo el retraso: no descuenta los
+    // días que MultasDiarias ya sumó, así que no es para un préstamo que ya pasó por
+    // devolverLibro (para ese, ver consultarMulta).
+    public Resultado<Double> multar(Miembro miembro, Libro libro, Prestamo prestamo) {
+        return multar(miembro, libro, prestamo, Fecha.SIN_FECHA);
+    }
+
+    // Calcula la multa que le corresponde a un préstamo ya devuelto, sin cambiar la deuda:
+    // devolverLibro (y, mientras estuvo activo, MultasDiarias) ya la sumó. Se puede
+    // consultar las veces que haga falta. El valor del resultado es el monto (0 si no hubo multa).
+    public Resultado<Double> consultarMulta(Miembro miembro, Libro libro, Prestamo prestamo) {
+        if (prestamo != null && prestamo.getDiaDevolucionReal() != Fecha.SIN_FECHA &&
+                prestamo.getDiaDevolucionReal() > prestamo.getDiaDevolucionEstimada()) {
+            long diasRetraso = Fecha.diasEntre(prestamo.getDiaDevolucionReal(), prestamo.getDiaDevolucionEstimada());
+            double montoMulta = diasRetraso * MULTA_POR_DIA; // Lo que se sumó a la deuda por este préstamo.
+            return Resultado.exito(montoMulta, String.format(
+                    "Multa cobrada a %s %s por el libro '%s'. Retraso: %d dias. Monto: %.2f pesos. ",
+                    miembro.getNombre(), miembro.getApellido(), libro.getNombre(), diasRetraso, montoMulta));
+        }
+        return Resultado.exito(0.0, "No hay multa para este prestamo.");
+    }
+
+    // Igual que multar(), pero sin volver a cobrar los días de retraso hasta el día
+    // 'cobradoHasta', que MultasDiarias ya sumó a la deuda mientras el préstamo estaba
+    // activo (Fecha.SIN_FECHA si no cobró ninguno).
+    Resultado<Double> multar(Miembro miembro, Libro libro, Prestamo prestamo, int cobradoHasta) {
         // Verifica si el préstamo existe, si se devolvió y si fue después de la fecha
         // estimada.
-        if (prestamo != null && prestamo.getFechaDevolucionReal() != null &&
-                prestamo.getFechaDevolucionReal().after(prestamo.getFechaDevolucionEstimada())) {
+        if (prestamo != null && prestamo.getDiaDevolucionReal() != Fecha.SIN_FECHA &&
+                prestamo.getDiaDevolucionReal() > prestamo.getDiaDevolucionEstimada()) {
 
-            long diasRetraso = Fecha.getDaysBetween(prestamo.getFechaDevolucionReal(),
-                    prestamo.getFechaDevolucionEstimada()); // Calcula los días de retraso.
+            int desde = Math.max(prestamo.getDiaDevolucionEstimada(), cobradoHasta); // Lo anterior ya está cobrado.
+            if (prestamo.getDiaDevolucionReal() <= desde) {
+                return Resultado.exito(0.0, "La multa de este prestamo ya se sumo a la deuda. ");
+            }
+            long diasRetraso = Fecha.diasEntre(prestamo.getDiaDevolucionReal(), desde); // Calcula los días de retraso.
 
             if (diasRetraso <= 0) // Asegura que al menos sea 1 día de retraso si la devolución fue tardía.
                 diasRetraso = 1;
@@ -408,17 +590,16 @@ public class Biblioteca implements IPersistible { // La clase 'Biblioteca' repre
             if (miembro instanceof Usuario) { // Si el miembro es un Usuario (solo los usuarios acumulan deuda).
                 Usuario user = (Usuario) miembro;
                 user.setDeuda(user.getDeuda() + montoMulta); // Añade el monto al total de la deuda del usuario.
-                System.out.println("Deuda actualizada para " + user.getNombre() + ". Nueva deuda total: "
+                Sesion.salida().println("Deuda actualizada para " + user.getNombre() + ". Nueva deuda total: "
                         + String.format("%.2f", user.getDeuda())); // Muestra la nueva deuda.
             }
 
-            return String.format(
+            return Resultado.exito(montoMulta, String.format(
                     "Se ha aplicado una multa a %s %s por el libro '%s'. Retraso: %d dias. Monto: %.2f pesos. ",
-                    miembro.getNombre(), miembro.getApellido(), libro.getNombre(), diasRetraso, montoMulta); // Mensaje
-                                                                                                             // de
-                                                                                                             // multa.
+                    miembro.getNombre(), miembro.getApellido(), libro.getNombre(), diasRetraso, montoMulta)); // Mensaje
+                                                                                                              // de multa.
         }
-        return "No hay multa para este prestamo."; // Mensaje si no aplica multa.
+        return Resultado.exito(0.0, "No hay multa para este prestamo."); // Mensaje si no aplica multa.
     }
 
     // Devuelve una cadena de texto que representa el objeto Biblioteca de forma
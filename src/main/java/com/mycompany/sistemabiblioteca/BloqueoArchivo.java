@@ -0,0 +1,154 @@
+package com.mycompany.sistemabiblioteca; // Carpeta donde está organizado nuestro código.
+
+import java.io.IOException; // Para manejar errores al trabajar con archivos.
+import java.nio.ByteBuffer; // Para leer y escribir el contador de cambios.
+import java.nio.channels.FileChannel; // Canal del archivo de bloqueo.
+import java.nio.channels.FileLock; // Bloqueo del sistema operativo, visible para otros procesos.
+import java.nio.file.Path; // Para rutas de archivos.
+import java.nio.file.StandardOpenOption; // Para opciones de apertura.
+import java.util.ArrayList; // Para listas dinámicas.
+import java.util.Comparator; // Para ordenar los bloqueos antes de tomarlos.
+import java.util.List; // Para usar listas.
+import java.util.Map; // Para usar mapas.
+import java.util.concurrent.ConcurrentHashMap; // Mapa seguro entre hilos.
+import java.util.concurrent.locks.ReentrantLock; // Cerrojo que el mismo hilo puede tomar varias veces.
+
+// Esta clase coordina las escrituras de un archivo de datos entre hilos y entre
+// procesos (por ejemplo, dos puestos de préstamo que usan la misma carpeta "datos"
+// compartida). Cada archivo de datos tiene al lado un archivo "<archivo>.lock":
+// - Quien va a leer y reescribir el archivo toma primero el bloqueo (un ReentrantLock
+//   para los hilos de este proceso y FileChannel.lock() para los demás procesos) y lo
+//   suelta al terminar. El bloqueo dura solo lo que dura esa lectura y escritura.
+// - El archivo .lock guarda además un contador de cambios ("generación") que sube con
+//   cada escritura. Los índices en memoria lo comparan con el último que vieron para
+//   saber si otro proceso cambió el archivo y hay que volver a leerlo.
+// Hay una sola instancia por archivo en todo el proceso (ver de()).
+public class BloqueoArchivo {
+
+    private static final Map<Path, BloqueoArchivo> BLOQUEOS = new ConcurrentHashMap<>(); // Archivo -> su bloqueo.
+
+    private final Path rutaBloqueo; // Archivo "<archivo>.lock".
+    private final ReentrantLock local = new ReentrantLock(); // Excluye a los hilos de este proceso.
+    private FileChannel canal; // Canal abierto sobre el archivo .lock (se abre la primera vez).
+    private FileLock bloqueo; // Bloqueo del sistema operativo mientras se tiene tomado.
+
+    // Una acción que se ejecuta con el bloqueo tomado.
+    @FunctionalInterface
+    public interface Accion<T> {
+        T ejecutar() throws IOException;
+    }
+
+    private BloqueoArchivo(Path archivo) {
+        this.rutaBloqueo = archivo.resolveSibling(archivo.getFileName() + ".lock");
+    }
+
+    // Devuelve el bloqueo del archivo de datos 'archivo'.
+    public static BloqueoArchivo de(Path archivo) {
+        return BLOQUEOS.computeIfAbsent(archivo.toAbsolutePath().normalize(), BloqueoArchivo::new);
+    }
+
+    // Ejecuta 'accion' con el bloqueo tomado. Si el hilo ya lo tenía (por ejemplo, dentro
+    // de una transacción), simplemente la ejecuta.
+    public <T> T ejecutar(Accion<T> accion) throws IOException {
+        tomar();
+        try {
+            return accion.ejecutar();
+        } finally {
+            soltar();
+        }
+    }
+
+    // Ejecuta 'accion' con los bloqueos de varios archivos tomados. Se toman siempre en el
+    // mismo orden (por ruta), así dos hilos o procesos que piden los mismos archivos no se
+    // pueden bloquear mutuamente.
+    public static <T> T ejecutar(List<BloqueoArchivo> bloqueos, Accion<T> accion) throws IOException {
+        List<BloqueoArchivo> ordenados = new ArrayList<>(bloqueos);
+        ordenados.sort(Comparator.comparing(b -> b.rutaBloqueo));
+        int tomados = 0;
+        try {
+            for (BloqueoArchivo b : ordenados) {
+                b.tomar();
+                tomados++;
+            }
+            return accion.ejecutar();
+        } finally {
+            for (int i = tomados - 1; i >= 0; i--) {
+                ordenados.get(i).soltar();
+            }
+        }
+    }
+
+    // Toma el bloqueo: primero el de este proceso y, si es la primera vez para este
+    // hilo, el del sistema operativo (que espera si otro proceso lo tiene).
+    private void tomar() throws IOException {
+        local.lock();
+        if (local.getHoldCount() > 1) {
+            return; // Este hilo ya tiene el bloqueo del sistema operativo.
+        }
+        try {
+            bloqueo = canal().lock();
+        } catch (IOException | RuntimeException ex) {
+            local.unlock();
+            throw ex;
+        }
+    }
+
+    // Suelta el bloqueo (el del sistema operativo solo cuando este hilo lo suelta del todo).
+    private void soltar() {
+        try {
+            if (local.getHoldCount() == 1 && bloqueo != null) {
+                bloqueo.release();
+                bloqueo = null;
+            }
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        } finally {
+            local.unlock();
+        }
+    }
+
+    // Indica si el hilo actual tiene tomado este bloqueo.
+    public boolean tomadoPorEsteHilo() {
+        return local.isHeldByCurrentThread();
+    }
+
+    // Devuelve el canal del archivo .lock, abriéndolo (o reabriéndolo si se cerró, por
+    // ejemplo al interrumpir un hilo que lo usaba).
+    private synchronized FileChannel canal() throws IOException {
+        if (canal == null || !canal.isOpen()) {
+            canal = FileChannel.open(rutaBloqueo, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+        }
+        return canal;
+    }
+
+    // Devuelve el contador de cambios del archivo (0 si nunca se escribió).
+    // Se puede llamar sin tener el bloqueo: es una sola lectura de 8 bytes.
+    public long generacion() {
+        try {
+            ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES);
+            FileChannel ch = canal();
+            while (buffer.hasRemaining()) {
+                if (ch.read(buffer, buffer.position()) < 0) {
+                    return 0; // Archivo vacío o incompleto: todavía no hubo cambios.
+                }
+            }
+            return buffer.getLong(0);
+        } catch (IOException ex) {
+            ex.printStackTrace();
+            return -1; // Valor que no coincide con ninguno visto: obliga a releer.
+        }
+    }
+
+    // Anota que el archivo cambió y devuelve el nuevo contador.
+    // Se llama con el bloqueo tomado, justo después de escribir el archivo de datos.
+    long marcarCambio() throws IOException {
+        long nueva = Math.max(0, generacion()) + 1;
+        ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES).putLong(0, nueva);
+        FileChannel ch = canal();
+        while (buffer.hasRemaining()) {
+            ch.write(buffer, buffer.position());
+        }
+        return nueva;
+    }
+}
@@ -0,0 +1,46 @@
+package com.mycompany.sistemabiblioteca; // Carpeta donde está organizado nuestro código.
+
+import java.util.Locale; // Para pasar las claves de texto a minúsculas de forma consistente.
+import java.util.concurrent.locks.ReentrantLock; // Cerrojo que el mismo hilo puede tomar varias veces.
+
+// Esta clase reparte claves (códigos de libro, documentos de miembro) entre un número
+// fijo de cerrojos ("franjas"). Dos operaciones sobre la misma clave siempre usan el
+// mismo cerrojo y se ejecutan una después de la otra; operaciones sobre claves
+// distintas casi siempre caen en cerrojos distintos y pueden ir en paralelo.
+// No hace falta crear ni borrar un cerrojo por clave: la memoria usada es fija.
+public class BloqueoPorClave {
+
+    private final ReentrantLock[] franjas; // Cerrojos disponibles.
+
+    // Crea el reparto con al menos 'minimo' franjas (se redondea a potencia de 2).
+    public BloqueoPorClave(int minimo) {
+        int n = Integer.highestOneBit(Math.max(1, minimo - 1)) << 1;
+        franjas = new ReentrantLock[n];
+        for (int i = 0; i < n; i++) {
+            franjas[i] = new ReentrantLock();
+        }
+    }
+
+    // Crea el reparto con 4 franjas por núcleo (mínimo 16), suficiente para que
+    // dos claves distintas rara vez compartan cerrojo.
+    public BloqueoPorClave() {
+        this(Math.max(16, 4 * Runtime.getRuntime().availableProcessors()));
+    }
+
+    // Devuelve el cerrojo de un código de texto (sin importar mayúsculas ni espacios,
+    // igual que las búsquedas de libros).
+    public ReentrantLock para(String clave) {
+        return franja(clave == null ? 0 : clave.trim().toLowerCase(Locale.ROOT).hashCode());
+    }
+
+    // Devuelve el cerrojo de una clave numérica.
+    public ReentrantLock para(long clave) {
+        return franja(Long.hashCode(clave));
+    }
+
+    // Elige la franja a partir del hash (mezclando los bits altos con los bajos).
+    private ReentrantLock franja(int hash) {
+        int h = hash ^ (hash >>> 16);
+        return franjas[h & (franjas.length - 1)];
+    }
+}
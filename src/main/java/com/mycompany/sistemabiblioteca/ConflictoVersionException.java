@@ -0,0 +1,54 @@
+package com.mycompany.sistemabiblioteca; // Carpeta donde está organizado nuestro código.
+
+// Esta excepción indica que un registro no se guardó porque otro proceso (u otro hilo)
+// lo modificó después de que se leyó: la versión que tenía el objeto ya no es la del
+// archivo. No se escribió nada, así que la operación se puede repetir volviendo a leer
+// los datos (por ejemplo, volver a buscar el libro y prestarlo de nuevo).
+public class ConflictoVersionException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final long NO_EXISTE = -1; // Versión "encontrada" cuando el registro ya no está en el archivo.
+
+    private final String archivo; // Archivo de datos del registro (ej. "Libros.txt").
+    private final String clave; // Identificador del registro (código, usuario...).
+    private final long versionEsperada; // Versión que tenía el objeto (0 si era nuevo).
+    private final long versionEncontrada; // Versión en el archivo (NO_EXISTE si no está).
+
+    public ConflictoVersionException(String archivo, String clave, long versionEsperada, long versionEncontrada) {
+        super(describir(archivo, clave, versionEsperada, versionEncontrada));
+        this.archivo = archivo;
+        this.clave = clave;
+        this.versionEsperada = versionEsperada;
+        this.versionEncontrada = versionEncontrada;
+    }
+
+    // Arma el mensaje para el usuario.
+    private static String describir(String archivo, String clave, long esperada, long encontrada) {
+        String motivo;
+        if (esperada == 0) {
+            motivo = "ya fue creado por otra estacion";
+        } else if (encontrada == NO_EXISTE) {
+            motivo = "fue eliminado por otra estacion";
+        } else {
+            motivo = "fue modificado por otra estacion (version " + esperada + ", en el archivo " + encontrada + ")";
+        }
+        return "El registro '" + clave + "' de " + archivo + " " + motivo + ". Vuelva a intentarlo.";
+    }
+
+    public String getArchivo() {
+        return archivo;
+    }
+
+    public String getClave() {
+        return clave;
+    }
+
+    public long getVersionEsperada() {
+        return versionEsperada;
+    }
+
+    public long getVersionEncontrada() {
+        return versionEncontrada;
+    }
+}
@@ -0,0 +1,151 @@
+package com.mycompany.sistemabiblioteca; // Carpeta donde está organizado nuestro código.
+
+import java.io.BufferedOutputStream; // Para escribir bytes en bloques grandes.
+import java.io.BufferedWriter; // Para escribir texto en bloques grandes.
+import java.io.IOException; // Para manejar errores al trabajar con archivos.
+import java.io.OutputStream; // Salida de bytes hacia el archivo temporal.
+import java.io.OutputStreamWriter; // Convierte el texto a bytes (UTF-8).
+import java.io.Writer; // Salida de texto hacia el archivo temporal.
+import java.nio.channels.Channels; // Para escribir en un FileChannel como si fuera un OutputStream.
+import java.nio.channels.FileChannel; // Canal del archivo temporal (para forzarlo a disco).
+import java.nio.charset.StandardCharsets; // Codificación de los archivos de datos.
+import java.nio.file.AtomicMoveNotSupportedException; // Si el sistema de archivos no sabe renombrar de forma atómica.
+import java.nio.file.DirectoryStream; // Para recorrer la carpeta de datos.
+import java.nio.file.Files; // Para operar con archivos.
+import java.nio.file.Path; // Para rutas de archivos.
+import java.nio.file.StandardCopyOption; // Opciones para mover archivos.
+import java.nio.file.StandardOpenOption; // Opciones para abrir archivos.
+import java.util.Collection; // Para recibir las líneas a escribir.
+
+// Esta clase reemplaza archivos completos sin riesgo de dejarlos a medias.
+// Antes, cada guardar() hacía Files.write(..., TRUNCATE_EXISTING): si el programa o
+// el equipo se caía en medio, el archivo quedaba cortado (por ejemplo, un catálogo
+// con la mitad de los libros). Ahora el contenido nuevo se escribe en
+// "<archivo>.tmp" en la misma carpeta, se fuerza a disco y solo entonces se renombra
+// sobre el original con ATOMIC_MOVE. Quien lee ve el archivo anterior completo o el
+// nuevo completo, nunca una mezcla.
+// Si el programa se cae antes del renombrado, queda un ".tmp" huérfano y el original
+// intacto; recuperarTemporales() los borra al arrancar.
+// Quien llama debe tener tomado el bloqueo del archivo (BloqueoArchivo): así hay un
+// solo "<archivo>.tmp" a la vez.
+public final class EscrituraAtomica {
+
+    private static final int TAMANO_BUFFER = 1 << 16; // 64 KB: pocas llamadas al sistema al escribir.
+    static final String SUFIJO_TEMPORAL = ".tmp"; // Sufijo de los archivos temporales.
+
+    private EscrituraAtomica() { // Clase de utilidad: no se crean instancias.
+    }
+
+    // Escribe el contenido de un archivo de texto.
+    @FunctionalInterface
+    public interface ContenidoTexto {
+        void escribir(Writer writer) throws IOException;
+    }
+
+    // Escribe el contenido de un archivo binario.
+    @FunctionalInterface
+    public interface ContenidoBinario {
+        void escribir(OutputStream salida) throws IOException;
+    }
+
+    // Reemplaza 'destino' por las líneas dadas (en UTF-8, una por línea).
+    public static void reemplazar(Path destino, Collection<String> lineas) throws IOException {
+        reemplazar(destino, writer -> {
+            for (String linea : lineas) {
+                writer.write(linea);
+                writer.write(System.lineSeparator()); // Mismo fin de línea que Files.write.
+            }
+        });
+    }
+
+    // Reemplaza 'destino' por el texto que escriba 'contenido' (en UTF-8).
+    public static void reemplazar(Path destino, ContenidoTexto contenido) throws IOException {
+        reemplazarBinario(destino, salida -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(salida, StandardCharsets.UTF_8), TAMANO_BUFFER);
+            contenido.escribir(writer);
+            writer.flush(); // No se cierra: el canal lo cierra reemplazarBinario.
+        });
+    }
+
+    // Reemplaza 'destino' por los bytes que escriba 'contenido'.
+    public static void reemplazarBinario(Path destino, ContenidoBinario contenido) throws IOException {
+        Path temporal = rutaTemporal(destino);
+        long escritos;
+        try {
+            try (FileChannel canal = FileChannel.open(temporal, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                OutputStream salida = new BufferedOutputStream(Channels.newOutputStream(canal), TAMANO_BUFFER);
+                contenido.escribir(salida);
+                salida.flush();
+                canal.force(true); // Los datos quedan en disco antes de renombrar.
+                escritos = canal.size();
+            }
+            mover(temporal, destino);
+        } catch (IOException | RuntimeException ex) {
+            Files.deleteIfExists(temporal); // El original sigue intacto.
+            throw ex;
+        }
+        sincronizarCarpeta(destino.toAbsolutePath().getParent()); // Que el renombrado también quede en disco.
+        Metricas.archivo(destino).registrarEscritura(escritos);
+    }
+
+    // Devuelve la ruta del temporal de 'destino' ("<archivo>.tmp").
+    static Path rutaTemporal(Path destino) {
+        return destino.resolveSibling(destino.getFileName() + SUFIJO_TEMPORAL);
+    }
+
+    // Renombra el temporal sobre el destino en un solo paso. Si el sistema de archivos
+    // no lo permite (algunas unidades de red), hace un reemplazo normal.
+    private static void mover(Path temporal, Path destino) throws IOException {
+        try {
+            Files.move(temporal, destino, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(temporal, destino, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    // Fuerza a disco la entrada de la carpeta (el nombre nuevo del archivo). En
+    // sistemas que no permiten abrir carpetas (Windows) no hace nada.
+    private static void sincronizarCarpeta(Path carpeta) {
+        if (carpeta == null) {
+            return;
+        }
+        try (FileChannel canal = FileChannel.open(carpeta, StandardOpenOption.READ)) {
+            canal.force(true);
+        } catch (IOException ex) {
+            // No se puede en este sistema: el renombrado ya es atómico igualmente.
+        }
+    }
+
+    // Borra los temporales que dejó una escritura interrumpida en la carpeta de datos.
+    // Devuelve cuántos borró.
+    public static int recuperarTemporales() {
+        return recuperarTemporales(PathManager.resolverRutaArchivo("Libros.txt").toAbsolutePath().getParent());
+    }
+
+    // Borra los temporales huérfanos ("*.tmp") de 'carpeta'. El original de cada uno
+    // está completo (el temporal nunca llegó a reemplazarlo), así que se conserva el
+    // original. Cada temporal se borra con el bloqueo de su archivo tomado, para no
+    // tocar el de otro proceso que esté escribiendo en ese momento.
+    public static int recuperarTemporales(Path carpeta) {
+        int borrados = 0;
+        if (carpeta == null || !Files.isDirectory(carpeta)) {
+            return borrados;
+        }
+        try (DirectoryStream<Path> temporales = Files.newDirectoryStream(carpeta, "*" + SUFIJO_TEMPORAL)) {
+            for (Path temporal : temporales) {
+                String nombre = temporal.getFileName().toString();
+                Path original = temporal.resolveSibling(nombre.substring(0, nombre.length() - SUFIJO_TEMPORAL.length()));
+                boolean borrado = BloqueoArchivo.de(original).ejecutar(() -> Files.deleteIfExists(temporal));
+                if (borrado) {
+                    System.err.println("Advertencia: Se descarto una escritura incompleta de " + original.getFileName()
+                            + " (" + temporal.getFileName() + "); el archivo conserva su contenido anterior.");
+                    borrados++;
+                }
+            }
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        }
+        return borrados;
+    }
+}
@@ -5,78 +5,212 @@
 package com.mycompany.sistemabiblioteca; // Carpeta donde está organizado nuestro código.
 
 import java.text.ParseException; // Para manejar errores al convertir texto a fecha.
-import java.text.SimpleDateFormat; // Para dar formato a las fechas (ej. "yyyy-MM-dd").
-import java.util.Calendar; // Para operaciones avanzadas con fechas (sumar días, etc.).
+import java.time.LocalDate; // Fecha sin hora (año, mes, día), inmutable y segura entre hilos.
+import java.time.ZoneId; // Zona horaria para convertir a 'Date'.
 import java.util.Date; // Clase principal para representar una fecha y hora.
 
 // Esta clase es una herramienta útil para manejar fechas en el sistema.
 // Facilita formatear, leer y hacer cálculos con fechas.
+//
+// Internamente una fecha es un 'int': el número de días desde 1970-01-01 (el mismo
+// valor que LocalDate.toEpochDay()). Así guardar, comparar y restar fechas no crea
+// objetos, y no hay ningún formateador compartido que se pueda corromper cuando
+// varios hilos leen o escriben fechas a la vez (SimpleDateFormat no era seguro entre hilos).
+// Los métodos con 'Date' se mantienen para el código que aún los usa.
 public class Fecha {
-    // Define el formato estándar para todas las fechas en el sistema:
-    // "año-mes-día".
-    public static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("yyyy-MM-dd");
+    // Valor de "sin fecha" (en los archivos se escribe "null").
+    public static final int SIN_FECHA = Integer.MIN_VALUE;
+
+    // --- Fechas como número de día ---
+
+    // Devuelve el día de hoy (según la zona horaria del sistema).
+    public static int hoy() {
+        return (int) LocalDate.now().toEpochDay();
+    }
+
+    // Calcula la diferencia en días entre dos fechas (dia1 - dia2).
+    public static long diasEntre(int dia1, int dia2) {
+        return (long) dia1 - dia2;
+    }
+
+    // Convierte un número de día a LocalDate ('null' si es SIN_FECHA).
+    public static LocalDate aLocalDate(int diaEpoca) {
+        return diaEpoca == SIN_FECHA ? null : LocalDate.ofEpochDay(diaEpoca);
+    }
+
+    // Convierte un LocalDate a número de día ('null' devuelve SIN_FECHA).
+    public static int desdeLocalDate(LocalDate fecha) {
+        return fecha == null ? SIN_FECHA : (int) fecha.toEpochDay();
+    }
+
+    // Escribe un número de día como "yyyy-MM-dd". SIN_FECHA se escribe "null".
+    public static String formatear(int diaEpoca) {
+        if (diaEpoca == SIN_FECHA) {
+            return "null";
+        }
+        // Algoritmo inverso de diaEpoca(): de días a (año, mes, día) con enteros.
+        int z = diaEpoca + 719468;
+        int era = (z >= 0 ? z : z - 146096) / 146097;
+        int diaDeEra = z - era * 146097; // [0, 146096]
+        int anioDeEra = (diaDeEra - diaDeEra / 1460 + diaDeEra / 36524 - diaDeEra / 146096) / 365; // [0, 399]
+        int diaDelAnio = diaDeEra - (365 * anioDeEra + anioDeEra / 4 - anioDeEra / 100); // [0, 365]
+        int mp = (5 * diaDelAnio + 2) / 153; // Mes contando desde marzo [0, 11].
+        int dia = diaDelAnio - (153 * mp + 2) / 5 + 1; // [1, 31]
+        int mes = mp < 10 ? mp + 3 : mp - 9; // [1, 12]
+        int anio = anioDeEra + era * 400 + (mes <= 2 ? 1 : 0);
+        if (anio < 0 || anio > 9999) { // Fuera del rango de 4 dígitos: formato ISO de LocalDate.
+            return LocalDate.ofEpochDay(diaEpoca).toString();
+        }
+        char[] c = new char[10];
+        c[0] = (char) ('0' + anio / 1000);
+        c[1] = (char) ('0' + anio / 100 % 10);
+        c[2] = (char) ('0' + anio / 10 % 10);
+        c[3] = (char) ('0' + anio % 10);
+        c[4] = '-';
+        c[5] = (char) ('0' + mes / 10);
+        c[6] = (char) ('0' + mes % 10);
+        c[7] = '-';
+        c[8] = (char) ('0' + dia / 10);
+        c[9] = (char) ('0' + dia % 10);
+        return new String(c);
+    }
+
+    // Lee una fecha "yyyy-MM-dd" de los caracteres [ini, fin) (ya sin espacios) y
+    // devuelve su número de día. Un texto vacío o "null" devuelve SIN_FECHA.
+    // Si no es una fecha válida, lanza NumberFormatException.
+    public static int parsear(char[] c, int ini, int fin) {
+        if (ini == fin || (fin - ini == 4 && (c[ini] | 0x20) == 'n' && (c[ini + 1] | 0x20) == 'u'
+                && (c[ini + 2] | 0x20) == 'l' && (c[ini + 3] | 0x20) == 'l')) {
+            return SIN_FECHA;
+        }
+        int guion1 = indiceDe(c, '-', ini, fin);
+        int guion2 = guion1 < 0 ? -1 : indiceDe(c, '-', guion1 + 1, fin);
+        int anio = guion2 < 0 ? -1 : leerNumero(c, ini, guion1);
+        int mes = guion2 < 0 ? -1 : leerNumero(c, guion1 + 1, guion2);
+        int dia = guion2 < 0 ? -1 : leerNumero(c, guion2 + 1, fin);
+        if (anio < 0 || !esFechaValida(anio, mes, dia)) {
+            throw new NumberFormatException("Fecha invalida: " + new String(c, ini, fin - ini));
+        }
+        return diaEpoca(anio, mes, dia);
+    }
+
+    // Lee una fecha "yyyy-MM-dd" de un texto. Vacío, 'null' o "null" devuelven SIN_FECHA.
+    public static int parsear(String texto) {
+        if (texto == null) {
+            return SIN_FECHA;
+        }
+        String t = texto.trim();
+        return parsear(t.toCharArray(), 0, t.length());
+    }
+
+    // Busca un carácter entre [desde, hasta). Devuelve -1 si no está.
+    private static int indiceDe(char[] c, char buscado, int desde, int hasta) {
+        for (int i = desde; i < hasta; i++) {
+            if (c[i] == buscado) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Convierte los dígitos [ini, fin) en un número (sin signo, hasta 6 dígitos).
+    // Devuelve -1 si no son dígitos o si el campo está vacío o es demasiado largo.
+    private static int leerNumero(char[] c, int ini, int fin) {
+        if (ini >= fin || fin - ini > 6) {
+            return -1;
+        }
+        int valor = 0;
+        for (int i = ini; i < fin; i++) {
+            int d = c[i] - '0';
+            if (d < 0 || d > 9) {
+                return -1;
+            }
+            valor = valor * 10 + d;
+        }
+        return valor;
+    }
+
+    // --- Métodos con 'Date' ---
 
     // Obtiene la fecha actual (hoy), pero sin incluir la hora, minutos, segundos ni
     // milisegundos.
     // Esto es útil para comparar solo el día.
     public static Date getToday() {
-        Calendar cal = Calendar.getInstance(); // Obtiene la fecha y hora actual.
-        cal.set(Calendar.HOUR_OF_DAY, 0); // Pone la hora a las 00:00.
-        cal.set(Calendar.MINUTE, 0); // Pone los minutos a 0.
-        cal.set(Calendar.SECOND, 0); // Pone los segundos a 0.
-        cal.set(Calendar.MILLISECOND, 0); // Pone los milisegundos a 0.
-        return cal.getTime(); // Devuelve la fecha resultante (el inicio del día actual).
+        return desdeDiaEpoca(hoy()); // Inicio del día actual.
     }
 
     // Añade o resta un número de días a una fecha dada.
     public static Date addDays(Date date, int days) {
-        Calendar cal = Calendar.getInstance(); // Obtiene una instancia de Calendar.
-        cal.setTime(date); // Establece la fecha de inicio.
-        cal.add(Calendar.DAY_OF_MONTH, days); // Suma o resta los días.
-        return cal.getTime(); // Devuelve la nueva fecha.
+        return Date.from(date.toInstant().atZone(ZoneId.systemDefault()).plusDays(days).toInstant());
     }
 
     // Calcula la diferencia en días entre dos fechas.
     public static long getDaysBetween(Date date1, Date date2) {
-        // Normaliza ambas fechas al inicio del día para que la hora no afecte el
-        // cálculo.
-        Calendar cal1 = Calendar.getInstance();
-        cal1.setTime(date1);
-        cal1.set(Calendar.HOUR_OF_DAY, 0);
-        cal1.set(Calendar.MINUTE, 0);
-        cal1.set(Calendar.SECOND, 0);
-        cal1.set(Calendar.MILLISECOND, 0);
-
-        Calendar cal2 = Calendar.getInstance();
-        cal2.setTime(date2);
-        cal2.set(Calendar.HOUR_OF_DAY, 0);
-        cal2.set(Calendar.MINUTE, 0);
-        cal2.set(Calendar.SECOND, 0);
-        cal2.set(Calendar.MILLISECOND, 0);
-
-        long diffMillis = cal1.getTimeInMillis() - cal2.getTimeInMillis(); // Calcula la diferencia en milisegundos.
-        long diffDays = diffMillis / (1000 * 60 * 60 * 24); // Convierte milisegundos a días.
-        return diffDays; // Devuelve la cantidad de días.
+        // Solo cuenta el día de cada fecha, así la hora no afecta el cálculo.
+        return diasEntre(aDiaEpoca(date1), aDiaEpoca(date2));
     }
 
     // Convierte un objeto 'Date' a una cadena de texto con el formato "yyyy-MM-dd".
     // Si la fecha es nula, devuelve la palabra "null".
     public static String formatDate(Date date) {
-        if (date == null) { // Si la fecha es nula.
-            return "null"; // Devuelve la cadena "null".
-        }
-        return DATE_FORMAT.format(date); // Formatea la fecha y la devuelve como texto.
+        return formatear(aDiaEpoca(date));
     }
 
     // Convierte una cadena de texto con formato "yyyy-MM-dd" a un objeto 'Date'.
     // Si la cadena es "null" o está vacía, devuelve 'null'.
     public static Date parseDate(String dateString) throws ParseException { // Puede lanzar un error si el formato es
                                                                             // incorrecto.
-        if (dateString == null || dateString.trim().isEmpty() || dateString.equalsIgnoreCase("null")) { // Si la cadena
-                                                                                                        // es inválida o
-                                                                                                        // "null".
-            return null; // Devuelve 'null'.
+        try {
+            return desdeDiaEpoca(parsear(dateString));
+        } catch (NumberFormatException ex) {
+            throw new ParseException(ex.getMessage(), 0);
+        }
+    }
+
+    // Calcula el número de días desde 1970-01-01 para una fecha (año, mes, día),
+    // solo con aritmética de enteros (sin crear objetos). Es el mismo valor que
+    // LocalDate.of(anio, mes, dia).toEpochDay().
+    public static int diaEpoca(int anio, int mes, int dia) {
+        int y = mes <= 2 ? anio - 1 : anio; // Los años "empiezan" en marzo para simplificar los bisiestos.
+        int era = (y >= 0 ? y : y - 399) / 400; // Ciclos de 400 años.
+        int anioDeEra = y - era * 400; // [0, 399]
+        int diaDelAnio = (153 * (mes > 2 ? mes - 3 : mes + 9) + 2) / 5 + dia - 1; // [0, 365]
+        int diaDeEra = anioDeEra * 365 + anioDeEra / 4 - anioDeEra / 100 + diaDelAnio; // [0, 146096]
+        return era * 146097 + diaDeEra - 719468; // 719468 = días del 0000-03-01 al 1970-01-01.
+    }
+
+    // Indica si (año, mes, día) es una fecha real del calendario.
+    public static boolean esFechaValida(int anio, int mes, int dia) {
+        if (mes < 1 || mes > 12 || dia < 1) {
+            return false;
+        }
+        int diasDelMes;
+        if (mes == 2) {
+            boolean bisiesto = (anio % 4 == 0 && anio % 100 != 0) || anio % 400 == 0;
+            diasDelMes = bisiesto ? 29 : 28;
+        } else if (mes == 4 || mes == 6 || mes == 9 || mes == 11) {
+            diasDelMes = 30;
+        } else {
+            diasDelMes = 31;
+        }
+        return dia <= diasDelMes;
+    }
+
+    // Convierte un número de días desde 1970-01-01 en un 'Date' (inicio de ese día,
+    // hora local), igual que parseDate(). SIN_FECHA devuelve 'null'.
+    public static Date desdeDiaEpoca(int diaEpoca) {
+        if (diaEpoca == SIN_FECHA) {
+            return null;
+        }
+        return Date.from(LocalDate.ofEpochDay(diaEpoca).atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+
+    // Convierte un 'Date' en número de días desde 1970-01-01 (según su día en hora
+    // local). 'null' devuelve SIN_FECHA.
+    public static int aDiaEpoca(Date date) {
+        if (date == null) {
+            return SIN_FECHA;
         }
-        return DATE_FORMAT.parse(dateString); // Intenta convertir la cadena a una fecha.
+        return (int) date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate().toEpochDay();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,263 @@
+package com.mycompany.sistemabiblioteca; // Carpeta donde está organizado nuestro código.
+
+import java.io.IOException; // Para manejar errores al trabajar con archivos.
+import java.io.Writer; // Salida de texto hacia el archivo temporal.
+import java.nio.file.Files; // Para operar con archivos.
+import java.nio.file.Path; // Para rutas de archivos.
+import java.util.ArrayList; // Para listas dinámicas.
+import java.util.List; // Para usar listas.
+import java.util.Random; // Generador con semilla: siempre los mismos datos.
+
+// Esta clase genera datos de prueba de cualquier tamaño (bibliotecas, miembros, libros
+// y un historial de préstamos) directamente en los archivos de datos, para probar el
+// programa con volúmenes como los de producción.
+// setupInitialData() crea dos bibliotecas y tres usuarios con un guardar() cada uno
+// (leer, modificar y reescribir el archivo por registro); aquí cada archivo se escribe
+// de una sola pasada, registro a registro (EscrituraAtomica.reemplazar con un Writer),
+// sin tener los datos en memoria: diez millones de préstamos se escriben en segundos.
+//
+// Los datos salen de un Random con semilla (uno por archivo): la misma semilla y los
+// mismos tamaños dan siempre los mismos archivos (salvo los hashes de las contraseñas,
+// porque PBKDF2 usa una sal aleatoria), y cambiar la cantidad de préstamos no cambia los
+// miembros ni los libros. Las líneas se arman con los constructores de cada
+// clase y su construirLineaConVersion(), igual que al guardar.
+//
+// Forma de los datos:
+// - Bibliotecas 1..N repartidas entre SEDES. El libro i es de la biblioteca (i % N) + 1
+//   y su código es "ID-INICIAL_SEDE-NUMERO", como los automáticos.
+// - Un administrador ("admin") y el resto usuarios (70% estudiantes, 20% profesores,
+//   10% administrativos; un 3% con deuda). Todos los usuarios comparten una contraseña:
+//   calcular PBKDF2 por miembro tardaría horas.
+// - Préstamos: un 10% activos (como mucho uno por usuario, así nadie pasa su límite),
+//   prestados en los últimos DIAS_VENTANA días (algunos ya vencidos); el resto es un
+//   historial ya devuelto (algunos con retraso). Cada libro tiene sus préstamos
+//   devueltos en ventanas de DIAS_VENTANA días que no se cruzan, así ningún préstamo
+//   repite libro, miembro y día (su identificador). Las unidades prestadas de cada
+//   libro son exactamente sus préstamos activos.
+//
+// Reemplaza los datos que hubiera en la carpeta (con los bloqueos de los archivos
+// tomados) y borra los archivos que se derivan de ellos (diario de libros, foto binaria
+// de préstamos, secuencias de códigos y multas diarias).
+public class GeneradorDatos {
+
+    static final long DOCUMENTO_BASE = 1000000000L; // Documento del administrador; los usuarios siguen.
+    private static final int DIAS_VENTANA = 40; // Días de cada ventana de préstamos de un libro.
+    private static final String[] SEDES = { "Medellin", "Bogota", "Cali", "Barranquilla", "Cartagena",
+            "Bucaramanga", "Pereira", "Manizales" };
+    private static final String[] SEDES_UNIVERSIDAD = { "Medellin", "Bogota", "Cali" };
+    private static final String[] CARRERAS = { "Ingenieria de Sistemas", "Derecho", "Medicina", "Diseno Grafico" };
+    private static final String[] PALABRAS = { "Cancion", "Historia", "Noche", "Mar", "Ciudad", "Tiempo", "Amor",
+            "Guerra", "Jardin", "Sombra", "Camino", "Fuego", "Silencio", "Rio", "Montana", "Viento", "Anillos",
+            "Cien", "Anos", "Soledad", "Principe", "Reino", "Luz", "Memoria" };
+
+    private final int bibliotecas; // Cantidad de bibliotecas.
+    private final int usuarios; // Miembros sin contar al administrador.
+    private final int libros; // Cantidad de libros.
+    private final long activos; // Préstamos activos.
+    private final long devueltos; // Préstamos del historial (ya devueltos).
+    private final long semilla; // Semilla de los generadores.
+    private final int hoy = Fecha.hoy(); // Día de referencia de las fechas.
+    private final String[] prefijos; // Prefijo de los códigos de cada biblioteca.
+
+    private String contrasenaAdmin; // Contraseña del administrador (se muestra al terminar).
+    private String contrasenaUsuarios; // Contraseña de todos los usuarios.
+
+    // Prepara un generador. 'miembros' incluye al administrador.
+    public GeneradorDatos(int bibliotecas, int miembros, int libros, long prestamos, long semilla) {
+        if (bibliotecas < 1 || miembros < 1 || libros < 0 || prestamos < 0) {
+            throw new IllegalArgumentException("Se necesita al menos una biblioteca y un miembro.");
+        }
+        if (prestamos > 0 && (miembros < 2 || libros < 1)) {
+            throw new IllegalArgumentException("Para generar prestamos hacen falta usuarios y libros.");
+        }
+        this.bibliotecas = bibliotecas;
+        this.usuarios = miembros - 1;
+        this.libros = libros;
+        this.activos = Math.min(prestamos / 10, usuarios);
+        this.devueltos = prestamos - activos;
+        this.semilla = semilla;
+        this.prefijos = new String[bibliotecas];
+        for (int j = 0; j < bibliotecas; j++) {
+            prefijos[j] = SecuenciasCodigos.prefijo(j + 1, SEDES[j % SEDES.length]);
+        }
+    }
+
+    public String getContrasenaAdmin() {
+        return contrasenaAdmin;
+    }
+
+    public String getContrasenaUsuarios() {
+        return contrasenaUsuarios;
+    }
+
+    // Escribe los cuatro archivos de datos y borra los que se derivan de ellos.
+    public void generar() throws IOException {
+        Path bibliotecasPath = Biblioteca.resolverRutaBibliotecas();
+        Path miembrosPath = Miembro.resolverRutaMiembros();
+        Path librosPath = Libro.resolverRutaLibros();
+        Path prestamosPath = Prestamo.resolverRutaLibroPrestado();
+        List<BloqueoArchivo> bloqueos = new ArrayList<>();
+        for (Path p : new Path[] { bibliotecasPath, miembrosPath, librosPath, prestamosPath,
+                SecuenciasCodigos.resolverRutaSecuencias(), MultasDiarias.resolverRutaMultas() }) {
+            bloqueos.add(BloqueoArchivo.de(p));
+        }
+        BloqueoArchivo.ejecutar(bloqueos, () -> {
+            EscrituraAtomica.reemplazar(bibliotecasPath, this::escribirBibliotecas);
+            EscrituraAtomica.reemplazar(miembrosPath, this::escribirMiembros);
+            EscrituraAtomica.reemplazar(librosPath, this::escribirLibros);
+            EscrituraAtomica.reemplazar(prestamosPath, this::escribirPrestamos);
+            Files.deleteIfExists(LibroJournal.resolverRutaJournal()); // Cambios de libros sobre el catálogo anterior.
+            Files.deleteIfExists(LibroJournal.resolverRutaJournalRotado());
+            Files.deleteIfExists(PrestamosBinario.resolverRutaBinario()); // Foto de los préstamos anteriores.
+            Files.deleteIfExists(SecuenciasCodigos.resolverRutaSecuencias()); // Se recalculan con el catálogo nuevo.
+            Files.deleteIfExists(MultasDiarias.resolverRutaMultas());
+            for (BloqueoArchivo bloqueo : bloqueos) {
+                bloqueo.marcarCambio(); // Otros procesos ven que los archivos cambiaron.
+            }
+            return null;
+        });
+        LibroRepository.getInstancia().invalidar(); // Olvida los datos anteriores en este proceso.
+        IndicePrestamos.getInstancia().invalidar();
+        IndiceMiembros.getInstancia().invalidar();
+        SecuenciasCodigos.getInstancia().invalidar();
+        MultasDiarias.getInstancia().invalidar();
+    }
+
+    private void escribirBibliotecas(Writer writer) throws IOException {
+        for (int j = 0; j < bibliotecas; j++) {
+            Biblioteca biblioteca = new Biblioteca(j + 1, SEDES[j % SEDES.length], "Biblioteca " + (j + 1));
+            escribirLinea(writer, biblioteca.construirLineaConVersion(1));
+        }
+    }
+
+    private void escribirMiembros(Writer writer) throws IOException {
+        Random aleatorio = new Random(semilla);
+        contrasenaAdmin = SistemaBiblioteca.stringAleatorio(aleatorio, 10);
+        contrasenaUsuarios = SistemaBiblioteca.stringAleatorio(aleatorio, 8);
+        Admin admin = new Admin((byte) 1, DOCUMENTO_BASE, (byte) 0, "Sys", "Admin", "admin", contrasenaAdmin);
+        escribirLinea(writer, admin.construirLineaConVersion(1));
+        String hash = Miembro.hashPasswordEstatico(contrasenaUsuarios); // Un solo PBKDF2 para todos.
+        Usuario usuario = new Usuario(); // Se reutiliza: solo se usa para armar la línea.
+        for (int u = 0; u < usuarios; u++) {
+            int tipo = aleatorio.nextInt(10);
+            byte rol = (byte) (tipo < 7 ? 1 : tipo < 9 ? 2 : 3);
+            usuario.cargarCampos((byte) (1 + aleatorio.nextInt(2)), documentoUsuario(u), rol,
+                    SistemaBiblioteca.stringAleatorio(aleatorio, 5), SistemaBiblioteca.stringAleatorio(aleatorio, 7),
+                    "user" + (u + 1), hash);
+            double deuda = aleatorio.nextInt(100) < 3 ? Biblioteca.MULTA_POR_DIA * (1 + aleatorio.nextInt(20)) : 0.0;
+            usuario.cargarCamposUsuario(deuda, SEDES_UNIVERSIDAD[aleatorio.nextInt(SEDES_UNIVERSIDAD.length)],
+                    CARRERAS[aleatorio.nextInt(CARRERAS.length)]);
+            escribirLinea(writer, usuario.construirLineaConVersion(1));
+        }
+    }
+
+    // Títulos de dos o tres palabras (se repiten, como en un catálogo real) y un autor
+    // por cada 20 libros.
+    private void escribirLibros(Writer writer) throws IOException {
+        Random aleatorio = new Random(semilla + 1);
+        int autores = Math.max(1, libros / 20);
+        StringBuilder nombre = new StringBuilder();
+        for (int i = 0; i < libros; i++) {
+            nombre.setLength(0);
+            nombre.append(PALABRAS[aleatorio.nextInt(PALABRAS.length)]);
+            int palabras = 1 + aleatorio.nextInt(2);
+            for (int p = 0; p < palabras; p++) {
+                nombre.append(' ').append(PALABRAS[aleatorio.nextInt(PALABRAS.length)]);
+            }
+            int prestadas = activosDeLibro(i);
+            int unidades = Math.max(1 + aleatorio.nextInt(5), prestadas);
+            int j = i % bibliotecas;
+            Libro libro = new Libro(nombre.toString(), "Autor " + aleatorio.nextInt(autores), codigoLibro(i),
+                    unidades - prestadas, prestadas, j + 1, SEDES[j % SEDES.length]);
+            escribirLinea(writer, libro.construirLineaConVersion(1));
+        }
+    }
+
+    // Primero el historial, de la ventana más antigua a la más reciente, y al final los
+    // préstamos activos.
+    private void escribirPrestamos(Writer writer) throws IOException {
+        Random aleatorio = new Random(semilla + 2);
+        long ventanas = libros == 0 ? 0 : (devueltos + libros - 1) / libros;
+        int inicioActivos = hoy - DIAS_VENTANA; // Los activos empiezan en la última ventana.
+        for (long h = 0; h < devueltos; h++) {
+            int i = (int) (h % libros);
+            long ventana = h / libros; // 0 = la más antigua.
+            int diaPrestamo = (int) (inicioActivos - (ventanas - ventana) * DIAS_VENTANA)
+                    + aleatorio.nextInt(DIAS_VENTANA);
+            int diaDevolucion = Math.min(hoy,
+                    diaPrestamo + 1 + aleatorio.nextInt(Biblioteca.DIAS_MAX_PRESTAMO + DIAS_VENTANA / 4));
+            Prestamo prestamo = new Prestamo(codigoLibro(i), documentoUsuario(aleatorio.nextInt(usuarios)),
+                    diaPrestamo, diaPrestamo + Biblioteca.DIAS_MAX_PRESTAMO, diaDevolucion, i % bibliotecas + 1,
+                    "DEVUELTO");
+            escribirLinea(writer, prestamo.construirLineaConVersion(1));
+        }
+        long paso = pasoCoprimo(usuarios);
+        for (long k = 0; k < activos; k++) {
+            int i = (int) (k % libros);
+            int diaPrestamo = inicioActivos + aleatorio.nextInt(DIAS_VENTANA);
+            Prestamo prestamo = new Prestamo(codigoLibro(i), documentoUsuario((int) (k * paso % usuarios)),
+                    diaPrestamo, diaPrestamo + Biblioteca.DIAS_MAX_PRESTAMO, i % bibliotecas + 1);
+            escribirLinea(writer, prestamo.construirLineaConVersion(1));
+        }
+    }
+
+    // Préstamos activos del libro i: el préstamo activo k es del libro k % libros.
+    private int activosDeLibro(int i) {
+        return (int) (activos / libros + (i < activos % libros ? 1 : 0));
+    }
+
+    // Código del libro i (ej. "3-C-12").
+    private String codigoLibro(int i) {
+        return prefijos[i % bibliotecas] + "-" + (i / bibliotecas + 1);
+    }
+
+    private static long documentoUsuario(int u) {
+        return DOCUMENTO_BASE + 1 + u;
+    }
+
+    // Un paso cercano a la mitad de 'n' y sin divisores comunes con él: k * paso % n
+    // recorre todos los usuarios sin repetir, saltando por todo el archivo.
+    private static long pasoCoprimo(int n) {
+        long paso = Math.max(1, n / 2 + 1);
+        while (paso > 1 && mcd(paso, n) != 1) {
+            paso--;
+        }
+        return paso;
+    }
+
+    private static long mcd(long a, long b) {
+        return b == 0 ? a : mcd(b, a % b);
+    }
+
+    private static void escribirLinea(Writer writer, String linea) throws IOException {
+        writer.write(linea);
+        writer.write(System.lineSeparator()); // Mismo fin de línea que EscrituraAtomica.
+    }
+
+    // Generador por línea de comandos (usa la carpeta de datos configurada):
+    // GeneradorDatos <bibliotecas> <miembros> <libros> <prestamos> [semilla]
+    public static void main(String[] args) {
+        GeneradorDatos generador;
+        try {
+            generador = new GeneradorDatos(Integer.parseInt(args[0]), Integer.parseInt(args[1]),
+                    Integer.parseInt(args[2]), Long.parseLong(args[3]), args.length > 4 ? Long.parseLong(args[4]) : 42);
+        } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException ex) {
+            System.out.println("Uso: GeneradorDatos <bibliotecas> <miembros> <libros> <prestamos> [semilla]");
+            return;
+        }
+        EscrituraAtomica.recuperarTemporales(); // Descarta escrituras que un corte dejó a medias.
+        try {
+            long inicio = System.nanoTime();
+            generador.generar();
+            System.out.println("Datos generados en " + Miembro.resolverRutaMiembros().toAbsolutePath().getParent()
+                    + " en " + (System.nanoTime() - inicio) / 1_000_000 + " ms: " + generador.bibliotecas
+                    + " bibliotecas, " + (generador.usuarios + 1) + " miembros, " + generador.libros + " libros, "
+                    + (generador.devueltos + generador.activos) + " prestamos (" + generador.activos + " activos).");
+            System.out.println("  Administrador: admin / " + generador.getContrasenaAdmin());
+            System.out.println("  Usuarios: user1 ... user" + generador.usuarios + " / "
+                    + generador.getContrasenaUsuarios());
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        }
+    }
+}
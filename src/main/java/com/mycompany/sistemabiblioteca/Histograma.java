@@ -0,0 +1,106 @@
+package com.mycompany.sistemabiblioteca; // Carpeta donde está organizado nuestro código.
+
+import java.util.concurrent.atomic.AtomicLong; // Valor seguro entre hilos (máximo).
+import java.util.concurrent.atomic.AtomicLongArray; // Contadores de cada intervalo, seguros entre hilos.
+import java.util.concurrent.atomic.LongAdder; // Contador rápido con muchos hilos escribiendo.
+
+// Histograma de latencias (en nanosegundos) para sacar percentiles (p50, p99, p999)
+// sin guardar cada medida. Los valores se cuentan en intervalos que crecen con el valor:
+// cada potencia de dos se parte en SUBINTERVALOS intervalos iguales, así el error de un
+// percentil es, como mucho, 1/SUBINTERVALOS del valor (6%) y todo cabe en un arreglo
+// fijo de INTERVALOS contadores, desde 1 ns hasta cientos de años.
+//
+// Registrar no toma ningún cerrojo: suma 1 a un contador atómico (AtomicLongArray) y
+// actualiza la suma y el máximo con operaciones atómicas. Leer recorre los contadores
+// sin detener a quien registra; una lectura hecha mientras otros registran puede
+// quedar corrida en alguna medida, lo que no importa para un percentil.
+class Histograma {
+
+    private static final int BITS_SUBINTERVALO = 4;
+    private static final int SUBINTERVALOS = 1 << BITS_SUBINTERVALO; // Intervalos por potencia de dos.
+    private static final int INTERVALOS = (64 - BITS_SUBINTERVALO) * SUBINTERVALOS; // Alcanza a Long.MAX_VALUE.
+
+    private final AtomicLongArray contadores = new AtomicLongArray(INTERVALOS); // Medidas de cada intervalo.
+    private final LongAdder cantidad = new LongAdder(); // Medidas registradas.
+    private final LongAdder suma = new LongAdder(); // Suma de las medidas (para la media).
+    private final AtomicLong maximo = new AtomicLong(); // Mayor medida.
+
+    // Registra una medida (los valores negativos cuentan como 0).
+    void registrar(long valor) {
+        long v = Math.max(0, valor);
+        contadores.incrementAndGet(intervalo(v));
+        cantidad.increment();
+        suma.add(v);
+        maximo.accumulateAndGet(v, Math::max);
+    }
+
+    long getCantidad() {
+        return cantidad.sum();
+    }
+
+    long getMaximo() {
+        return maximo.get();
+    }
+
+    // Media de las medidas (0 si no hay ninguna).
+    double getMedia() {
+        long n = cantidad.sum();
+        return n == 0 ? 0 : (double) suma.sum() / n;
+    }
+
+    // Valor bajo el cual queda la fracción 'q' (0 a 1) de las medidas: el punto medio
+    // de su intervalo, sin pasar del máximo. 0 si no hay medidas.
+    long percentil(double q) {
+        long[] copia = new long[INTERVALOS];
+        long total = 0;
+        for (int i = 0; i < INTERVALOS; i++) {
+            copia[i] = contadores.get(i);
+            total += copia[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long posicion = Math.max(1, (long) Math.ceil(q * total)); // Medida buscada, contando desde 1.
+        long acumulado = 0;
+        for (int i = 0; i < INTERVALOS; i++) {
+            acumulado += copia[i];
+            if (acumulado >= posicion) {
+                long desde = inicioIntervalo(i);
+                long hasta = i + 1 < INTERVALOS ? inicioIntervalo(i + 1) - 1 : Long.MAX_VALUE;
+                return Math.min(desde + (hasta - desde) / 2, maximo.get());
+            }
+        }
+        return maximo.get();
+    }
+
+    // Vuelve a empezar. Las medidas que se registren mientras tanto pueden quedar en parte.
+    void reiniciar() {
+        for (int i = 0; i < INTERVALOS; i++) {
+            contadores.set(i, 0);
+        }
+        cantidad.reset();
+        suma.reset();
+        maximo.set(0);
+    }
+
+    // Intervalo de un valor: los menores que SUBINTERVALOS tienen uno cada uno; los demás,
+    // el de su potencia de dos y los BITS_SUBINTERVALO bits que siguen al más alto.
+    static int intervalo(long v) {
+        if (v < SUBINTERVALOS) {
+            return (int) v;
+        }
+        int exponente = 63 - Long.numberOfLeadingZeros(v); // Posición del bit más alto.
+        int sub = (int) (v >>> (exponente - BITS_SUBINTERVALO)) & (SUBINTERVALOS - 1);
+        return (exponente - BITS_SUBINTERVALO + 1) * SUBINTERVALOS + sub;
+    }
+
+    // Menor valor del intervalo 'i' (inverso de intervalo()).
+    static long inicioIntervalo(int i) {
+        if (i < SUBINTERVALOS) {
+            return i;
+        }
+        int exponente = i / SUBINTERVALOS + BITS_SUBINTERVALO - 1;
+        long sub = i % SUBINTERVALOS;
+        return (1L << exponente) | (sub << (exponente - BITS_SUBINTERVALO));
+    }
+}
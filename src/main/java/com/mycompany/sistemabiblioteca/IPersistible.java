@@ -20,4 +20,15 @@ public interface IPersistible {
 
     // Convierte el objeto a una línea de texto para guardarlo en un archivo.
     String construirLinea();
+
+    // Versión del registro tal como se leyó o se escribió por última vez (0 si nunca se
+    // guardó; un registro nuevo se escribe con la 1, igual que las líneas escritas antes
+    // de que existieran las versiones). Cada escritura la aumenta en 1; si al guardar la
+    // del archivo no coincide, otro proceso lo cambió antes (ver ConflictoVersionException).
+    long getVersion();
+
+    // Línea del archivo: los campos de construirLinea() y la versión como último campo.
+    default String construirLineaConVersion(long version) {
+        return construirLinea() + LectorCampos.SEPARADOR + version;
+    }
 }
\ No newline at end of file
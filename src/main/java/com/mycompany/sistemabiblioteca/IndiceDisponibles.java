@@ -0,0 +1,134 @@
+package com.mycompany.sistemabiblioteca; // Carpeta donde está organizado nuestro código.
+
+import java.util.Collection; // Claves de los libros disponibles.
+import java.util.Collections; // Para devolver una colección vacía.
+import java.util.HashMap; // Mapa de acceso directo por clave.
+import java.util.Map; // Para usar mapas.
+import java.util.TreeMap; // Mapa ordenado: mantiene el orden del archivo.
+
+// Esta clase es el índice de libros disponibles (con unidades libres) por biblioteca y
+// por sede, para que librosDisponibles() no recorra todo el catálogo en cada consulta.
+// Cada grupo (una biblioteca, una sede, una biblioteca en una sede, o todos) guarda
+// solo las claves de sus libros disponibles, así listar cuesta según cuántos libros hay
+// en la lista, no según el tamaño del catálogo. Un libro entra a sus grupos cuando sus unidades libres pasan de
+// 0 a más de 0 y sale cuando llegan a 0; un préstamo que no deja el libro en 0 no
+// cambia ningún grupo.
+// Cada grupo está ordenado por el número de orden que LibroRepository le da a cada
+// libro (el de su entrada al repositorio): las listas salen en el mismo orden que antes
+// (el del archivo).
+//
+// Lo usa solo LibroRepository, que lo mantiene al día en cada cambio y lo protege con su
+// propio 'synchronized'; esta clase no es segura entre hilos por sí sola.
+class IndiceDisponibles {
+
+    private final TreeMap<Long, String> todos = new TreeMap<>(); // Todos los libros disponibles.
+    private final Map<Integer, TreeMap<Long, String>> porBiblioteca = new HashMap<>(); // ID de biblioteca -> disponibles.
+    private final Map<String, TreeMap<Long, String>> porSede = new HashMap<>(); // Sede (ver claveSede) -> disponibles.
+    private final Map<String, TreeMap<Long, String>> porBibliotecaYSede = new HashMap<>(); // Ver claveGrupo.
+
+    // Deja el índice vacío.
+    void vaciar() {
+        todos.clear();
+        porBiblioteca.clear();
+        porSede.clear();
+        porBibliotecaYSede.clear();
+    }
+
+    // Registra el cambio del libro con esa clave y ese número de orden: 'anterior' es
+    // como estaba (null si es nuevo) y 'actual' como queda. Solo toca los grupos si el
+    // libro entra o sale de ellos.
+    void actualizar(long orden, String clave, Libro anterior, Libro actual) {
+        boolean estaba = anterior != null && anterior.getUnidadesLibres() > 0;
+        boolean esta = actual.getUnidadesLibres() > 0;
+        if (estaba && esta && anterior.getIdBiblioteca() == actual.getIdBiblioteca()
+                && claveSede(anterior.getSedeBiblioteca()).equals(claveSede(actual.getSedeBiblioteca()))) {
+            return; // Sigue disponible en los mismos grupos.
+        }
+        if (estaba) {
+            sacar(orden, anterior);
+        }
+        if (esta) {
+            todos.put(orden, clave);
+            porBiblioteca.computeIfAbsent(actual.getIdBiblioteca(), k -> new TreeMap<>()).put(orden, clave);
+            porSede.computeIfAbsent(claveSede(actual.getSedeBiblioteca()), k -> new TreeMap<>()).put(orden, clave);
+            porBibliotecaYSede.computeIfAbsent(claveGrupo(actual.getIdBiblioteca(), actual.getSedeBiblioteca()),
+                    k -> new TreeMap<>()).put(orden, clave);
+        }
+    }
+
+    // Quita un libro eliminado ('anterior' es como estaba).
+    void quitar(long orden, Libro anterior) {
+        if (anterior.getUnidadesLibres() > 0) {
+            sacar(orden, anterior);
+        }
+    }
+
+    // Claves de todos los libros disponibles, en el orden del archivo.
+    Collection<String> todos() {
+        return todos.values();
+    }
+
+    // Claves de los libros disponibles de una biblioteca, en el orden del archivo.
+    Collection<String> deBiblioteca(int idBiblioteca) {
+        TreeMap<Long, String> grupo = porBiblioteca.get(idBiblioteca);
+        return grupo != null ? grupo.values() : Collections.emptyList();
+    }
+
+    // Claves de los libros disponibles de una sede (sin importar mayúsculas), en el orden
+    // del archivo.
+    Collection<String> deSede(String sede) {
+        if (sede == null) {
+            return Collections.emptyList();
+        }
+        TreeMap<Long, String> grupo = porSede.get(claveSede(sede));
+        return grupo != null ? grupo.values() : Collections.emptyList();
+    }
+
+    // Claves de los libros disponibles de una biblioteca en una sede, en el orden del
+    // archivo.
+    Collection<String> deBibliotecaYSede(int idBiblioteca, String sede) {
+        if (sede == null) {
+            return Collections.emptyList();
+        }
+        TreeMap<Long, String> grupo = porBibliotecaYSede.get(claveGrupo(idBiblioteca, sede));
+        return grupo != null ? grupo.values() : Collections.emptyList();
+    }
+
+    // Saca un libro de todos los grupos en los que estaba.
+    private void sacar(long orden, Libro anterior) {
+        todos.remove(orden);
+        quitarDeGrupo(porBiblioteca, anterior.getIdBiblioteca(), orden);
+        quitarDeGrupo(porSede, claveSede(anterior.getSedeBiblioteca()), orden);
+        quitarDeGrupo(porBibliotecaYSede, claveGrupo(anterior.getIdBiblioteca(), anterior.getSedeBiblioteca()), orden);
+    }
+
+    // Quita un libro de un grupo y descarta el grupo si queda vacío.
+    private static <K> void quitarDeGrupo(Map<K, TreeMap<Long, String>> grupos, K clave, long orden) {
+        TreeMap<Long, String> grupo = grupos.get(clave);
+        if (grupo != null) {
+            grupo.remove(orden);
+            if (grupo.isEmpty()) {
+                grupos.remove(clave);
+            }
+        }
+    }
+
+    // Clave del grupo de una biblioteca en una sede (ej. "3|medellin").
+    private static String claveGrupo(int idBiblioteca, String sede) {
+        return idBiblioteca + "|" + claveSede(sede);
+    }
+
+    // Clave de una sede que no distingue mayúsculas: dos sedes tienen la misma clave
+    // exactamente cuando equalsIgnoreCase() las considera iguales (compara letra por
+    // letra en mayúscula y luego en minúscula).
+    static String claveSede(String sede) {
+        if (sede == null) {
+            return "";
+        }
+        char[] letras = sede.toCharArray();
+        for (int i = 0; i < letras.length; i++) {
+            letras[i] = Character.toLowerCase(Character.toUpperCase(letras[i]));
+        }
+        return new String(letras);
+    }
+}
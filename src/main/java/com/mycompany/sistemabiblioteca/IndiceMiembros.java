@@ -0,0 +1,192 @@
+package com.mycompany.sistemabiblioteca; // Carpeta donde está organizado nuestro código.
+
+import java.io.IOException; // Para manejar errores al trabajar con archivos.
+import java.nio.file.Files; // Para operar con archivos.
+import java.nio.file.Path; // Para rutas de archivos.
+import java.util.ArrayList; // Para listas dinámicas.
+import java.util.Collection; // Documentos a buscar de una vez.
+import java.util.HashMap; // Mapa de acceso directo por clave.
+import java.util.List; // Para usar listas.
+import java.util.Locale; // Para pasar los usuarios a minúsculas de forma consistente.
+import java.util.Map; // Para usar mapas.
+
+// Esta clase mantiene en memoria las líneas de "Miembros.txt" con dos índices:
+// - nombre de usuario (en minúsculas) -> línea del miembro.
+// - número de documento -> línea del miembro.
+// Así el login y las búsquedas de miembros son una sola consulta a un mapa en vez de
+// recorrer el archivo. El archivo se lee una sola vez; cada vez que Miembro lo reescribe
+// (guardarInterno / guardarLote), le pasa aquí las líneas escritas.
+// Si otro proceso reescribe el archivo (su contador de cambios en BloqueoArchivo ya no
+// es el visto), el índice se vuelve a leer antes de la siguiente consulta.
+public class IndiceMiembros {
+
+    private static final IndiceMiembros INSTANCIA = new IndiceMiembros(); // Única instancia del proceso.
+
+    private List<String> lineas = new ArrayList<>(); // Líneas del archivo, en orden.
+    private final Map<String, String> porUsuario = new HashMap<>(); // Clave: usuario en minúsculas.
+    private final Map<Long, String> porDocumento = new HashMap<>(); // Clave: número de documento.
+    private volatile boolean cargado = false; // Indica si ya se leyó el archivo.
+    private volatile long generacionVista = 0; // Contador de cambios del archivo al leerlo o escribirlo.
+
+    private IndiceMiembros() {
+    }
+
+    // Devuelve el índice compartido.
+    public static IndiceMiembros getInstancia() {
+        return INSTANCIA;
+    }
+
+    // Convierte un nombre de usuario a la clave del índice (las búsquedas ignoran mayúsculas).
+    static String clave(String usuario) {
+        return usuario.trim().toLowerCase(Locale.ROOT);
+    }
+
+    // Lee el archivo la primera vez que se necesita.
+    private void asegurarCargado() {
+        if (!cargado) {
+            Path path = Miembro.resolverRutaMiembros();
+            List<String> leidas = new ArrayList<>();
+            if (Files.exists(path)) {
+                try {
+                    leidas = Metricas.leerLineas(path);
+                } catch (IOException ex) {
+                    ex.printStackTrace();
+                }
+            }
+            indexar(leidas);
+            cargado = true;
+        }
+    }
+
+    // Antes de una consulta: si el archivo cambió en otro proceso, lo vuelve a leer con
+    // su bloqueo tomado (así no se lee a medio escribir). El bloqueo del archivo se toma
+    // siempre antes que el de este objeto, igual que al escribir.
+    private void asegurarVigente() {
+        BloqueoArchivo bloqueo = BloqueoArchivo.de(Miembro.resolverRutaMiembros());
+        if (cargado && bloqueo.generacion() == generacionVista) {
+            return;
+        }
+        try {
+            bloqueo.ejecutar(() -> {
+                synchronized (this) {
+                    long generacion = bloqueo.generacion();
+                    if (!cargado || generacion != generacionVista) {
+                        cargado = false;
+                        asegurarCargado();
+                        generacionVista = generacion;
+                    }
+                }
+                return null;
+            });
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        }
+    }
+
+    // Reconstruye los índices a partir de las líneas del archivo.
+    // Si hay usuarios o documentos repetidos, gana la primera línea (como en una búsqueda en orden).
+    private void indexar(List<String> nuevasLineas) {
+        lineas = new ArrayList<>(nuevasLineas);
+        porUsuario.clear();
+        porDocumento.clear();
+        LectorCampos lector = new LectorCampos();
+        for (String linea : lineas) {
+            lector.reiniciar(linea);
+            if (lector.contarCampos() >= 7) {
+                try {
+                    porDocumento.putIfAbsent(lector.siguienteLong(), linea);
+                } catch (NumberFormatException ex) {
+                    // Una línea con documento inválido solo se puede encontrar por usuario.
+                }
+                for (int campo = 1; campo < 5; campo++) { // Salta tipo, rol, nombre y apellido.
+                    lector.saltarCampo();
+                }
+                String usuario = lector.siguienteTexto();
+                if (!usuario.isEmpty()) {
+                    porUsuario.putIfAbsent(clave(usuario), linea);
+                }
+            }
+        }
+    }
+
+    // Devuelve la línea del miembro con ese nombre de usuario (sin importar mayúsculas), o 'null'.
+    public String lineaPorUsuario(String usuario) {
+        if (usuario == null) {
+            return null;
+        }
+        asegurarVigente();
+        synchronized (this) {
+            asegurarCargado();
+            return porUsuario.get(clave(usuario));
+        }
+    }
+
+    // Devuelve la línea del miembro con ese número de documento, o 'null'.
+    public String lineaPorDocumento(long numeroDocumento) {
+        asegurarVigente();
+        synchronized (this) {
+            asegurarCargado();
+            return porDocumento.get(numeroDocumento);
+        }
+    }
+
+    // Devuelve las líneas de varios miembros por número de documento, con una sola
+    // consulta (un solo bloqueo). Los documentos que no existen no aparecen en el mapa.
+    public Map<Long, String> lineasPorDocumento(Collection<Long> numerosDocumento) {
+        Map<Long, String> encontradas = new HashMap<>(numerosDocumento.size() * 2);
+        asegurarVigente();
+        synchronized (this) {
+            asegurarCargado();
+            for (Long numeroDocumento : numerosDocumento) {
+                String linea = porDocumento.get(numeroDocumento);
+                if (linea != null) {
+                    encontradas.put(numeroDocumento, linea);
+                }
+            }
+        }
+        return encontradas;
+    }
+
+    // Devuelve una copia de todas las líneas, en el orden del archivo.
+    public List<String> todasLasLineas() {
+        asegurarVigente();
+        synchronized (this) {
+            asegurarCargado();
+            return new ArrayList<>(lineas);
+        }
+    }
+
+    // Devuelve una página de líneas: como mucho 'limite', en el orden del archivo,
+    // empezando después de 'cursor' (null para la primera página; el cursor es la
+    // posición de la última línea devuelta). Si el archivo se reescribe entre una página
+    // y la siguiente, el listado puede saltar o repetir algún miembro.
+    public Pagina<String> paginaDeLineas(String cursor, int limite) {
+        long desde = Pagina.leerCursor(cursor) + 1;
+        Pagina.validarLimite(limite);
+        asegurarVigente();
+        synchronized (this) {
+            asegurarCargado();
+            int inicio = (int) Math.min(desde, lineas.size());
+            int fin = (int) Math.min((long) inicio + limite, lineas.size());
+            return new Pagina<>(new ArrayList<>(lineas.subList(inicio, fin)),
+                    fin < lineas.size() ? String.valueOf(fin - 1) : null);
+        }
+    }
+
+    // Se llama justo después de reescribir "Miembros.txt" con estas líneas (con el
+    // bloqueo del archivo tomado); 'generacion' es el contador de cambios que dejó esa escritura.
+    synchronized void actualizar(List<String> lineasEscritas, long generacion) {
+        indexar(lineasEscritas);
+        cargado = true;
+        generacionVista = generacion;
+    }
+
+    // Olvida el contenido en memoria para que se vuelva a leer del archivo.
+    // Se usa cuando el archivo se borra o se reemplaza desde fuera.
+    public synchronized void invalidar() {
+        lineas = new ArrayList<>();
+        porUsuario.clear();
+        porDocumento.clear();
+        cargado = false;
+    }
+}
@@ -0,0 +1,345 @@
+package com.mycompany.sistemabiblioteca; // Carpeta donde está organizado nuestro código.
+
+import java.io.IOException; // Para manejar errores al releer el archivo.
+import java.util.ArrayList; // Para listas dinámicas.
+import java.util.Collections; // Para devolver listas vacías.
+import java.util.HashMap; // Mapa de acceso directo por clave.
+import java.util.LinkedHashMap; // Mapa que conserva el orden de inserción (el orden del archivo).
+import java.util.List; // Para usar listas.
+import java.util.Map; // Para usar mapas.
+import java.util.TreeMap; // Mapa ordenado: recorre los préstamos desde un cursor.
+
+// Esta clase mantiene en memoria los préstamos de "LibroPrestado.txt" con cuatro índices:
+// - documento del miembro -> sus préstamos (en el orden del archivo).
+// - código del libro -> sus préstamos (en el orden del archivo).
+// - (documento del miembro, código del libro) -> préstamo activo ("PRESTADO").
+// - fecha de devolución estimada -> préstamos activos, ordenados por esa fecha.
+// Así, revisar los préstamos de un miembro o de un libro, o los vencidos a una fecha, no
+// depende del tamaño del archivo.
+// El archivo se lee una sola vez y luego cada guardado de un préstamo actualiza los
+// índices (ver Prestamo.guardarLote y Prestamo.eliminar).
+// Si otro proceso escribe el archivo (su contador de cambios en BloqueoArchivo ya no es
+// el visto), los índices se vuelven a construir antes de la siguiente consulta.
+// Cada préstamo tiene además un número de orden (el de su entrada, que sigue el orden
+// del archivo) para los listados por páginas (ver pagina()).
+public class IndicePrestamos {
+
+    private static final IndicePrestamos INSTANCIA = new IndicePrestamos(); // Única instancia del proceso.
+
+    // Todos los préstamos por su identificador único (libro_documento_fecha[_vez], ver
+    // Prestamo.getIdentificador).
+    private final Map<String, Prestamo> prestamos = new LinkedHashMap<>();
+    // Documento del miembro -> (identificador -> préstamo).
+    private final Map<Long, Map<String, Prestamo>> porMiembro = new HashMap<>();
+    // Código del libro -> (identificador -> préstamo).
+    private final Map<String, Map<String, Prestamo>> porLibro = new HashMap<>();
+    // "documento\codigoLibro" -> préstamo activo.
+    private final Map<String, Prestamo> activos = new HashMap<>();
+    // Día de devolución estimada -> (número de orden -> préstamo activo). Ver vencidos().
+    private final TreeMap<Integer, TreeMap<Long, Prestamo>> porVencimiento = new TreeMap<>();
+    private final Map<String, Long> ordenPorId = new HashMap<>(); // Identificador -> número de orden.
+    private final TreeMap<Long, Prestamo> porOrden = new TreeMap<>(); // Número de orden -> préstamo.
+    private long siguienteOrden = 0; // Próximo número de orden.
+    private volatile boolean cargado = false; // Indica si ya se leyó el archivo.
+    private volatile long generacionVista = 0; // Contador de cambios del archivo al leerlo o escribirlo.
+
+    private IndicePrestamos() {
+    }
+
+    // Devuelve el índice compartido.
+    public static IndicePrestamos getInstancia() {
+        return INSTANCIA;
+    }
+
+    // Clave del índice de préstamos activos.
+    private static String claveActivo(long numeroDocumentoMiembro, String codigoLibro) {
+        return numeroDocumentoMiembro + "\\" + codigoLibro;
+    }
+
+    // Lee el archivo la primera vez que se necesita y construye los índices.
+    private void asegurarCargado() {
+        if (!cargado) {
+            for (Prestamo prestamo : Prestamo.leerArchivoPrestamos()) {
+                agregar(prestamo);
+            }
+            cargado = true;
+        }
+    }
+
+    // Antes de una consulta: si el archivo cambió en otro proceso (o el índice se
+    // descartó), lo vuelve a leer con el bloqueo del archivo tomado. El bloqueo del
+    // archivo se toma siempre antes que el de este objeto, igual que al escribir.
+    private void asegurarVigente() {
+        BloqueoArchivo bloqueo = BloqueoArchivo.de(Prestamo.resolverRutaLibroPrestado());
+        if (cargado && bloqueo.generacion() == generacionVista) {
+            return;
+        }
+        try {
+            bloqueo.ejecutar(() -> {
+                synchronized (this) {
+                    long generacion = bloqueo.generacion();
+                    if (!cargado || generacion != generacionVista) {
+                        vaciar();
+                        asegurarCargado();
+                        generacionVista = generacion;
+                    }
+                }
+                return null;
+            });
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        }
+    }
+
+    // Añade (o reemplaza) un préstamo en todos los índices. Si ya existía, conserva su
+    // posición, igual que en el archivo, donde su línea se actualiza en el mismo lugar.
+    private void agregar(Prestamo prestamo) {
+        String id = prestamo.getIdentificador();
+        Prestamo anterior = prestamos.put(id, prestamo);
+        Long orden = ordenPorId.get(id);
+        if (orden == null) {
+            orden = siguienteOrden++;
+            ordenPorId.put(id, orden);
+        }
+        porOrden.put(orden, prestamo);
+        if (anterior != null) {
+            quitarVencimiento(anterior, orden);
+        }
+        agregarVencimiento(prestamo, orden);
+        Map<String, Prestamo> delMiembro = porMiembro.computeIfAbsent(prestamo.getNumeroDocumentoMiembro(),
+                k -> new LinkedHashMap<>());
+        delMiembro.put(id, prestamo);
+        porLibro.computeIfAbsent(prestamo.getCodigoLibro(), k -> new LinkedHashMap<>()).put(id, prestamo);
+        if (anterior != null) {
+            quitarActivo(anterior, delMiembro);
+        }
+        if ("PRESTADO".equals(prestamo.getEstado())) {
+            activos.putIfAbsent(claveActivo(prestamo.getNumeroDocumentoMiembro(), prestamo.getCodigoLibro()),
+                    prestamo);
+        }
+    }
+
+    // Quita un préstamo de todos los índices.
+    private void quitar(String id) {
+        Prestamo anterior = prestamos.remove(id);
+        if (anterior == null) {
+            return;
+        }
+        Long orden = ordenPorId.remove(id);
+        porOrden.remove(orden);
+        quitarVencimiento(anterior, orden);
+        Map<String, Prestamo> delLibro = porLibro.get(anterior.getCodigoLibro());
+        if (delLibro != null) {
+            delLibro.remove(id);
+            if (delLibro.isEmpty()) {
+                porLibro.remove(anterior.getCodigoLibro());
+            }
+        }
+        Map<String, Prestamo> delMiembro = porMiembro.get(anterior.getNumeroDocumentoMiembro());
+        if (delMiembro != null) {
+            delMiembro.remove(id);
+            if (delMiembro.isEmpty()) {
+                porMiembro.remove(anterior.getNumeroDocumentoMiembro());
+            }
+        }
+        quitarActivo(anterior, delMiembro);
+    }
+
+    // Quita un préstamo del índice de activos, solo si es exactamente ese préstamo. Si el
+    // miembro tuviera otro préstamo activo del mismo libro, ese pasa a ser el activo.
+    private void quitarActivo(Prestamo anterior, Map<String, Prestamo> delMiembro) {
+        String clave = claveActivo(anterior.getNumeroDocumentoMiembro(), anterior.getCodigoLibro());
+        if (activos.remove(clave, anterior) && delMiembro != null) {
+            for (Prestamo otro : delMiembro.values()) {
+                if ("PRESTADO".equals(otro.getEstado()) && otro.getCodigoLibro().equals(anterior.getCodigoLibro())) {
+                    activos.put(clave, otro);
+                    break;
+                }
+            }
+        }
+    }
+
+    // Añade un préstamo activo al índice por fecha de vencimiento. Los que no tienen
+    // fecha de devolución estimada no vencen nunca y no se guardan.
+    private void agregarVencimiento(Prestamo prestamo, long orden) {
+        if ("PRESTADO".equals(prestamo.getEstado()) && prestamo.getDiaDevolucionEstimada() != Fecha.SIN_FECHA) {
+            porVencimiento.computeIfAbsent(prestamo.getDiaDevolucionEstimada(), k -> new TreeMap<>()).put(orden, prestamo);
+        }
+    }
+
+    // Quita un préstamo del índice por fecha de vencimiento (si estaba).
+    private void quitarVencimiento(Prestamo anterior, long orden) {
+        TreeMap<Long, Prestamo> delDia = porVencimiento.get(anterior.getDiaDevolucionEstimada());
+        if (delDia != null && delDia.remove(orden, anterior) && delDia.isEmpty()) {
+            porVencimiento.remove(anterior.getDiaDevolucionEstimada());
+        }
+    }
+
+    // Devuelve una copia de todos los préstamos, en el orden del archivo.
+    public List<Prestamo> todos() {
+        asegurarVigente();
+        synchronized (this) {
+            asegurarCargado();
+            List<Prestamo> copia = new ArrayList<>(prestamos.size());
+            for (Prestamo prestamo : prestamos.values()) {
+                copia.add(prestamo.copiar());
+            }
+            return copia;
+        }
+    }
+
+    // Devuelve una página de préstamos: copias de, como mucho, 'limite' préstamos en el
+    // orden del archivo, empezando después de 'cursor' (null para la primera página).
+    // Con 'soloActivos' se saltan los que no están "PRESTADO". Solo copia los préstamos
+    // de la página. Si otro proceso cambia el archivo entre una página y la siguiente,
+    // el índice se vuelve a leer y el listado puede saltar o repetir algún préstamo.
+    public Pagina<Prestamo> pagina(String cursor, int limite, boolean soloActivos) {
+        long desde = Pagina.leerCursor(cursor);
+        Pagina.validarLimite(limite);
+        asegurarVigente();
+        synchronized (this) {
+            asegurarCargado();
+            List<Prestamo> elementos = new ArrayList<>(Math.min(limite, prestamos.size()));
+            long ultimo = desde;
+            for (Map.Entry<Long, Prestamo> entrada : porOrden.tailMap(desde, false).entrySet()) {
+                Prestamo prestamo = entrada.getValue();
+                if (soloActivos && !"PRESTADO".equals(prestamo.getEstado())) {
+                    continue;
+                }
+                if (elementos.size() == limite) { // Hay al menos uno más: la página no es la última.
+                    return new Pagina<>(elementos, String.valueOf(ultimo));
+                }
+                elementos.add(prestamo.copiar());
+                ultimo = entrada.getKey();
+            }
+            return new Pagina<>(elementos, null);
+        }
+    }
+
+    // Devuelve una copia de los préstamos de un miembro (activos e históricos).
+    public List<Prestamo> porMiembro(long numeroDocumentoMiembro) {
+        asegurarVigente();
+        synchronized (this) {
+            asegurarCargado();
+            Map<String, Prestamo> delMiembro = porMiembro.get(numeroDocumentoMiembro);
+            if (delMiembro == null) {
+                return Collections.emptyList();
+            }
+            List<Prestamo> copia = new ArrayList<>(delMiembro.size());
+            for (Prestamo prestamo : delMiembro.values()) {
+                copia.add(prestamo.copiar());
+            }
+            return copia;
+        }
+    }
+
+    // Devuelve una copia de los préstamos de un libro (activos e históricos), por su
+    // código exacto.
+    public List<Prestamo> porLibro(String codigoLibro) {
+        asegurarVigente();
+        synchronized (this) {
+            asegurarCargado();
+            Map<String, Prestamo> delLibro = porLibro.get(codigoLibro);
+            if (delLibro == null) {
+                return Collections.emptyList();
+            }
+            List<Prestamo> copia = new ArrayList<>(delLibro.size());
+            for (Prestamo prestamo : delLibro.values()) {
+                copia.add(prestamo.copiar());
+            }
+            return copia;
+        }
+    }
+
+    // Devuelve una copia de los préstamos activos vencidos el día 'dia': los que debían
+    // devolverse antes de ese día (devueltos ese día, Biblioteca.multar les cobra).
+    // Salen del que venció hace más tiempo al más reciente y, con la misma fecha, en el
+    // orden del archivo. Solo recorre los préstamos que devuelve.
+    public List<Prestamo> vencidos(int dia) {
+        asegurarVigente();
+        synchronized (this) {
+            asegurarCargado();
+            return copiarVencimientos(porVencimiento.headMap(dia, false));
+        }
+    }
+
+    // Devuelve una copia de los préstamos activos que vencen entre el día 'dia' y
+    // 'dias' días después (ambos incluidos), en el mismo orden que vencidos().
+    public List<Prestamo> porVencer(int dia, int dias) {
+        if (dias < 0) {
+            throw new IllegalArgumentException("El numero de dias no puede ser negativo.");
+        }
+        int hasta = (int) Math.min((long) dia + dias, Integer.MAX_VALUE);
+        asegurarVigente();
+        synchronized (this) {
+            asegurarCargado();
+            return copiarVencimientos(porVencimiento.subMap(dia, true, hasta, true));
+        }
+    }
+
+    // Copia los préstamos de un tramo del índice por fecha de vencimiento.
+    private static List<Prestamo> copiarVencimientos(Map<Integer, TreeMap<Long, Prestamo>> tramo) {
+        List<Prestamo> copia = new ArrayList<>();
+        for (TreeMap<Long, Prestamo> delDia : tramo.values()) {
+            for (Prestamo prestamo : delDia.values()) {
+                copia.add(prestamo.copiar());
+            }
+        }
+        return copia;
+    }
+
+    // Devuelve una copia del préstamo activo de este libro para este miembro, o 'null'.
+    public Prestamo activo(long numeroDocumentoMiembro, String codigoLibro) {
+        asegurarVigente();
+        synchronized (this) {
+            asegurarCargado();
+            Prestamo prestamo = activos.get(claveActivo(numeroDocumentoMiembro, codigoLibro));
+            return prestamo != null ? prestamo.copiar() : null;
+        }
+    }
+
+    // Refleja en los índices los préstamos que se acaban de escribir en el archivo (con
+    // su bloqueo tomado); 'generacion' es el contador de cambios que dejó esa escritura.
+    // Si el índice todavía no se cargó, no hace nada: al cargarse leerá el archivo ya
+    // actualizado. Si se había quedado atrás (otro proceso escribió antes), se descarta
+    // y se vuelve a leer en la siguiente consulta.
+    synchronized void actualizar(List<Prestamo> escritos, long generacion) {
+        if (cargado && generacion == generacionVista + 1) {
+            for (Prestamo prestamo : escritos) {
+                agregar(prestamo.copiar()); // Guarda una copia propia del índice.
+            }
+            generacionVista = generacion;
+        } else {
+            invalidar();
+        }
+    }
+
+    // Refleja en los índices un préstamo que se acaba de eliminar del archivo (igual que actualizar()).
+    synchronized void eliminar(Prestamo prestamo, long generacion) {
+        if (cargado && generacion == generacionVista + 1) {
+            quitar(prestamo.getIdentificador());
+            generacionVista = generacion;
+        } else {
+            invalidar();
+        }
+    }
+
+    // Vacía los índices.
+    private void vaciar() {
+        prestamos.clear();
+        porMiembro.clear();
+        porLibro.clear();
+        activos.clear();
+        porVencimiento.clear();
+        ordenPorId.clear();
+        porOrden.clear();
+        siguienteOrden = 0;
+        cargado = false;
+    }
+
+    // Olvida el contenido en memoria para que se vuelva a leer del archivo.
+    // Se usa cuando el archivo se borra o se reemplaza desde fuera.
+    public synchronized void invalidar() {
+        vaciar();
+    }
+}
@@ -0,0 +1,330 @@
+package com.mycompany.sistemabiblioteca; // Carpeta donde está organizado nuestro código.
+
+import java.text.Normalizer; // Para separar las letras de sus tildes.
+import java.util.ArrayList; // Para listas dinámicas.
+import java.util.Arrays; // Para ordenar y crecer arreglos.
+import java.util.HashMap; // Mapa de acceso directo por clave.
+import java.util.List; // Para usar listas.
+import java.util.Locale; // Para pasar a minúsculas de forma consistente.
+import java.util.Map; // Para usar mapas.
+
+// Esta clase es un índice de trigramas sobre el nombre y el autor de los libros, para
+// que buscarLibro("nombre"/"autor") no recorra todo el catálogo.
+// Cada texto se normaliza (minúsculas y sin tildes: "Canción" -> "cancion") y se parte
+// en trigramas, los trozos de 3 letras seguidas ("can", "anc", "nci"...). Para cada
+// trigrama se guarda la lista de libros que lo contienen. Un texto que contiene la
+// búsqueda contiene también todos sus trigramas, así que basta revisar los libros de la
+// lista más corta (el trigrama más raro de la búsqueda) y confirmar cada uno con
+// contains() sobre el texto ya normalizado. Así la búsqueda cuesta según cuántos libros
+// comparten ese trigrama, no según el tamaño del catálogo.
+// Búsquedas de menos de 3 letras no tienen trigramas: recorren los textos normalizados
+// (sin crear objetos por libro).
+//
+// Lo usa solo LibroRepository, que lo mantiene al día en cada cambio y lo protege con su
+// propio 'synchronized'; esta clase no es segura entre hilos por sí sola.
+class IndiceTextoLibros {
+
+    // Campo en el que se busca.
+    enum Campo {
+        NOMBRE, AUTOR
+    }
+
+    private static final int N = 3; // Largo de cada trigrama.
+
+    // Un libro indexado: su clave en el repositorio y sus textos normalizados.
+    private static final class Entrada {
+        final String clave;
+        final String nombre;
+        final String autor;
+
+        Entrada(String clave, String nombre, String autor) {
+            this.clave = clave;
+            this.nombre = nombre;
+            this.autor = autor;
+        }
+
+        String texto(Campo campo) {
+            return campo == Campo.NOMBRE ? nombre : autor;
+        }
+    }
+
+    // Lista de posiciones (ids) de libros, que crece al agregar.
+    private static final class ListaIds {
+        int[] ids = new int[4];
+        int tamano = 0;
+
+        void agregar(int id) {
+            if (tamano == ids.length) {
+                ids = Arrays.copyOf(ids, tamano * 2);
+            }
+            ids[tamano++] = id;
+        }
+    }
+
+    // Mapa trigrama -> lista de ids con direccionamiento abierto: las claves son 'long'
+    // sin envolver en Long, así armar el índice de un catálogo grande no crea un objeto
+    // por cada trigrama de cada libro.
+    private static final class MapaTrigramas {
+        private long[] claves = new long[1024];
+        private ListaIds[] listas = new ListaIds[1024];
+        private int tamano = 0;
+
+        ListaIds get(long clave) {
+            int mascara = claves.length - 1;
+            for (int i = posicion(clave, mascara);; i = (i + 1) & mascara) {
+                if (listas[i] == null) {
+                    return null;
+                }
+                if (claves[i] == clave) {
+                    return listas[i];
+                }
+            }
+        }
+
+        ListaIds obtenerOCrear(long clave) {
+            int mascara = claves.length - 1;
+            for (int i = posicion(clave, mascara);; i = (i + 1) & mascara) {
+                if (listas[i] == null) {
+                    ListaIds nueva = new ListaIds();
+                    claves[i] = clave;
+                    listas[i] = nueva;
+                    if (++tamano * 2 > claves.length) { // Mantiene el mapa a menos de la mitad de lleno.
+                        crecer();
+                    }
+                    return nueva;
+                }
+                if (claves[i] == clave) {
+                    return listas[i];
+                }
+            }
+        }
+
+        void clear() {
+            claves = new long[1024];
+            listas = new ListaIds[1024];
+            tamano = 0;
+        }
+
+        private void crecer() {
+            long[] clavesViejas = claves;
+            ListaIds[] listasViejas = listas;
+            claves = new long[clavesViejas.length * 2];
+            listas = new ListaIds[listasViejas.length * 2];
+            int mascara = claves.length - 1;
+            for (int j = 0; j < clavesViejas.length; j++) {
+                if (listasViejas[j] != null) {
+                    int i = posicion(clavesViejas[j], mascara);
+                    while (listas[i] != null) {
+                        i = (i + 1) & mascara;
+                    }
+                    claves[i] = clavesViejas[j];
+                    listas[i] = listasViejas[j];
+                }
+            }
+        }
+
+        private static int posicion(long clave, int mascara) {
+            long h = clave * 0x9E3779B97F4A7C15L; // Mezcla los bits para repartir las claves.
+            return (int) (h >>> 40) & mascara;
+        }
+    }
+
+    // Posición (id) -> libro. Los ids siguen el orden en que los libros entraron al
+    // repositorio, que es el orden del archivo; un hueco (null) es un libro eliminado.
+    private Entrada[] entradas = new Entrada[16];
+    private int siguienteId = 0; // Próximo id libre.
+    private int vivos = 0; // Libros indexados (sin contar huecos).
+    private final Map<String, Integer> idPorClave = new HashMap<>(); // Clave del libro -> id.
+    private final MapaTrigramas porNombre = new MapaTrigramas(); // Trigrama -> libros con ese trigrama en el nombre.
+    private final MapaTrigramas porAutor = new MapaTrigramas(); // Trigrama -> libros con ese trigrama en el autor.
+    // Ids que quedaron en listas que ya no les corresponden (libros eliminados o
+    // editados). La búsqueda los descarta al confirmar; cuando son muchos se reconstruye.
+    private int obsoletos = 0;
+
+    // Deja el índice vacío.
+    void vaciar() {
+        entradas = new Entrada[16];
+        siguienteId = 0;
+        vivos = 0;
+        obsoletos = 0;
+        idPorClave.clear();
+        porNombre.clear();
+        porAutor.clear();
+    }
+
+    // Agrega o actualiza el libro con esa clave. Un libro ya indexado conserva su
+    // posición (como en el LinkedHashMap del repositorio); si su nombre y autor no
+    // cambiaron (lo normal: un préstamo solo cambia unidades) no se toca ninguna lista.
+    void poner(String clave, String nombre, String autor) {
+        String nombreNormal = normalizar(nombre);
+        String autorNormal = normalizar(autor);
+        Integer existente = idPorClave.get(clave);
+        if (existente != null) {
+            Entrada anterior = entradas[existente];
+            if (anterior.nombre.equals(nombreNormal) && anterior.autor.equals(autorNormal)) {
+                return;
+            }
+            entradas[existente] = new Entrada(clave, nombreNormal, autorNormal);
+            // Los trigramas nuevos se agregan; los que ya no tiene quedan obsoletos.
+            agregarTrigramas(porNombre, existente, nombreNormal, anterior.nombre);
+            agregarTrigramas(porAutor, existente, autorNormal, anterior.autor);
+            obsoletos++;
+            reconstruirSiHaceFalta();
+            return;
+        }
+        int id = siguienteId++;
+        if (id == entradas.length) {
+            entradas = Arrays.copyOf(entradas, id * 2);
+        }
+        entradas[id] = new Entrada(clave, nombreNormal, autorNormal);
+        idPorClave.put(clave, id);
+        vivos++;
+        agregarTrigramas(porNombre, id, nombreNormal, null);
+        agregarTrigramas(porAutor, id, autorNormal, null);
+    }
+
+    // Quita el libro con esa clave (deja un hueco en su posición).
+    void quitar(String clave) {
+        Integer id = idPorClave.remove(clave);
+        if (id != null) {
+            entradas[id] = null;
+            vivos--;
+            obsoletos++;
+            reconstruirSiHaceFalta();
+        }
+    }
+
+    // Devuelve las claves de los libros cuyo 'campo' contiene 'consulta' (sin importar
+    // mayúsculas ni tildes), en el orden del repositorio.
+    List<String> buscar(String consulta, Campo campo) {
+        String buscado = normalizar(consulta);
+        List<String> claves = new ArrayList<>();
+        if (buscado.length() < N) { // Sin trigramas: se revisan todos los textos.
+            for (int id = 0; id < siguienteId; id++) {
+                Entrada entrada = entradas[id];
+                if (entrada != null && entrada.texto(campo).contains(buscado)) {
+                    claves.add(entrada.clave);
+                }
+            }
+            return claves;
+        }
+        MapaTrigramas listas = campo == Campo.NOMBRE ? porNombre : porAutor;
+        ListaIds masCorta = null; // Lista del trigrama más raro de la búsqueda.
+        for (int i = 0; i + N <= buscado.length(); i++) {
+            ListaIds lista = listas.get(trigrama(buscado, i));
+            if (lista == null) {
+                return claves; // Ningún libro tiene este trigrama: no hay resultados.
+            }
+            if (masCorta == null || lista.tamano < masCorta.tamano) {
+                masCorta = lista;
+            }
+        }
+        int[] encontrados = new int[masCorta.tamano];
+        int cuantos = 0;
+        for (int i = 0; i < masCorta.tamano; i++) { // Confirma cada candidato sobre su texto normalizado.
+            int id = masCorta.ids[i];
+            Entrada entrada = entradas[id];
+            if (entrada != null && entrada.texto(campo).contains(buscado)) {
+                encontrados[cuantos++] = id;
+            }
+        }
+        Arrays.sort(encontrados, 0, cuantos); // Orden del repositorio (una edición agrega ids fuera de orden).
+        for (int i = 0; i < cuantos; i++) {
+            if (i == 0 || encontrados[i] != encontrados[i - 1]) { // Un id puede repetirse tras varias ediciones.
+                claves.add(entradas[encontrados[i]].clave);
+            }
+        }
+        return claves;
+    }
+
+    // Agrega 'id' a la lista de cada trigrama de 'texto' que no esté en 'anterior'.
+    private static void agregarTrigramas(MapaTrigramas listas, int id, String texto, String anterior) {
+        for (int i = 0; i + N <= texto.length(); i++) {
+            if (anterior != null && anterior.contains(texto.substring(i, i + N))) {
+                continue; // Ya estaba en esa lista.
+            }
+            ListaIds lista = listas.obtenerOCrear(trigrama(texto, i));
+            if (lista.tamano == 0 || lista.ids[lista.tamano - 1] != id) { // Trigrama repetido en el mismo texto.
+                lista.agregar(id);
+            }
+        }
+    }
+
+    // Si las listas tienen más ids obsoletos que libros vivos (muchas ediciones o
+    // eliminaciones), las vuelve a armar desde cero con ids consecutivos.
+    private void reconstruirSiHaceFalta() {
+        if (obsoletos <= Math.max(1024, vivos)) {
+            return;
+        }
+        Entrada[] anteriores = entradas;
+        int total = siguienteId;
+        vaciar();
+        for (int id = 0; id < total; id++) {
+            Entrada entrada = anteriores[id];
+            if (entrada != null) {
+                int nuevo = siguienteId++;
+                if (nuevo == entradas.length) {
+                    entradas = Arrays.copyOf(entradas, nuevo * 2);
+                }
+                entradas[nuevo] = entrada;
+                idPorClave.put(entrada.clave, nuevo);
+                vivos++;
+                agregarTrigramas(porNombre, nuevo, entrada.nombre, null);
+                agregarTrigramas(porAutor, nuevo, entrada.autor, null);
+            }
+        }
+    }
+
+    // Tres caracteres seguidos de 'texto', empaquetados en un número.
+    private static long trigrama(String texto, int i) {
+        return ((long) texto.charAt(i) << 32) | ((long) texto.charAt(i + 1) << 16) | texto.charAt(i + 2);
+    }
+
+    // Letra sin tilde y en minúscula para cada carácter de Latin-1 y Latin Extended-A
+    // (donde están todas las letras del español). Se calcula una vez con Normalizer.
+    private static final char[] BASE = new char[0x180];
+    static {
+        for (char c = 0; c < BASE.length; c++) {
+            String base = normalizarConNormalizer(String.valueOf(c));
+            BASE[c] = base.length() == 1 ? base.charAt(0) : c; // Si no queda una sola letra, se deja igual.
+        }
+    }
+
+    // Pasa un texto a minúsculas y le quita las tildes y diéresis ("Ñandú" -> "nandu").
+    // Los caracteres habituales se traducen con la tabla BASE; solo un texto con otros
+    // caracteres pasa por Normalizer.
+    static String normalizar(String texto) {
+        if (texto == null) {
+            return "";
+        }
+        char[] resultado = null; // Se crea solo si algún carácter cambia.
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            if (c >= BASE.length) {
+                return normalizarConNormalizer(texto);
+            }
+            char base = BASE[c];
+            if (base != c) {
+                if (resultado == null) {
+                    resultado = texto.toCharArray();
+                }
+                resultado[i] = base;
+            }
+        }
+        return resultado == null ? texto : new String(resultado);
+    }
+
+    // Normalización completa: separa cada letra de su tilde, descarta las tildes y pasa
+    // a minúsculas.
+    private static String normalizarConNormalizer(String texto) {
+        String separado = Normalizer.normalize(texto, Normalizer.Form.NFD); // "é" -> "e" + tilde.
+        StringBuilder sb = new StringBuilder(separado.length());
+        for (int i = 0; i < separado.length(); i++) {
+            char c = separado.charAt(i);
+            if (Character.getType(c) != Character.NON_SPACING_MARK) { // Descarta las tildes sueltas.
+                sb.append(c);
+            }
+        }
+        return sb.toString().toLowerCase(Locale.ROOT);
+    }
+}
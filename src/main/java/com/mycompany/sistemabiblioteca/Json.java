@@ -0,0 +1,296 @@
+package com.mycompany.sistemabiblioteca; // Carpeta donde está organizado nuestro código.
+
+import java.nio.charset.StandardCharsets; // Para convertir el JSON a bytes (UTF-8).
+import java.util.LinkedHashMap; // Mapa que conserva el orden de los campos.
+import java.util.Map; // Campos de un objeto leído.
+
+// Esta clase escribe y lee el JSON de la API (ServidorApi) sin librerías externas.
+// Solo cubre lo que la API necesita:
+// - Escritor: arma objetos y listas anidados directamente en un StringBuilder.
+// - leerObjeto(): lee el cuerpo de una petición, que es un objeto "plano" (sus valores
+//   son textos, números, true/false o null; no objetos ni listas dentro).
+public final class Json {
+
+    private Json() { // Clase de utilidad: no se crean instancias.
+    }
+
+    // Arma un documento JSON. Cada método devuelve el mismo Escritor para encadenar
+    // llamadas: new Json.Escritor().abrirObjeto().campo("id", 1).cerrarObjeto().
+    public static final class Escritor {
+        private final StringBuilder sb = new StringBuilder(256); // Texto del documento.
+        private boolean necesitaComa = false; // Si el próximo valor va después de otro.
+
+        public Escritor abrirObjeto() { // Objeto dentro de una lista (o el documento).
+            separar();
+            sb.append('{');
+            necesitaComa = false;
+            return this;
+        }
+
+        public Escritor abrirObjeto(String nombre) { // Objeto como campo de otro objeto.
+            nombre(nombre);
+            sb.append('{');
+            necesitaComa = false;
+            return this;
+        }
+
+        public Escritor cerrarObjeto() {
+            sb.append('}');
+            necesitaComa = true;
+            return this;
+        }
+
+        public Escritor abrirLista(String nombre) { // Lista como campo de un objeto.
+            nombre(nombre);
+            sb.append('[');
+            necesitaComa = false;
+            return this;
+        }
+
+        public Escritor cerrarLista() {
+            sb.append(']');
+            necesitaComa = true;
+            return this;
+        }
+
+        public Escritor campo(String nombre, String valor) {
+            nombre(nombre);
+            if (valor == null) {
+                sb.append("null");
+            } else {
+                texto(valor);
+            }
+            necesitaComa = true;
+            return this;
+        }
+
+        public Escritor campo(String nombre, long valor) {
+            nombre(nombre);
+            sb.append(valor);
+            necesitaComa = true;
+            return this;
+        }
+
+        public Escritor campo(String nombre, double valor) {
+            nombre(nombre);
+            if (Double.isNaN(valor) || Double.isInfinite(valor)) { // JSON no tiene NaN ni infinito.
+                sb.append("null");
+            } else {
+                sb.append(valor);
+            }
+            necesitaComa = true;
+            return this;
+        }
+
+        public Escritor campo(String nombre, boolean valor) {
+            nombre(nombre);
+            sb.append(valor);
+            necesitaComa = true;
+            return this;
+        }
+
+        public Escritor campoNulo(String nombre) {
+            nombre(nombre);
+            sb.append("null");
+            necesitaComa = true;
+            return this;
+        }
+
+        // El documento en UTF-8, listo para enviar.
+        public byte[] aBytes() {
+            return sb.toString().getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public String toString() {
+            return sb.toString();
+        }
+
+        private void nombre(String nombre) { // Escribe '"nombre":' con su coma si hace falta.
+            separar();
+            texto(nombre);
+            sb.append(':');
+        }
+
+        private void separar() {
+            if (necesitaComa) {
+                sb.append(',');
+            }
+        }
+
+        private void texto(String valor) { // Escribe un texto entre comillas, escapando lo necesario.
+            sb.append('"');
+            for (int i = 0; i < valor.length(); i++) {
+                char c = valor.charAt(i);
+                switch (c) {
+                    case '"':
+                        sb.append("\\\"");
+                        break;
+                    case '\\':
+                        sb.append("\\\\");
+                        break;
+                    case '\n':
+                        sb.append("\\n");
+                        break;
+                    case '\r':
+                        sb.append("\\r");
+                        break;
+                    case '\t':
+                        sb.append("\\t");
+                        break;
+                    default:
+                        if (c < 0x20) { // Otros caracteres de control.
+                            sb.append(String.format("\\u%04x", (int) c));
+                        } else {
+                            sb.append(c);
+                        }
+                }
+            }
+            sb.append('"');
+        }
+    }
+
+    // Lee un objeto JSON plano. Devuelve sus campos en orden; los números y true/false
+    // quedan como texto (ej. "3", "true") y null como null. Lanza
+    // IllegalArgumentException si el texto no es un objeto plano válido.
+    public static Map<String, String> leerObjeto(String json) {
+        Map<String, String> campos = new LinkedHashMap<>();
+        Lector lector = new Lector(json);
+        lector.esperar('{');
+        if (!lector.siguienteEs('}')) {
+            do {
+                String nombre = lector.leerTexto();
+                lector.esperar(':');
+                campos.put(nombre, lector.leerValor());
+            } while (lector.siguienteEs(','));
+            lector.esperar('}');
+        }
+        lector.saltarEspacios();
+        if (!lector.terminado()) {
+            throw new IllegalArgumentException("Hay texto despues del objeto JSON.");
+        }
+        return campos;
+    }
+
+    // Recorre el texto de un objeto plano.
+    private static final class Lector {
+        private final String json;
+        private int pos = 0;
+
+        Lector(String json) {
+            this.json = json;
+        }
+
+        boolean terminado() {
+            return pos >= json.length();
+        }
+
+        void saltarEspacios() {
+            while (pos < json.length() && Character.isWhitespace(json.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        // Si el próximo carácter (sin contar espacios) es 'c', lo consume y devuelve true.
+        boolean siguienteEs(char c) {
+            saltarEspacios();
+            if (pos < json.length() && json.charAt(pos) == c) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        void esperar(char c) {
+            if (!siguienteEs(c)) {
+                throw new IllegalArgumentException("JSON no valido: se esperaba '" + c + "' en la posicion " + pos + ".");
+            }
+        }
+
+        String leerValor() {
+            saltarEspacios();
+            if (terminado()) {
+                throw new IllegalArgumentException("JSON no valido: falta un valor.");
+            }
+            char c = json.charAt(pos);
+            if (c == '"') {
+                return leerTexto();
+            }
+            if (c == '{' || c == '[') {
+                throw new IllegalArgumentException("JSON no soportado: los valores deben ser textos, numeros o true/false.");
+            }
+            int inicio = pos; // Número, true, false o null: hasta el próximo separador.
+            while (pos < json.length() && ",}".indexOf(json.charAt(pos)) < 0
+                    && !Character.isWhitespace(json.charAt(pos))) {
+                pos++;
+            }
+            String literal = json.substring(inicio, pos);
+            if (literal.equals("null")) {
+                return null;
+            }
+            if (literal.equals("true") || literal.equals("false") || esNumero(literal)) {
+                return literal;
+            }
+            throw new IllegalArgumentException("JSON no valido: valor '" + literal + "'.");
+        }
+
+        String leerTexto() {
+            esperar('"');
+            StringBuilder sb = new StringBuilder();
+            while (pos < json.length()) {
+                char c = json.charAt(pos++);
+                if (c == '"') {
+                    return sb.toString();
+                }
+                if (c != '\\') {
+                    sb.append(c);
+                    continue;
+                }
+                if (pos >= json.length()) {
+                    break;
+                }
+                char e = json.charAt(pos++);
+                switch (e) {
+                    case 'n':
+                        sb.append('\n');
+                        break;
+                    case 'r':
+                        sb.append('\r');
+                        break;
+                    case 't':
+                        sb.append('\t');
+                        break;
+                    case 'b':
+                        sb.append('\b');
+                        break;
+                    case 'f':
+                        sb.append('\f');
+                        break;
+                    case 'u':
+                        if (pos + 4 > json.length()) {
+                            throw new IllegalArgumentException("JSON no valido: escape \\u incompleto.");
+                        }
+                        try {
+                            sb.append((char) Integer.parseInt(json.substring(pos, pos + 4), 16));
+                        } catch (NumberFormatException ex) {
+                            throw new IllegalArgumentException("JSON no valido: escape \\u incorrecto.");
+                        }
+                        pos += 4;
+                        break;
+                    default: // \" \\ \/
+                        sb.append(e);
+                }
+            }
+            throw new IllegalArgumentException("JSON no valido: texto sin cerrar.");
+        }
+
+        private static boolean esNumero(String literal) {
+            try {
+                Double.parseDouble(literal);
+                return !literal.isEmpty() && (Character.isDigit(literal.charAt(0)) || literal.charAt(0) == '-');
+            } catch (NumberFormatException ex) {
+                return false;
+            }
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package com.mycompany.sistemabiblioteca; // Carpeta donde está organizado nuestro código.
+
+import java.io.IOException; // Para manejar errores al leer.
+import java.io.Reader; // Fuente de caracteres (por ejemplo, un archivo).
+
+// Esta clase lee los registros de los archivos de datos, donde los campos van
+// separados por '\' (por ejemplo: "codigo\nombre\autor\...").
+// Reemplaza a linea.split("\\\\") + trim(): no usa expresiones regulares ni crea un
+// arreglo y un String por campo. Los números y las fechas se leen directamente de
+// los caracteres de la línea; solo los campos de texto crean un String.
+//
+// Se usa de dos formas:
+// - Sobre un archivo completo: new LectorCampos(reader) y luego siguienteLinea() en un bucle.
+// - Sobre una sola línea: new LectorCampos() y luego reiniciar(linea).
+// En ambos casos los campos se leen en orden con siguienteTexto(), siguienteInt(), etc.
+// Una instancia no es segura entre hilos; cada lectura usa la suya.
+public class LectorCampos {
+
+    public static final char SEPARADOR = '\\'; // Separador de campos en los archivos de datos.
+
+    private final Reader reader; // Fuente de las líneas (null si se usa línea por línea).
+    private final char[] bloque; // Caracteres leídos del archivo y aún no procesados.
+    private int bloquePos = 0; // Siguiente carácter a procesar del bloque.
+    private int bloqueFin = 0; // Cantidad de caracteres válidos en el bloque.
+
+    private char[] linea = new char[256]; // Línea actual (el arreglo se reutiliza y crece si hace falta).
+    private int largo = 0; // Largo de la línea actual.
+    private int pos = 0; // Inicio del siguiente campo dentro de la línea.
+
+    // Crea un lector para usar línea por línea con reiniciar().
+    public LectorCampos() {
+        this.reader = null;
+        this.bloque = null;
+    }
+
+    // Crea un lector que recorre todas las líneas de 'reader'.
+    public LectorCampos(Reader reader) {
+        this.reader = reader;
+        this.bloque = new char[8192];
+    }
+
+    // Pasa a la siguiente línea del archivo. Devuelve 'false' cuando no quedan líneas.
+    // Acepta fines de línea "\n" y "\r\n", igual que BufferedReader.readLine().
+    public boolean siguienteLinea() throws IOException {
+        largo = 0;
+        pos = 0;
+        boolean leyoAlgo = false;
+        while (true) {
+            if (bloquePos >= bloqueFin) { // Se acabó el bloque: lee otro.
+                bloqueFin = reader.read(bloque, 0, bloque.length);
+                bloquePos = 0;
+                if (bloqueFin <= 0) {
+                    bloqueFin = 0;
+                    return leyoAlgo; // Fin del archivo (la última línea puede no tener salto).
+                }
+            }
+            leyoAlgo = true;
+            char c = bloque[bloquePos++];
+            if (c == '\n') {
+                break;
+            }
+            if (largo == linea.length) {
+                linea = java.util.Arrays.copyOf(linea, linea.length * 2);
+            }
+            linea[largo++] = c;
+        }
+        if (largo > 0 && linea[largo - 1] == '\r') {
+            largo--;
+        }
+        return true;
+    }
+
+    // Usa 'texto' como línea actual y vuelve al primer campo.
+    public LectorCampos reiniciar(String texto) {
+        int n = texto.length();
+        if (n > linea.length) {
+            linea = new char[Math.max(n, linea.length * 2)];
+        }
+        texto.getChars(0, n, linea, 0);
+        largo = n;
+        pos = 0;
+        return this;
+    }
+
+    // Devuelve la línea actual como String (para mensajes de error o para guardarla).
+    public String lineaActual() {
+        return new String(linea, 0, largo);
+    }
+
+    // Indica si la línea actual está vacía o solo tiene espacios.
+    public boolean lineaEnBlanco() {
+        for (int i = 0; i < largo; i++) {
+            if (linea[i] > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Cuenta los campos de la línea actual con la misma regla que String.split():
+    // los campos vacíos del final no cuentan (así los chequeos "parts.length >= N"
+    // se comportan igual que antes). No mueve la posición de lectura.
+    public int contarCampos() {
+        int fin = largo;
+        while (fin > 0 && linea[fin - 1] == SEPARADOR) { // Quita los separadores finales (campos vacíos).
+            fin--;
+        }
+        if (fin == 0) {
+            return largo == 0 ? 1 : 0; // "" -> 1 campo; una línea solo de separadores -> 0 (como split).
+        }
+        int campos = 1;
+        for (int i = 0; i < fin; i++) {
+            if (linea[i] == SEPARADOR) {
+                campos++;
+            }
+        }
+        return campos;
+    }
+
+    // Vuelve al primer campo de la línea actual.
+    public void volverAlInicio() {
+        pos = 0;
+    }
+
+    // --- Lectura de campos ---
+    // Cada método lee el siguiente campo (sin espacios al inicio ni al final) y
+    // avanza al que sigue. Si el campo no es válido se lanza NumberFormatException,
+    // como hacían Integer.parseInt y compañía.
+
+    // Posición donde termina el campo actual (el siguiente separador o el fin de línea).
+    private int finCampo() {
+        int i = pos;
+        while (i < largo && linea[i] != SEPARADOR) {
+            i++;
+        }
+        return i;
+    }
+
+    // Avanza al siguiente campo, dejando 'pos' después del separador.
+    private void avanzar(int fin) {
+        pos = fin < largo ? fin + 1 : largo + 1;
+    }
+
+    // Inicio del campo sin espacios a la izquierda.
+    private int recortarInicio(int ini, int fin) {
+        while (ini < fin && linea[ini] <= ' ') {
+            ini++;
+        }
+        return ini;
+    }
+
+    // Fin del campo sin espacios a la derecha.
+    private int recortarFin(int ini, int fin) {
+        while (fin > ini && linea[fin - 1] <= ' ') {
+            fin--;
+        }
+        return fin;
+    }
+
+    // Salta el siguiente campo sin leerlo.
+    public void saltarCampo() {
+        avanzar(finCampo());
+    }
+
+    // Lee el siguiente campo como texto. Devuelve "" si ya no hay campos.
+    public String siguienteTexto() {
+        if (pos > largo) {
+            return "";
+        }
+        int fin = finCampo();
+        int a = recortarInicio(pos, fin);
+        int b = recortarFin(a, fin);
+        avanzar(fin);
+        return a == b ? "" : new String(linea, a, b - a);
+    }
+
+    // Indica si el siguiente campo es igual a 'texto' (ignorando espacios a los lados),
+    // sin crear un String. Avanza al campo siguiente.
+    public boolean siguienteIgualA(String texto) {
+        if (pos > largo) {
+            return texto.isEmpty();
+        }
+        int fin = finCampo();
+        int a = recortarInicio(pos, fin);
+        int b = recortarFin(a, fin);
+        avanzar(fin);
+        if (b - a != texto.length()) {
+            return false;
+        }
+        for (int i = 0; i < texto.length(); i++) {
+            if (linea[a + i] != texto.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Lee el siguiente campo como número entero largo.
+    public long siguienteLong() {
+        int fin = finCampo();
+        int a = recortarInicio(pos, fin);
+        int b = recortarFin(a, fin);
+        avanzar(fin);
+        return parsearLong(a, b);
+    }
+
+    // Lee el campo número 'indice' (el primero es 0) como número entero largo, o devuelve
+    // 'siFalta' si la línea no llega a ese campo (por ejemplo, la versión de un registro
+    // escrito antes de que existiera esa columna). Vuelve a leer la línea desde el inicio.
+    public long longEnCampo(int indice, long siFalta) {
+        if (contarCampos() <= indice) {
+            return siFalta;
+        }
+        pos = 0;
+        for (int i = 0; i < indice; i++) {
+            saltarCampo();
+        }
+        return siguienteLong();
+    }
+
+    // Lee el siguiente campo como int.
+    public int siguienteInt() {
+        long valor = siguienteLong();
+        if (valor < Integer.MIN_VALUE || valor > Integer.MAX_VALUE) {
+            throw new NumberFormatException("Valor fuera de rango para int: " + valor);
+        }
+        return (int) valor;
+    }
+
+    // Lee el siguiente campo como byte.
+    public byte siguienteByte() {
+        long valor = siguienteLong();
+        if (valor < Byte.MIN_VALUE || valor > Byte.MAX_VALUE) {
+            throw new NumberFormatException("Valor fuera de rango para byte: " + valor);
+        }
+        return (byte) valor;
+    }
+
+    // Lee el siguiente campo como número decimal. Acepta ',' o '.' como separador decimal.
+    // (Los decimales solo aparecen en la deuda de los usuarios, así que aquí se delega
+    // en Double.parseDouble en vez de reimplementarlo.)
+    public double siguienteDouble() {
+        String texto = siguienteTexto();
+        return Double.parseDouble(texto.replace(',', '.'));
+    }
+
+    // Lee el siguiente campo como fecha "yyyy-MM-dd" y la devuelve como número de días
+    // desde 1970-01-01 (ver Fecha.parsear). Un campo vacío o "null" devuelve Fecha.SIN_FECHA.
+    public int siguienteFecha() {
+        int fin = finCampo();
+        int a = recortarInicio(pos, fin);
+        int b = recortarFin(a, fin);
+        avanzar(fin);
+        return Fecha.parsear(linea, a, b);
+    }
+
+    // Convierte los caracteres [a, b) en un long (con signo opcional).
+    private long parsearLong(int a, int b) {
+        if (a >= b) {
+            throw new NumberFormatException("Campo numerico vacio");
+        }
+        boolean negativo = false;
+        int i = a;
+        if (linea[i] == '-' || linea[i] == '+') {
+            negativo = linea[i] == '-';
+            i++;
+            if (i == b) {
+                throw new NumberFormatException("Numero invalido: " + new String(linea, a, b - a));
+            }
+        }
+        long valor = 0;
+        for (; i < b; i++) {
+            int d = linea[i] - '0';
+            if (d < 0 || d > 9) {
+                throw new NumberFormatException("Numero invalido: " + new String(linea, a, b - a));
+            }
+            if (valor < (Long.MIN_VALUE + d) / 10) { // Se acumula en negativo para aceptar Long.MIN_VALUE.
+                throw new NumberFormatException("Numero fuera de rango: " + new String(linea, a, b - a));
+            }
+            valor = valor * 10 - d;
+        }
+        if (!negativo) {
+            if (valor == Long.MIN_VALUE) {
+                throw new NumberFormatException("Numero fuera de rango: " + new String(linea, a, b - a));
+            }
+            valor = -valor;
+        }
+        return valor;
+    }
+}
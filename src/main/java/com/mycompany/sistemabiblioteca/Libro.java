@@ -13,9 +13,11 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 // Esta clase representa un libro en la biblioteca.
 // Sabe cómo guardarse y eliminarse porque implementa 'IPersistible'.
@@ -27,6 +29,12 @@ public class Libro implements IPersistible {
     private int unidadesPrestadas; // Copias que están prestadas.
     private int idBiblioteca; // ID de la biblioteca a la que pertenece.
     private String sedeBiblioteca; // Sede de la biblioteca a la que pertenece.
+    private long version; // Versión del registro en el archivo (0 si todavía no se ha guardado).
+
+    // Latencias de las operaciones de persistencia (ver Metricas).
+    private static final Metricas.Operacion METRICA_GUARDAR = Metricas.operacion("Libro.guardar");
+    private static final Metricas.Operacion METRICA_ELIMINAR = Metricas.operacion("Libro.eliminar");
+    private static final Metricas.Operacion METRICA_CARGAR = Metricas.operacion("Libro.cargarTodosLosLibros");
 
     public Libro() { // Constructor vacío.
     }
@@ -59,49 +67,16 @@ public class Libro implements IPersistible {
     // --- Metodo para generar un codigo unico y auto-incremental ---
     // Genera un código único para un libro, siguiendo el formato:
     // ID_BIB-INICIAL_SEDE-NUMERO_SECUENCIAL.
+    // El número lo entrega SecuenciasCodigos, que guarda el último de cada prefijo: no
+    // recorre el catálogo y dos administradores a la vez nunca reciben el mismo código.
+    // Devuelve 'null' si no se pudo acceder al archivo de secuencias.
     public static String generarSiguienteCodigoLibro(int idBiblioteca, String sedeBiblioteca) {
-        List<Libro> todosLosLibros = cargarTodosLosLibros(); // Carga todos los libros existentes.
-        long maxNumeroSecuencial = 0; // Empieza a contar desde 0.
-
-        // Crea el prefijo del código (ej. "1-M" para ID 1 y sede "Medellin").
-        String prefijoLibro = String.valueOf(idBiblioteca) + "-" + sedeBiblioteca.substring(0, 1).toUpperCase();
-
-        // Busca el número secuencial más alto usado con este prefijo.
-        for (Libro libro : todosLosLibros) {
-            if (libro.getCodigo().startsWith(prefijoLibro)) { // Si el código del libro empieza con el prefijo.
-                String[] parts = libro.getCodigo().split("-"); // Divide el código por los guiones.
-                if (parts.length == 3) { // Si tiene 3 partes (ej. ID-SEDE-NUMERO).
-                    try {
-                        long currentNum = Long.parseLong(parts[2]); // La tercera parte es el número secuencial.
-                        if (currentNum > maxNumeroSecuencial) { // Si es mayor al máximo encontrado.
-                            maxNumeroSecuencial = currentNum; // Lo actualiza.
-                        }
-                    } catch (NumberFormatException e) {
-                        // Ignora códigos mal formados.
-                    }
-                }
-            }
-        }
-
-        // Si no se encontró un número secuencial con el prefijo, busca el máximo entre
-        // todos los libros.
-        if (maxNumeroSecuencial == 0) {
-            for (Libro libro : todosLosLibros) {
-                String[] parts = libro.getCodigo().split("-");
-                if (parts.length >= 2) { // Asume que la última parte es un número.
-                    try {
-                        long currentNum = Long.parseLong(parts[parts.length - 1]);
-                        if (currentNum > maxNumeroSecuencial) {
-                            maxNumeroSecuencial = currentNum;
-                        }
-                    } catch (NumberFormatException e) {
-                        // Ignora códigos que no terminan en número.
-                    }
-                }
-            }
+        try {
+            return SecuenciasCodigos.getInstancia().siguienteCodigo(idBiblioteca, sedeBiblioteca);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
         }
-
-        return prefijoLibro + "-" + (maxNumeroSecuencial + 1); // Devuelve el nuevo código (prefijo + siguiente número).
     }
 
     // Getters para los atributos del libro.
@@ -177,7 +152,18 @@ public class Libro implements IPersistible {
         return PathManager.resolverRutaArchivo("Libros.txt");
     }
 
-    // Convierte el objeto Libro a una línea de texto para guardarlo en el archivo.
+    @Override
+    public long getVersion() {
+        return version;
+    }
+
+    // Solo la cambia el repositorio, al leer o escribir el registro.
+    void setVersion(long version) {
+        this.version = version;
+    }
+
+    // Convierte el objeto Libro a una línea de texto para guardarlo en el archivo
+    // (el archivo añade la versión al final, ver construirLineaConVersion).
     @Override
     public String construirLinea() {
         return String.format("%s\\%s\\%s\\%d\\%d\\%d\\%s",
@@ -187,112 +173,76 @@ public class Libro implements IPersistible {
     // Guarda el libro en el archivo. Es un método seguro (synchronized).
     @Override
     public synchronized void guardar() {
-        guardarInterno(null); // Llama al método interno sin un código antiguo (asume que el código no
-                              // cambió).
+        long inicio = System.nanoTime();
+        try {
+            guardarInterno(null); // Llama al método interno sin un código antiguo (asume que el código no
+                                  // cambió).
+        } finally {
+            METRICA_GUARDAR.registrarDesde(inicio);
+        }
     }
 
-    // Método interno para guardar/actualizar/eliminar un libro en el archivo.
+    // Método interno para guardar/actualizar/eliminar un libro.
     // Maneja si el código del libro cambió o si el libro se va a eliminar.
+    // El cambio se aplica en el repositorio en memoria, que lo escribe al archivo en
+    // segundo plano.
     protected synchronized void guardarInterno(String oldCodigo) {
-        try {
-            Path path = resolverRutaLibros();
-            List<String> lines = new ArrayList<>();
-            if (Files.exists(path)) { // Si el archivo existe, lee todas sus líneas.
-                lines = new ArrayList<>(Files.readAllLines(path, java.nio.charset.StandardCharsets.UTF_8));
-            }
-
-            // Limpia las líneas vacías o nulas.
-            List<String> normalized = new ArrayList<>();
-            for (String l : lines) {
-                if (l != null && !l.trim().isEmpty())
-                    normalized.add(l);
-            }
-            lines = normalized;
-
-            boolean found = false; // Bandera para saber si encontramos el libro.
-            // Usa el código antiguo (si se dio) o el actual para buscar el libro en el
-            // archivo.
-            String searchCodigo = (oldCodigo != null && !oldCodigo.trim().isEmpty()) ? oldCodigo : this.codigo;
-
-            for (int i = 0; i < lines.size(); i++) { // Recorre todas las líneas.
-                String line = lines.get(i);
-                String[] parts = line.split("\\\\");
-                if (parts.length >= 7) {
-                    String libroCodigo = parts[0].trim();
-                    if (libroCodigo.equals(searchCodigo)) { // Si encuentra el libro.
-                        if (this.codigo == null || this.codigo.trim().isEmpty()) { // Si el código actual es nulo,
-                                                                                   // significa que hay que eliminarlo.
-                            lines.remove(i); // Elimina la línea.
-                            i--; // Ajusta el índice.
-                        } else {
-                            lines.set(i, construirLinea()); // Si no es nulo, actualiza la línea con la nueva
-                                                            // información.
-                        }
-                        found = true; // Marca que se encontró.
-                        break; // Sale del bucle.
-                    }
-                }
-            }
-
-            if (!found) { // Si el libro no se encontró (es nuevo).
-                if (this.codigo != null && !this.codigo.trim().isEmpty()) { // Y si tiene un código válido.
-                    lines.add(construirLinea()); // Añade el nuevo libro al final.
-                }
-            }
-
-            // Vuelve a escribir todas las líneas (actualizadas o nuevas) en el archivo,
-            // sobrescribiendo el anterior.
-            Files.write(path, lines, java.nio.charset.StandardCharsets.UTF_8, StandardOpenOption.CREATE,
-                    StandardOpenOption.TRUNCATE_EXISTING);
-
-        } catch (IOException ex) { // Si hay un error al leer/escribir.
-            ex.printStackTrace(); // Imprime el error.
+        if (Persistencia.diferir(this, oldCodigo)) { // Dentro de una transacción se escribe al cerrarla.
+            return;
         }
+        LibroRepository.getInstancia().guardar(this, oldCodigo);
     }
 
     // Elimina el libro del archivo. Es un método seguro (synchronized).
     @Override
     public synchronized void eliminar() {
-        String originalCodigo = this.codigo; // Guarda el código antes de cambiarlo a nulo.
-        this.codigo = null; // Pone el código a nulo, señalando que debe eliminarse.
-        guardarInterno(originalCodigo); // Llama al método interno para que borre el registro con el código original.
+        long inicio = System.nanoTime();
+        try {
+            String originalCodigo = this.codigo; // Guarda el código antes de cambiarlo a nulo.
+            this.codigo = null; // Pone el código a nulo, señalando que debe eliminarse.
+            guardarInterno(originalCodigo); // Llama al método interno para que borre el registro con el código original.
+        } finally {
+            METRICA_ELIMINAR.registrarDesde(inicio);
+        }
     }
 
-    // Carga todos los libros del archivo "Libros.txt" y los devuelve en una lista.
+    // Devuelve todos los libros del catálogo. Se sirven desde el repositorio en
+    // memoria, que solo lee "Libros.txt" la primera vez.
     public static List<Libro> cargarTodosLosLibros() {
+        long inicio = System.nanoTime();
+        try {
+            return LibroRepository.getInstancia().todos();
+        } finally {
+            METRICA_CARGAR.registrarDesde(inicio);
+        }
+    }
+
+    // Devuelve una página del catálogo (ver LibroRepository.pagina), para listar sin
+    // copiar todos los libros a la vez.
+    public static Pagina<Libro> paginaDeLibros(String cursor, int limite) {
+        return LibroRepository.getInstancia().pagina(cursor, limite);
+    }
+
+    // Recorre todo el catálogo, en el orden del archivo, una página a la vez.
+    public static Stream<Libro> recorrerTodosLosLibros() {
+        return LibroRepository.getInstancia().recorrer();
+    }
+
+    // Lee todos los libros del archivo "Libros.txt" y los devuelve en una lista.
+    // Lo usa el repositorio para su carga inicial.
+    static List<Libro> leerArchivoLibros() {
         List<Libro> libros = new ArrayList<>(); // Lista para guardar los libros.
         Path path = resolverRutaLibros(); // Obtiene la ruta del archivo.
         if (!Files.exists(path)) { // Si el archivo no existe.
             return libros; // Devuelve una lista vacía.
         }
 
-        try (BufferedReader reader = Files.newBufferedReader(path, java.nio.charset.StandardCharsets.UTF_8)) { // Abre
-                                                                                                               // el
-                                                                                                               // archivo.
-            String linea;
-            while ((linea = reader.readLine()) != null) { // Lee línea por línea.
-                String[] parts = linea.split("\\\\"); // Divide la línea por '\'.
-                if (parts.length >= 7) { // Si tiene suficientes partes.
-                    try {
-                        String codigo = parts[0].trim();
-                        String nombre = parts[1].trim();
-                        String autor = parts[2].trim();
-                        int uniLibres = Integer.parseInt(parts[3].trim());
-                        int uniPrestadas = Integer.parseInt(parts[4].trim());
-                        int idBiblioteca = Integer.parseInt(parts[5].trim());
-                        String sedeBiblioteca = parts[6].trim();
-
-                        libros.add(
-                                new Libro(nombre, autor, codigo, uniLibres, uniPrestadas, idBiblioteca,
-                                        sedeBiblioteca)); // Crea el libro y lo añade a la lista.
-                    } catch (NumberFormatException e) {
-                        System.err.println("Error de parseo en linea de libro: " + linea + " - " + e.getMessage()); // Error
-                                                                                                                    // si
-                                                                                                                    // un
-                                                                                                                    // número
-                                                                                                                    // está
-                                                                                                                    // mal.
-                    }
+        try (BufferedReader reader = Metricas.abrirLector(path)) { // Abre el archivo.
+            LectorCampos lector = new LectorCampos(reader); // Un solo lector para todo el archivo.
+            while (lector.siguienteLinea()) { // Lee línea por línea.
+                Libro libro = parsearLinea(lector);
+                if (libro != null) {
+                    libros.add(libro); // Añade el libro a la lista.
                 }
             }
         } catch (IOException e) {
@@ -301,16 +251,54 @@ public class Libro implements IPersistible {
         return libros; // Devuelve la lista de libros cargados.
     }
 
-    // Busca un libro por su código en la lista de todos los libros.
-    public static Libro encontrarLibroPorCodigo(String code) {
-        List<Libro> allBooks = cargarTodosLosLibros(); // Carga todos los libros.
-        for (Libro libro : allBooks) { // Recorre cada libro.
-            if (libro.getCodigo().equalsIgnoreCase(code.trim())) { // Si el código coincide (ignorando
-                                                                   // mayúsculas/minúsculas y espacios).
-                return libro; // Devuelve el libro encontrado.
+    // Convierte una línea del archivo (o del diario) en un Libro.
+    // Devuelve 'null' si la línea no tiene el formato esperado.
+    static Libro parsearLinea(String linea) {
+        return parsearLinea(new LectorCampos().reiniciar(linea));
+    }
+
+    // Convierte la línea actual del lector en un Libro.
+    // Devuelve 'null' si la línea no tiene el formato esperado.
+    static Libro parsearLinea(LectorCampos lector) {
+        int campos = lector.contarCampos();
+        if (campos >= 7) { // Si tiene suficientes partes.
+            try {
+                String codigo = lector.siguienteTexto();
+                String nombre = lector.siguienteTexto();
+                String autor = lector.siguienteTexto();
+                int uniLibres = lector.siguienteInt();
+                int uniPrestadas = lector.siguienteInt();
+                int idBiblioteca = lector.siguienteInt();
+                String sedeBiblioteca = lector.siguienteTexto();
+
+                Libro libro = new Libro(nombre, autor, codigo, uniLibres, uniPrestadas, idBiblioteca, sedeBiblioteca);
+                libro.version = campos >= 8 ? lector.siguienteLong() : 1; // Las líneas sin versión cuentan como la 1.
+                return libro;
+            } catch (NumberFormatException e) {
+                // Error si un número está mal.
+                System.err.println("Error de parseo en linea de libro: " + lector.lineaActual() + " - " + e.getMessage());
             }
         }
-        return null; // Si no lo encuentra, devuelve 'null'.
+        return null;
+    }
+
+    // Busca un libro por su código (ignorando mayúsculas/minúsculas y espacios).
+    public static Libro encontrarLibroPorCodigo(String code) {
+        return LibroRepository.getInstancia().buscarPorCodigo(code.trim()); // Búsqueda directa en el mapa.
+    }
+
+    // Busca varios libros por código de una vez (la usan los reportes de préstamos).
+    // Devuelve código -> libro; los que no existen no aparecen en el mapa.
+    public static Map<String, Libro> encontrarLibrosPorCodigo(Collection<String> codigos) {
+        return LibroRepository.getInstancia().buscarPorCodigos(codigos);
+    }
+
+    // Crea una copia independiente de este libro.
+    Libro copiar() {
+        Libro copia = new Libro(nombre, autor, codigo, unidadesLibres, unidadesPrestadas, idBiblioteca,
+                sedeBiblioteca);
+        copia.version = version;
+        return copia;
     }
 
     // Devuelve una cadena de texto que representa el objeto Libro de forma legible.
@@ -0,0 +1,163 @@
+package com.mycompany.sistemabiblioteca; // Carpeta donde está organizado nuestro código.
+
+import java.io.IOException; // Para manejar errores al trabajar con archivos.
+import java.nio.ByteBuffer; // Para escribir bytes en el canal.
+import java.nio.channels.FileChannel; // Canal de archivo que permite forzar la escritura a disco (fsync).
+import java.nio.charset.StandardCharsets; // Para la codificación UTF-8.
+import java.nio.file.Files; // Para operar con archivos.
+import java.nio.file.Path; // Para rutas de archivos.
+import java.nio.file.StandardOpenOption; // Para opciones de apertura.
+import java.util.ArrayList; // Para listas dinámicas.
+import java.util.List; // Para usar listas.
+
+// Esta clase es el diario (journal) de cambios de libros.
+// En lugar de reescribir "Libros.txt" completo en cada cambio, cada cambio se añade
+// al final de "Libros.journal" como una línea corta y se fuerza a disco.
+// De vez en cuando el repositorio "compacta": escribe "Libros.txt" con el estado
+// actual y descarta el diario ya incluido.
+//
+// Formato de cada línea del diario:
+// P\<línea del libro> -> el libro se guardó (nuevo o actualizado).
+// D\<codigo> -> el libro con ese código se eliminó.
+class LibroJournal {
+
+    static final String PREFIJO_GUARDADO = "P\\"; // Marca de un libro guardado.
+    static final String PREFIJO_ELIMINADO = "D\\"; // Marca de un libro eliminado.
+
+    private FileChannel canal; // Canal abierto sobre el diario actual (se abre al primer cambio).
+    private int entradas = 0; // Cantidad de cambios escritos desde la última compactación.
+
+    // Devuelve la ruta del diario actual.
+    static Path resolverRutaJournal() {
+        return PathManager.resolverRutaArchivo("Libros.journal");
+    }
+
+    // Devuelve la ruta del diario "rotado": el que se está compactando en este momento.
+    static Path resolverRutaJournalRotado() {
+        return PathManager.resolverRutaArchivo("Libros.journal.old");
+    }
+
+    // Anota que un libro se guardó.
+    void registrarGuardado(Libro libro) throws IOException {
+        anexar(PREFIJO_GUARDADO + libro.construirLineaConVersion(libro.getVersion()));
+    }
+
+    // Anota que el libro con este código se eliminó.
+    void registrarEliminacion(String codigo) throws IOException {
+        anexar(PREFIJO_ELIMINADO + codigo);
+    }
+
+    // Añade una línea al final del diario. Para que sea duradera hay que llamar
+    // después a forzar(); así varios cambios seguidos pagan un solo fsync.
+    private void anexar(String registro) throws IOException {
+        if (canal == null) {
+            recortarLineaIncompleta(resolverRutaJournal());
+            canal = FileChannel.open(resolverRutaJournal(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap((registro + "\n").getBytes(StandardCharsets.UTF_8));
+        int bytes = buffer.remaining();
+        while (buffer.hasRemaining()) {
+            canal.write(buffer);
+        }
+        Metricas.archivo(resolverRutaJournal()).registrarEscritura(bytes);
+        entradas++;
+    }
+
+    // Fuerza a disco todo lo añadido al diario (fsync).
+    void forzar() throws IOException {
+        if (canal != null) {
+            canal.force(false); // Solo los datos; los metadatos del archivo no hacen falta.
+        }
+    }
+
+    // Si el diario termina con una línea a medio escribir (un corte a mitad de un
+    // cambio), la quita para que el siguiente registro empiece en una línea nueva.
+    private static void recortarLineaIncompleta(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long fin = ch.size();
+            ByteBuffer uno = ByteBuffer.allocate(1);
+            while (fin > 0) { // Retrocede hasta el último salto de línea.
+                uno.clear();
+                ch.read(uno, fin - 1);
+                if (uno.get(0) == '\n') {
+                    break;
+                }
+                fin--;
+            }
+            if (fin < ch.size()) {
+                ch.truncate(fin);
+            }
+        }
+    }
+
+    // Cantidad de cambios pendientes de compactar.
+    int getEntradas() {
+        return entradas;
+    }
+
+    // Aparta el diario actual para compactarlo y empieza uno nuevo vacío.
+    // Si quedó un diario rotado de una compactación que no terminó, se le añade el
+    // actual en vez de reemplazarlo, para no perder ningún cambio.
+    void rotar() throws IOException {
+        cerrar();
+        entradas = 0;
+        Path actual = resolverRutaJournal();
+        if (!Files.exists(actual)) {
+            return;
+        }
+        Path rotado = resolverRutaJournalRotado();
+        if (Files.exists(rotado)) {
+            byte[] pendientes = Metricas.leerBytes(actual);
+            Files.write(rotado, pendientes, StandardOpenOption.APPEND);
+            Metricas.archivo(rotado).registrarEscritura(pendientes.length);
+            Files.delete(actual);
+        } else {
+            Files.move(actual, rotado);
+        }
+    }
+
+    // Borra el diario rotado una vez que "Libros.txt" ya contiene sus cambios.
+    void descartarRotado() throws IOException {
+        Files.deleteIfExists(resolverRutaJournalRotado());
+    }
+
+    // Lee todos los cambios registrados (primero el diario rotado y luego el actual),
+    // en el orden en que se hicieron. Las líneas incompletas (por ejemplo, de un corte
+    // de luz a mitad de escritura) se ignoran.
+    List<String> leerRegistros() throws IOException {
+        List<String> registros = new ArrayList<>();
+        for (Path path : new Path[] { resolverRutaJournalRotado(), resolverRutaJournal() }) {
+            if (!Files.exists(path)) {
+                continue;
+            }
+            String contenido = new String(Metricas.leerBytes(path), StandardCharsets.UTF_8);
+            int inicio = 0;
+            int fin;
+            while ((fin = contenido.indexOf('\n', inicio)) >= 0) { // Solo líneas terminadas en salto de línea.
+                String linea = contenido.substring(inicio, fin);
+                if (linea.startsWith(PREFIJO_GUARDADO) || linea.startsWith(PREFIJO_ELIMINADO)) {
+                    registros.add(linea);
+                }
+                inicio = fin + 1;
+            }
+        }
+        entradas = registros.size();
+        return registros;
+    }
+
+    // Cierra el canal del diario (se vuelve a abrir con el siguiente cambio).
+    void cerrar() {
+        if (canal != null) {
+            try {
+                canal.close();
+            } catch (IOException ex) {
+                ex.printStackTrace();
+            }
+            canal = null;
+        }
+    }
+}
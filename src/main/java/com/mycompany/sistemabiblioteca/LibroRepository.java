@@ -0,0 +1,517 @@
+package com.mycompany.sistemabiblioteca; // Carpeta donde está organizado nuestro código.
+
+import java.io.IOException; // Para manejar errores al trabajar con archivos.
+import java.nio.file.Path; // Para rutas de archivos.
+import java.util.ArrayList; // Para listas dinámicas.
+import java.util.Collection; // Claves devueltas por los índices.
+import java.util.HashMap; // Mapa de acceso directo por clave.
+import java.util.LinkedHashMap; // Mapa que conserva el orden de inserción (el orden del archivo).
+import java.util.List; // Para usar listas.
+import java.util.Locale; // Para pasar los códigos a minúsculas de forma consistente.
+import java.util.Map; // Para usar mapas.
+import java.util.TreeMap; // Mapa ordenado: recorre los libros desde un cursor.
+import java.util.concurrent.Executors; // Para crear el hilo de compactación en segundo plano.
+import java.util.concurrent.ScheduledExecutorService; // Para programar compactaciones.
+import java.util.concurrent.TimeUnit; // Para indicar los intervalos.
+import java.util.concurrent.atomic.AtomicBoolean; // Bandera segura entre hilos.
+import java.util.stream.Stream; // Para recorrer listados sin copiarlos enteros.
+
+// Esta clase es el repositorio en memoria del catálogo de libros.
+// Es única para todo el proceso: carga "Libros.txt" una sola vez y guarda un mapa
+// codigo -> Libro. Cada cambio se anota en un diario (ver LibroJournal), que es una
+// escritura pequeña al final de un archivo; el "Libros.txt" completo solo se reescribe
+// al compactar (cada cierto número de cambios, cada cierto tiempo o al cerrar).
+//
+// Varios procesos pueden usar los mismos archivos: cada escritura y cada compactación
+// se hace con el BloqueoArchivo de "Libros.txt" tomado, y antes de leer o escribir se
+// compara su contador de cambios con el último visto; si otro proceso escribió, el
+// mapa se vuelve a cargar. Cada libro lleva una versión: si al guardar la del mapa
+// (ya al día) no es la del libro, se lanza ConflictoVersionException sin escribir nada.
+// Junto al mapa se mantienen dos índices: uno de trigramas del nombre y el autor
+// (IndiceTextoLibros) para las búsquedas de texto, y otro de los libros con unidades
+// libres por biblioteca y por sede (IndiceDisponibles) para librosDisponibles().
+// Cada libro tiene además un número de orden (el de su entrada al mapa, que sigue el
+// orden del archivo); los listados por páginas usan el último número devuelto como
+// cursor, así pedir la página siguiente no recorre las anteriores.
+public class LibroRepository {
+
+    private static final LibroRepository INSTANCIA = new LibroRepository(); // Única instancia del proceso.
+    private static final int UMBRAL_COMPACTACION = 1000; // Cambios en el diario que disparan una compactación.
+    private static final long INTERVALO_COMPACTACION_S = 30; // Compactación periódica si hay cambios pendientes.
+
+    private final Map<String, Libro> libros = new LinkedHashMap<>(); // Clave: código en minúsculas.
+    private volatile boolean cargado = false; // Indica si ya se leyó el archivo.
+    private volatile long generacionVista = 0; // Contador de cambios del archivo al cargarlo o escribirlo.
+    private final LibroJournal journal = new LibroJournal(); // Diario de cambios.
+    private final IndiceTextoLibros indiceTexto = new IndiceTextoLibros(); // Búsqueda por nombre y autor.
+    private final IndiceDisponibles indiceDisponibles = new IndiceDisponibles(); // Libros con unidades libres.
+    private final Map<String, Long> ordenPorClave = new HashMap<>(); // Clave -> número de orden.
+    private final TreeMap<Long, String> porOrden = new TreeMap<>(); // Número de orden -> clave.
+    private long siguienteOrden = 0; // Próximo número de orden.
+
+    // Hilo único (daemon) que compacta el diario en segundo plano.
+    private final ScheduledExecutorService compactador = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "libros-compactacion");
+        t.setDaemon(true); // No impide que el programa termine.
+        return t;
+    });
+    private final AtomicBoolean compactacionProgramada = new AtomicBoolean(false); // Hay una compactación en cola.
+
+    private LibroRepository() {
+        compactador.scheduleWithFixedDelay(this::compactarSiHayCambios, INTERVALO_COMPACTACION_S,
+                INTERVALO_COMPACTACION_S, TimeUnit.SECONDS);
+        // Antes de que el programa termine, deja "Libros.txt" al día.
+        Runtime.getRuntime().addShutdownHook(new Thread(this::sincronizar, "libros-shutdown"));
+    }
+
+    // Devuelve el repositorio compartido.
+    public static LibroRepository getInstancia() {
+        return INSTANCIA;
+    }
+
+    // Convierte un código a la clave del mapa (las búsquedas ignoran mayúsculas).
+    private static String clave(String codigo) {
+        return codigo.trim().toLowerCase(Locale.ROOT);
+    }
+
+    // Carga el archivo la primera vez que se necesita y aplica encima los cambios
+    // del diario que aún no se hayan compactado.
+    private void asegurarCargado() {
+        if (!cargado) {
+            for (Libro libro : Libro.leerArchivoLibros()) {
+                poner(clave(libro.getCodigo()), libro);
+            }
+            try {
+                for (String registro : journal.leerRegistros()) {
+                    aplicarRegistro(registro);
+                }
+            } catch (IOException ex) {
+                ex.printStackTrace();
+            }
+            cargado = true;
+        }
+    }
+
+    // Bloqueo entre procesos de "Libros.txt" (cubre también el diario).
+    private static BloqueoArchivo bloqueo() {
+        return BloqueoArchivo.de(Libro.resolverRutaLibros());
+    }
+
+    // Carga los archivos si todavía no se leyeron o si otro proceso los cambió desde la
+    // última vez. Se llama con el bloqueo del archivo y el de este objeto tomados.
+    private void cargarSiHaceFalta(BloqueoArchivo bloqueo) {
+        long generacion = bloqueo.generacion();
+        if (cargado && generacion == generacionVista) {
+            return;
+        }
+        vaciar();
+        journal.cerrar(); // El diario pudo haberse rotado: se vuelve a abrir con el siguiente cambio.
+        cargado = false;
+        asegurarCargado();
+        generacionVista = generacion;
+    }
+
+    // Antes de una lectura: si otro proceso cambió los libros, los vuelve a cargar.
+    // Lo normal (nadie más escribió) cuesta una lectura de 8 bytes, sin bloquear.
+    private void asegurarVigente() {
+        BloqueoArchivo bloqueo = bloqueo();
+        if (cargado && bloqueo.generacion() == generacionVista) {
+            return;
+        }
+        try {
+            bloqueo.ejecutar(() -> { // El bloqueo del archivo siempre se toma antes que el de este objeto.
+                synchronized (this) {
+                    cargarSiHaceFalta(bloqueo);
+                }
+                return null;
+            });
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        }
+    }
+
+    // Agrega o reemplaza un libro en el mapa y en los índices. Un libro que ya estaba
+    // conserva su número de orden (y su lugar en el mapa).
+    private void poner(String clave, Libro libro) {
+        Libro anterior = libros.put(clave, libro);
+        Long orden = ordenPorClave.get(clave);
+        if (orden == null) {
+            orden = siguienteOrden++;
+            ordenPorClave.put(clave, orden);
+            porOrden.put(orden, clave);
+        }
+        indiceTexto.poner(clave, libro.getNombre(), libro.getAutor());
+        indiceDisponibles.actualizar(orden, clave, anterior, libro);
+    }
+
+    // Quita un libro del mapa y de los índices.
+    private void quitar(String clave) {
+        Libro anterior = libros.remove(clave);
+        if (anterior != null) {
+            Long orden = ordenPorClave.remove(clave);
+            porOrden.remove(orden);
+            indiceTexto.quitar(clave);
+            indiceDisponibles.quitar(orden, anterior);
+        }
+    }
+
+    // Vacía el mapa y los índices.
+    private void vaciar() {
+        libros.clear();
+        ordenPorClave.clear();
+        porOrden.clear();
+        siguienteOrden = 0;
+        indiceTexto.vaciar();
+        indiceDisponibles.vaciar();
+    }
+
+    // Copias de los libros con esas claves (se llama con el 'synchronized' tomado).
+    private List<Libro> copias(Collection<String> claves) {
+        List<Libro> copia = new ArrayList<>(claves.size());
+        for (String clave : claves) {
+            copia.add(libros.get(clave).copiar());
+        }
+        return copia;
+    }
+
+    // Aplica al mapa un cambio leído del diario.
+    private void aplicarRegistro(String registro) {
+        if (registro.startsWith(LibroJournal.PREFIJO_GUARDADO)) {
+            Libro libro = Libro.parsearLinea(registro.substring(LibroJournal.PREFIJO_GUARDADO.length()));
+            if (libro != null) {
+                poner(clave(libro.getCodigo()), libro);
+            }
+        } else {
+            quitar(clave(registro.substring(LibroJournal.PREFIJO_ELIMINADO.length())));
+        }
+    }
+
+    // Devuelve una copia de todos los libros, en el orden del archivo.
+    // Se devuelven copias para que los cambios solo lleguen aquí a través de guardar().
+    public List<Libro> todos() {
+        asegurarVigente();
+        synchronized (this) {
+            asegurarCargado();
+            List<Libro> copia = new ArrayList<>(libros.size());
+            for (Libro libro : libros.values()) {
+                copia.add(libro.copiar());
+            }
+            return copia;
+        }
+    }
+
+    // Devuelve una página del catálogo: copias de, como mucho, 'limite' libros en el orden
+    // del archivo, empezando después de 'cursor' (null para la primera página). Solo
+    // copia los libros de la página. Si otro proceso cambia el catálogo entre una página
+    // y la siguiente, el repositorio se vuelve a cargar y el listado puede saltar o
+    // repetir algún libro.
+    public Pagina<Libro> pagina(String cursor, int limite) {
+        long desde = Pagina.leerCursor(cursor);
+        Pagina.validarLimite(limite);
+        asegurarVigente();
+        synchronized (this) {
+            asegurarCargado();
+            List<Libro> elementos = new ArrayList<>(Math.min(limite, libros.size()));
+            long ultimo = desde;
+            for (Map.Entry<Long, String> entrada : porOrden.tailMap(desde, false).entrySet()) {
+                if (elementos.size() == limite) { // Hay al menos uno más: la página no es la última.
+                    return new Pagina<>(elementos, String.valueOf(ultimo));
+                }
+                elementos.add(libros.get(entrada.getValue()).copiar());
+                ultimo = entrada.getKey();
+            }
+            return new Pagina<>(elementos, null);
+        }
+    }
+
+    // Recorre todo el catálogo, en el orden del archivo, pidiendo una página a la vez.
+    public Stream<Libro> recorrer() {
+        return Pagina.recorrer(cursor -> pagina(cursor, Pagina.LIMITE_POR_DEFECTO));
+    }
+
+    // Busca un libro por su código (ignorando mayúsculas). Devuelve una copia o 'null'.
+    public Libro buscarPorCodigo(String codigo) {
+        if (codigo == null) {
+            return null;
+        }
+        asegurarVigente();
+        synchronized (this) {
+            asegurarCargado();
+            Libro libro = libros.get(clave(codigo));
+            return libro != null ? libro.copiar() : null;
+        }
+    }
+
+    // Busca varios libros por código con una sola consulta (un solo bloqueo). Devuelve
+    // código (tal como se pidió) -> copia del libro; los que no existen no aparecen.
+    public Map<String, Libro> buscarPorCodigos(Collection<String> codigos) {
+        Map<String, Libro> encontrados = new HashMap<>(codigos.size() * 2);
+        asegurarVigente();
+        synchronized (this) {
+            asegurarCargado();
+            for (String codigo : codigos) {
+                Libro libro = codigo != null ? libros.get(clave(codigo)) : null;
+                if (libro != null) {
+                    encontrados.put(codigo, libro.copiar());
+                }
+            }
+        }
+        return encontrados;
+    }
+
+    // Busca los libros cuyo nombre (o autor) contiene 'texto', sin importar mayúsculas
+    // ni tildes ("cancion" encuentra "Canción"). Usa el índice de trigramas, así que no
+    // recorre todo el catálogo. Devuelve copias, en el orden del archivo.
+    public List<Libro> buscarPorTexto(String texto, boolean porAutor) {
+        asegurarVigente();
+        synchronized (this) {
+            asegurarCargado();
+            return copias(indiceTexto.buscar(texto,
+                    porAutor ? IndiceTextoLibros.Campo.AUTOR : IndiceTextoLibros.Campo.NOMBRE));
+        }
+    }
+
+    // Como buscarPorTexto(), pero devuelve los libros a medida que se recorren: la
+    // búsqueda se hace una vez (solo se guardan las claves encontradas) y los libros se
+    // copian de a una página.
+    public Stream<Libro> recorrerPorTexto(String texto, boolean porAutor) {
+        List<String> claves;
+        asegurarVigente();
+        synchronized (this) {
+            asegurarCargado();
+            claves = indiceTexto.buscar(texto,
+                    porAutor ? IndiceTextoLibros.Campo.AUTOR : IndiceTextoLibros.Campo.NOMBRE);
+        }
+        return Pagina.recorrer(cursor -> paginaDeClaves(claves, cursor, Pagina.LIMITE_POR_DEFECTO));
+    }
+
+    // Página de una lista de claves ya buscada; el cursor es la posición del último
+    // libro devuelto. Los libros eliminados después de la búsqueda se saltan.
+    private Pagina<Libro> paginaDeClaves(List<String> claves, String cursor, int limite) {
+        int desde = (int) Pagina.leerCursor(cursor) + 1;
+        int hasta = Math.min(claves.size(), desde + limite);
+        asegurarVigente();
+        synchronized (this) {
+            asegurarCargado();
+            List<Libro> elementos = new ArrayList<>(Math.max(0, hasta - desde));
+            for (int i = desde; i < hasta; i++) {
+                Libro libro = libros.get(claves.get(i));
+                if (libro != null) {
+                    elementos.add(libro.copiar());
+                }
+            }
+            return new Pagina<>(elementos, hasta < claves.size() ? String.valueOf(hasta - 1) : null);
+        }
+    }
+
+    // Libros con unidades libres, de todas las bibliotecas. Este y los tres siguientes
+    // usan el índice de disponibles, así que no recorren todo el catálogo. Devuelven
+    // copias, en el orden del archivo.
+    public List<Libro> disponibles() {
+        asegurarVigente();
+        synchronized (this) {
+            asegurarCargado();
+            return copias(indiceDisponibles.todos());
+        }
+    }
+
+    // Libros con unidades libres de una sede (sin importar mayúsculas).
+    public List<Libro> disponiblesPorSede(String sede) {
+        asegurarVigente();
+        synchronized (this) {
+            asegurarCargado();
+            return copias(indiceDisponibles.deSede(sede));
+        }
+    }
+
+    // Libros con unidades libres de una biblioteca.
+    public List<Libro> disponiblesPorBiblioteca(int idBiblioteca) {
+        asegurarVigente();
+        synchronized (this) {
+            asegurarCargado();
+            return copias(indiceDisponibles.deBiblioteca(idBiblioteca));
+        }
+    }
+
+    // Libros con unidades libres de una biblioteca en una sede.
+    public List<Libro> disponiblesPorBibliotecaYSede(int idBiblioteca, String sede) {
+        asegurarVigente();
+        synchronized (this) {
+            asegurarCargado();
+            return copias(indiceDisponibles.deBibliotecaYSede(idBiblioteca, sede));
+        }
+    }
+
+    // Guarda, actualiza o elimina un libro: lo anota en el diario y actualiza la memoria.
+    // Si 'codigoAnterior' no es nulo, se usa para encontrar el registro (cambio de código o eliminación).
+    // Si el código actual del libro es nulo o vacío, el registro se elimina.
+    public void guardar(Libro libro, String codigoAnterior) {
+        Map<Libro, String> uno = new LinkedHashMap<>();
+        uno.put(libro, codigoAnterior);
+        guardarLote(uno);
+    }
+
+    // Guarda varios libros de una vez (libro -> código anterior, o 'null').
+    // Todos los cambios se anotan en el diario y se fuerzan a disco con un solo fsync.
+    // Si algún libro cambió en el archivo desde que se leyó, no se guarda ninguno y se
+    // lanza ConflictoVersionException.
+    public void guardarLote(Map<Libro, String> cambios) {
+        try {
+            bloqueo().ejecutar(() -> {
+                prepararLote(cambios).escribir();
+                return null;
+            });
+        } catch (IOException ex) { // Si no se pudo escribir el diario, se informa el error.
+            ex.printStackTrace();
+        }
+    }
+
+    // Primera parte de guardarLote(): con el bloqueo del archivo tomado, pone el mapa al
+    // día y verifica las versiones de todos los libros. No escribe nada; devuelve la
+    // escritura, que se hace después (ver Persistencia, que verifica varios archivos
+    // antes de escribir cualquiera de ellos).
+    Persistencia.Escritura prepararLote(Map<Libro, String> cambios) {
+        BloqueoArchivo bloqueo = bloqueo();
+        synchronized (this) {
+            cargarSiHaceFalta(bloqueo);
+            for (Map.Entry<Libro, String> cambio : cambios.entrySet()) {
+                verificarVersion(cambio.getKey(), cambio.getValue());
+            }
+        }
+        return () -> escribirLote(cambios, bloqueo);
+    }
+
+    // Segunda parte de guardarLote(): anota los cambios en el diario, los fuerza a disco
+    // y avisa a los demás procesos (contador de cambios).
+    private void escribirLote(Map<Libro, String> cambios, BloqueoArchivo bloqueo) throws IOException {
+        int pendientes;
+        synchronized (this) {
+            try {
+                for (Map.Entry<Libro, String> cambio : cambios.entrySet()) {
+                    aplicarGuardado(cambio.getKey(), cambio.getValue());
+                }
+                journal.forzar();
+            } finally { // Aunque falle a mitad, lo ya anotado debe verse en los demás procesos.
+                generacionVista = bloqueo.marcarCambio();
+            }
+            pendientes = journal.getEntradas();
+        }
+        if (pendientes >= UMBRAL_COMPACTACION && compactacionProgramada.compareAndSet(false, true)) {
+            compactador.execute(this::compactar);
+        }
+    }
+
+    // Código con el que el libro está guardado en el archivo (el anterior si cambió).
+    private static String codigoBusqueda(Libro libro, String codigoAnterior) {
+        return (codigoAnterior != null && !codigoAnterior.trim().isEmpty()) ? codigoAnterior : libro.getCodigo();
+    }
+
+    // Comprueba que el libro no haya cambiado en el archivo desde que se leyó: su versión
+    // debe ser la del mapa (y un libro nuevo, con versión 0, no debe existir todavía).
+    private void verificarVersion(Libro libro, String codigoAnterior) {
+        String codigoBusqueda = codigoBusqueda(libro, codigoAnterior);
+        if (codigoBusqueda == null || codigoBusqueda.trim().isEmpty()) {
+            return; // No hay registro que buscar.
+        }
+        Libro enArchivo = libros.get(clave(codigoBusqueda));
+        long encontrada = enArchivo != null ? enArchivo.getVersion() : ConflictoVersionException.NO_EXISTE;
+        boolean vigente = libro.getVersion() == 0 ? enArchivo == null : encontrada == libro.getVersion();
+        if (!vigente) {
+            throw new ConflictoVersionException("Libros.txt", codigoBusqueda.trim(), libro.getVersion(), encontrada);
+        }
+        String codigoActual = libro.getCodigo();
+        if (codigoActual != null && !codigoActual.trim().isEmpty() && !clave(codigoActual).equals(clave(codigoBusqueda))
+                && libros.containsKey(clave(codigoActual))) { // El código nuevo ya lo usa otro libro.
+            throw new ConflictoVersionException("Libros.txt", codigoActual.trim(), 0,
+                    libros.get(clave(codigoActual)).getVersion());
+        }
+    }
+
+    // Anota un cambio en el diario y lo aplica en memoria (sin forzar a disco).
+    // El libro queda con la versión recién escrita.
+    private void aplicarGuardado(Libro libro, String codigoAnterior) throws IOException {
+        String codigoActual = libro.getCodigo();
+        String codigoBusqueda = codigoBusqueda(libro, codigoAnterior);
+        if (codigoActual == null || codigoActual.trim().isEmpty()) { // Señal de eliminación.
+            if (codigoBusqueda != null && !codigoBusqueda.trim().isEmpty()) {
+                journal.registrarEliminacion(codigoBusqueda.trim());
+                quitar(clave(codigoBusqueda));
+            }
+            return;
+        }
+        Libro enArchivo = codigoBusqueda != null ? libros.get(clave(codigoBusqueda)) : null;
+        libro.setVersion((enArchivo != null ? enArchivo.getVersion() : 0) + 1);
+        if (codigoBusqueda != null && !clave(codigoBusqueda).equals(clave(codigoActual))) {
+            journal.registrarEliminacion(codigoBusqueda.trim()); // El código cambió.
+            quitar(clave(codigoBusqueda));
+        }
+        journal.registrarGuardado(libro);
+        poner(clave(codigoActual), libro.copiar()); // Guarda una copia propia del repositorio.
+    }
+
+    // Compacta solo si el diario tiene cambios (la usa la tarea periódica).
+    private void compactarSiHayCambios() {
+        boolean hayCambios;
+        synchronized (this) {
+            hayCambios = cargado && journal.getEntradas() > 0;
+        }
+        if (hayCambios) {
+            compactar();
+        }
+    }
+
+    // Reescribe "Libros.txt" con el estado actual y descarta el diario ya incluido.
+    // Se hace con el bloqueo del archivo tomado (así ningún otro proceso lee un
+    // "Libros.txt" a medio escribir ni compacta a la vez). El diario se aparta (rota)
+    // junto con la foto del estado.
+    private void compactar() {
+        compactacionProgramada.set(false);
+        BloqueoArchivo bloqueo = bloqueo();
+        try {
+            bloqueo.ejecutar(() -> {
+                List<String> lineas;
+                synchronized (this) {
+                    if (!cargado) { // Si se invalidó el repositorio, no hay nada que escribir.
+                        return null;
+                    }
+                    cargarSiHaceFalta(bloqueo); // Otro proceso pudo haber escrito (o compactado) antes.
+                    if (journal.getEntradas() == 0) {
+                        return null;
+                    }
+                    lineas = new ArrayList<>(libros.size());
+                    for (Libro libro : libros.values()) {
+                        lineas.add(libro.construirLineaConVersion(libro.getVersion()));
+                    }
+                    journal.rotar();
+                }
+                try {
+                    Path path = Libro.resolverRutaLibros();
+                    EscrituraAtomica.reemplazar(path, lineas); // Temporal + renombrado: nunca queda a medias.
+                    journal.descartarRotado(); // "Libros.txt" ya contiene esos cambios.
+                } catch (IOException ex) {
+                    ex.printStackTrace(); // El diario rotado se conserva y se vuelve a aplicar al cargar.
+                } finally {
+                    synchronized (this) { // El diario se rotó: los demás procesos deben volver a cargar.
+                        generacionVista = bloqueo.marcarCambio();
+                    }
+                }
+                return null;
+            });
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        }
+    }
+
+    // Deja "Libros.txt" al día de inmediato (se usa al cerrar el programa).
+    public void sincronizar() {
+        compactarSiHayCambios();
+    }
+
+    // Olvida el contenido en memoria para que se vuelva a leer de los archivos.
+    // Se usa cuando los archivos de datos se borran o se reemplazan desde fuera.
+    public synchronized void invalidar() {
+        vaciar();
+        journal.cerrar();
+        cargado = false;
+    }
+}
@@ -0,0 +1,290 @@
+package com.mycompany.sistemabiblioteca; // Carpeta donde está organizado nuestro código.
+
+import java.io.BufferedReader; // Para leer archivos de texto.
+import java.io.FilterInputStream; // Base del flujo que cuenta los bytes leídos.
+import java.io.IOException; // Para manejar errores al trabajar con archivos.
+import java.io.InputStream; // Entrada de bytes desde el archivo.
+import java.io.InputStreamReader; // Convierte los bytes a texto (UTF-8).
+import java.lang.management.ManagementFactory; // Servidor de MBeans de la JVM (el que ve JConsole).
+import java.nio.charset.StandardCharsets; // Codificación de los archivos de datos.
+import java.nio.file.Files; // Para operar con archivos.
+import java.nio.file.Path; // Para rutas de archivos.
+import java.util.ArrayList; // Para listas dinámicas.
+import java.util.List; // Para usar listas.
+import java.util.Map; // Para usar mapas.
+import java.util.concurrent.ConcurrentHashMap; // Mapa seguro entre hilos.
+import java.util.concurrent.atomic.LongAdder; // Contador rápido con muchos hilos escribiendo.
+import javax.management.JMException; // Error al registrar un MBean.
+import javax.management.ObjectName; // Nombre de un MBean.
+
+// Esta clase mide el programa mientras corre y lo publica como MBeans de la plataforma,
+// para verlo con JConsole o VisualVM (pestaña MBeans, carpeta
+// "com.mycompany.sistemabiblioteca"):
+// - Operacion (un MBean por operación, ej. "Libro.guardar", "Biblioteca.prestarLibro"):
+//   cantidad de llamadas y latencia media, p50, p99, p999 y máxima (Histograma).
+// - Archivo (un MBean por archivo de datos, ej. "Libros.txt"): bytes leídos y escritos,
+//   y cuántas lecturas y escrituras hubo. Así se ve cuánto se lee o escribe por cada
+//   operación (por ejemplo, si guardar un libro reescribe todo el catálogo).
+// Registrar una medida no toma ningún cerrojo (contadores atómicos y LongAdder), así
+// medir no frena a los hilos que atienden usuarios.
+//
+// Uso en una operación (la Operacion se guarda en un campo estático):
+//   long inicio = System.nanoTime();
+//   try { ... } finally { OPERACION.registrarDesde(inicio); }
+// Las lecturas de archivos se hacen con abrirLector, leerLineas o leerBytes, que cuentan
+// los bytes; las escrituras las cuentan EscrituraAtomica y LibroJournal.
+public final class Metricas {
+
+    static final String DOMINIO = "com.mycompany.sistemabiblioteca"; // Carpeta de los MBeans.
+
+    private static final Map<String, Operacion> OPERACIONES = new ConcurrentHashMap<>(); // Nombre -> operación.
+    private static final Map<String, Archivo> ARCHIVOS = new ConcurrentHashMap<>(); // Nombre de archivo -> métricas.
+
+    private Metricas() { // Clase de utilidad: no se crean instancias.
+    }
+
+    // Atributos de una operación en JConsole (latencias en microsegundos).
+    public interface OperacionMXBean {
+        long getCantidad();
+
+        double getMediaUs();
+
+        double getP50Us();
+
+        double getP99Us();
+
+        double getP999Us();
+
+        double getMaximaUs();
+
+        void reiniciar();
+    }
+
+    // Atributos de un archivo de datos en JConsole.
+    public interface ArchivoMXBean {
+        long getBytesLeidos();
+
+        long getBytesEscritos();
+
+        long getLecturas();
+
+        long getEscrituras();
+
+        void reiniciar();
+    }
+
+    // Latencias de una operación.
+    public static final class Operacion implements OperacionMXBean {
+        private final String nombre;
+        private final Histograma latencias = new Histograma(); // En nanosegundos.
+
+        private Operacion(String nombre) {
+            this.nombre = nombre;
+        }
+
+        // Registra una llamada que empezó en 'inicio' (System.nanoTime()) y termina ahora.
+        public void registrarDesde(long inicio) {
+            latencias.registrar(System.nanoTime() - inicio);
+        }
+
+        @Override
+        public long getCantidad() {
+            return latencias.getCantidad();
+        }
+
+        @Override
+        public double getMediaUs() {
+            return latencias.getMedia() / 1_000.0;
+        }
+
+        @Override
+        public double getP50Us() {
+            return latencias.percentil(0.50) / 1_000.0;
+        }
+
+        @Override
+        public double getP99Us() {
+            return latencias.percentil(0.99) / 1_000.0;
+        }
+
+        @Override
+        public double getP999Us() {
+            return latencias.percentil(0.999) / 1_000.0;
+        }
+
+        @Override
+        public double getMaximaUs() {
+            return latencias.getMaximo() / 1_000.0;
+        }
+
+        @Override
+        public void reiniciar() {
+            latencias.reiniciar();
+        }
+
+        // Resumen legible de la operación.
+        @Override
+        public String toString() {
+            return String.format(java.util.Locale.ROOT,
+                    "%s { cantidad=%d, media=%.1f us, p50=%.1f us, p99=%.1f us, p999=%.1f us, maxima=%.1f us }",
+                    nombre, getCantidad(), getMediaUs(), getP50Us(), getP99Us(), getP999Us(), getMaximaUs());
+        }
+    }
+
+    // Bytes leídos y escritos de un archivo de datos.
+    public static final class Archivo implements ArchivoMXBean {
+        private final String nombre;
+        private final LongAdder bytesLeidos = new LongAdder();
+        private final LongAdder bytesEscritos = new LongAdder();
+        private final LongAdder lecturas = new LongAdder();
+        private final LongAdder escrituras = new LongAdder();
+
+        private Archivo(String nombre) {
+            this.nombre = nombre;
+        }
+
+        // Registra una lectura de 'bytes' bytes.
+        public void registrarLectura(long bytes) {
+            lecturas.increment();
+            bytesLeidos.add(bytes);
+        }
+
+        // Registra una escritura de 'bytes' bytes.
+        public void registrarEscritura(long bytes) {
+            escrituras.increment();
+            bytesEscritos.add(bytes);
+        }
+
+        @Override
+        public long getBytesLeidos() {
+            return bytesLeidos.sum();
+        }
+
+        @Override
+        public long getBytesEscritos() {
+            return bytesEscritos.sum();
+        }
+
+        @Override
+        public long getLecturas() {
+            return lecturas.sum();
+        }
+
+        @Override
+        public long getEscrituras() {
+            return escrituras.sum();
+        }
+
+        @Override
+        public void reiniciar() {
+            bytesLeidos.reset();
+            bytesEscritos.reset();
+            lecturas.reset();
+            escrituras.reset();
+        }
+
+        // Resumen legible del archivo.
+        @Override
+        public String toString() {
+            return nombre + " { lecturas=" + getLecturas() + ", bytesLeidos=" + getBytesLeidos() + ", escrituras="
+                    + getEscrituras() + ", bytesEscritos=" + getBytesEscritos() + " }";
+        }
+    }
+
+    // Devuelve la operación con ese nombre (la crea y la publica la primera vez).
+    public static Operacion operacion(String nombre) {
+        return OPERACIONES.computeIfAbsent(nombre, n -> publicar("Operacion", n, new Operacion(n)));
+    }
+
+    // Devuelve las métricas de un archivo de datos, por su nombre (ej. "Libros.txt").
+    public static Archivo archivo(Path path) {
+        return ARCHIVOS.computeIfAbsent(path.getFileName().toString(), n -> publicar("Archivo", n, new Archivo(n)));
+    }
+
+    // Todas las operaciones y archivos medidos, en texto (una línea cada uno).
+    public static List<String> resumen() {
+        List<String> lineas = new ArrayList<>();
+        OPERACIONES.values().forEach(o -> lineas.add(o.toString()));
+        ARCHIVOS.values().forEach(a -> lineas.add(a.toString()));
+        lineas.sort(null);
+        return lineas;
+    }
+
+    // Registra un MBean en el servidor de la plataforma. Si no se puede, la métrica se
+    // sigue contando, solo que no se ve desde JConsole.
+    private static <T> T publicar(String tipo, String nombre, T mbean) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(mbean,
+                    new ObjectName(DOMINIO + ":type=" + tipo + ",name=" + ObjectName.quote(nombre)));
+        } catch (JMException ex) {
+            ex.printStackTrace();
+        }
+        return mbean;
+    }
+
+    // --- Lecturas medidas ---
+
+    // Abre un archivo de texto (UTF-8) para leerlo; al cerrarlo se suman los bytes leídos.
+    // Igual que Files.newBufferedReader, falla con bytes que no son UTF-8 válido.
+    public static BufferedReader abrirLector(Path path) throws IOException {
+        InputStream entrada = new EntradaContada(Files.newInputStream(path), archivo(path));
+        return new BufferedReader(new InputStreamReader(entrada, StandardCharsets.UTF_8.newDecoder()));
+    }
+
+    // Igual que Files.readAllLines(path, UTF_8), sumando los bytes leídos.
+    public static List<String> leerLineas(Path path) throws IOException {
+        List<String> lineas = new ArrayList<>();
+        try (BufferedReader reader = abrirLector(path)) {
+            String linea;
+            while ((linea = reader.readLine()) != null) {
+                lineas.add(linea);
+            }
+        }
+        return lineas;
+    }
+
+    // Igual que Files.readAllBytes, sumando los bytes leídos.
+    public static byte[] leerBytes(Path path) throws IOException {
+        byte[] bytes = Files.readAllBytes(path);
+        archivo(path).registrarLectura(bytes.length);
+        return bytes;
+    }
+
+    // Flujo que cuenta los bytes que pasan y los registra una sola vez, al cerrarse.
+    private static final class EntradaContada extends FilterInputStream {
+        private final Archivo archivo;
+        private long leidos = 0;
+
+        EntradaContada(InputStream entrada, Archivo archivo) {
+            super(entrada);
+            this.archivo = archivo;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                leidos++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                leidos += n;
+            }
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            super.close();
+            if (leidos >= 0) { // Solo la primera vez que se cierra.
+                archivo.registrarLectura(leidos);
+                leidos = -1;
+            }
+        }
+    }
+}
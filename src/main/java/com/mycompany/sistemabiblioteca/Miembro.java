@@ -4,14 +4,18 @@
  */
 package com.mycompany.sistemabiblioteca; // Carpeta donde está organizado nuestro código.
 
-import java.io.BufferedReader; // Para leer archivos de texto.
 import java.io.IOException; // Para manejar errores de archivo.
 import java.nio.file.Files; // Para operar con archivos.
 import java.nio.file.Path; // Para rutas de archivos.
-import java.nio.file.StandardOpenOption; // Para opciones de guardado.
 import java.util.ArrayList; // Para listas dinámicas.
 import java.util.Base64; // Para codificar/decodificar a Base64 (usado en contraseñas).
+import java.util.Collection; // Documentos a buscar de una vez.
+import java.util.HashMap; // Mapa de acceso directo por clave.
+import java.util.LinkedHashMap; // Mapa que conserva el orden de inserción.
 import java.util.List; // Para usar listas.
+import java.util.Map; // Para usar mapas.
+import java.util.stream.IntStream; // Para recorrer las líneas del archivo en paralelo.
+import java.util.stream.Stream; // Para recorrer listados sin copiarlos enteros.
 
 // Esta clase es la base para cualquier persona en el sistema (Admin o Usuario).
 // Contiene la información común y la lógica para el login seguro.
@@ -25,6 +29,13 @@ public class Miembro implements IPersistible {
     protected String apellido; // Apellido del miembro.
     protected String usuario; // Nombre de usuario para iniciar sesión.
     protected String contrasena; // Contraseña, guardada de forma segura (hasheada).
+    protected long version; // Versión del registro en el archivo (0 si todavía no se ha guardado).
+
+    // Latencias de las operaciones de persistencia y del inicio de sesión (ver Metricas).
+    private static final Metricas.Operacion METRICA_GUARDAR = Metricas.operacion("Miembro.guardar");
+    private static final Metricas.Operacion METRICA_ELIMINAR = Metricas.operacion("Miembro.eliminar");
+    private static final Metricas.Operacion METRICA_LOGIN = Metricas.operacion("Miembro.login");
+    private static final Metricas.Operacion METRICA_CARGAR = Metricas.operacion("Miembro.cargarTodosLosMiembros");
 
     public Miembro() { // Constructor vacío.
     }
@@ -123,9 +134,12 @@ public class Miembro implements IPersistible {
 
     // Permite a cualquier miembro cambiar su tipo de documento, nombre y apellido.
     public void cambiarInfoPersonal(byte nuevoTipoDocumento, String nuevoNombre, String nuevoApellido) {
-        this.setTipoDocumento(nuevoTipoDocumento); // Actualiza y guarda el tipo de documento.
-        this.setNombre(nuevoNombre); // Actualiza y guarda el nombre.
-        this.setApellido(nuevoApellido); // Actualiza y guarda el apellido.
+        try (Persistencia.Transaccion tx = Persistencia.begin()) { // Una sola escritura de "Miembros.txt".
+            this.setTipoDocumento(nuevoTipoDocumento); // Actualiza y guarda el tipo de documento.
+            this.setNombre(nuevoNombre); // Actualiza y guarda el nombre.
+            this.setApellido(nuevoApellido); // Actualiza y guarda el apellido.
+            tx.confirmar();
+        }
     }
 
     // Permite a cualquier miembro cambiar su contraseña. Hashea la nueva contraseña
@@ -147,99 +161,242 @@ public class Miembro implements IPersistible {
         return PathManager.resolverRutaArchivo("Miembros.txt");
     }
 
+    @Override
+    public long getVersion() {
+        return version;
+    }
+
     // Guarda el miembro en el archivo. Es un método seguro (synchronized).
     @Override
     public synchronized void guardar() {
-        guardarInterno(null, this.numeroDocumento); // Llama al método interno para guardar.
+        long inicio = System.nanoTime();
+        try {
+            guardarInterno(null, this.numeroDocumento); // Llama al método interno para guardar.
+        } finally {
+            METRICA_GUARDAR.registrarDesde(inicio);
+        }
     }
 
     // Método interno para guardar/actualizar/eliminar un miembro en el archivo.
     // Maneja si el nombre de usuario o número de documento cambiaron, o si el
     // miembro se va a eliminar.
+    // Lanza ConflictoVersionException si otro proceso cambió el registro después de leerlo.
     protected synchronized void guardarInterno(String oldUsuario, long oldNumeroDocumento) {
+        if (Persistencia.diferir(this, oldUsuario, oldNumeroDocumento)) { // Dentro de una transacción se escribe al
+                                                                          // cerrarla.
+            return;
+        }
+        Map<Miembro, Object[]> uno = new LinkedHashMap<>();
+        uno.put(this, new Object[] { oldUsuario, oldNumeroDocumento });
+        guardarLote(uno);
+    }
+
+    // Guarda varios miembros leyendo y escribiendo "Miembros.txt" una sola vez, con el
+    // bloqueo del archivo tomado (un solo escritor entre hilos y entre procesos).
+    // Para cada miembro se indican sus claves anteriores: {usuarioAnterior, documentoAnterior}.
+    static void guardarLote(Map<Miembro, Object[]> cambios) {
         try {
-            Path path = resolverRutaMiembros();
-            List<String> lines = new ArrayList<>();
-            if (Files.exists(path)) { // Si el archivo existe, lee todas sus líneas.
-                lines = new ArrayList<>(Files.readAllLines(path, java.nio.charset.StandardCharsets.UTF_8));
-            }
+            BloqueoArchivo.de(resolverRutaMiembros()).ejecutar(() -> {
+                prepararLote(cambios).escribir();
+                return null;
+            });
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        }
+    }
 
-            // Limpia las líneas vacías o nulas.
-            List<String> normalized = new ArrayList<>();
-            for (String l : lines) {
-                if (l != null && !l.trim().isEmpty())
-                    normalized.add(l);
+    // Primera parte de guardarLote() (se llama con el bloqueo del archivo tomado): lee el
+    // archivo y aplica los cambios en memoria, verificando las versiones. No escribe
+    // nada; devuelve la escritura pendiente.
+    static Persistencia.Escritura prepararLote(Map<Miembro, Object[]> cambios) throws IOException {
+        MultasDiarias.getInstancia().resolverPendiente(); // Antes de cambiar versiones (ver MultasDiarias).
+        Path path = resolverRutaMiembros();
+        List<String> lines = leerLineasMiembros(path);
+        Map<Miembro, Long> versiones = new LinkedHashMap<>(); // Versión que queda escrita para cada miembro.
+        for (Map.Entry<Miembro, Object[]> cambio : cambios.entrySet()) {
+            Miembro miembro = cambio.getKey();
+            Object[] claves = cambio.getValue();
+            String oldUsuario = claves.length > 0 ? (String) claves[0] : null;
+            long oldNumeroDocumento = claves.length > 1 && claves[1] != null ? (Long) claves[1]
+                    : miembro.numeroDocumento;
+            versiones.put(miembro, miembro.aplicarCambio(lines, oldUsuario, oldNumeroDocumento));
+        }
+        return () -> {
+            escribirLineasMiembros(path, lines);
+            for (Map.Entry<Miembro, Long> escrita : versiones.entrySet()) {
+                escrita.getKey().version = escrita.getValue();
             }
-            lines = normalized;
-
-            boolean found = false; // Bandera para saber si encontramos el miembro.
-            for (int i = 0; i < lines.size(); i++) { // Recorre todas las líneas.
-                String line = lines.get(i);
-                String[] parts = line.split("\\\\");
-                if (parts.length >= 7) {
-                    String usuarioLinea = parts[5].trim(); // Nombre de usuario de la línea.
-                    long numeroDocumentoLinea = -1;
-                    try {
-                        numeroDocumentoLinea = Long.parseLong(parts[0].trim()); // Número de documento de la línea.
-                    } catch (NumberFormatException ex) {
-                        // Ignora errores de conversión de número.
-                    }
-                    boolean match = false; // Bandera para indicar si la línea actual coincide.
-                    if (oldUsuario != null && !oldUsuario.trim().isEmpty()) { // Si hay un nombre de usuario antiguo
-                                                                              // (posible cambio o eliminación).
-                        match = usuarioLinea.equals(oldUsuario.trim()); // Busca por el nombre de usuario antiguo.
-                    } else if (this.usuario != null && !this.usuario.trim().isEmpty()) { // Si no hay antiguo, pero sí
-                                                                                         // un nombre de usuario actual.
-                        match = usuarioLinea.equals(this.usuario.trim()); // Busca por el nombre de usuario actual.
-                        // También considera un cambio si el número de documento coincide pero el
-                        // usuario es diferente (caso de cambio de solo documento).
-                        match = match || (numeroDocumentoLinea == this.numeroDocumento
-                                && !usuarioLinea.equals(this.usuario.trim()));
-                    } else { // Si el usuario actual es nulo (señal de eliminación).
-                        match = (numeroDocumentoLinea == oldNumeroDocumento); // Busca por el número de documento
-                                                                              // antiguo.
-                    }
+        };
+    }
+
+    // Comprueba que cada miembro sigue en el archivo con la versión que tenía al leerlo,
+    // sin escribir nada (se llama con el bloqueo de "Miembros.txt" tomado, así el índice
+    // está al día). Lanza ConflictoVersionException si alguno cambió o ya no está.
+    static void verificarVersiones(Collection<Miembro> miembros) {
+        LectorCampos lector = new LectorCampos();
+        for (Miembro miembro : miembros) {
+            String linea = IndiceMiembros.getInstancia().lineaPorDocumento(miembro.numeroDocumento);
+            long enArchivo = linea == null ? ConflictoVersionException.NO_EXISTE
+                    : versionDeLinea(lector.reiniciar(linea));
+            if (enArchivo != miembro.version) {
+                throw new ConflictoVersionException("Miembros.txt", miembro.usuario, miembro.version, enArchivo);
+            }
+        }
+    }
 
-                    if (match) { // Si la línea coincide con el miembro que buscamos.
-                        if (this.usuario == null || this.usuario.trim().isEmpty()) { // Si el usuario actual es nulo, se
-                                                                                     // elimina.
-                            lines.remove(i);
-                            i--; // Ajusta el índice.
-                        } else {
-                            lines.set(i, this.construirLinea()); // Si no, actualiza la línea.
-                        }
-                        found = true;
-                        break; // Sale del bucle.
-                    }
-                }
+    // Suma a la deuda de varios usuarios ('montos': documento -> monto) leyendo
+    // "Miembros.txt" una sola vez (se llama con su bloqueo tomado). Las líneas se
+    // recorren en paralelo y solo se vuelven a armar las de esos usuarios; los documentos
+    // que no son de un Usuario se ignoran. En 'versiones' deja la versión que tenía cada
+    // usuario antes del cambio (debe admitir escrituras desde varios hilos, por ejemplo
+    // un ConcurrentHashMap). No escribe nada; devuelve la escritura pendiente.
+    // A diferencia de prepararLote(), no compara versiones: el monto se suma a la deuda
+    // que está en el archivo en este momento.
+    static Persistencia.Escritura prepararDeudas(Map<Long, Double> montos, Map<Long, Long> versiones)
+            throws IOException {
+        Path path = resolverRutaMiembros();
+        List<String> lines = leerLineasMiembros(path);
+        ThreadLocal<LectorCampos> lectores = ThreadLocal.withInitial(LectorCampos::new); // Uno por hilo.
+        IntStream.range(0, lines.size()).parallel().forEach(i -> {
+            LectorCampos lector = lectores.get().reiniciar(lines.get(i));
+            Double monto;
+            try {
+                monto = montos.get(lector.siguienteLong());
+            } catch (NumberFormatException ex) {
+                return; // Línea sin documento: no es de nadie.
             }
+            if (monto == null) {
+                return;
+            }
+            lector.volverAlInicio();
+            Miembro miembro = parsearLinea(lector);
+            if (miembro instanceof Usuario) {
+                ((Usuario) miembro).acumularDeuda(monto);
+                versiones.put(miembro.numeroDocumento, miembro.version);
+                lines.set(i, miembro.construirLineaConVersion(miembro.version + 1)); // Cada hilo toca solo sus líneas.
+            }
+        });
+        return () -> escribirLineasMiembros(path, lines);
+    }
+
+    // Lee las líneas no vacías de "Miembros.txt" (lista vacía si no existe).
+    private static List<String> leerLineasMiembros(Path path) throws IOException {
+        List<String> lines = new ArrayList<>();
+        if (Files.exists(path)) { // Si el archivo existe, lee todas sus líneas.
+            lines = new ArrayList<>(Metricas.leerLineas(path));
+        }
+
+        // Limpia las líneas vacías o nulas.
+        List<String> normalized = new ArrayList<>();
+        for (String l : lines) {
+            if (l != null && !l.trim().isEmpty())
+                normalized.add(l);
+        }
+        return normalized;
+    }
+
+    // Filtra líneas nulas o vacías y reescribe el archivo (con su bloqueo tomado).
+    private static void escribirLineasMiembros(Path path, List<String> lines) throws IOException {
+        List<String> toWrite = new ArrayList<>();
+        for (String l : lines) {
+            if (l != null && !l.trim().isEmpty())
+                toWrite.add(l);
+        }
+        EscrituraAtomica.reemplazar(path, toWrite); // Temporal + renombrado: nunca queda a medias.
+        long generacion = BloqueoArchivo.de(path).marcarCambio(); // Avisa a los demás procesos.
+        IndiceMiembros.getInstancia().actualizar(toWrite, generacion); // Mantiene el índice igual al archivo.
+    }
+
+    // Versión guardada en la línea actual del lector (1 si la línea es de antes de las
+    // versiones). Es el último campo: el 8.º de un Admin o el 11.º de un Usuario.
+    private static long versionDeLinea(LectorCampos lector) {
+        try {
+            lector.volverAlInicio();
+            lector.saltarCampo(); // Documento.
+            lector.saltarCampo(); // Tipo de documento.
+            byte rol = lector.siguienteByte();
+            return lector.longEnCampo(rol == 0 ? 7 : 10, 1);
+        } catch (NumberFormatException ex) {
+            return 1;
+        }
+    }
 
-            if (!found) { // Si el miembro no se encontró (es nuevo).
-                if (this.usuario != null && !this.usuario.trim().isEmpty()) { // Y si el usuario tiene un nombre válido.
-                    lines.add(this.construirLinea()); // Añade el nuevo miembro al final.
+    // Aplica el cambio de este miembro sobre las líneas del archivo (en memoria):
+    // actualiza su línea, la elimina o la añade al final si es nuevo.
+    // Devuelve la versión con la que queda escrito. Si la versión de la línea no es la
+    // de este objeto (otro proceso lo cambió), lanza ConflictoVersionException.
+    private long aplicarCambio(List<String> lines, String oldUsuario, long oldNumeroDocumento) {
+        LectorCampos lector = new LectorCampos(); // Lee los campos de cada línea.
+        for (int i = 0; i < lines.size(); i++) { // Recorre todas las líneas.
+            lector.reiniciar(lines.get(i));
+            if (lector.contarCampos() >= 7) {
+                long numeroDocumentoLinea = -1;
+                try {
+                    numeroDocumentoLinea = lector.siguienteLong(); // Número de documento de la línea.
+                } catch (NumberFormatException ex) {
+                    // Ignora errores de conversión de número.
+                }
+                for (int campo = 1; campo < 5; campo++) { // Salta tipo, rol, nombre y apellido.
+                    lector.saltarCampo();
+                }
+                String usuarioLinea = lector.siguienteTexto(); // Nombre de usuario de la línea.
+                boolean match = false; // Bandera para indicar si la línea actual coincide.
+                if (oldUsuario != null && !oldUsuario.trim().isEmpty()) { // Si hay un nombre de usuario antiguo
+                                                                          // (posible cambio o eliminación).
+                    match = usuarioLinea.equals(oldUsuario.trim()); // Busca por el nombre de usuario antiguo.
+                } else if (this.usuario != null && !this.usuario.trim().isEmpty()) { // Si no hay antiguo, pero sí
+                                                                                     // un nombre de usuario actual.
+                    match = usuarioLinea.equals(this.usuario.trim()); // Busca por el nombre de usuario actual.
+                    // También considera un cambio si el número de documento coincide pero el
+                    // usuario es diferente (caso de cambio de solo documento).
+                    match = match || (numeroDocumentoLinea == this.numeroDocumento
+                            && !usuarioLinea.equals(this.usuario.trim()));
+                } else { // Si el usuario actual es nulo (señal de eliminación).
+                    match = (numeroDocumentoLinea == oldNumeroDocumento); // Busca por el número de documento
+                                                                          // antiguo.
                 }
-            }
 
-            // Filtra líneas nulas o vacías y reescribe el archivo.
-            List<String> toWrite = new ArrayList<>();
-            for (String l : lines) {
-                if (l != null && !l.trim().isEmpty())
-                    toWrite.add(l);
+                if (match) { // Si la línea coincide con el miembro que buscamos.
+                    long enArchivo = versionDeLinea(lector);
+                    if (enArchivo != this.version) { // Otro proceso la cambió (o es "nuevo" y ya existía).
+                        throw new ConflictoVersionException("Miembros.txt", usuarioLinea, this.version, enArchivo);
+                    }
+                    if (this.usuario == null || this.usuario.trim().isEmpty()) { // Si el usuario actual es nulo, se
+                                                                                 // elimina.
+                        lines.remove(i);
+                        return this.version;
+                    }
+                    lines.set(i, this.construirLineaConVersion(enArchivo + 1)); // Si no, actualiza la línea.
+                    return enArchivo + 1;
+                }
             }
-            Files.write(path, toWrite, java.nio.charset.StandardCharsets.UTF_8, StandardOpenOption.CREATE,
-                    StandardOpenOption.TRUNCATE_EXISTING);
+        }
 
-        } catch (IOException ex) {
-            ex.printStackTrace();
+        // El miembro no se encontró.
+        if (this.version != 0) { // Ya estaba guardado: otro proceso lo eliminó.
+            String clave = oldUsuario != null && !oldUsuario.trim().isEmpty() ? oldUsuario.trim()
+                    : this.usuario != null ? this.usuario.trim() : String.valueOf(oldNumeroDocumento);
+            throw new ConflictoVersionException("Miembros.txt", clave, this.version,
+                    ConflictoVersionException.NO_EXISTE);
         }
+        if (this.usuario != null && !this.usuario.trim().isEmpty()) { // Es nuevo y tiene un nombre válido.
+            lines.add(this.construirLineaConVersion(1)); // Añade el nuevo miembro al final.
+            return 1;
+        }
+        return 0;
     }
 
     // Elimina el miembro del archivo. Es un método seguro (synchronized).
     @Override
     public synchronized void eliminar() {
-        String originalUsuario = this.usuario; // Guarda el usuario original.
-        this.usuario = null; // Marca el usuario como nulo para que sea eliminado.
-        guardarInterno(originalUsuario, this.numeroDocumento); // Llama al método interno para eliminarlo.
+        long inicio = System.nanoTime();
+        try {
+            String originalUsuario = this.usuario; // Guarda el usuario original.
+            this.usuario = null; // Marca el usuario como nulo para que sea eliminado.
+            guardarInterno(originalUsuario, this.numeroDocumento); // Llama al método interno para eliminarlo.
+        } finally {
+            METRICA_ELIMINAR.registrarDesde(inicio);
+        }
     }
 
     // Convierte el objeto Miembro a una línea de texto para guardarlo en el
@@ -258,20 +415,26 @@ public class Miembro implements IPersistible {
     }
 
     // Intenta iniciar sesión con el nombre de usuario y contraseña dados.
+    // La línea del usuario se obtiene del índice en memoria (una sola consulta).
+    // Lanza SistemaOcupadoException si la contraseña no se pudo verificar por saturación.
     public String login(String usuarioIngresado, String contrasenaIngresada) {
-        Path path = resolverRutaMiembros();
-        if (!Files.exists(path)) { // Si el archivo de miembros no existe.
-            System.err.println("Advertencia: Archivo Miembros.txt no encontrado en " + path.toAbsolutePath());
-            return ""; // Falla el login.
-        }
+        long inicio = System.nanoTime();
+        try {
+            Path path = resolverRutaMiembros();
+            if (!Files.exists(path)) { // Si el archivo de miembros no existe.
+                System.err.println("Advertencia: Archivo Miembros.txt no encontrado en " + path.toAbsolutePath());
+                return ""; // Falla el login.
+            }
 
-        try (BufferedReader reader = Files.newBufferedReader(path, java.nio.charset.StandardCharsets.UTF_8)) {
-            String linea;
-            while ((linea = reader.readLine()) != null) { // Lee línea por línea.
-                String[] parts = linea.split("\\\\");
-                if (parts.length >= 7) {
-                    String usuario = parts[5].trim(); // Nombre de usuario guardado.
-                    String contrasenaAlmacenada = parts[6].trim(); // Contraseña hasheada guardada.
+            String linea = IndiceMiembros.getInstancia().lineaPorUsuario(usuarioIngresado);
+            if (linea != null) {
+                LectorCampos lector = new LectorCampos().reiniciar(linea);
+                if (lector.contarCampos() >= 7) {
+                    for (int campo = 0; campo < 5; campo++) { // Salta hasta el nombre de usuario.
+                        lector.saltarCampo();
+                    }
+                    String usuario = lector.siguienteTexto(); // Nombre de usuario guardado.
+                    String contrasenaAlmacenada = lector.siguienteTexto(); // Contraseña hasheada guardada.
                     if (usuario.equals(usuarioIngresado.trim()) // Compara el nombre de usuario.
                             && verificarContrasena(contrasenaIngresada, contrasenaAlmacenada)) { // Verifica la
                                                                                                  // contraseña.
@@ -279,97 +442,194 @@ public class Miembro implements IPersistible {
                     }
                 }
             }
-        } catch (IOException e) {
-            e.printStackTrace();
+            return ""; // Si no se encuentra, login falla.
+        } finally {
+            METRICA_LOGIN.registrarDesde(inicio);
         }
-        return ""; // Si no se encuentra, login falla.
+    }
+
+    // Emite un token de sesión de vida corta para este miembro (después de un login
+    // correcto). Devuelve 'null' si los tokens de sesión están desactivados.
+    public String emitirTokenSesion() {
+        return VerificadorContrasenas.getInstancia().emitirToken(this.usuario, this.contrasena);
+    }
+
+    // Inicia sesión con un token emitido antes, sin volver a calcular PBKDF2.
+    // Devuelve la línea del miembro, o "" si el token no es válido.
+    public String loginConToken(String usuarioIngresado, String token) {
+        String linea = IndiceMiembros.getInstancia().lineaPorUsuario(usuarioIngresado);
+        if (linea != null) {
+            LectorCampos lector = new LectorCampos().reiniciar(linea);
+            if (lector.contarCampos() >= 7) {
+                for (int campo = 0; campo < 5; campo++) { // Salta hasta el nombre de usuario.
+                    lector.saltarCampo();
+                }
+                String usuario = lector.siguienteTexto();
+                String contrasenaAlmacenada = lector.siguienteTexto();
+                if (usuario.equals(usuarioIngresado.trim())
+                        && VerificadorContrasenas.getInstancia().validarToken(token, usuario, contrasenaAlmacenada)) {
+                    return linea;
+                }
+            }
+        }
+        return "";
     }
 
     // --- Metodos estaticos para cargar miembros ---
-    // Carga todos los miembros (Admins y Usuarios) del archivo "Miembros.txt".
+    // Carga todos los miembros (Admins y Usuarios) de "Miembros.txt", en el orden del archivo.
+    // Las líneas se toman del índice en memoria, que lee el archivo una sola vez.
     public static List<Miembro> cargarTodosLosMiembros() {
-        List<Miembro> miembros = new ArrayList<>(); // Lista para guardar los miembros.
-        Path path = resolverRutaMiembros();
-        if (!Files.exists(path)) { // Si el archivo no existe.
-            return miembros;
+        long inicio = System.nanoTime();
+        try {
+            List<Miembro> miembros = new ArrayList<>(); // Lista para guardar los miembros.
+            LectorCampos lector = new LectorCampos(); // Un solo lector para todas las líneas.
+            for (String linea : IndiceMiembros.getInstancia().todasLasLineas()) {
+                Miembro miembro = parsearLinea(lector.reiniciar(linea));
+                if (miembro != null) {
+                    miembros.add(miembro);
+                }
+            }
+            return miembros; // Devuelve la lista de todos los miembros.
+        } finally {
+            METRICA_CARGAR.registrarDesde(inicio);
         }
+    }
 
-        try (BufferedReader reader = Files.newBufferedReader(path, java.nio.charset.StandardCharsets.UTF_8)) {
-            String linea;
-            while ((linea = reader.readLine()) != null) { // Lee línea por línea.
-                String[] parts = linea.split("\\\\");
-                if (parts.length >= 7) {
-                    try {
-                        long numeroDocumento = Long.parseLong(parts[0].trim());
-                        byte tipoDocumento = Byte.parseByte(parts[1].trim());
-                        byte rol = Byte.parseByte(parts[2].trim());
-                        String nombre = parts[3].trim();
-                        String apellido = parts[4].trim();
-                        String usuario = parts[5].trim();
-                        String contrasena = parts[6].trim();
-
-                        if (rol == 0) { // Si el rol es 0, es un Admin.
-                            miembros.add(new Admin(tipoDocumento, numeroDocumento, rol, nombre, apellido, usuario,
-                                    contrasena)); // Crea un objeto Admin.
-                        } else { // Si el rol es diferente de 0, es un Usuario.
-                            double deuda = 0.0;
-                            String sedeUniversidad = "";
-                            String carrera = "";
-                            if (parts.length >= 10) { // Si la línea tiene datos adicionales de Usuario.
-                                try {
-                                    deuda = Double.parseDouble(parts[7].trim().replace(',', '.')); // Parsea la deuda
-                                                                                                   // (cambia ',' por
-                                                                                                   // '.').
-                                    sedeUniversidad = parts[8].trim();
-                                    carrera = parts[9].trim();
-                                } catch (NumberFormatException e) {
-                                    System.err.println("Error de parseo en campos de Usuario en linea: " + linea + " - "
-                                            + e.getMessage()); // Error si los datos de Usuario no son válidos.
-                                }
-                            }
-                            miembros.add(new Usuario(tipoDocumento, numeroDocumento, rol, nombre, apellido, usuario,
-                                    contrasena, deuda,
-                                    sedeUniversidad, carrera)); // Crea un objeto Usuario.
+    // Devuelve una página de miembros, en el orden del archivo, empezando después de
+    // 'cursor' (null para la primera página). Solo convierte las líneas de la página.
+    public static Pagina<Miembro> paginaDeMiembros(String cursor, int limite) {
+        Pagina<String> lineas = IndiceMiembros.getInstancia().paginaDeLineas(cursor, limite);
+        List<Miembro> miembros = new ArrayList<>(lineas.getElementos().size());
+        LectorCampos lector = new LectorCampos();
+        for (String linea : lineas.getElementos()) {
+            Miembro miembro = parsearLinea(lector.reiniciar(linea));
+            if (miembro != null) {
+                miembros.add(miembro);
+            }
+        }
+        return new Pagina<>(miembros, lineas.getSiguiente());
+    }
+
+    // Recorre todos los miembros, en el orden del archivo, una página a la vez.
+    public static Stream<Miembro> recorrerTodosLosMiembros() {
+        return Pagina.recorrer(cursor -> paginaDeMiembros(cursor, Pagina.LIMITE_POR_DEFECTO));
+    }
+
+    // Convierte una línea de "Miembros.txt" en un Admin o un Usuario.
+    // Devuelve 'null' si la línea no tiene el formato esperado.
+    // La contraseña de la línea ya está hasheada, así que se copia tal cual (no se vuelve a hashear).
+    static Miembro parsearLinea(String linea) {
+        return parsearLinea(new LectorCampos().reiniciar(linea));
+    }
+
+    // Convierte la línea actual del lector en un Admin o un Usuario (ver parsearLinea(String)).
+    static Miembro parsearLinea(LectorCampos lector) {
+        int campos = lector.contarCampos();
+        if (campos >= 7) {
+            try {
+                long numeroDocumento = lector.siguienteLong();
+                byte tipoDocumento = lector.siguienteByte();
+                byte rol = lector.siguienteByte();
+                String nombre = lector.siguienteTexto();
+                String apellido = lector.siguienteTexto();
+                String usuario = lector.siguienteTexto();
+                String contrasena = lector.siguienteTexto();
+
+                if (rol == 0) { // Si el rol es 0, es un Admin.
+                    Admin admin = new Admin(); // Crea un objeto Admin.
+                    admin.cargarCampos(tipoDocumento, numeroDocumento, rol, nombre, apellido, usuario, contrasena);
+                    admin.version = campos >= 8 ? lector.siguienteLong() : 1; // La versión va al final (sin ella, 1).
+                    return admin;
+                } else { // Si el rol es diferente de 0, es un Usuario.
+                    double deuda = 0.0;
+                    String sedeUniversidad = "";
+                    String carrera = "";
+                    if (campos >= 10) { // Si la línea tiene datos adicionales de Usuario.
+                        try {
+                            deuda = lector.siguienteDouble(); // Parsea la deuda (acepta ',' o '.').
+                            sedeUniversidad = lector.siguienteTexto();
+                            carrera = lector.siguienteTexto();
+                        } catch (NumberFormatException e) {
+                            System.err.println("Error de parseo en campos de Usuario en linea: " + lector.lineaActual()
+                                    + " - " + e.getMessage()); // Error si los datos de Usuario no son válidos.
                         }
-                    } catch (NumberFormatException e) {
-                        System.err.println("Error de parseo en linea de miembro: " + linea + " - " + e.getMessage()); // Error
-                                                                                                                      // si
-                                                                                                                      // los
-                                                                                                                      // datos
-                                                                                                                      // de
-                                                                                                                      // Miembro
-                                                                                                                      // no
-                                                                                                                      // son
-                                                                                                                      // válidos.
                     }
+                    Usuario user = new Usuario(); // Crea un objeto Usuario.
+                    user.cargarCampos(tipoDocumento, numeroDocumento, rol, nombre, apellido, usuario, contrasena);
+                    user.cargarCamposUsuario(deuda, sedeUniversidad, carrera);
+                    user.version = lector.longEnCampo(10, 1); // La versión va al final (sin ella, 1).
+                    return user;
                 }
+            } catch (NumberFormatException e) {
+                System.err.println("Error de parseo en linea de miembro: " + lector.lineaActual() + " - "
+                        + e.getMessage()); // Error
+                                                                                                              // si los
+                                                                                                              // datos
+                                                                                                              // de
+                                                                                                              // Miembro
+                                                                                                              // no son
+                                                                                                              // válidos.
             }
-        } catch (IOException e) {
-            e.printStackTrace();
         }
-        return miembros; // Devuelve la lista de todos los miembros.
+        return null;
     }
 
-    // Busca un miembro por su nombre de usuario.
-    public static Miembro encontrarMiembroPorUsuario(String username) {
-        List<Miembro> allMembers = cargarTodosLosMiembros();
-        for (Miembro miembro : allMembers) {
-            if (miembro.getUsuario().equalsIgnoreCase(username.trim())) { // Compara el nombre de usuario.
-                return miembro; // Devuelve el miembro si lo encuentra.
-            }
+    // Copia los datos leídos del archivo en este objeto, sin pasar por los setters
+    // (que guardarían) ni por el constructor (que hashearía de nuevo la contraseña).
+    protected void cargarCampos(byte tipoDocumento, long numeroDocumento, byte rol, String nombre, String apellido,
+            String usuario, String contrasenaHasheada) {
+        this.tipoDocumento = tipoDocumento;
+        this.numeroDocumento = numeroDocumento;
+        this.rol = rol;
+        this.nombre = nombre;
+        this.apellido = apellido;
+        this.usuario = usuario;
+        this.contrasena = contrasenaHasheada;
+    }
+
+    // Vuelve a leer este miembro del archivo (datos y versión), descartando los cambios
+    // en memoria. Se usa para reintentar una operación después de un
+    // ConflictoVersionException. Devuelve 'false' si el miembro ya no existe.
+    public synchronized boolean recargar() {
+        Miembro actual = encontrarMiembroPorNumeroDocumento(numeroDocumento);
+        if (actual == null || actual.rol == 0 != (rol == 0)) {
+            return false; // Ya no está (o cambió de Admin a Usuario): no se puede recargar en este objeto.
+        }
+        cargarCampos(actual.tipoDocumento, actual.numeroDocumento, actual.rol, actual.nombre, actual.apellido,
+                actual.usuario, actual.contrasena);
+        version = actual.version;
+        if (this instanceof Usuario && actual instanceof Usuario) {
+            Usuario leido = (Usuario) actual;
+            ((Usuario) this).cargarCamposUsuario(leido.getDeuda(), leido.getSedeUniversidad(), leido.getCarrera());
         }
-        return null; // Si no lo encuentra.
+        return true;
+    }
+
+    // Busca un miembro por su nombre de usuario (sin importar mayúsculas).
+    public static Miembro encontrarMiembroPorUsuario(String username) {
+        String linea = IndiceMiembros.getInstancia().lineaPorUsuario(username); // Consulta directa al índice.
+        return linea != null ? parsearLinea(linea) : null; // Si no lo encuentra, devuelve 'null'.
     }
 
     // Busca un miembro por su número de documento.
     public static Miembro encontrarMiembroPorNumeroDocumento(long numeroDocumento) {
-        List<Miembro> allMembers = cargarTodosLosMiembros();
-        for (Miembro miembro : allMembers) {
-            if (miembro.getNumeroDocumento() == numeroDocumento) { // Compara el número de documento.
-                return miembro; // Devuelve el miembro si lo encuentra.
+        String linea = IndiceMiembros.getInstancia().lineaPorDocumento(numeroDocumento); // Consulta directa al índice.
+        return linea != null ? parsearLinea(linea) : null; // Si no lo encuentra, devuelve 'null'.
+    }
+
+    // Busca varios miembros por número de documento con una sola consulta al índice
+    // (la usan los reportes de préstamos). Los que no existen no aparecen en el mapa.
+    public static Map<Long, Miembro> encontrarMiembrosPorNumeroDocumento(Collection<Long> numerosDocumento) {
+        Map<Long, String> lineas = IndiceMiembros.getInstancia().lineasPorDocumento(numerosDocumento);
+        Map<Long, Miembro> miembros = new HashMap<>(lineas.size() * 2);
+        LectorCampos lector = new LectorCampos(); // Un solo lector para todas las líneas.
+        for (Map.Entry<Long, String> linea : lineas.entrySet()) {
+            Miembro miembro = parsearLinea(lector.reiniciar(linea.getValue()));
+            if (miembro != null) {
+                miembros.put(linea.getKey(), miembro);
             }
         }
-        return null; // Si no lo encuentra.
+        return miembros;
     }
 
     // --- Helpers para hashing/verificacion PBKDF2 ---
@@ -401,8 +661,14 @@ public class Miembro implements IPersistible {
     }
 
     // Verifica si la contraseña ingresada coincide con la guardada (hasheada).
-    // Espera que 'stored' esté en el formato iteraciones:saltBase64:hashBase64.
+    // El cálculo se hace en el grupo de hilos de VerificadorContrasenas.
     private boolean verificarContrasena(String password, String stored) {
+        return VerificadorContrasenas.getInstancia().verificar(password, stored);
+    }
+
+    // Compara una contraseña con la guardada (calcula PBKDF2 en el hilo actual).
+    // Espera que 'stored' esté en el formato iteraciones:saltBase64:hashBase64.
+    static boolean compararContrasena(String password, String stored) {
         try {
             String[] parts = stored.split(":"); // Divide la contraseña guardada en partes.
             if (parts.length != 3) // Si no tiene 3 partes, el formato es incorrecto.
@@ -432,12 +698,21 @@ public class Miembro implements IPersistible {
         }
     }
 
+    // Cada hilo reutiliza su propia fábrica de PBKDF2 (crearla en cada intento es costoso
+    // y la fábrica no es segura para usarla desde varios hilos a la vez).
+    private static final ThreadLocal<javax.crypto.SecretKeyFactory> FABRICA_PBKDF2 = ThreadLocal.withInitial(() -> {
+        try {
+            return javax.crypto.SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256");
+        } catch (java.security.NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    });
+
     // Implementación del algoritmo PBKDF2 para generar el hash de la contraseña.
     private static byte[] pbkdf2(char[] password, byte[] salt, int iterations, int keyLength) {
         try {
             javax.crypto.spec.PBEKeySpec spec = new javax.crypto.spec.PBEKeySpec(password, salt, iterations, keyLength);
-            javax.crypto.SecretKeyFactory skf = javax.crypto.SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256");
-            return skf.generateSecret(spec).getEncoded(); // Genera y devuelve el hash como bytes.
+            return FABRICA_PBKDF2.get().generateSecret(spec).getEncoded(); // Genera y devuelve el hash como bytes.
         } catch (Exception ex) {
             ex.printStackTrace();
             return null;
@@ -0,0 +1,289 @@
+package com.mycompany.sistemabiblioteca; // Carpeta donde está organizado nuestro código.
+
+import java.io.IOException; // Para manejar errores al trabajar con archivos.
+import java.nio.file.Files; // Para operar con archivos.
+import java.nio.file.Path; // Para rutas de archivos.
+import java.time.Duration; // Tiempo que falta para la próxima ejecución.
+import java.time.LocalDateTime; // Momento actual, para programar la próxima ejecución.
+import java.time.LocalTime; // Hora del día de la ejecución diaria.
+import java.util.ArrayList; // Para listas dinámicas.
+import java.util.HashMap; // Mapa de acceso directo por clave.
+import java.util.List; // Para usar listas.
+import java.util.Map; // Para usar mapas.
+import java.util.concurrent.ConcurrentHashMap; // Mapa que admite escrituras desde varios hilos.
+import java.util.concurrent.Executors; // Para crear el hilo de la ejecución diaria.
+import java.util.concurrent.ScheduledExecutorService; // Para programar la ejecución diaria.
+import java.util.concurrent.TimeUnit; // Unidad de la espera hasta la próxima ejecución.
+import java.util.stream.Collectors; // Para sumar los montos de cada miembro.
+
+// Esta clase suma cada día a la deuda de los usuarios las multas de sus préstamos
+// vencidos que siguen activos. Antes la multa se cobraba solo al devolver el libro (ver
+// Biblioteca.multar): un usuario con un libro muy atrasado no tenía deuda y podía seguir
+// pidiendo prestado.
+// - Cada ejecución cobra, por cada préstamo activo vencido, los días de retraso desde el
+//   último día ya cobrado (o desde su fecha de devolución estimada) hasta el día pedido.
+//   Los préstamos salen del índice por fecha de vencimiento (IndicePrestamos.vencidos),
+//   los montos se suman por miembro en paralelo y "Miembros.txt" se escribe una sola vez
+//   (Miembro.prepararDeudas).
+// - "MultasDiarias.txt" guarda el último día cobrado: repetir la ejecución del mismo día
+//   no cobra nada, y si se saltó algún día, la siguiente cobra también los que faltan.
+//   Al devolver un libro, Biblioteca.devolverLibro cobra solo los días que faltan.
+// - Antes de escribir "Miembros.txt" se anota en "MultasDiarias.txt" la ejecución en
+//   curso con la versión de cada usuario que va a cambiar. Si el programa se corta, la
+//   siguiente consulta mira esas versiones para saber si la escritura llegó a hacerse
+//   (ver leerEstado) y deja el último día cobrado donde corresponde. Para que esas
+//   versiones sigan diciendo algo, cualquier otra escritura de "Miembros.txt" resuelve
+//   antes la ejecución pendiente (Miembro.prepararLote llama a resolverPendiente).
+// Mientras dura una ejecución se tienen los bloqueos de "Miembros.txt",
+// "LibroPrestado.txt" y "MultasDiarias.txt": préstamos, devoluciones y cambios de
+// miembros esperan a que termine.
+public class MultasDiarias {
+
+    private static final MultasDiarias INSTANCIA = new MultasDiarias(); // Única instancia del proceso.
+    private static final LocalTime HORA_EJECUCION = LocalTime.of(0, 5); // Hora de la ejecución diaria.
+    private static final String HECHO = "HECHO"; // Estado: la última ejecución terminó.
+    private static final String EN_CURSO = "EN_CURSO"; // Estado: una ejecución escribía "Miembros.txt".
+
+    private int cobradoHasta = Fecha.SIN_FECHA; // Último día cuyas multas ya se sumaron.
+    private boolean cargado = false; // Indica si ya se leyó el archivo.
+    private long generacionVista = 0; // Contador de cambios del archivo al leerlo o escribirlo.
+    private ScheduledExecutorService programador; // Hilo de la ejecución diaria (null si no se programó).
+
+    private MultasDiarias() {
+    }
+
+    // Devuelve el acumulador compartido.
+    public static MultasDiarias getInstancia() {
+        return INSTANCIA;
+    }
+
+    // Ruta de "MultasDiarias.txt".
+    static Path resolverRutaMultas() {
+        return PathManager.resolverRutaArchivo("MultasDiarias.txt");
+    }
+
+    // Devuelve el último día cuyas multas ya se sumaron a la deuda (Fecha.SIN_FECHA si
+    // nunca se ejecutó). Lo normal (el archivo no cambió) es una lectura de 8 bytes.
+    public int diaCobrado() {
+        Path path = resolverRutaMultas();
+        if (!Files.exists(path)) {
+            return Fecha.SIN_FECHA; // Nunca se ejecutó.
+        }
+        BloqueoArchivo bloqueo = BloqueoArchivo.de(path);
+        synchronized (this) {
+            if (cargado && bloqueo.generacion() == generacionVista) {
+                return cobradoHasta;
+            }
+        }
+        try {
+            List<BloqueoArchivo> bloqueos = List.of(BloqueoArchivo.de(Miembro.resolverRutaMiembros()), bloqueo);
+            return BloqueoArchivo.ejecutar(bloqueos, () -> {
+                synchronized (this) {
+                    asegurarVigente(path);
+                    return cobradoHasta;
+                }
+            });
+        } catch (IOException ex) {
+            ex.printStackTrace();
+            return Fecha.SIN_FECHA;
+        }
+    }
+
+    // Suma a la deuda de los usuarios las multas de sus préstamos activos vencidos al
+    // día 'dia' que todavía no se cobraron. El valor del resultado es el total sumado.
+    public Resultado<Double> acumular(int dia) {
+        if (dia > Fecha.hoy()) {
+            return Resultado.fallo(Resultado.Estado.INVALIDO, "Error: No se pueden sumar multas de un dia futuro.");
+        }
+        Path path = resolverRutaMultas();
+        List<BloqueoArchivo> bloqueos = List.of(BloqueoArchivo.de(Miembro.resolverRutaMiembros()),
+                BloqueoArchivo.de(Prestamo.resolverRutaLibroPrestado()), BloqueoArchivo.de(path));
+        try {
+            return BloqueoArchivo.ejecutar(bloqueos, () -> {
+                synchronized (this) {
+                    return acumularBloqueado(path, dia);
+                }
+            });
+        } catch (IOException ex) {
+            ex.printStackTrace();
+            return Resultado.fallo(Resultado.Estado.ERROR, "Error: No se pudieron sumar las multas: " + ex.getMessage());
+        }
+    }
+
+    // Lógica de acumular(). Se llama con los bloqueos de los tres archivos tomados.
+    private Resultado<Double> acumularBloqueado(Path path, int dia) throws IOException {
+        asegurarVigente(path);
+        if (cobradoHasta != Fecha.SIN_FECHA && cobradoHasta >= dia) {
+            return Resultado.exito(0.0, "Las multas hasta el " + Fecha.formatear(dia) + " ya estaban sumadas.");
+        }
+        int desde = cobradoHasta;
+
+        // Documento -> monto: cada préstamo cobra los días desde su fecha de devolución
+        // estimada (o desde el último día cobrado, si es posterior) hasta 'dia'.
+        Map<Long, Double> montos = IndicePrestamos.getInstancia().vencidos(dia).parallelStream()
+                .collect(Collectors.groupingByConcurrent(Prestamo::getNumeroDocumentoMiembro,
+                        Collectors.summingDouble(p -> Fecha.diasEntre(dia,
+                                Math.max(p.getDiaDevolucionEstimada(), desde)) * Biblioteca.MULTA_POR_DIA)));
+
+        Map<Long, Long> versiones = new ConcurrentHashMap<>(); // Documento -> versión antes del cambio.
+        Persistencia.Escritura escritura = montos.isEmpty() ? null : Miembro.prepararDeudas(montos, versiones);
+        double total = 0;
+        if (!versiones.isEmpty()) {
+            for (Long documento : versiones.keySet()) {
+                total += montos.get(documento);
+            }
+            escribirEstado(path, EN_CURSO, desde, dia, versiones); // Desde aquí, un corte se resuelve al releer.
+            escritura.escribir();
+        }
+        escribirEstado(path, HECHO, dia, Fecha.SIN_FECHA, null);
+        return Resultado.exito(total, String.format("Exito: Multas sumadas hasta el %s: %d usuarios, %.2f pesos.",
+                Fecha.formatear(dia), versiones.size(), total));
+    }
+
+    // Si quedó una ejecución EN_CURSO, decide ahora si se escribió (ver leerEstado).
+    // Se llama con el bloqueo de "Miembros.txt" tomado, antes de cualquier otra escritura
+    // de ese archivo: un pago o un cambio de datos también sube la versión de un usuario,
+    // y si se escribiera antes, una ejecución cortada parecería hecha y sus multas no se
+    // cobrarían nunca. Lo normal (el archivo no cambió) es una lectura de 8 bytes.
+    void resolverPendiente() throws IOException {
+        Path path = resolverRutaMultas();
+        if (!Files.exists(path)) {
+            return; // Nunca se ejecutó: no hay nada pendiente.
+        }
+        BloqueoArchivo.de(path).ejecutar(() -> {
+            synchronized (this) {
+                asegurarVigente(path);
+            }
+            return null;
+        });
+    }
+
+    // Lee el archivo si todavía no se leyó o si otro proceso lo cambió. Se llama con los
+    // bloqueos de "Miembros.txt" y "MultasDiarias.txt" tomados.
+    private void asegurarVigente(Path path) throws IOException {
+        BloqueoArchivo bloqueo = BloqueoArchivo.de(path);
+        if (!cargado || bloqueo.generacion() != generacionVista) {
+            leerEstado(path);
+            generacionVista = bloqueo.generacion();
+        }
+    }
+
+    // Lee el último día cobrado. Si el archivo quedó con una ejecución EN_CURSO (el
+    // programa se cortó mientras escribía "Miembros.txt"), decide si esa escritura se hizo:
+    // el archivo de miembros se reemplaza entero de una vez, así que si se hizo, todos los
+    // usuarios anotados tienen una versión mayor que la anotada; si alguno sigue con la
+    // anotada, no se hizo y esos días se volverán a cobrar en la próxima ejecución.
+    // Solo se puede decidir así porque ninguna otra escritura de "Miembros.txt" ocurre
+    // antes de resolver el estado (ver resolverPendiente).
+    private void leerEstado(Path path) throws IOException {
+        cobradoHasta = Fecha.SIN_FECHA;
+        cargado = true;
+        if (!Files.exists(path)) {
+            return;
+        }
+        List<String> lineas = Metricas.leerLineas(path);
+        if (lineas.isEmpty()) {
+            return;
+        }
+        LectorCampos lector = new LectorCampos().reiniciar(lineas.get(0));
+        try {
+            String estado = lector.siguienteTexto();
+            int dia = lector.siguienteFecha();
+            if (!EN_CURSO.equals(estado)) {
+                cobradoHasta = dia;
+                return;
+            }
+            int hasta = lector.siguienteFecha();
+            Map<Long, Long> anotadas = new HashMap<>();
+            for (int i = 1; i < lineas.size(); i++) {
+                lector.reiniciar(lineas.get(i));
+                anotadas.put(lector.siguienteLong(), lector.siguienteLong());
+            }
+            boolean hecha = true;
+            Map<Long, Miembro> actuales = Miembro.encontrarMiembrosPorNumeroDocumento(anotadas.keySet());
+            for (Map.Entry<Long, Long> anotada : anotadas.entrySet()) {
+                Miembro actual = actuales.get(anotada.getKey());
+                if (actual != null && actual.getVersion() == anotada.getValue()) {
+                    hecha = false;
+                    break;
+                }
+            }
+            System.err.println("Aviso: La suma de multas hasta el " + Fecha.formatear(hasta) + " se interrumpio; "
+                    + (hecha ? "ya se habia escrito." : "se repetira en la proxima ejecucion."));
+            escribirEstado(path, HECHO, hecha ? hasta : dia, Fecha.SIN_FECHA, null);
+        } catch (NumberFormatException e) {
+            System.err.println("Error de parseo en 'MultasDiarias.txt': " + e.getMessage());
+        }
+    }
+
+    // Reescribe el archivo (con su bloqueo tomado): "HECHO\dia" o, durante una
+    // ejecución, "EN_CURSO\desde\hasta" seguido de una línea "documento\version" por
+    // cada usuario que se va a cambiar.
+    private void escribirEstado(Path path, String estado, int dia, int hasta, Map<Long, Long> versiones)
+            throws IOException {
+        List<String> lineas = new ArrayList<>();
+        if (HECHO.equals(estado)) {
+            lineas.add(HECHO + "\\" + Fecha.formatear(dia));
+        } else {
+            lineas.add(EN_CURSO + "\\" + Fecha.formatear(dia) + "\\" + Fecha.formatear(hasta));
+            for (Map.Entry<Long, Long> version : versiones.entrySet()) {
+                lineas.add(version.getKey() + "\\" + version.getValue());
+            }
+        }
+        EscrituraAtomica.reemplazar(path, lineas); // Temporal + renombrado: nunca queda a medias.
+        generacionVista = BloqueoArchivo.de(path).marcarCambio(); // Avisa a los demás procesos.
+        cobradoHasta = HECHO.equals(estado) ? dia : cobradoHasta;
+        cargado = true;
+    }
+
+    // Programa la suma diaria en un hilo de fondo: una vez ahora (por si faltan días) y
+    // luego cada día a la HORA_EJECUCION. La usan los modos servidor y api.
+    public synchronized void programar() {
+        if (programador != null) {
+            return; // Ya está programada.
+        }
+        programador = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "multas-diarias");
+            t.setDaemon(true); // No impide que el programa termine.
+            return t;
+        });
+        programador.execute(this::ejecucionProgramada);
+    }
+
+    // Una ejecución programada: suma las multas de hoy y programa la del día siguiente.
+    private void ejecucionProgramada() {
+        try {
+            System.out.println(acumular(Fecha.hoy()).getMensaje());
+        } catch (RuntimeException ex) {
+            ex.printStackTrace();
+        } finally {
+            LocalDateTime ahora = LocalDateTime.now();
+            LocalDateTime siguiente = ahora.toLocalDate().plusDays(1).atTime(HORA_EJECUCION);
+            programador.schedule(this::ejecucionProgramada, Duration.between(ahora, siguiente).toMillis(),
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // Olvida el contenido en memoria para que se vuelva a leer del archivo.
+    // Se usa cuando el archivo se borra o se reemplaza desde fuera.
+    public synchronized void invalidar() {
+        cobradoHasta = Fecha.SIN_FECHA;
+        cargado = false;
+    }
+
+    // Ejecuta la suma una vez, sin esperar a la hora programada (por ejemplo, desde una
+    // tarea del sistema operativo): MultasDiarias [yyyy-MM-dd] (sin fecha, hoy).
+    public static void main(String[] args) {
+        EscrituraAtomica.recuperarTemporales(); // Descarta escrituras que un corte dejó a medias.
+        int dia;
+        try {
+            dia = args.length > 0 ? Fecha.parsear(args[0]) : Fecha.hoy();
+        } catch (NumberFormatException ex) {
+            System.out.println("Uso: MultasDiarias [yyyy-MM-dd]");
+            return;
+        }
+        long inicio = System.nanoTime();
+        Resultado<Double> resultado = getInstancia().acumular(dia);
+        System.out.println(resultado.getMensaje() + " (" + (System.nanoTime() - inicio) / 1_000_000 + " ms)");
+    }
+}
@@ -0,0 +1,93 @@
+package com.mycompany.sistemabiblioteca; // Carpeta donde está organizado nuestro código.
+
+import java.util.Iterator; // Para recorrer los elementos de la página actual.
+import java.util.List; // Para usar listas.
+import java.util.Spliterator; // Fuente de elementos de un Stream.
+import java.util.Spliterators; // Para crear el Spliterator del Stream.
+import java.util.function.Consumer; // Recibe cada elemento del Stream.
+import java.util.function.Function; // Pide la página que sigue a un cursor.
+import java.util.stream.Stream; // Flujo de elementos que se leen a medida que se usan.
+import java.util.stream.StreamSupport; // Para crear el Stream a partir del Spliterator.
+
+// Esta clase es una página de un listado (libros, miembros, préstamos): unos pocos
+// elementos y el cursor para pedir los siguientes. Así un listado grande no se copia
+// entero en memoria antes de mostrar la primera línea.
+// El cursor es un texto opaco: quien lo recibe solo lo devuelve tal cual para pedir la
+// página siguiente. Es 'null' cuando ya no hay más elementos.
+public final class Pagina<T> {
+
+    public static final int LIMITE_POR_DEFECTO = 500; // Tamaño de página de los Stream de recorrer().
+
+    private final List<T> elementos; // Elementos de esta página.
+    private final String siguiente; // Cursor de la página siguiente (null si es la última).
+
+    public Pagina(List<T> elementos, String siguiente) {
+        this.elementos = elementos;
+        this.siguiente = siguiente;
+    }
+
+    public List<T> getElementos() {
+        return elementos;
+    }
+
+    public String getSiguiente() {
+        return siguiente;
+    }
+
+    // Indica si hay más elementos después de esta página.
+    public boolean hayMas() {
+        return siguiente != null;
+    }
+
+    // Convierte un cursor numérico (el de LibroRepository, IndicePrestamos e
+    // IndiceMiembros) a su número. Sin cursor (null o vacío) devuelve -1: desde el
+    // principio. Lanza IllegalArgumentException si el cursor no es válido.
+    static long leerCursor(String cursor) {
+        if (cursor == null || cursor.trim().isEmpty()) {
+            return -1;
+        }
+        try {
+            long valor = Long.parseLong(cursor.trim());
+            if (valor < 0) {
+                throw new IllegalArgumentException("Cursor no valido: " + cursor);
+            }
+            return valor;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Cursor no valido: " + cursor);
+        }
+    }
+
+    // Valida el tamaño de página pedido (entre 1 y el que se quiera).
+    static void validarLimite(int limite) {
+        if (limite <= 0) {
+            throw new IllegalArgumentException("El limite de la pagina debe ser mayor que 0.");
+        }
+    }
+
+    // Crea un Stream que recorre un listado página por página: pide la primera página
+    // con cursor 'null' y la siguiente solo cuando se terminan los elementos de la
+    // actual. En memoria hay, como mucho, una página a la vez.
+    public static <T> Stream<T> recorrer(Function<String, Pagina<T>> paginaDesde) {
+        Spliterator<T> fuente = new Spliterators.AbstractSpliterator<T>(Long.MAX_VALUE, Spliterator.ORDERED) {
+            private Iterator<T> actual = null; // Elementos que quedan de la página actual.
+            private String cursor = null; // Cursor de la próxima página.
+            private boolean terminado = false; // Ya se pidió la última página.
+
+            @Override
+            public boolean tryAdvance(Consumer<? super T> accion) {
+                while (actual == null || !actual.hasNext()) {
+                    if (terminado) {
+                        return false;
+                    }
+                    Pagina<T> pagina = paginaDesde.apply(cursor);
+                    actual = pagina.getElementos().iterator();
+                    cursor = pagina.getSiguiente();
+                    terminado = cursor == null;
+                }
+                accion.accept(actual.next());
+                return true;
+            }
+        };
+        return StreamSupport.stream(fuente, false);
+    }
+}
@@ -4,21 +4,58 @@ import java.io.IOException; // Para manejar errores al trabajar con archivos.
 import java.nio.file.Files; // Para operar con archivos y directorios.
 import java.nio.file.Path; // Para representar la ruta de un archivo.
 import java.nio.file.Paths; // Para construir rutas de archivos.
+import java.util.Map; // Para usar mapas.
+import java.util.concurrent.ConcurrentHashMap; // Mapa seguro entre hilos para la caché de rutas.
 
 // Esta clase es una herramienta para encontrar las rutas de los archivos de datos.
 // Asegura que los archivos se encuentren bien, tanto si el programa está en desarrollo
 // como si está empaquetado en un archivo JAR.
+//
+// Cada ruta se calcula una sola vez por nombre de archivo y queda en caché durante
+// toda la ejecución. La carpeta de datos se puede fijar con la propiedad del sistema
+// "biblioteca.datos.dir" o la variable de entorno "BIBLIOTECA_DATOS_DIR"; así no se
+// busca nada en el classpath y el arranque siempre usa la misma carpeta.
 public class PathManager {
 
     private static final String ARCHIVOS_DIR = "datos"; // Nombre de la carpeta donde se guardarán los archivos de
                                                         // texto.
+    public static final String PROPIEDAD_DATOS_DIR = "biblioteca.datos.dir"; // -Dbiblioteca.datos.dir=/ruta
+    public static final String VARIABLE_DATOS_DIR = "BIBLIOTECA_DATOS_DIR"; // Variable de entorno equivalente.
 
-    // Encuentra la ruta de un archivo. Primero busca dentro del programa (si es un
+    private static final Map<String, Path> CACHE = new ConcurrentHashMap<>(); // Nombre de archivo -> ruta resuelta.
+
+    // Devuelve la ruta de un archivo de datos. La primera vez la calcula (ver
+    // calcularRuta); las siguientes la toma de la caché.
+    public static Path resolverRutaArchivo(String fileName) {
+        return CACHE.computeIfAbsent(fileName, PathManager::calcularRuta);
+    }
+
+    // Devuelve la carpeta de datos fijada por configuración (propiedad del sistema o
+    // variable de entorno), o 'null' si no se fijó ninguna.
+    public static Path directorioDatosConfigurado() {
+        String dir = System.getProperty(PROPIEDAD_DATOS_DIR);
+        if (dir == null || dir.trim().isEmpty()) {
+            dir = System.getenv(VARIABLE_DATOS_DIR);
+        }
+        return (dir == null || dir.trim().isEmpty()) ? null : Paths.get(dir.trim());
+    }
+
+    // Olvida las rutas en caché (por ejemplo, después de cambiar la carpeta de datos).
+    public static void limpiarCache() {
+        CACHE.clear();
+    }
+
+    // Encuentra la ruta de un archivo. Si hay una carpeta de datos configurada, la usa
+    // directamente. Si no, primero busca dentro del programa (si es un
     // JAR).
     // Si no lo encuentra o no se puede escribir allí, lo crea en una carpeta
     // "datos"
     // en la misma ubicación donde se está ejecutando el programa.
-    public static Path resolverRutaArchivo(String fileName) {
+    private static Path calcularRuta(String fileName) {
+        Path configurado = directorioDatosConfigurado();
+        if (configurado != null) { // Carpeta fijada: no se busca en el classpath.
+            return crearRutaEnDirectorio(configurado.resolve(fileName));
+        }
         // Intenta encontrar el archivo como un "recurso" del programa (útil en JARs).
         try {
             java.net.URL res = PathManager.class.getClassLoader().getResource(ARCHIVOS_DIR + "/" + fileName);
@@ -45,7 +82,11 @@ public class PathManager {
     // subcarpeta exista.
     private static Path crearRutaEnDirectorioDeTrabajo(String subDirectory, String fileName) {
         // Construye la ruta: directorio actual + subcarpeta + nombre del archivo.
-        Path path = Paths.get(System.getProperty("user.dir"), subDirectory, fileName);
+        return crearRutaEnDirectorio(Paths.get(System.getProperty("user.dir"), subDirectory, fileName));
+    }
+
+    // Se asegura de que exista la carpeta que contiene 'path' y devuelve 'path'.
+    private static Path crearRutaEnDirectorio(Path path) {
         Path parent = path.getParent(); // Obtiene la carpeta contenedora (ej. "datos").
         if (parent != null && !Files.exists(parent)) { // Si la carpeta no existe.
             try {
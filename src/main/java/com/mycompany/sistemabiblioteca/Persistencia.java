@@ -0,0 +1,195 @@
+package com.mycompany.sistemabiblioteca; // Carpeta donde está organizado nuestro código.
+
+import java.io.IOException; // Para manejar errores al escribir los archivos.
+import java.util.ArrayList; // Para listas dinámicas.
+import java.util.LinkedHashMap; // Mapa que conserva el orden en que se registraron los cambios.
+import java.util.List; // Para usar listas.
+import java.util.Map; // Para usar mapas.
+
+// Esta clase ofrece una "unidad de trabajo" para agrupar cambios.
+// Normalmente cada setter de Libro, Miembro, Usuario y Prestamo llama a guardar() y
+// escribe en su archivo de inmediato. Dentro de una transacción, en cambio, guardar()
+// solo anota la entidad como modificada, y al cerrar la transacción cada archivo se
+// escribe una sola vez con todas las entidades modificadas.
+//
+// Uso:
+// try (Persistencia.Transaccion tx = Persistencia.begin()) {
+//     libro.setNombre(...);
+//     libro.setAutor(...);
+//     tx.confirmar();
+// } // Aquí se escriben los cambios.
+//
+// Si el bloque termina sin llamar a confirmar() (por ejemplo, por una excepción a
+// mitad de camino), los cambios anotados se descartan y no se escribe nada: o se
+// escribe la operación completa o ninguna parte. Los objetos en memoria sí quedan
+// modificados; los repositorios e índices no, porque solo entregan copias.
+//
+// Al cerrar, se toman los bloqueos de todos los archivos afectados (ver BloqueoArchivo),
+// se verifican las versiones de todos los registros y solo entonces se escribe. Si algún
+// registro cambió en otro proceso, se lanza ConflictoVersionException y no se escribe
+// ningún archivo. Con tx.verificar(miembro) se incluye en esa verificación un miembro
+// que la operación leyó pero no modifica (por ejemplo, su deuda al prestar).
+public final class Persistencia {
+
+    // Transacción abierta en el hilo actual (cada hilo tiene la suya).
+    private static final ThreadLocal<Transaccion> ACTUAL = new ThreadLocal<>();
+
+    private Persistencia() { // Clase de utilidad: no se crean instancias.
+    }
+
+    // Abre una transacción en el hilo actual. Si ya hay una abierta, la nueva se une
+    // a ella y los cambios se escriben cuando se cierre la de afuera.
+    public static Transaccion begin() {
+        Transaccion actual = ACTUAL.get();
+        if (actual != null) {
+            actual.anidadas++;
+            return actual;
+        }
+        Transaccion nueva = new Transaccion();
+        ACTUAL.set(nueva);
+        return nueva;
+    }
+
+    // Indica si hay una transacción abierta en el hilo actual.
+    public static boolean enTransaccion() {
+        return ACTUAL.get() != null;
+    }
+
+    // Si hay una transacción abierta, anota la entidad como modificada y devuelve
+    // 'true' (quien llama no debe escribir nada todavía). Si no hay transacción,
+    // devuelve 'false' y quien llama debe guardar de inmediato, como siempre.
+    // 'clavesAnteriores' son los valores que identifican el registro en el archivo
+    // antes del cambio (por ejemplo, el código anterior de un libro). Si la entidad
+    // se anota varias veces, se conserva el primer valor no nulo de cada posición,
+    // que es el que todavía está escrito en el archivo.
+    static boolean diferir(IPersistible entidad, Object... clavesAnteriores) {
+        Transaccion tx = ACTUAL.get();
+        if (tx == null) {
+            return false;
+        }
+        Object[] existentes = tx.pendientes.get(entidad);
+        if (existentes == null) {
+            tx.pendientes.put(entidad, clavesAnteriores.clone());
+        } else {
+            for (int i = 0; i < existentes.length && i < clavesAnteriores.length; i++) {
+                if (existentes[i] == null) {
+                    existentes[i] = clavesAnteriores[i];
+                }
+            }
+        }
+        return true;
+    }
+
+    // Escritura ya verificada de un archivo, lista para hacerse (ver los métodos
+    // prepararLote de LibroRepository, Miembro y Prestamo).
+    @FunctionalInterface
+    interface Escritura {
+        void escribir() throws IOException;
+    }
+
+    // Una transacción abierta. Se cierra con close() (o con try-with-resources).
+    public static final class Transaccion implements AutoCloseable {
+        // Entidades modificadas, en el orden en que se modificaron por primera vez.
+        // Las entidades no redefinen equals(), así que se comparan por identidad.
+        private final Map<IPersistible, Object[]> pendientes = new LinkedHashMap<>();
+        // Miembros que no se escriben, pero cuya versión se comprueba al cerrar.
+        private final List<Miembro> verificados = new ArrayList<>();
+        private int anidadas = 0; // Cuántas veces se "reabrió" dentro de sí misma.
+        private boolean confirmada = false; // El bloque actual llamó a confirmar().
+        private boolean descartada = false; // Un bloque de adentro terminó sin confirmar.
+
+        private Transaccion() {
+        }
+
+        // Al cerrar, comprueba que el miembro no cambió en el archivo desde que se leyó
+        // (lanza ConflictoVersionException si cambió), aunque la transacción no lo escriba.
+        public void verificar(Miembro miembro) {
+            verificados.add(miembro);
+        }
+
+        // Marca el bloque como terminado correctamente. Va como última instrucción
+        // del bloque try: sin ella, close() descarta los cambios.
+        public void confirmar() {
+            confirmada = true;
+        }
+
+        // Cierra la transacción. Si es la de más afuera y se confirmó, escribe los
+        // cambios: cada archivo de datos se lee y se escribe una sola vez. Si no se
+        // confirmó (o un bloque de adentro no se confirmó), los descarta.
+        // Lanza ConflictoVersionException (sin escribir nada) si algún registro cambió
+        // en el archivo desde que se leyó.
+        @Override
+        public void close() {
+            if (anidadas > 0) {
+                anidadas--;
+                if (!confirmada) {
+                    descartada = true; // La de afuera tampoco podrá escribir.
+                }
+                confirmada = false; // El bloque de afuera tiene que confirmar por su cuenta.
+                return;
+            }
+            ACTUAL.remove(); // Desde aquí, guardar() vuelve a escribir de inmediato.
+            if (!confirmada || descartada) {
+                pendientes.clear(); // No se escribe nada.
+                verificados.clear();
+                return;
+            }
+
+            Map<Libro, String> libros = new LinkedHashMap<>();
+            Map<Miembro, Object[]> miembros = new LinkedHashMap<>();
+            List<Prestamo> prestamos = new ArrayList<>();
+            for (Map.Entry<IPersistible, Object[]> e : pendientes.entrySet()) {
+                IPersistible entidad = e.getKey();
+                Object[] claves = e.getValue();
+                if (entidad instanceof Libro) {
+                    libros.put((Libro) entidad, claves.length > 0 ? (String) claves[0] : null);
+                } else if (entidad instanceof Miembro) {
+                    miembros.put((Miembro) entidad, claves);
+                } else if (entidad instanceof Prestamo) {
+                    prestamos.add((Prestamo) entidad);
+                } else {
+                    entidad.guardar(); // Cualquier otra entidad se guarda como siempre.
+                }
+            }
+            pendientes.clear();
+            List<Miembro> aVerificar = new ArrayList<>(verificados);
+            verificados.clear();
+
+            List<BloqueoArchivo> bloqueos = new ArrayList<>();
+            if (!libros.isEmpty()) {
+                bloqueos.add(BloqueoArchivo.de(Libro.resolverRutaLibros()));
+            }
+            if (!miembros.isEmpty() || !aVerificar.isEmpty()) {
+                bloqueos.add(BloqueoArchivo.de(Miembro.resolverRutaMiembros()));
+            }
+            if (!prestamos.isEmpty()) {
+                bloqueos.add(BloqueoArchivo.de(Prestamo.resolverRutaLibroPrestado()));
+            }
+            if (bloqueos.isEmpty()) {
+                return;
+            }
+            try {
+                BloqueoArchivo.ejecutar(bloqueos, () -> {
+                    // Primero se verifica todo (puede lanzar el conflicto) y después se escribe.
+                    Miembro.verificarVersiones(aVerificar);
+                    List<Escritura> escrituras = new ArrayList<>();
+                    if (!libros.isEmpty()) {
+                        escrituras.add(LibroRepository.getInstancia().prepararLote(libros));
+                    }
+                    if (!miembros.isEmpty()) {
+                        escrituras.add(Miembro.prepararLote(miembros));
+                    }
+                    if (!prestamos.isEmpty()) {
+                        escrituras.add(Prestamo.prepararLote(prestamos));
+                    }
+                    for (Escritura escritura : escrituras) {
+                        escritura.escribir();
+                    }
+                    return null;
+                });
+            } catch (IOException ex) {
+                ex.printStackTrace();
+            }
+        }
+    }
+}
@@ -6,14 +6,15 @@ package com.mycompany.sistemabiblioteca; // Carpeta donde está organizado nuest
 
 import java.io.BufferedReader; // Para leer archivos de texto.
 import java.io.IOException; // Para manejar errores de archivo.
+import java.io.Reader; // Fuente de caracteres para leer préstamos.
 import java.nio.file.Files; // Para operar con archivos.
 import java.nio.file.Path; // Para rutas de archivos.
-import java.text.ParseException; // Para manejar errores al convertir texto a fecha.
 import java.util.ArrayList; // Para listas dinámicas.
 import java.util.Date; // Para manejar fechas.
+import java.util.LinkedHashMap; // Mapa que conserva el orden de inserción.
 import java.util.List; // Para usar listas.
-import java.util.stream.Collectors; // Para operar con listas de forma avanzada.
-import java.nio.file.StandardOpenOption; // Para opciones de guardado.
+import java.util.Map; // Para usar mapas.
+import java.util.stream.Stream; // Para recorrer listados sin copiarlos enteros.
 
 // Esta clase representa un registro de préstamo de un libro.
 // Guarda todos los detalles de cuándo un libro fue prestado y devuelto.
@@ -21,11 +22,21 @@ import java.nio.file.StandardOpenOption; // Para opciones de guardado.
 public class Prestamo implements IPersistible {
     private String codigoLibro; // Código único del libro prestado.
     private long numeroDocumentoMiembro; // Documento del miembro que pidió el libro.
-    private Date fechaPrestamo; // Fecha en que se prestó el libro.
-    private Date fechaDevolucionEstimada; // Fecha límite para devolver el libro.
-    private Date fechaDevolucionReal; // Fecha real en que se devolvió (es nula si no se ha devuelto).
+    // Las fechas se guardan como número de días desde 1970-01-01 (ver Fecha).
+    private int diaPrestamo = Fecha.SIN_FECHA; // Fecha en que se prestó el libro.
+    private int diaDevolucionEstimada = Fecha.SIN_FECHA; // Fecha límite para devolver el libro.
+    private int diaDevolucionReal = Fecha.SIN_FECHA; // Fecha real en que se devolvió (SIN_FECHA si no se ha devuelto).
     private int idBiblioteca; // ID de la biblioteca de donde se prestó.
     private String estado; // Estado del préstamo (ej. "PRESTADO", "DEVUELTO", "VENCIDO").
+    private long version; // Versión del registro en el archivo (0 si todavía no se ha guardado).
+    // Cuántas veces antes el mismo miembro pidió el mismo libro el mismo día (0 la primera).
+    // Distingue un préstamo nuevo de uno ya devuelto con el mismo libro, miembro y fecha.
+    private int vez;
+
+    // Latencias de las operaciones de persistencia (ver Metricas).
+    private static final Metricas.Operacion METRICA_GUARDAR = Metricas.operacion("Prestamo.guardar");
+    private static final Metricas.Operacion METRICA_ELIMINAR = Metricas.operacion("Prestamo.eliminar");
+    private static final Metricas.Operacion METRICA_CARGAR = Metricas.operacion("Prestamo.cargarTodosLosPrestamos");
 
     public Prestamo() { // Constructor vacío.
     }
@@ -33,23 +44,32 @@ public class Prestamo implements IPersistible {
     // Constructor para crear un nuevo préstamo.
     public Prestamo(String codigoLibro, long numeroDocumentoMiembro, Date fechaPrestamo, Date fechaDevolucionEstimada,
             int idBiblioteca) {
-        this.codigoLibro = codigoLibro;
-        this.numeroDocumentoMiembro = numeroDocumentoMiembro;
-        this.fechaPrestamo = fechaPrestamo;
-        this.fechaDevolucionEstimada = fechaDevolucionEstimada;
-        this.fechaDevolucionReal = null; // No hay fecha real al inicio.
-        this.idBiblioteca = idBiblioteca;
-        this.estado = "PRESTADO"; // El estado inicial es "PRESTADO".
+        this(codigoLibro, numeroDocumentoMiembro, Fecha.aDiaEpoca(fechaPrestamo),
+                Fecha.aDiaEpoca(fechaDevolucionEstimada), idBiblioteca);
+    }
+
+    // Constructor para crear un nuevo préstamo con las fechas como número de día.
+    public Prestamo(String codigoLibro, long numeroDocumentoMiembro, int diaPrestamo, int diaDevolucionEstimada,
+            int idBiblioteca) {
+        this(codigoLibro, numeroDocumentoMiembro, diaPrestamo, diaDevolucionEstimada, Fecha.SIN_FECHA, idBiblioteca,
+                "PRESTADO"); // No hay fecha real al inicio y el estado inicial es "PRESTADO".
     }
 
     // Constructor para cargar un préstamo desde un archivo.
     public Prestamo(String codigoLibro, long numeroDocumentoMiembro, Date fechaPrestamo, Date fechaDevolucionEstimada,
             Date fechaDevolucionReal, int idBiblioteca, String estado) {
+        this(codigoLibro, numeroDocumentoMiembro, Fecha.aDiaEpoca(fechaPrestamo),
+                Fecha.aDiaEpoca(fechaDevolucionEstimada), Fecha.aDiaEpoca(fechaDevolucionReal), idBiblioteca, estado);
+    }
+
+    // Constructor para cargar un préstamo con las fechas como número de día.
+    public Prestamo(String codigoLibro, long numeroDocumentoMiembro, int diaPrestamo, int diaDevolucionEstimada,
+            int diaDevolucionReal, int idBiblioteca, String estado) {
         this.codigoLibro = codigoLibro;
         this.numeroDocumentoMiembro = numeroDocumentoMiembro;
-        this.fechaPrestamo = fechaPrestamo;
-        this.fechaDevolucionEstimada = fechaDevolucionEstimada;
-        this.fechaDevolucionReal = fechaDevolucionReal;
+        this.diaPrestamo = diaPrestamo;
+        this.diaDevolucionEstimada = diaDevolucionEstimada;
+        this.diaDevolucionReal = diaDevolucionReal;
         this.idBiblioteca = idBiblioteca;
         this.estado = estado;
     }
@@ -64,15 +84,28 @@ public class Prestamo implements IPersistible {
     }
 
     public Date getFechaPrestamo() {
-        return fechaPrestamo;
+        return Fecha.desdeDiaEpoca(diaPrestamo);
     }
 
     public Date getFechaDevolucionEstimada() {
-        return fechaDevolucionEstimada;
+        return Fecha.desdeDiaEpoca(diaDevolucionEstimada);
     }
 
     public Date getFechaDevolucionReal() {
-        return fechaDevolucionReal;
+        return Fecha.desdeDiaEpoca(diaDevolucionReal);
+    }
+
+    // Las mismas fechas como número de día (Fecha.SIN_FECHA si no hay fecha).
+    public int getDiaPrestamo() {
+        return diaPrestamo;
+    }
+
+    public int getDiaDevolucionEstimada() {
+        return diaDevolucionEstimada;
+    }
+
+    public int getDiaDevolucionReal() {
+        return diaDevolucionReal;
     }
 
     public int getIdBiblioteca() {
@@ -83,9 +116,32 @@ public class Prestamo implements IPersistible {
         return estado;
     }
 
+    @Override
+    public long getVersion() {
+        return version;
+    }
+
+    // Solo la cambian la carga y el guardado (no escribe nada).
+    void setVersion(long version) {
+        this.version = version;
+    }
+
+    public int getVez() {
+        return vez;
+    }
+
+    // Solo la cambian la carga y el guardado de un préstamo nuevo (no escribe nada).
+    void setVez(int vez) {
+        this.vez = vez;
+    }
+
     // Setters que guardan el préstamo automáticamente después de un cambio.
     public void setFechaDevolucionReal(Date fechaDevolucionReal) {
-        this.fechaDevolucionReal = fechaDevolucionReal;
+        setDiaDevolucionReal(Fecha.aDiaEpoca(fechaDevolucionReal));
+    }
+
+    public void setDiaDevolucionReal(int diaDevolucionReal) {
+        this.diaDevolucionReal = diaDevolucionReal;
         guardar();
     }
 
@@ -102,200 +158,358 @@ public class Prestamo implements IPersistible {
     }
 
     // Convierte el objeto Prestamo a una línea de texto para guardarlo en el
-    // archivo.
+    // archivo (el archivo añade la versión al final, ver construirLineaConVersion).
     @Override
     public String construirLinea() {
         return String.format("%s\\%d\\%s\\%s\\%s\\%d\\%s", // Formato:
                                                            // código\documento\fechaPrestamo\fechaEstimada\fechaReal\idBiblioteca\estado.
                 codigoLibro,
                 numeroDocumentoMiembro,
-                Fecha.formatDate(fechaPrestamo), // Convierte la fecha a texto.
-                Fecha.formatDate(fechaDevolucionEstimada),
-                Fecha.formatDate(fechaDevolucionReal), // Será "null" si el libro no se ha devuelto.
+                Fecha.formatear(diaPrestamo), // Convierte la fecha a texto.
+                Fecha.formatear(diaDevolucionEstimada),
+                Fecha.formatear(diaDevolucionReal), // Será "null" si el libro no se ha devuelto.
                 idBiblioteca,
                 estado);
     }
 
+    // Línea del archivo: la de IPersistible y, si no es la primera vez de este libro,
+    // miembro y día, la vez como 9.º campo (las líneas con vez 0 no lo llevan, igual
+    // que las escritas antes de que existiera).
+    @Override
+    public String construirLineaConVersion(long version) {
+        String linea = IPersistible.super.construirLineaConVersion(version);
+        return vez == 0 ? linea : linea + LectorCampos.SEPARADOR + vez;
+    }
+
     // Guarda o actualiza el préstamo en el archivo. Es un método seguro
     // (synchronized).
     @Override
     public synchronized void guardar() {
+        long inicio = System.nanoTime();
         try {
-            Path path = resolverRutaLibroPrestado();
-            List<String> lines = new ArrayList<>();
-            if (Files.exists(path)) { // Si el archivo existe, lee todas sus líneas.
-                lines = new ArrayList<>(Files.readAllLines(path, java.nio.charset.StandardCharsets.UTF_8));
+            if (Persistencia.diferir(this)) { // Dentro de una transacción se escribe al cerrarla.
+                return;
             }
+            List<Prestamo> uno = new ArrayList<>();
+            uno.add(this);
+            guardarLote(uno);
+        } finally {
+            METRICA_GUARDAR.registrarDesde(inicio);
+        }
+    }
+
+    // Guarda varios préstamos leyendo y escribiendo "LibroPrestado.txt" una sola vez,
+    // con el bloqueo del archivo tomado (un solo escritor entre hilos y entre procesos).
+    static void guardarLote(List<Prestamo> prestamos) {
+        try {
+            BloqueoArchivo.de(resolverRutaLibroPrestado()).ejecutar(() -> {
+                prepararLote(prestamos).escribir();
+                return null;
+            });
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        }
+    }
 
-            // Limpia las líneas vacías o nulas.
-            List<String> normalized = new ArrayList<>();
-            for (String l : lines) {
-                if (l != null && !l.trim().isEmpty())
-                    normalized.add(l);
+    // Primera parte de guardarLote() (se llama con el bloqueo del archivo tomado): lee el
+    // archivo y aplica los cambios en memoria, verificando las versiones. No escribe
+    // nada; devuelve la escritura pendiente.
+    static Persistencia.Escritura prepararLote(List<Prestamo> prestamos) throws IOException {
+        Path path = resolverRutaLibroPrestado();
+        List<String> lines = leerLineasPrestamos(path);
+        Map<Prestamo, Long> versiones = new LinkedHashMap<>(); // Versión que queda escrita para cada préstamo.
+        for (Prestamo prestamo : prestamos) {
+            versiones.put(prestamo, prestamo.aplicarCambio(lines));
+        }
+        return () -> {
+            // Vuelve a escribir todas las líneas (actualizadas o nuevas) en el archivo,
+            // sobrescribiendo el anterior.
+            EscrituraAtomica.reemplazar(path, lines); // Temporal + renombrado: nunca queda a medias.
+            long generacion = BloqueoArchivo.de(path).marcarCambio(); // Avisa a los demás procesos.
+            for (Map.Entry<Prestamo, Long> escrita : versiones.entrySet()) {
+                escrita.getKey().version = escrita.getValue();
             }
-            lines = normalized;
-
-            boolean found = false; // Bandera para saber si encontramos el préstamo.
-            // Crea un identificador único para el préstamo (libro, miembro, fecha de
-            // préstamo).
-            String uniqueLoanIdentifier = this.codigoLibro + "_" + this.numeroDocumentoMiembro + "_"
-                    + Fecha.formatDate(this.fechaPrestamo);
-
-            for (int i = 0; i < lines.size(); i++) { // Recorre todas las líneas.
-                String line = lines.get(i);
-                String[] parts = line.split("\\\\");
-                if (parts.length >= 7) {
-                    try {
-                        String lineCodigoLibro = parts[0].trim();
-                        long lineNumeroDocumentoMiembro = Long.parseLong(parts[1].trim());
-                        Date lineFechaPrestamo = Fecha.parseDate(parts[2].trim());
-
-                        String lineIdentifier = lineCodigoLibro + "_" + lineNumeroDocumentoMiembro + "_"
-                                + Fecha.formatDate(lineFechaPrestamo);
-
-                        if (lineIdentifier.equals(uniqueLoanIdentifier)) { // Si el préstamo ya existe en el archivo.
-                            lines.set(i, construirLinea()); // Actualiza la línea con la nueva información.
-                            found = true;
-                            break; // Sale del bucle.
-                        }
-                    } catch (NumberFormatException | ParseException e) {
-                        System.err.println("Error de parseo en linea de prestamo durante el guardado: " + line + " - "
-                                + e.getMessage()); // Error si los datos de la línea están mal.
+            IndicePrestamos.getInstancia().actualizar(prestamos, generacion); // El archivo ya está escrito.
+        };
+    }
+
+    // Lee las líneas no vacías de "LibroPrestado.txt" (lista vacía si no existe).
+    private static List<String> leerLineasPrestamos(Path path) throws IOException {
+        List<String> lines = new ArrayList<>();
+        if (Files.exists(path)) { // Si el archivo existe, lee todas sus líneas.
+            lines = new ArrayList<>(Metricas.leerLineas(path));
+        }
+
+        // Limpia las líneas vacías o nulas.
+        List<String> normalized = new ArrayList<>();
+        for (String l : lines) {
+            if (l != null && !l.trim().isEmpty())
+                normalized.add(l);
+        }
+        return normalized;
+    }
+
+    // Aplica este préstamo sobre las líneas del archivo (en memoria): actualiza su
+    // línea si ya existe o la añade al final si es nuevo. Un préstamo nuevo con el mismo
+    // libro, miembro y día que otros ya devueltos se añade con la siguiente vez.
+    // Devuelve la versión con la que queda escrito. Si la versión de la línea no es la
+    // de este objeto (otro proceso lo cambió, o es nuevo y otro proceso ya creó ese
+    // préstamo sin devolverlo), lanza ConflictoVersionException.
+    private long aplicarCambio(List<String> lines) {
+        LectorCampos lector = new LectorCampos(); // Lee los campos de cada línea.
+        int vezNueva = 0; // Si es nuevo: la primera vez libre para su libro, miembro y día.
+
+        for (int i = 0; i < lines.size(); i++) { // Recorre todas las líneas.
+            lector.reiniciar(lines.get(i));
+            if (lector.contarCampos() >= 7) {
+                long enArchivo;
+                int vezEnArchivo;
+                boolean devuelto;
+                try {
+                    if (!esMismaClave(lector)) {
+                        continue;
                     }
+                    lector.saltarCampo(); // Fecha estimada.
+                    lector.saltarCampo(); // Fecha real.
+                    lector.saltarCampo(); // Biblioteca.
+                    devuelto = lector.siguienteIgualA("DEVUELTO");
+                    enArchivo = lector.longEnCampo(7, 1); // La versión es el 8.º campo (1 en líneas antiguas).
+                    vezEnArchivo = (int) lector.longEnCampo(8, 0); // La vez es el 9.º (0 si no está).
+                } catch (NumberFormatException e) {
+                    System.err.println("Error de parseo en linea de prestamo durante el guardado: "
+                            + lector.lineaActual() + " - " + e.getMessage()); // Error si los datos de la línea están
+                                                                               // mal.
+                    continue;
                 }
+                if (this.version == 0 && devuelto) { // Un préstamo anterior ya terminado: el nuevo va aparte.
+                    vezNueva = Math.max(vezNueva, vezEnArchivo + 1);
+                    continue;
+                }
+                if (this.version != 0 && vezEnArchivo != this.vez) { // Otro préstamo del mismo libro, miembro y día.
+                    continue;
+                }
+                if (enArchivo != this.version) { // Otro proceso lo cambió (o es "nuevo" y ya existía).
+                    throw new ConflictoVersionException("LibroPrestado.txt", getIdentificador(), this.version,
+                            enArchivo);
+                }
+                lines.set(i, construirLineaConVersion(enArchivo + 1)); // Actualiza la línea con la nueva información.
+                return enArchivo + 1;
             }
+        }
 
-            if (!found) { // Si el préstamo no se encontró (es nuevo).
-                lines.add(construirLinea()); // Añade el nuevo préstamo al final.
-            }
+        // El préstamo no se encontró.
+        if (this.version != 0) { // Ya estaba guardado: otro proceso lo eliminó.
+            throw new ConflictoVersionException("LibroPrestado.txt", getIdentificador(), this.version,
+                    ConflictoVersionException.NO_EXISTE);
+        }
+        this.vez = vezNueva;
+        lines.add(construirLineaConVersion(1)); // Es nuevo: lo añade al final.
+        return 1;
+    }
 
-            // Vuelve a escribir todas las líneas (actualizadas o nuevas) en el archivo,
-            // sobrescribiendo el anterior.
-            Files.write(path, lines, java.nio.charset.StandardCharsets.UTF_8, StandardOpenOption.CREATE,
-                    StandardOpenOption.TRUNCATE_EXISTING);
+    // Indica si la línea actual del lector es este mismo préstamo: mismo libro, mismo
+    // miembro, misma fecha de préstamo y misma vez (el identificador único de un préstamo).
+    // Compara los campos directamente, sin armar el identificador como texto.
+    private boolean esEsteRegistro(LectorCampos lector) {
+        return esMismaClave(lector) && lector.longEnCampo(8, 0) == this.vez;
+    }
 
-        } catch (IOException ex) {
-            ex.printStackTrace();
-        }
+    // Indica si la línea actual del lector tiene el mismo libro, miembro y fecha de
+    // préstamo que este (puede ser otra vez del mismo préstamo). Lee los tres primeros campos.
+    private boolean esMismaClave(LectorCampos lector) {
+        boolean mismoLibro = lector.siguienteIgualA(String.valueOf(this.codigoLibro));
+        long lineNumeroDocumentoMiembro = lector.siguienteLong();
+        int lineDiaPrestamo = lector.siguienteFecha();
+        return mismoLibro && lineNumeroDocumentoMiembro == this.numeroDocumentoMiembro
+                && lineDiaPrestamo == this.diaPrestamo;
     }
 
     // Elimina el préstamo del archivo. Es un método seguro (synchronized).
+    // Lanza ConflictoVersionException si otro proceso lo cambió después de leerlo.
     @Override
     public synchronized void eliminar() {
+        long inicio = System.nanoTime();
         try {
             Path path = resolverRutaLibroPrestado();
-            List<String> lines = new ArrayList<>();
-            if (Files.exists(path)) { // Si el archivo existe, lee todas sus líneas.
-                lines = new ArrayList<>(Files.readAllLines(path, java.nio.charset.StandardCharsets.UTF_8));
+            try {
+                BloqueoArchivo.de(path).ejecutar(() -> {
+                    eliminarBloqueado(path);
+                    return null;
+                });
+            } catch (IOException ex) {
+                ex.printStackTrace();
             }
+        } finally {
+            METRICA_ELIMINAR.registrarDesde(inicio);
+        }
+    }
 
-            // Limpia las líneas vacías o nulas.
-            List<String> normalized = new ArrayList<>();
-            for (String l : lines) {
-                if (l != null && !l.trim().isEmpty())
-                    normalized.add(l);
-            }
-            lines = normalized;
-
-            // Crea el identificador único para el préstamo que se quiere eliminar.
-            String uniqueLoanIdentifier = this.codigoLibro + "_" + this.numeroDocumentoMiembro + "_"
-                    + Fecha.formatDate(this.fechaPrestamo);
-
-            List<String> updatedLines = new ArrayList<>(); // Lista para guardar las líneas que *no* se van a eliminar.
-            for (String line : lines) { // Recorre todas las líneas del archivo.
-                String[] parts = line.split("\\\\");
-                if (parts.length >= 7) {
-                    try {
-                        String lineCodigoLibro = parts[0].trim();
-                        long lineNumeroDocumentoMiembro = Long.parseLong(parts[1].trim());
-                        Date lineFechaPrestamo = Fecha.parseDate(parts[2].trim());
-                        String lineIdentifier = lineCodigoLibro + "_" + lineNumeroDocumentoMiembro + "_"
-                                + Fecha.formatDate(lineFechaPrestamo);
-
-                        if (!lineIdentifier.equals(uniqueLoanIdentifier)) { // Si esta línea NO es el préstamo a
-                                                                            // eliminar.
-                            updatedLines.add(line); // La añade a la lista de líneas que se mantendrán.
+    // Eliminación con el bloqueo del archivo tomado.
+    private void eliminarBloqueado(Path path) throws IOException {
+        List<String> lines = leerLineasPrestamos(path);
+
+        LectorCampos lector = new LectorCampos(); // Lee los campos de cada línea.
+
+        boolean found = false; // Bandera para saber si encontramos el préstamo.
+        List<String> updatedLines = new ArrayList<>(); // Lista para guardar las líneas que *no* se van a eliminar.
+        for (String line : lines) { // Recorre todas las líneas del archivo.
+            lector.reiniciar(line);
+            if (lector.contarCampos() >= 7) {
+                try {
+                    if (!esEsteRegistro(lector)) { // Si esta línea NO es el préstamo a eliminar.
+                        updatedLines.add(line); // La añade a la lista de líneas que se mantendrán.
+                    } else {
+                        long enArchivo = lector.longEnCampo(7, 1);
+                        if (enArchivo != this.version) { // Otro proceso lo cambió después de leerlo.
+                            throw new ConflictoVersionException("LibroPrestado.txt", getIdentificador(),
+                                    this.version, enArchivo);
                         }
-                    } catch (NumberFormatException | ParseException e) {
-                        System.err.println("Error de parseo en linea de prestamo durante la eliminacion: " + line
-                                + " - " + e.getMessage()); // Error si los datos de la línea están mal.
-                        updatedLines.add(line); // Si hay un error, mantiene la línea para no perderla.
+                        found = true;
                     }
-                } else {
-                    updatedLines.add(line); // Mantiene las líneas que no tienen el formato esperado.
+                } catch (NumberFormatException e) {
+                    System.err.println("Error de parseo en linea de prestamo durante la eliminacion: " + line
+                            + " - " + e.getMessage()); // Error si los datos de la línea están mal.
+                    updatedLines.add(line); // Si hay un error, mantiene la línea para no perderla.
                 }
+            } else {
+                updatedLines.add(line); // Mantiene las líneas que no tienen el formato esperado.
             }
+        }
 
-            // Reescribe el archivo con la lista de préstamos actualizada (sin el
-            // eliminado).
-            Files.write(path, updatedLines, java.nio.charset.StandardCharsets.UTF_8, StandardOpenOption.CREATE,
-                    StandardOpenOption.TRUNCATE_EXISTING);
-
-        } catch (IOException ex) {
-            ex.printStackTrace();
+        if (!found && this.version != 0) { // Ya estaba guardado: otro proceso lo eliminó.
+            throw new ConflictoVersionException("LibroPrestado.txt", getIdentificador(), this.version,
+                    ConflictoVersionException.NO_EXISTE);
         }
+
+        // Reescribe el archivo con la lista de préstamos actualizada (sin el
+        // eliminado).
+        EscrituraAtomica.reemplazar(path, updatedLines); // Temporal + renombrado: nunca queda a medias.
+        long generacion = BloqueoArchivo.de(path).marcarCambio(); // Avisa a los demás procesos.
+        IndicePrestamos.getInstancia().eliminar(this, generacion); // Lo quita también de los índices.
     }
 
-    // Carga todos los préstamos del archivo "LibroPrestado.txt" y los devuelve en
-    // una lista.
+    // Carga todos los préstamos y los devuelve en una lista (en el orden del archivo).
+    // Se sirven desde el índice en memoria, que lee el archivo una sola vez.
     public static List<Prestamo> cargarTodosLosPrestamos() {
+        long inicio = System.nanoTime();
+        try {
+            return IndicePrestamos.getInstancia().todos();
+        } finally {
+            METRICA_CARGAR.registrarDesde(inicio);
+        }
+    }
+
+    // Devuelve una página de préstamos (ver IndicePrestamos.pagina); con 'soloActivos',
+    // solo los que están "PRESTADO".
+    public static Pagina<Prestamo> paginaDePrestamos(String cursor, int limite, boolean soloActivos) {
+        return IndicePrestamos.getInstancia().pagina(cursor, limite, soloActivos);
+    }
+
+    // Recorre todos los préstamos, en el orden del archivo, una página a la vez.
+    public static Stream<Prestamo> recorrerTodosLosPrestamos() {
+        return Pagina.recorrer(cursor -> paginaDePrestamos(cursor, Pagina.LIMITE_POR_DEFECTO, false));
+    }
+
+    // Recorre los préstamos activos ("PRESTADO"), en el orden del archivo, una página a la vez.
+    public static Stream<Prestamo> recorrerPrestamosActivos() {
+        return Pagina.recorrer(cursor -> paginaDePrestamos(cursor, Pagina.LIMITE_POR_DEFECTO, true));
+    }
+
+    // Lee todos los préstamos del archivo "LibroPrestado.txt" y los devuelve en
+    // una lista. Lo usa el índice al cargarse.
+    static List<Prestamo> leerArchivoPrestamos() {
         List<Prestamo> prestamos = new ArrayList<>(); // Lista para guardar los préstamos.
         Path path = resolverRutaLibroPrestado();
         if (!Files.exists(path)) { // Si el archivo no existe.
             return prestamos; // Devuelve una lista vacía.
         }
+        List<Prestamo> desdeBinario = PrestamosBinario.leerSiVigente(path); // Foto binaria, si está al día.
+        if (desdeBinario != null) {
+            return desdeBinario;
+        }
 
-        try (BufferedReader reader = Files.newBufferedReader(path, java.nio.charset.StandardCharsets.UTF_8)) {
-            String linea;
-            while ((linea = reader.readLine()) != null) { // Lee línea por línea.
-                String[] parts = linea.split("\\\\");
-                if (parts.length >= 7) { // Si tiene suficientes partes.
-                    try {
-                        String codigoLibro = parts[0].trim();
-                        long numeroDocumentoMiembro = Long.parseLong(parts[1].trim());
-                        Date fechaPrestamo = Fecha.parseDate(parts[2].trim());
-                        Date fechaDevolucionEstimada = Fecha.parseDate(parts[3].trim());
-                        Date fechaDevolucionReal = Fecha.parseDate(parts[4].trim());
-                        int idBiblioteca = Integer.parseInt(parts[5].trim());
-                        String estado = parts[6].trim();
-
-                        prestamos.add(new Prestamo(codigoLibro, numeroDocumentoMiembro, fechaPrestamo,
-                                fechaDevolucionEstimada,
-                                fechaDevolucionReal, idBiblioteca, estado)); // Crea el préstamo y lo añade a la lista.
-                    } catch (NumberFormatException | ParseException e) {
-                        System.err.println("Error de parseo en linea de prestamo: " + linea + " - " + e.getMessage()); // Error
-                                                                                                                       // si
-                                                                                                                       // los
-                                                                                                                       // datos
-                                                                                                                       // están
-                                                                                                                       // mal.
-                    }
-                }
-            }
+        try (BufferedReader reader = Metricas.abrirLector(path)) {
+            leerPrestamos(reader, prestamos);
         } catch (IOException e) {
             e.printStackTrace();
         }
         return prestamos; // Devuelve la lista de préstamos.
     }
 
+    // Lee los préstamos de 'reader' (con el formato de "LibroPrestado.txt") y los añade a 'prestamos'.
+    // Las líneas mal formadas se informan y se saltan.
+    static void leerPrestamos(Reader reader, List<Prestamo> prestamos) throws IOException {
+        LectorCampos lector = new LectorCampos(reader); // Un solo lector para todo el archivo.
+        while (lector.siguienteLinea()) { // Lee línea por línea.
+            int campos = lector.contarCampos();
+            if (campos >= 7) { // Si tiene suficientes partes.
+                try {
+                    String codigoLibro = lector.siguienteTexto();
+                    long numeroDocumentoMiembro = lector.siguienteLong();
+                    int diaPrestamo = lector.siguienteFecha();
+                    int diaDevolucionEstimada = lector.siguienteFecha();
+                    int diaDevolucionReal = lector.siguienteFecha();
+                    int idBiblioteca = lector.siguienteInt();
+                    String estado = lector.siguienteTexto();
+
+                    Prestamo prestamo = new Prestamo(codigoLibro, numeroDocumentoMiembro, diaPrestamo,
+                            diaDevolucionEstimada,
+                            diaDevolucionReal, idBiblioteca, estado); // Crea el préstamo.
+                    prestamo.version = campos >= 8 ? lector.siguienteLong() : 1; // Sin versión cuenta como la 1.
+                    prestamo.vez = campos >= 9 ? lector.siguienteInt() : 0; // Sin vez es la primera.
+                    prestamos.add(prestamo); // Lo añade a la lista.
+                } catch (NumberFormatException e) {
+                    System.err.println("Error de parseo en linea de prestamo: " + lector.lineaActual() + " - "
+                            + e.getMessage()); // Error si los datos están mal.
+                }
+            }
+        }
+    }
+
     // Busca y devuelve todos los préstamos de un miembro específico, por su número
     // de documento.
     public static List<Prestamo> encontrarPrestamosPorMiembro(long numeroDocumentoMiembro) {
-        return cargarTodosLosPrestamos().stream()
-                .filter(p -> p.getNumeroDocumentoMiembro() == numeroDocumentoMiembro) // Filtra por el número de
-                                                                                      // documento.
-                .collect(Collectors.toList()); // Devuelve los préstamos que coinciden.
+        return IndicePrestamos.getInstancia().porMiembro(numeroDocumentoMiembro); // Búsqueda directa en el índice.
+    }
+
+    // Busca y devuelve todos los préstamos de un libro, por su código exacto.
+    public static List<Prestamo> encontrarPrestamosPorLibro(String codigoLibro) {
+        return IndicePrestamos.getInstancia().porLibro(codigoLibro); // Búsqueda directa en el índice.
+    }
+
+    // Busca los préstamos activos vencidos el día 'dia' (su fecha de devolución estimada
+    // es anterior), del más antiguo al más reciente.
+    public static List<Prestamo> encontrarPrestamosVencidos(int dia) {
+        return IndicePrestamos.getInstancia().vencidos(dia); // Búsqueda directa en el índice por vencimiento.
+    }
+
+    // Busca los préstamos activos que vencen entre el día 'dia' y 'dias' días después.
+    public static List<Prestamo> encontrarPrestamosPorVencer(int dia, int dias) {
+        return IndicePrestamos.getInstancia().porVencer(dia, dias); // Búsqueda directa en el índice por vencimiento.
     }
 
     // Busca un préstamo *activo* específico (un libro prestado por un miembro y que
     // no ha sido devuelto).
     public static Prestamo encontrarPrestamoActivo(long numeroDocumentoMiembro, String codigoLibro) {
-        return cargarTodosLosPrestamos().stream()
-                .filter(p -> p.getNumeroDocumentoMiembro() == numeroDocumentoMiembro // Filtra por el miembro.
-                        && p.getCodigoLibro().equals(codigoLibro) // Filtra por el libro.
-                        && "PRESTADO".equals(p.getEstado())) // Filtra por estado "PRESTADO".
-                .findFirst() // Toma el primer resultado.
-                .orElse(null); // Si no lo encuentra, devuelve 'null'.
+        return IndicePrestamos.getInstancia().activo(numeroDocumentoMiembro, codigoLibro); // Búsqueda directa en el
+                                                                                            // índice.
+    }
+
+    // Identificador único del préstamo: libro, miembro, fecha de préstamo y, si no es la
+    // primera, la vez.
+    String getIdentificador() {
+        String identificador = this.codigoLibro + "_" + this.numeroDocumentoMiembro + "_"
+                + Fecha.formatear(this.diaPrestamo);
+        return vez == 0 ? identificador : identificador + "_" + vez;
+    }
+
+    // Devuelve una copia de este préstamo (la usa el índice en memoria).
+    Prestamo copiar() {
+        Prestamo copia = new Prestamo(codigoLibro, numeroDocumentoMiembro, diaPrestamo, diaDevolucionEstimada,
+                diaDevolucionReal, idBiblioteca, estado);
+        copia.version = version;
+        copia.vez = vez;
+        return copia;
     }
 
     // Devuelve una cadena de texto que representa el objeto Prestamo de forma
@@ -305,9 +519,9 @@ public class Prestamo implements IPersistible {
         return "Prestamo {" +
                 "  Libro Codigo='" + codigoLibro + '\'' +
                 ", Miembro Doc=" + numeroDocumentoMiembro +
-                ", Fecha Prestamo=" + Fecha.formatDate(fechaPrestamo) +
-                ", Fecha Devolucion Estimada=" + Fecha.formatDate(fechaDevolucionEstimada) +
-                ", Fecha Devolucion Real=" + Fecha.formatDate(fechaDevolucionReal) +
+                ", Fecha Prestamo=" + Fecha.formatear(diaPrestamo) +
+                ", Fecha Devolucion Estimada=" + Fecha.formatear(diaDevolucionEstimada) +
+                ", Fecha Devolucion Real=" + Fecha.formatear(diaDevolucionReal) +
                 ", ID Biblioteca=" + idBiblioteca +
                 ", Estado='" + estado + '\'' +
                 '}';
@@ -0,0 +1,413 @@
+package com.mycompany.sistemabiblioteca; // Carpeta donde está organizado nuestro código.
+
+import java.io.BufferedReader; // Para leer archivos de texto.
+import java.io.DataOutputStream; // Para escribir números en binario.
+import java.io.IOException; // Para manejar errores al trabajar con archivos.
+import java.nio.MappedByteBuffer; // Archivo proyectado en memoria.
+import java.nio.channels.FileChannel; // Canal de archivo (para proyectarlo en memoria).
+import java.nio.charset.StandardCharsets; // Para la codificación UTF-8.
+import java.nio.file.Files; // Para operar con archivos.
+import java.nio.file.Path; // Para rutas de archivos.
+import java.nio.file.StandardOpenOption; // Para opciones de apertura.
+import java.util.ArrayList; // Para listas dinámicas.
+import java.util.Arrays; // Para agrandar arreglos.
+import java.util.HashMap; // Mapa de acceso directo por clave.
+import java.util.List; // Para usar listas.
+import java.util.Map; // Para usar mapas.
+
+// Esta clase es una foto binaria y por columnas de "LibroPrestado.txt"
+// ("LibroPrestado.bin"). El historial de préstamos solo crece; leerlo como texto en
+// cada arranque cuesta segundos con millones de líneas. Este formato se proyecta en
+// memoria (FileChannel.map) y se lee sin interpretar texto.
+//
+// Formato (enteros en big-endian):
+// - Cabecera: MAGIA, VERSION, tamaño y fecha de modificación del .txt del que salió
+//   (para saber si la foto sigue vigente), cantidad de préstamos.
+// - Diccionario de códigos de libro y diccionario de estados (cada texto una sola vez).
+// - Columnas de ancho fijo, una detrás de otra (el préstamo i está en la posición i de cada una):
+//   documento (long), código (int, índice del diccionario), fecha de préstamo,
+//   fecha estimada y fecha real (int, días desde 1970-01-01), versión del registro (int),
+//   vez (int, ver Prestamo.getVez; no está en la versión 2 del formato), biblioteca (byte),
+//   estado (byte).
+// Un recorrido sobre una columna (por ejemplo, todos los estados) lee memoria contigua.
+//
+// La foto no reemplaza al .txt: se genera con el conversor (ver main) y se usa al
+// cargar solo si el .txt no cambió desde entonces.
+public class PrestamosBinario {
+
+    private static final int MAGIA = 0x42505253; // "BPRS".
+    // Versión del formato (la 2 añadió la versión de cada registro y la 3, la vez de cada
+    // préstamo). La 2 todavía se lee: sus préstamos son todos la primera vez.
+    private static final int VERSION = 3;
+    private static final int VERSION_SIN_VEZ = 2;
+
+    private final MappedByteBuffer datos; // Archivo proyectado en memoria (solo lectura).
+    private final long tamanoTexto; // Tamaño del .txt del que salió la foto.
+    private final long modificadoTexto; // Fecha de modificación (ms) del .txt del que salió la foto.
+    private final int cantidad; // Número de préstamos.
+    private final String[] codigos; // Diccionario de códigos de libro.
+    private final String[] estados; // Diccionario de estados.
+    // Posición donde empieza cada columna.
+    private final int colDocumento, colCodigo, colDiaPrestamo, colDiaEstimada, colDiaReal, colVersion, colVez,
+            colBiblioteca, colEstado; // colVez es -1 en la versión 2 del formato.
+
+    private PrestamosBinario(MappedByteBuffer datos) throws IOException {
+        this.datos = datos;
+        if (datos.limit() < 28 || datos.getInt(0) != MAGIA) {
+            throw new IOException("No es un archivo de prestamos binario.");
+        }
+        int version = datos.getInt(4);
+        if (version != VERSION && version != VERSION_SIN_VEZ) {
+            throw new IOException("Version de archivo de prestamos no soportada: " + version);
+        }
+        boolean conVez = version == VERSION;
+        tamanoTexto = datos.getLong(8);
+        modificadoTexto = datos.getLong(16);
+        cantidad = datos.getInt(24);
+        datos.position(28);
+        codigos = leerDiccionario(datos);
+        estados = leerDiccionario(datos);
+        int inicio = (datos.position() + 7) & ~7; // Las columnas empiezan alineadas a 8 bytes.
+        int bytesPorPrestamo = conVez ? 34 : 30;
+        if (cantidad < 0 || inicio + (long) bytesPorPrestamo * cantidad > datos.limit()) {
+            throw new IOException("Archivo de prestamos binario incompleto.");
+        }
+        colDocumento = inicio;
+        colCodigo = colDocumento + 8 * cantidad;
+        colDiaPrestamo = colCodigo + 4 * cantidad;
+        colDiaEstimada = colDiaPrestamo + 4 * cantidad;
+        colDiaReal = colDiaEstimada + 4 * cantidad;
+        colVersion = colDiaReal + 4 * cantidad;
+        colVez = conVez ? colVersion + 4 * cantidad : -1;
+        colBiblioteca = colVersion + (conVez ? 8 : 4) * cantidad;
+        colEstado = colBiblioteca + cantidad;
+    }
+
+    // Lee un diccionario: cantidad y luego cada texto (largo + bytes UTF-8).
+    private static String[] leerDiccionario(MappedByteBuffer datos) {
+        String[] textos = new String[datos.getInt()];
+        for (int i = 0; i < textos.length; i++) {
+            byte[] bytes = new byte[datos.getShort() & 0xFFFF];
+            datos.get(bytes);
+            textos[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return textos;
+    }
+
+    // Devuelve la ruta de la foto binaria de los préstamos.
+    static Path resolverRutaBinario() {
+        return PathManager.resolverRutaArchivo("LibroPrestado.bin");
+    }
+
+    // Abre (proyecta en memoria) un archivo binario de préstamos.
+    // El tamaño máximo es el de un MappedByteBuffer (2 GB, unos 70 millones de préstamos).
+    public static PrestamosBinario abrir(Path path) throws IOException {
+        try (FileChannel canal = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (canal.size() > Integer.MAX_VALUE) {
+                throw new IOException("Archivo de prestamos binario demasiado grande: " + canal.size());
+            }
+            Metricas.archivo(path).registrarLectura(canal.size()); // Lo que se puede llegar a leer.
+            // La proyección sigue siendo válida después de cerrar el canal.
+            return new PrestamosBinario(canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size()));
+        }
+    }
+
+    // Si hay una foto binaria vigente de 'texto' (mismo tamaño y misma fecha de
+    // modificación que cuando se generó), devuelve sus préstamos. Si no, devuelve 'null'
+    // y hay que leer el texto.
+    static List<Prestamo> leerSiVigente(Path texto) {
+        Path binario = resolverRutaBinario();
+        if (!Files.exists(binario)) {
+            return null;
+        }
+        try {
+            PrestamosBinario foto = abrir(binario);
+            if (foto.tamanoTexto != Files.size(texto)
+                    || foto.modificadoTexto != Files.getLastModifiedTime(texto).toMillis()) {
+                return null; // El .txt cambió después de generar la foto.
+            }
+            return foto.todos();
+        } catch (IOException ex) {
+            System.err.println("No se pudo usar " + binario + ": " + ex.getMessage() + ". Se lee el archivo de texto.");
+            return null;
+        }
+    }
+
+    // --- Lectura por columnas ---
+
+    // Número de préstamos.
+    public int cantidad() {
+        return cantidad;
+    }
+
+    public String codigoLibro(int i) {
+        return codigos[datos.getInt(colCodigo + 4 * i)];
+    }
+
+    public long numeroDocumentoMiembro(int i) {
+        return datos.getLong(colDocumento + 8 * i);
+    }
+
+    public int diaPrestamo(int i) {
+        return datos.getInt(colDiaPrestamo + 4 * i);
+    }
+
+    public int diaDevolucionEstimada(int i) {
+        return datos.getInt(colDiaEstimada + 4 * i);
+    }
+
+    public int diaDevolucionReal(int i) {
+        return datos.getInt(colDiaReal + 4 * i);
+    }
+
+    public int version(int i) {
+        return datos.getInt(colVersion + 4 * i);
+    }
+
+    public int vez(int i) {
+        return colVez < 0 ? 0 : datos.getInt(colVez + 4 * i);
+    }
+
+    public int idBiblioteca(int i) {
+        return datos.get(colBiblioteca + i);
+    }
+
+    public String estado(int i) {
+        return estados[datos.get(colEstado + i) & 0xFF];
+    }
+
+    // Cuenta los préstamos con este estado recorriendo solo la columna de estados.
+    public int contarPorEstado(String estado) {
+        int indice = Arrays.asList(estados).indexOf(estado);
+        if (indice < 0) {
+            return 0;
+        }
+        int total = 0;
+        for (int i = 0; i < cantidad; i++) {
+            if ((datos.get(colEstado + i) & 0xFF) == indice) {
+                total++;
+            }
+        }
+        return total;
+    }
+
+    // Crea el préstamo i. Los códigos y estados salen del diccionario, así préstamos
+    // del mismo libro comparten el mismo String.
+    public Prestamo prestamo(int i) {
+        Prestamo prestamo = new Prestamo(codigoLibro(i), numeroDocumentoMiembro(i), diaPrestamo(i),
+                diaDevolucionEstimada(i), diaDevolucionReal(i), idBiblioteca(i), estado(i));
+        prestamo.setVersion(version(i));
+        prestamo.setVez(vez(i));
+        return prestamo;
+    }
+
+    // Crea todos los préstamos, en el orden del archivo.
+    public List<Prestamo> todos() {
+        List<Prestamo> prestamos = new ArrayList<>(cantidad);
+        for (int i = 0; i < cantidad; i++) {
+            prestamos.add(prestamo(i));
+        }
+        return prestamos;
+    }
+
+    // --- Conversión ---
+
+    // Columnas en memoria mientras se arma un archivo binario.
+    private static final class Columnas {
+        int cantidad = 0;
+        long[] documentos = new long[1024];
+        int[] codigos = new int[1024];
+        int[] diasPrestamo = new int[1024];
+        int[] diasEstimada = new int[1024];
+        int[] diasReal = new int[1024];
+        int[] versiones = new int[1024];
+        int[] veces = new int[1024];
+        byte[] bibliotecas = new byte[1024];
+        byte[] estados = new byte[1024];
+        final Map<String, Integer> indiceCodigos = new HashMap<>();
+        final List<String> listaCodigos = new ArrayList<>();
+        final Map<String, Integer> indiceEstados = new HashMap<>();
+        final List<String> listaEstados = new ArrayList<>();
+
+        void agregar(String codigo, long documento, int diaPrestamo, int diaEstimada, int diaReal, long version,
+                int vez, int idBiblioteca, String estado) throws IOException {
+            if (idBiblioteca < Byte.MIN_VALUE || idBiblioteca > Byte.MAX_VALUE) {
+                throw new IOException("ID de biblioteca fuera del rango del formato binario: " + idBiblioteca);
+            }
+            if (version < 0 || version > Integer.MAX_VALUE) {
+                throw new IOException("Version de registro fuera del rango del formato binario: " + version);
+            }
+            if (cantidad == documentos.length) {
+                int n = cantidad * 2;
+                documentos = Arrays.copyOf(documentos, n);
+                codigos = Arrays.copyOf(codigos, n);
+                diasPrestamo = Arrays.copyOf(diasPrestamo, n);
+                diasEstimada = Arrays.copyOf(diasEstimada, n);
+                diasReal = Arrays.copyOf(diasReal, n);
+                versiones = Arrays.copyOf(versiones, n);
+                veces = Arrays.copyOf(veces, n);
+                bibliotecas = Arrays.copyOf(bibliotecas, n);
+                estados = Arrays.copyOf(estados, n);
+            }
+            int indiceEstado = indice(estado, indiceEstados, listaEstados);
+            if (indiceEstado > 255) {
+                throw new IOException("Demasiados estados distintos para el formato binario.");
+            }
+            documentos[cantidad] = documento;
+            codigos[cantidad] = indice(codigo, indiceCodigos, listaCodigos);
+            diasPrestamo[cantidad] = diaPrestamo;
+            diasEstimada[cantidad] = diaEstimada;
+            diasReal[cantidad] = diaReal;
+            versiones[cantidad] = (int) version;
+            veces[cantidad] = vez;
+            bibliotecas[cantidad] = (byte) idBiblioteca;
+            estados[cantidad] = (byte) indiceEstado;
+            cantidad++;
+        }
+
+        // Devuelve la posición de 'texto' en el diccionario, añadiéndolo si es nuevo.
+        private static int indice(String texto, Map<String, Integer> indices, List<String> lista) {
+            Integer i = indices.get(texto);
+            if (i == null) {
+                i = lista.size();
+                indices.put(texto, i);
+                lista.add(texto);
+            }
+            return i;
+        }
+
+        // Escribe el archivo binario en 'destino' (ver EscrituraAtomica: temporal, disco y
+        // renombrado, con el bloqueo del archivo tomado).
+        void escribir(Path destino, long tamanoTexto, long modificadoTexto) throws IOException {
+            BloqueoArchivo.de(destino).ejecutar(() -> {
+                EscrituraAtomica.reemplazarBinario(destino, salida -> escribirEn(new DataOutputStream(salida),
+                        tamanoTexto, modificadoTexto));
+                return null;
+            });
+        }
+
+        // Escribe la cabecera, los diccionarios y las columnas en 'out'.
+        private void escribirEn(DataOutputStream out, long tamanoTexto, long modificadoTexto) throws IOException {
+            out.writeInt(MAGIA);
+            out.writeInt(VERSION);
+            out.writeLong(tamanoTexto);
+            out.writeLong(modificadoTexto);
+            out.writeInt(cantidad);
+            int escritos = 28 + escribirDiccionario(out, listaCodigos) + escribirDiccionario(out, listaEstados);
+            for (; (escritos & 7) != 0; escritos++) { // Relleno hasta alinear a 8 bytes.
+                out.writeByte(0);
+            }
+            for (int i = 0; i < cantidad; i++) {
+                out.writeLong(documentos[i]);
+            }
+            escribirColumna(out, codigos);
+            escribirColumna(out, diasPrestamo);
+            escribirColumna(out, diasEstimada);
+            escribirColumna(out, diasReal);
+            escribirColumna(out, versiones);
+            escribirColumna(out, veces);
+            out.write(bibliotecas, 0, cantidad);
+            out.write(estados, 0, cantidad);
+            out.flush();
+        }
+
+        private void escribirColumna(DataOutputStream out, int[] columna) throws IOException {
+            for (int i = 0; i < cantidad; i++) {
+                out.writeInt(columna[i]);
+            }
+        }
+
+        // Escribe un diccionario y devuelve los bytes escritos.
+        private static int escribirDiccionario(DataOutputStream out, List<String> textos) throws IOException {
+            int escritos = 4;
+            out.writeInt(textos.size());
+            for (String texto : textos) {
+                byte[] bytes = texto.getBytes(StandardCharsets.UTF_8);
+                if (bytes.length > 0xFFFF) {
+                    throw new IOException("Texto demasiado largo para el formato binario.");
+                }
+                out.writeShort(bytes.length);
+                out.write(bytes);
+                escritos += 2 + bytes.length;
+            }
+            return escritos;
+        }
+    }
+
+    // Convierte un archivo de préstamos de texto (formato de "LibroPrestado.txt") a binario.
+    // Las líneas mal formadas se informan y se saltan, igual que al cargar el texto.
+    // Devuelve la cantidad de préstamos convertidos.
+    public static int convertirTextoABinario(Path texto, Path binario) throws IOException {
+        long tamano = Files.size(texto);
+        long modificado = Files.getLastModifiedTime(texto).toMillis();
+        Columnas columnas = new Columnas();
+        try (BufferedReader reader = Metricas.abrirLector(texto)) {
+            LectorCampos lector = new LectorCampos(reader);
+            while (lector.siguienteLinea()) {
+                int campos = lector.contarCampos();
+                if (campos >= 7) {
+                    try {
+                        String codigoLibro = lector.siguienteTexto();
+                        long numeroDocumentoMiembro = lector.siguienteLong();
+                        int diaPrestamo = lector.siguienteFecha();
+                        int diaDevolucionEstimada = lector.siguienteFecha();
+                        int diaDevolucionReal = lector.siguienteFecha();
+                        int idBiblioteca = lector.siguienteInt();
+                        String estado = lector.siguienteTexto();
+                        long version = campos >= 8 ? lector.siguienteLong() : 1;
+                        int vez = campos >= 9 ? lector.siguienteInt() : 0;
+                        columnas.agregar(codigoLibro, numeroDocumentoMiembro, diaPrestamo, diaDevolucionEstimada,
+                                diaDevolucionReal, version, vez, idBiblioteca, estado);
+                    } catch (NumberFormatException e) {
+                        System.err.println("Error de parseo en linea de prestamo: " + lector.lineaActual() + " - "
+                                + e.getMessage());
+                    }
+                }
+            }
+        }
+        columnas.escribir(binario, tamano, modificado);
+        return columnas.cantidad;
+    }
+
+    // Convierte un archivo binario de préstamos al formato de texto de "LibroPrestado.txt".
+    // Devuelve la cantidad de préstamos convertidos.
+    public static int convertirBinarioATexto(Path binario, Path texto) throws IOException {
+        PrestamosBinario foto = abrir(binario);
+        BloqueoArchivo bloqueo = BloqueoArchivo.de(texto); // Puede ser el "LibroPrestado.txt" en uso.
+        bloqueo.ejecutar(() -> {
+            EscrituraAtomica.reemplazar(texto, writer -> {
+                for (int i = 0; i < foto.cantidad; i++) {
+                    Prestamo prestamo = foto.prestamo(i);
+                    writer.write(prestamo.construirLineaConVersion(prestamo.getVersion())); // Mismo formato que Prestamo.
+                    writer.write(System.lineSeparator());
+                }
+            });
+            return bloqueo.marcarCambio(); // Los índices en memoria vuelven a leerlo.
+        });
+        return foto.cantidad;
+    }
+
+    // Conversor por línea de comandos:
+    // a-binario [LibroPrestado.txt] [LibroPrestado.bin]
+    // a-texto [LibroPrestado.bin] [LibroPrestado.txt]
+    // Sin rutas, usa los archivos de datos del programa.
+    public static void main(String[] args) {
+        if (args.length < 1 || !(args[0].equals("a-binario") || args[0].equals("a-texto"))) {
+            System.out.println("Uso: PrestamosBinario a-binario|a-texto [origen] [destino]");
+            return;
+        }
+        boolean aBinario = args[0].equals("a-binario");
+        Path rutaTexto = Prestamo.resolverRutaLibroPrestado();
+        Path rutaBinario = resolverRutaBinario();
+        Path origen = args.length > 1 ? Path.of(args[1]) : (aBinario ? rutaTexto : rutaBinario);
+        Path destino = args.length > 2 ? Path.of(args[2]) : (aBinario ? rutaBinario : rutaTexto);
+        try {
+            long inicio = System.nanoTime();
+            int total = aBinario ? convertirTextoABinario(origen, destino) : convertirBinarioATexto(origen, destino);
+            System.out.println("Convertidos " + total + " prestamos de " + origen + " a " + destino + " en "
+                    + (System.nanoTime() - inicio) / 1_000_000 + " ms.");
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.mycompany.sistemabiblioteca; // Carpeta donde está organizado nuestro código.
+
+import java.util.ArrayList; // Para listas dinámicas.
+import java.util.HashSet; // Para juntar documentos y códigos sin repetir.
+import java.util.List; // Para usar listas.
+import java.util.Map; // Para usar mapas.
+import java.util.Set; // Conjunto de documentos o códigos a buscar.
+import java.util.function.Function; // Pide la página de préstamos que sigue a un cursor.
+import java.util.stream.Stream; // Filas que se arman a medida que se recorren.
+
+// Esta clase arma los reportes de préstamos (Admin.verLibrosPrestados, Admin.verLibro,
+// Admin.verLibrosPrestadosPorUsuario, Usuario.verMisLibrosPrestados): cada préstamo con
+// su miembro y su libro.
+// Antes cada reporte buscaba el miembro y el libro de cada préstamo por separado (una
+// consulta por fila a cada índice, con su bloqueo y su copia). Aquí los préstamos se
+// toman de a una página: se juntan los documentos y los códigos distintos de la página,
+// se buscan todos de una vez (una consulta a cada índice, ver
+// Miembro.encontrarMiembrosPorNumeroDocumento y Libro.encontrarLibrosPorCodigo) y cada
+// préstamo se une con los suyos a través de esos mapas.
+public final class ReportePrestamos {
+
+    private ReportePrestamos() { // Clase de utilidad: no se crean instancias.
+    }
+
+    // Una fila del reporte. 'miembro' o 'libro' son null si ya no existen.
+    public static final class Fila {
+        private final Prestamo prestamo;
+        private final Miembro miembro;
+        private final Libro libro;
+
+        Fila(Prestamo prestamo, Miembro miembro, Libro libro) {
+            this.prestamo = prestamo;
+            this.miembro = miembro;
+            this.libro = libro;
+        }
+
+        public Prestamo getPrestamo() {
+            return prestamo;
+        }
+
+        public Miembro getMiembro() {
+            return miembro;
+        }
+
+        public Libro getLibro() {
+            return libro;
+        }
+    }
+
+    // Une los préstamos de una lista con sus miembros y libros (una sola consulta a cada
+    // índice para toda la lista). Las filas siguen el orden de la lista.
+    public static List<Fila> unir(List<Prestamo> prestamos, boolean conMiembros) {
+        Set<String> codigos = new HashSet<>();
+        Set<Long> documentos = new HashSet<>();
+        for (Prestamo prestamo : prestamos) {
+            codigos.add(prestamo.getCodigoLibro());
+            documentos.add(prestamo.getNumeroDocumentoMiembro());
+        }
+        Map<String, Libro> libros = Libro.encontrarLibrosPorCodigo(codigos);
+        Map<Long, Miembro> miembros = conMiembros ? Miembro.encontrarMiembrosPorNumeroDocumento(documentos) : Map.of();
+        List<Fila> filas = new ArrayList<>(prestamos.size());
+        for (Prestamo prestamo : prestamos) {
+            filas.add(new Fila(prestamo, miembros.get(prestamo.getNumeroDocumentoMiembro()),
+                    libros.get(prestamo.getCodigoLibro())));
+        }
+        return filas;
+    }
+
+    // Recorre un listado de préstamos por páginas (ver Pagina.recorrer) y une cada página
+    // con sus miembros y libros. En memoria hay, como mucho, una página de filas a la vez.
+    public static Stream<Fila> recorrer(Function<String, Pagina<Prestamo>> paginaDesde, boolean conMiembros) {
+        return Pagina.recorrer(cursor -> {
+            Pagina<Prestamo> pagina = paginaDesde.apply(cursor);
+            return new Pagina<>(unir(pagina.getElementos(), conMiembros), pagina.getSiguiente());
+        });
+    }
+
+    // Todos los préstamos activos ("PRESTADO") con su miembro y su libro, en el orden
+    // del archivo.
+    public static Stream<Fila> prestamosActivos() {
+        return recorrer(cursor -> Prestamo.paginaDePrestamos(cursor, Pagina.LIMITE_POR_DEFECTO, true), true);
+    }
+}
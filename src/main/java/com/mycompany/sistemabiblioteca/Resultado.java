@@ -0,0 +1,73 @@
+package com.mycompany.sistemabiblioteca; // Carpeta donde está organizado nuestro código.
+
+// Esta clase es el resultado de una operación del sistema (prestar, devolver, agregar
+// un libro, crear un usuario...). Antes esas operaciones devolvían solo un texto
+// ("Exito: ..." o "Error: ..."); quien no es una persona (la API, un kiosco) tenía que
+// adivinar por el texto si salió bien y no recibía el objeto creado o cambiado.
+// Ahora cada operación dice:
+// - estado: si salió bien y, si no, por qué (no existe, no está permitido, conflicto...).
+// - mensaje: el mismo texto de siempre, para mostrar al usuario.
+// - valor: el objeto resultante (el préstamo creado, el libro editado...), o null si falló.
+// toString() devuelve el mensaje, así los menús lo siguen imprimiendo igual que antes.
+public final class Resultado<T> {
+
+    // Motivo del resultado.
+    public enum Estado {
+        EXITO, // La operación se hizo.
+        INVALIDO, // Los datos de entrada no son válidos (ej. unidades negativas).
+        NO_PERMITIDO, // El miembro no puede hacer esta operación (ej. un Admin pidiendo un libro).
+        NO_ENCONTRADO, // El libro, usuario o biblioteca no existe.
+        DUPLICADO, // Ya existe un registro con ese código, usuario, documento o ID.
+        RECHAZADO, // Una regla del negocio lo impide (deuda, límite de préstamos, sin unidades...).
+        CONFLICTO, // Otro proceso cambió el registro al mismo tiempo; se puede reintentar.
+        ERROR // Falla interna (ej. no se pudo acceder a un archivo).
+    }
+
+    private final Estado estado; // Si salió bien o por qué no.
+    private final String mensaje; // Texto para el usuario.
+    private final T valor; // Objeto resultante (null si falló).
+
+    private Resultado(Estado estado, String mensaje, T valor) {
+        this.estado = estado;
+        this.mensaje = mensaje;
+        this.valor = valor;
+    }
+
+    // Resultado de una operación exitosa.
+    public static <T> Resultado<T> exito(T valor, String mensaje) {
+        return new Resultado<>(Estado.EXITO, mensaje, valor);
+    }
+
+    // Resultado de una operación que no se hizo.
+    public static <T> Resultado<T> fallo(Estado estado, String mensaje) {
+        return new Resultado<>(estado, mensaje, null);
+    }
+
+    // Resultado de una operación que chocó con otro proceso (no se escribió nada).
+    public static <T> Resultado<T> conflicto(ConflictoVersionException e) {
+        return fallo(Estado.CONFLICTO, "Error: " + e.getMessage());
+    }
+
+    public Estado getEstado() {
+        return estado;
+    }
+
+    public String getMensaje() {
+        return mensaje;
+    }
+
+    public T getValor() {
+        return valor;
+    }
+
+    // Indica si la operación se hizo.
+    public boolean esExito() {
+        return estado == Estado.EXITO;
+    }
+
+    // El mensaje, tal como lo mostraban antes los menús.
+    @Override
+    public String toString() {
+        return mensaje;
+    }
+}
@@ -0,0 +1,168 @@
+package com.mycompany.sistemabiblioteca; // Carpeta donde está organizado nuestro código.
+
+import java.io.IOException; // Para manejar errores al trabajar con archivos.
+import java.nio.file.Files; // Para operar con archivos.
+import java.nio.file.Path; // Para rutas de archivos.
+import java.util.ArrayList; // Para listas dinámicas.
+import java.util.HashMap; // Mapa de acceso directo por clave.
+import java.util.List; // Para usar listas.
+import java.util.Map; // Para usar mapas.
+
+// Esta clase reparte los números de los códigos automáticos de libros
+// ("ID_BIB-INICIAL_SEDE-NUMERO", ej. "1-M-42"). Guarda en "SecuenciasLibros.txt" el
+// último número reservado para cada prefijo ("1-M\64"), así el siguiente código sale
+// sin recorrer el catálogo.
+// - La primera vez que se pide un prefijo, su último número se calcula recorriendo el
+//   catálogo una vez, con la misma regla de antes (ver numeroInicial); desde ahí solo
+//   se suma 1.
+// - Los números se reservan de a BLOQUE: con el BloqueoArchivo de "SecuenciasLibros.txt"
+//   tomado se anota el final del bloque y luego este proceso entrega esos números sin
+//   volver a escribir el archivo. Así dos administradores (hilos o procesos) no reciben
+//   nunca el mismo número, y cargar muchos libros seguidos no escribe (ni fuerza a
+//   disco) el archivo por cada uno. Si otro proceso escribió el archivo, se vuelve a
+//   leer. Los números de un bloque que no se llegan a usar (el programa se cierra) se
+//   pierden: los códigos no tienen huecos dentro de una ejecución, pero sí entre
+//   ejecuciones o entre procesos.
+// - Un número entregado no se vuelve a entregar, aunque su libro se elimine: los
+//   préstamos antiguos de ese código no pasan a apuntar a un libro nuevo.
+// - Si el código siguiente ya lo tiene un libro (por ejemplo, uno creado con un código
+//   escrito a mano), se salta: la comprobación es una consulta directa al repositorio.
+public class SecuenciasCodigos {
+
+    private static final SecuenciasCodigos INSTANCIA = new SecuenciasCodigos(); // Única instancia del proceso.
+    private static final int BLOQUE = 64; // Números que se reservan en cada escritura del archivo.
+
+    // Números reservados por este proceso para un prefijo: del 'siguiente' al 'limite'.
+    private static final class Reserva {
+        long siguiente;
+        long limite;
+    }
+
+    private final Map<String, Long> ultimos = new HashMap<>(); // Prefijo -> último número reservado (el archivo).
+    private final Map<String, Reserva> reservas = new HashMap<>(); // Prefijo -> números que quedan por entregar.
+    private boolean cargado = false; // Indica si ya se leyó el archivo.
+    private long generacionVista = 0; // Contador de cambios del archivo al leerlo o escribirlo.
+
+    private SecuenciasCodigos() {
+    }
+
+    // Devuelve el repartidor compartido.
+    public static SecuenciasCodigos getInstancia() {
+        return INSTANCIA;
+    }
+
+    // Ruta de "SecuenciasLibros.txt".
+    static Path resolverRutaSecuencias() {
+        return PathManager.resolverRutaArchivo("SecuenciasLibros.txt");
+    }
+
+    // Prefijo de los códigos de una biblioteca (ej. "1-M" para ID 1 y sede "Medellin").
+    static String prefijo(int idBiblioteca, String sedeBiblioteca) {
+        return String.valueOf(idBiblioteca) + "-" + sedeBiblioteca.substring(0, 1).toUpperCase();
+    }
+
+    // Entrega el siguiente código libre para esa biblioteca y sede. Su número ya quedó
+    // reservado en el archivo: aunque el libro no llegue a guardarse, ese código no se
+    // vuelve a entregar.
+    public synchronized String siguienteCodigo(int idBiblioteca, String sedeBiblioteca) throws IOException {
+        String prefijo = prefijo(idBiblioteca, sedeBiblioteca);
+        Reserva reserva = reservas.computeIfAbsent(prefijo, k -> new Reserva());
+        while (true) {
+            if (reserva.siguiente == 0 || reserva.siguiente > reserva.limite) { // No quedan números: reserva otro bloque.
+                reservarBloque(prefijo, reserva);
+            }
+            long numero = reserva.siguiente++;
+            String codigo = prefijo + "-" + numero;
+            if (Libro.encontrarLibroPorCodigo(codigo) == null) { // Si ya lo tiene un libro, se salta.
+                return codigo;
+            }
+        }
+    }
+
+    // Reserva los BLOQUE números que siguen al último reservado (por cualquier proceso) y
+    // lo anota en el archivo, con su bloqueo tomado.
+    private void reservarBloque(String prefijo, Reserva reserva) throws IOException {
+        Path path = resolverRutaSecuencias();
+        BloqueoArchivo bloqueo = BloqueoArchivo.de(path);
+        bloqueo.ejecutar(() -> {
+            long generacion = bloqueo.generacion();
+            if (!cargado || generacion != generacionVista) {
+                leer(path);
+            }
+            Long ultimo = ultimos.get(prefijo);
+            long inicio = (ultimo != null ? ultimo : numeroInicial(prefijo)) + 1;
+            ultimos.put(prefijo, inicio + BLOQUE - 1);
+            escribir(path);
+            generacionVista = bloqueo.marcarCambio(); // Avisa a los demás procesos.
+            reserva.siguiente = inicio;
+            reserva.limite = inicio + BLOQUE - 1;
+            return null;
+        });
+    }
+
+    // Último número usado con un prefijo que todavía no está en el archivo: el mayor
+    // número de los códigos con ese prefijo o, si no hay ninguno, el mayor número final
+    // de cualquier código (la regla que usaba generarSiguienteCodigoLibro). Recorre el
+    // catálogo una sola vez por prefijo.
+    private static long numeroInicial(String prefijo) {
+        long maximoPrefijo = 0;
+        long maximoGeneral = 0;
+        for (Libro libro : Libro.cargarTodosLosLibros()) {
+            String codigo = libro.getCodigo();
+            int guion = codigo.lastIndexOf('-');
+            if (guion < 0) {
+                continue; // Sin guiones no hay número final.
+            }
+            long numero;
+            try {
+                numero = Long.parseLong(codigo.substring(guion + 1));
+            } catch (NumberFormatException e) {
+                continue; // Ignora códigos que no terminan en número.
+            }
+            maximoGeneral = Math.max(maximoGeneral, numero);
+            // Con el prefijo: "<prefijo>-NUMERO", con el último guion justo después del
+            // prefijo. Así "1-MED-900" no cuenta para el prefijo "1-M".
+            if (guion == prefijo.length() && codigo.startsWith(prefijo)) {
+                maximoPrefijo = Math.max(maximoPrefijo, numero);
+            }
+        }
+        return maximoPrefijo > 0 ? maximoPrefijo : maximoGeneral;
+    }
+
+    // Lee el archivo (vacío si no existe). Las líneas mal formadas se informan y se saltan.
+    private void leer(Path path) throws IOException {
+        ultimos.clear();
+        if (Files.exists(path)) {
+            LectorCampos lector = new LectorCampos();
+            for (String linea : Metricas.leerLineas(path)) {
+                lector.reiniciar(linea);
+                if (lector.contarCampos() >= 2) {
+                    try {
+                        String prefijo = lector.siguienteTexto();
+                        ultimos.put(prefijo, lector.siguienteLong());
+                    } catch (NumberFormatException e) {
+                        System.err.println("Error de parseo en linea de secuencia: " + linea + " - " + e.getMessage());
+                    }
+                }
+            }
+        }
+        cargado = true;
+    }
+
+    // Reescribe el archivo con todos los prefijos (con el bloqueo tomado).
+    private void escribir(Path path) throws IOException {
+        List<String> lineas = new ArrayList<>(ultimos.size());
+        for (Map.Entry<String, Long> entrada : ultimos.entrySet()) {
+            lineas.add(entrada.getKey() + "\\" + entrada.getValue());
+        }
+        EscrituraAtomica.reemplazar(path, lineas); // Temporal + renombrado: nunca queda a medias.
+    }
+
+    // Olvida el contenido en memoria para que se vuelva a leer del archivo.
+    // Se usa cuando el archivo se borra o se reemplaza desde fuera.
+    public synchronized void invalidar() {
+        ultimos.clear();
+        reservas.clear();
+        cargado = false;
+    }
+}
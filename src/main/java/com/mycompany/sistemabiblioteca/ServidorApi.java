@@ -0,0 +1,746 @@
+package com.mycompany.sistemabiblioteca; // Carpeta donde está organizado nuestro código.
+
+import com.sun.net.httpserver.HttpExchange; // Una petición HTTP y su respuesta.
+import com.sun.net.httpserver.HttpServer; // Servidor HTTP que viene con el JDK.
+import java.io.IOException; // Para manejar errores de red.
+import java.io.InputStream; // Cuerpo de la petición.
+import java.io.OutputStream; // Cuerpo de la respuesta.
+import java.net.InetAddress; // Dirección en la que se escucha.
+import java.net.InetSocketAddress; // Dirección y puerto del servidor.
+import java.net.URLDecoder; // Para leer los parámetros de la URL (?q=...).
+import java.nio.charset.StandardCharsets; // Codificación del texto (UTF-8).
+import java.util.Base64; // Para leer el encabezado "Authorization: Basic".
+import java.util.HashMap; // Parámetros de la URL.
+import java.util.List; // Para manejar listas de objetos.
+import java.util.Map; // Campos del cuerpo y parámetros de la URL.
+import java.util.concurrent.ExecutorService; // Para atender las peticiones.
+import java.util.concurrent.Executors; // Para crear el ejecutor de hilos virtuales.
+
+// Esta clase ofrece las operaciones de la biblioteca como una API HTTP/JSON, para los
+// kioscos y las máquinas de autopréstamo. Usa el servidor HTTP del JDK
+// (com.sun.net.httpserver) con un hilo virtual por petición, así una petición que
+// espera el bloqueo de un archivo no ocupa un hilo del sistema.
+// Cada operación devuelve un Resultado, que se envía así:
+//   {"estado":"EXITO","mensaje":"Exito: ...","datos":{...}}
+// y el código HTTP sale del estado (EXITO 200/201, INVALIDO 400, NO_PERMITIDO 403,
+// NO_ENCONTRADO 404, DUPLICADO y CONFLICTO 409, RECHAZADO 422, ERROR 500).
+// Si la contraseña no se puede verificar porque el sistema está saturado
+// (SistemaOcupadoException) se responde 503 con "Retry-After", no 401: las
+// credenciales pueden ser correctas y el kiosco debe reintentar, no volver a pedirlas.
+//
+// Rutas (las marcadas con * piden "Authorization: Basic base64(usuario:secreto)", donde
+// el secreto es la contraseña o el token que devuelve POST /api/sesion; con ** además
+// el miembro debe ser Admin):
+//   POST   /api/sesion                  {usuario, contrasena} -> token de sesión.
+//   DELETE /api/sesion                * anula el token usado.
+//   GET    /api/libros?q=&tipo=         buscarLibro (tipo: nombre, autor, codigo, sede, idbiblioteca).
+//   GET    /api/libros/disponibles?sede=&biblioteca=   librosDisponibles.
+//   GET    /api/bibliotecas             todas las bibliotecas.
+//   POST   /api/prestamos             * {biblioteca, codigo[, documento]} prestarLibro.
+//   POST   /api/devoluciones          * {biblioteca, codigo[, documento]} devolverLibro.
+//   POST   /api/multas               ** {documento, codigo} multar (última devolución de ese libro).
+//   POST   /api/libros               ** agregarLibro;  PUT/DELETE /api/libros/{codigo}.
+//   POST   /api/usuarios             ** crearUsuario;  PUT/DELETE /api/usuarios/{usuario}.
+//   POST   /api/bibliotecas          ** agregarBiblioteca;  PUT/DELETE /api/bibliotecas/{id}.
+// "documento" permite que un Admin (un mostrador) preste o reciba en nombre de un usuario.
+// Para no calcular PBKDF2 en cada petición conviene activar los tokens de sesión
+// (-Dbiblioteca.sesion.ttl.segundos=900) y enviar el token como secreto.
+//
+// Uso: java -cp target/classes com.mycompany.sistemabiblioteca.SistemaBiblioteca api [puerto] [direccion]
+// Por defecto escucha en 127.0.0.1:8080 y no borra los datos al arrancar.
+public class ServidorApi implements AutoCloseable {
+
+    public static final int PUERTO_POR_DEFECTO = 8080; // Puerto si no se indica otro.
+    private static final int COLA_CONEXIONES = 1024; // Conexiones en espera de ser aceptadas.
+    private static final int TAMANO_MAXIMO_CUERPO = 64 * 1024; // Cuerpo más grande que se acepta (64 KB).
+    private static final int SEGUNDOS_REINTENTO_OCUPADO = 2; // "Retry-After" cuando el sistema está saturado.
+
+    private final HttpServer servidor; // Servidor HTTP del JDK.
+    private final ExecutorService hilos = Executors.newVirtualThreadPerTaskExecutor(); // Un hilo virtual por petición.
+
+    // Prepara el servidor en 'direccion':'puerto' (puerto 0 = uno libre cualquiera).
+    // No atiende nada hasta llamar a iniciar().
+    public ServidorApi(InetAddress direccion, int puerto) throws IOException {
+        this.servidor = HttpServer.create(new InetSocketAddress(direccion, puerto), COLA_CONEXIONES);
+        this.servidor.setExecutor(hilos);
+        this.servidor.createContext("/api/", this::atender);
+    }
+
+    // Empieza a atender peticiones (en otros hilos; este método vuelve enseguida).
+    public void iniciar() {
+        servidor.start();
+    }
+
+    // Puerto en el que escucha.
+    public int getPuerto() {
+        return servidor.getAddress().getPort();
+    }
+
+    // Deja de atender peticiones.
+    @Override
+    public void close() {
+        servidor.stop(0);
+        hilos.shutdown();
+    }
+
+    // Respuesta lista para enviar: código HTTP y documento JSON.
+    private static final class Respuesta {
+        final int codigo;
+        final Json.Escritor cuerpo;
+
+        Respuesta(int codigo, Json.Escritor cuerpo) {
+            this.codigo = codigo;
+            this.cuerpo = cuerpo;
+        }
+    }
+
+    // Error de la petición (ruta, método, datos o credenciales) que se responde sin
+    // llegar a la operación.
+    private static final class PeticionInvalida extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        final int codigo;
+        final Resultado.Estado estado;
+
+        PeticionInvalida(int codigo, Resultado.Estado estado, String mensaje) {
+            super(mensaje);
+            this.codigo = codigo;
+            this.estado = estado;
+        }
+    }
+
+    // Datos de una petición ya leídos.
+    private static final class Peticion {
+        final HttpExchange intercambio;
+        final String metodo; // GET, POST, PUT o DELETE.
+        final String[] ruta; // Partes de la ruta después de "/api/" (ej. ["libros", "MED-001"]).
+        final Map<String, String> parametros; // Parámetros de la URL.
+        private Map<String, String> cuerpo; // Campos del cuerpo JSON (se lee al pedirlo).
+
+        Peticion(HttpExchange intercambio) {
+            this.intercambio = intercambio;
+            this.metodo = intercambio.getRequestMethod().toUpperCase();
+            String camino = intercambio.getRequestURI().getPath().substring("/api/".length());
+            this.ruta = camino.isEmpty() ? new String[0] : camino.split("/");
+            this.parametros = leerParametros(intercambio.getRequestURI().getRawQuery());
+        }
+
+        Map<String, String> cuerpo() throws IOException {
+            if (cuerpo == null) {
+                byte[] bytes;
+                try (InputStream entrada = intercambio.getRequestBody()) {
+                    bytes = entrada.readNBytes(TAMANO_MAXIMO_CUERPO + 1);
+                }
+                if (bytes.length > TAMANO_MAXIMO_CUERPO) {
+                    throw new PeticionInvalida(413, Resultado.Estado.INVALIDO, "Error: El cuerpo de la peticion es demasiado grande.");
+                }
+                String texto = new String(bytes, StandardCharsets.UTF_8);
+                try {
+                    cuerpo = texto.isBlank() ? new HashMap<>() : Json.leerObjeto(texto);
+                } catch (IllegalArgumentException ex) {
+                    throw new PeticionInvalida(400, Resultado.Estado.INVALIDO, "Error: " + ex.getMessage());
+                }
+            }
+            return cuerpo;
+        }
+
+        // Campo de texto obligatorio del cuerpo. No puede tener el separador de campos
+        // ('\\') ni saltos de línea (ver sinSeparadores).
+        String texto(String nombre) throws IOException {
+            return sinSeparadores(nombre, obligatorio(nombre));
+        }
+
+        // Campo de texto opcional del cuerpo ('porDefecto' si no viene).
+        String texto(String nombre, String porDefecto) throws IOException {
+            String valor = cuerpo().get(nombre);
+            return valor == null ? porDefecto : sinSeparadores(nombre, valor);
+        }
+
+        // Contraseña obligatoria u opcional del cuerpo. Admite cualquier carácter: no se
+        // escribe tal cual en los archivos, solo su hash.
+        String contrasena(String nombre) throws IOException {
+            return obligatorio(nombre);
+        }
+
+        String contrasena(String nombre, String porDefecto) throws IOException {
+            String valor = cuerpo().get(nombre);
+            return valor == null ? porDefecto : valor;
+        }
+
+        // Valor de un campo obligatorio del cuerpo, tal como vino.
+        private String obligatorio(String nombre) throws IOException {
+            String valor = cuerpo().get(nombre);
+            if (valor == null) {
+                throw new PeticionInvalida(400, Resultado.Estado.INVALIDO, "Error: Falta el campo '" + nombre + "'.");
+            }
+            return valor;
+        }
+
+        long entero(String nombre) throws IOException {
+            return aEntero(nombre, obligatorio(nombre));
+        }
+
+        long entero(String nombre, long porDefecto) throws IOException {
+            String valor = cuerpo().get(nombre);
+            return valor == null ? porDefecto : aEntero(nombre, valor);
+        }
+
+        // Campos enteros que deben caber en un int o un byte. Un valor fuera de rango se
+        // rechaza (400) en vez de truncarse (4294967297 como int sería 1).
+        int enteroInt(String nombre) throws IOException {
+            return (int) enRango(nombre, entero(nombre), Integer.MIN_VALUE, Integer.MAX_VALUE);
+        }
+
+        int enteroInt(String nombre, int porDefecto) throws IOException {
+            return (int) enRango(nombre, entero(nombre, porDefecto), Integer.MIN_VALUE, Integer.MAX_VALUE);
+        }
+
+        byte enteroByte(String nombre) throws IOException {
+            return (byte) enRango(nombre, entero(nombre), Byte.MIN_VALUE, Byte.MAX_VALUE);
+        }
+
+        byte enteroByte(String nombre, byte porDefecto) throws IOException {
+            return (byte) enRango(nombre, entero(nombre, porDefecto), Byte.MIN_VALUE, Byte.MAX_VALUE);
+        }
+
+        double decimal(String nombre, double porDefecto) throws IOException {
+            String valor = cuerpo().get(nombre);
+            if (valor == null) {
+                return porDefecto;
+            }
+            try {
+                return Double.parseDouble(valor);
+            } catch (NumberFormatException ex) {
+                throw new PeticionInvalida(400, Resultado.Estado.INVALIDO, "Error: El campo '" + nombre + "' debe ser un numero.");
+            }
+        }
+
+        private static long aEntero(String nombre, String valor) {
+            try {
+                return Long.parseLong(valor);
+            } catch (NumberFormatException ex) {
+                throw new PeticionInvalida(400, Resultado.Estado.INVALIDO,
+                        "Error: El campo '" + nombre + "' debe ser un numero entero.");
+            }
+        }
+
+        // Los archivos de datos guardan un registro por línea con los campos separados por
+        // '\\'. La consola nunca envía un salto de línea, pero el JSON sí ("\\n"): un
+        // texto así partiría el registro y, al volver a cargar, se leerían otros datos.
+        private static String sinSeparadores(String nombre, String valor) {
+            if (valor.indexOf(LectorCampos.SEPARADOR) >= 0 || valor.indexOf('\n') >= 0 || valor.indexOf('\r') >= 0) {
+                throw new PeticionInvalida(400, Resultado.Estado.INVALIDO,
+                        "Error: El campo '" + nombre + "' no puede contener '\\' ni saltos de linea.");
+            }
+            return valor;
+        }
+
+        private static long enRango(String nombre, long valor, long minimo, long maximo) {
+            if (valor < minimo || valor > maximo) {
+                throw new PeticionInvalida(400, Resultado.Estado.INVALIDO,
+                        "Error: El campo '" + nombre + "' debe estar entre " + minimo + " y " + maximo + ".");
+            }
+            return valor;
+        }
+
+        // Parte 'i' de la ruta como número entero (ej. el ID en /api/bibliotecas/3).
+        int enteroDeRuta(int i) {
+            try {
+                return Integer.parseInt(ruta[i]);
+            } catch (NumberFormatException ex) {
+                throw new PeticionInvalida(400, Resultado.Estado.INVALIDO, "Error: '" + ruta[i] + "' no es un numero.");
+            }
+        }
+    }
+
+    // Atiende una petición: la enruta, ejecuta la operación y envía el JSON.
+    private void atender(HttpExchange intercambio) throws IOException {
+        Respuesta respuesta;
+        try {
+            respuesta = enrutar(new Peticion(intercambio));
+        } catch (PeticionInvalida ex) {
+            respuesta = new Respuesta(ex.codigo, documento(ex.estado, ex.getMessage()).cerrarObjeto());
+            if (ex.codigo == 401) {
+                intercambio.getResponseHeaders().set("WWW-Authenticate", "Basic realm=\"biblioteca\"");
+            }
+        } catch (SistemaOcupadoException ex) { // No se pudo verificar la contraseña: no es un 401.
+            respuesta = new Respuesta(503, documento(Resultado.Estado.ERROR, "Error: " + ex.getMessage()).cerrarObjeto());
+            intercambio.getResponseHeaders().set("Retry-After", String.valueOf(SEGUNDOS_REINTENTO_OCUPADO));
+        } catch (RuntimeException ex) {
+            ex.printStackTrace(); // Un error en una petición no afecta a las demás.
+            respuesta = new Respuesta(500,
+                    documento(Resultado.Estado.ERROR, "Error: Falla interna del servidor.").cerrarObjeto());
+        }
+        byte[] bytes = respuesta.cuerpo.aBytes();
+        intercambio.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        intercambio.sendResponseHeaders(respuesta.codigo, bytes.length);
+        try (OutputStream salida = intercambio.getResponseBody()) {
+            salida.write(bytes);
+        }
+    }
+
+    // Elige la operación según el método y la ruta.
+    private Respuesta enrutar(Peticion p) throws IOException {
+        String recurso = p.ruta.length > 0 ? p.ruta[0] : "";
+        int partes = p.ruta.length;
+        switch (recurso) {
+            case "sesion":
+                if (partes == 1 && p.metodo.equals("POST")) {
+                    return iniciarSesion(p);
+                }
+                if (partes == 1 && p.metodo.equals("DELETE")) {
+                    return cerrarSesion(p);
+                }
+                break;
+            case "libros":
+                if (partes == 1 && p.metodo.equals("GET")) {
+                    return buscarLibros(p);
+                }
+                if (partes == 2 && p.ruta[1].equals("disponibles") && p.metodo.equals("GET")) {
+                    return librosDisponibles(p);
+                }
+                if (partes == 1 && p.metodo.equals("POST")) {
+                    return enviar(agregarLibro(p, admin(p)), 201, ServidorApi::escribirLibro);
+                }
+                if (partes == 2 && p.metodo.equals("PUT")) {
+                    return enviar(editarLibro(p, admin(p)), 200, ServidorApi::escribirLibro);
+                }
+                if (partes == 2 && p.metodo.equals("DELETE")) {
+                    return enviar(eliminarLibro(p, admin(p)), 200, ServidorApi::escribirLibro);
+                }
+                break;
+            case "bibliotecas":
+                if (partes == 1 && p.metodo.equals("GET")) {
+                    return enviarLista(Biblioteca.cargarTodasLasBibliotecas(), ServidorApi::escribirBiblioteca);
+                }
+                if (partes == 1 && p.metodo.equals("POST")) {
+                    Admin admin = admin(p);
+                    return enviar(admin.agregarBiblioteca(p.enteroInt("id"), p.texto("sede"), p.texto("nombre")),
+                            201, ServidorApi::escribirBiblioteca);
+                }
+                if (partes == 2 && p.metodo.equals("PUT")) {
+                    Admin admin = admin(p);
+                    return enviar(admin.editarBiblioteca(p.enteroDeRuta(1), p.texto("sede"), p.texto("nombre")),
+                            200, ServidorApi::escribirBiblioteca);
+                }
+                if (partes == 2 && p.metodo.equals("DELETE")) {
+                    return enviar(admin(p).eliminarBiblioteca(p.enteroDeRuta(1)), 200, ServidorApi::escribirBiblioteca);
+                }
+                break;
+            case "usuarios":
+                if (partes == 1 && p.metodo.equals("POST")) {
+                    return enviar(crearUsuario(p, admin(p)), 201, ServidorApi::escribirMiembro);
+                }
+                if (partes == 2 && p.metodo.equals("PUT")) {
+                    return enviar(editarUsuario(p, admin(p)), 200, ServidorApi::escribirMiembro);
+                }
+                if (partes == 2 && p.metodo.equals("DELETE")) {
+                    return enviar(admin(p).eliminarUsuario(p.ruta[1]), 200, ServidorApi::escribirMiembro);
+                }
+                break;
+            case "prestamos":
+                if (partes == 1 && p.metodo.equals("POST")) {
+                    Miembro miembro = miembroDeLaOperacion(p);
+                    return enviar(biblioteca(p).prestarLibro(miembro, p.texto("codigo")), 201,
+                            ServidorApi::escribirPrestamo);
+                }
+                break;
+            case "devoluciones":
+                if (partes == 1 && p.metodo.equals("POST")) {
+                    Miembro miembro = miembroDeLaOperacion(p);
+                    return enviar(biblioteca(p).devolverLibro(miembro, p.texto("codigo")), 200,
+                            ServidorApi::escribirPrestamo);
+                }
+                break;
+            case "multas":
+                if (partes == 1 && p.metodo.equals("POST")) {
+                    admin(p);
+                    return enviar(multar(p), 200, (json, monto) -> json.campo("monto", monto));
+                }
+                break;
+            default:
+                break;
+        }
+        throw new PeticionInvalida(404, Resultado.Estado.NO_ENCONTRADO,
+                "Error: No existe la ruta " + p.metodo + " /api/" + String.join("/", p.ruta) + ".");
+    }
+
+    // --- Sesión ---
+
+    // POST /api/sesion: comprueba usuario y contraseña y emite un token de sesión.
+    private Respuesta iniciarSesion(Peticion p) throws IOException {
+        String usuario = p.texto("usuario");
+        String contrasena = p.contrasena("contrasena");
+        if (new Miembro().login(usuario, contrasena).isEmpty()) {
+            throw new PeticionInvalida(401, Resultado.Estado.NO_PERMITIDO, "Error: Usuario o contrasena incorrectos.");
+        }
+        Miembro miembro = Miembro.encontrarMiembroPorUsuario(usuario);
+        if (miembro == null) {
+            throw new PeticionInvalida(401, Resultado.Estado.NO_PERMITIDO, "Error: Usuario o contrasena incorrectos.");
+        }
+        String token = miembro.emitirTokenSesion(); // null si los tokens están desactivados.
+        Json.Escritor json = documento(Resultado.Estado.EXITO,
+                "Inicio de sesion exitoso. ¡Bienvenido, " + miembro.getNombre() + "!");
+        json.abrirObjeto("datos");
+        escribirMiembro(json, miembro);
+        json.campo("token", token);
+        json.cerrarObjeto().cerrarObjeto();
+        return new Respuesta(200, json);
+    }
+
+    // DELETE /api/sesion: anula el token con el que se autenticó la petición.
+    private Respuesta cerrarSesion(Peticion p) {
+        autenticar(p);
+        String[] credenciales = credenciales(p);
+        VerificadorContrasenas.getInstancia().revocarToken(credenciales[1]);
+        return new Respuesta(200, documento(Resultado.Estado.EXITO, "Sesion cerrada.").cerrarObjeto());
+    }
+
+    // Lee "Authorization: Basic base64(usuario:secreto)".
+    private static String[] credenciales(Peticion p) {
+        String encabezado = p.intercambio.getRequestHeaders().getFirst("Authorization");
+        if (encabezado == null || !encabezado.regionMatches(true, 0, "Basic ", 0, 6)) {
+            throw new PeticionInvalida(401, Resultado.Estado.NO_PERMITIDO, "Error: Se requiere iniciar sesion.");
+        }
+        String decodificado;
+        try {
+            decodificado = new String(Base64.getDecoder().decode(encabezado.substring(6).trim()), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException ex) {
+            throw new PeticionInvalida(401, Resultado.Estado.NO_PERMITIDO, "Error: Credenciales mal formadas.");
+        }
+        int separador = decodificado.indexOf(':');
+        if (separador <= 0) {
+            throw new PeticionInvalida(401, Resultado.Estado.NO_PERMITIDO, "Error: Credenciales mal formadas.");
+        }
+        return new String[] { decodificado.substring(0, separador), decodificado.substring(separador + 1) };
+    }
+
+    // Miembro que hace la petición. Primero prueba el secreto como token de sesión
+    // (barato) y, si no lo es, como contraseña.
+    private static Miembro autenticar(Peticion p) {
+        String[] credenciales = credenciales(p);
+        Miembro verificador = new Miembro();
+        boolean valido = (VerificadorContrasenas.getInstancia().tokensActivos()
+                && !verificador.loginConToken(credenciales[0], credenciales[1]).isEmpty())
+                || !verificador.login(credenciales[0], credenciales[1]).isEmpty();
+        Miembro miembro = valido ? Miembro.encontrarMiembroPorUsuario(credenciales[0]) : null;
+        if (miembro == null) {
+            throw new PeticionInvalida(401, Resultado.Estado.NO_PERMITIDO, "Error: Usuario o contrasena incorrectos.");
+        }
+        return miembro;
+    }
+
+    // Administrador que hace la petición (403 si el miembro no es Admin).
+    private static Admin admin(Peticion p) {
+        Miembro miembro = autenticar(p);
+        if (!(miembro instanceof Admin)) {
+            throw new PeticionInvalida(403, Resultado.Estado.NO_PERMITIDO,
+                    "Error: Esta operacion es solo para administradores.");
+        }
+        return (Admin) miembro;
+    }
+
+    // Miembro sobre el que se presta o devuelve: el que hace la petición o, si es un
+    // Admin y envía "documento", el usuario con ese número de documento.
+    private static Miembro miembroDeLaOperacion(Peticion p) throws IOException {
+        Miembro miembro = autenticar(p);
+        long documento = p.entero("documento", -1);
+        if (documento < 0 || documento == miembro.getNumeroDocumento()) {
+            return miembro;
+        }
+        if (!(miembro instanceof Admin)) {
+            throw new PeticionInvalida(403, Resultado.Estado.NO_PERMITIDO,
+                    "Error: Solo un administrador puede operar en nombre de otro usuario.");
+        }
+        Miembro otro = Miembro.encontrarMiembroPorNumeroDocumento(documento);
+        if (otro == null) {
+            throw new PeticionInvalida(404, Resultado.Estado.NO_ENCONTRADO,
+                    "Error: No existe un miembro con documento " + documento + ".");
+        }
+        return otro;
+    }
+
+    // Biblioteca indicada en el campo "biblioteca" del cuerpo.
+    private static Biblioteca biblioteca(Peticion p) throws IOException {
+        int id = p.enteroInt("biblioteca");
+        Biblioteca biblioteca = Biblioteca.encontrarBibliotecaPorId(id);
+        if (biblioteca == null) {
+            throw new PeticionInvalida(404, Resultado.Estado.NO_ENCONTRADO,
+                    "Error: Biblioteca con ID " + id + " no encontrada.");
+        }
+        return biblioteca;
+    }
+
+    // --- Consultas ---
+
+    // GET /api/libros?q=texto&tipo=nombre
+    private Respuesta buscarLibros(Peticion p) {
+        String q = p.parametros.get("q");
+        if (q == null) {
+            throw new PeticionInvalida(400, Resultado.Estado.INVALIDO, "Error: Falta el parametro 'q'.");
+        }
+        String tipo = p.parametros.getOrDefault("tipo", "nombre");
+        return enviarLista(new Biblioteca().buscarLibro(q, tipo), ServidorApi::escribirLibro);
+    }
+
+    // GET /api/libros/disponibles?sede=Medellin&biblioteca=1 (uno de los dos o ambos).
+    private Respuesta librosDisponibles(Peticion p) {
+        String sede = p.parametros.get("sede");
+        String id = p.parametros.get("biblioteca");
+        Biblioteca consulta = new Biblioteca();
+        List<Libro> libros;
+        try {
+            if (sede != null && id != null) {
+                libros = consulta.librosDisponibles(sede, Integer.parseInt(id));
+            } else if (id != null) {
+                libros = consulta.librosDisponibles(Integer.parseInt(id));
+            } else if (sede != null) {
+                libros = consulta.librosDisponibles(sede);
+            } else {
+                throw new PeticionInvalida(400, Resultado.Estado.INVALIDO,
+                        "Error: Indique el parametro 'sede' o 'biblioteca'.");
+            }
+        } catch (NumberFormatException ex) {
+            throw new PeticionInvalida(400, Resultado.Estado.INVALIDO, "Error: 'biblioteca' debe ser un numero.");
+        }
+        return enviarLista(libros, ServidorApi::escribirLibro);
+    }
+
+    // --- Operaciones ---
+
+    // POST /api/multas: devuelve la multa de la última devolución de ese libro por ese
+    // usuario. No cambia la deuda (devolverLibro ya la cobró), así que repetir la
+    // petición da siempre el mismo monto.
+    private static Resultado<Double> multar(Peticion p) throws IOException {
+        long documento = p.entero("documento");
+        String codigo = p.texto("codigo");
+        Miembro miembro = Miembro.encontrarMiembroPorNumeroDocumento(documento);
+        if (miembro == null) {
+            return Resultado.fallo(Resultado.Estado.NO_ENCONTRADO,
+                    "Error: No existe un miembro con documento " + documento + ".");
+        }
+        Libro libro = Libro.encontrarLibroPorCodigo(codigo);
+        if (libro == null) {
+            return Resultado.fallo(Resultado.Estado.NO_ENCONTRADO, "Error: Libro con codigo " + codigo + " no encontrado.");
+        }
+        Prestamo devuelto = null; // Última devolución de este libro por este miembro.
+        for (Prestamo prestamo : Prestamo.encontrarPrestamosPorMiembro(documento)) {
+            if (prestamo.getCodigoLibro().equals(codigo) && "DEVUELTO".equals(prestamo.getEstado())
+                    && (devuelto == null || prestamo.getDiaDevolucionReal() >= devuelto.getDiaDevolucionReal())) {
+                devuelto = prestamo;
+            }
+        }
+        if (devuelto == null) {
+            return Resultado.fallo(Resultado.Estado.NO_ENCONTRADO,
+                    "Error: El miembro no tiene devoluciones del libro " + codigo + ".");
+        }
+        return new Biblioteca().consultarMulta(miembro, libro, devuelto);
+    }
+
+    private static Resultado<Libro> agregarLibro(Peticion p, Admin admin) throws IOException {
+        int id = p.enteroInt("biblioteca");
+        String sede = p.texto("sede", null);
+        if (sede == null) { // Si no viene, es la sede de la biblioteca.
+            Biblioteca biblioteca = Biblioteca.encontrarBibliotecaPorId(id);
+            if (biblioteca == null) {
+                return Resultado.fallo(Resultado.Estado.NO_ENCONTRADO, "Error: Biblioteca con ID " + id + " no encontrada.");
+            }
+            sede = biblioteca.getSede();
+        }
+        return admin.agregarLibro(p.texto("nombre"), p.texto("autor"), p.texto("codigo", "auto"),
+                p.enteroInt("unidades"), id, sede);
+    }
+
+    // PUT /api/libros/{codigo}: los campos que no vienen conservan su valor.
+    // "unidades" son las nuevas unidades totales (libres + prestadas).
+    private static Resultado<Libro> editarLibro(Peticion p, Admin admin) throws IOException {
+        String codigo = p.ruta[1];
+        Libro actual = Libro.encontrarLibroPorCodigo(codigo);
+        if (actual == null) {
+            return Resultado.fallo(Resultado.Estado.NO_ENCONTRADO, "Error: Libro con codigo " + codigo + " no encontrado.");
+        }
+        return admin.editarLibro(codigo, p.texto("nombre", actual.getNombre()), p.texto("autor", actual.getAutor()),
+                p.enteroInt("unidades", actual.getUnidadesLibres() + actual.getUnidadesPrestadas()),
+                p.enteroInt("biblioteca", actual.getIdBiblioteca()), p.texto("sede", actual.getSedeBiblioteca()));
+    }
+
+    // DELETE /api/libros/{codigo}?unidades=n (sin 'unidades', todas las libres).
+    private static Resultado<Libro> eliminarLibro(Peticion p, Admin admin) {
+        String unidades = p.parametros.get("unidades");
+        if (unidades == null) {
+            return admin.eliminarLibro(p.ruta[1]);
+        }
+        try {
+            return admin.eliminarLibro(p.ruta[1], Integer.parseInt(unidades));
+        } catch (NumberFormatException ex) {
+            throw new PeticionInvalida(400, Resultado.Estado.INVALIDO, "Error: 'unidades' debe ser un numero entero.");
+        }
+    }
+
+    private static Resultado<Usuario> crearUsuario(Peticion p, Admin admin) throws IOException {
+        return admin.crearUsuario(p.enteroByte("tipoDocumento"), p.entero("numeroDocumento"), p.enteroByte("rol"),
+                p.texto("nombre"), p.texto("apellido"), p.texto("usuario"), p.contrasena("contrasena"),
+                p.decimal("deuda", 0.0), p.texto("sedeUniversidad", ""), p.texto("carrera", ""));
+    }
+
+    // PUT /api/usuarios/{usuario}: los campos que no vienen conservan su valor
+    // ("contrasena" solo cambia si se envía).
+    private static Resultado<Miembro> editarUsuario(Peticion p, Admin admin) throws IOException {
+        String usuario = p.ruta[1];
+        Miembro actual = Miembro.encontrarMiembroPorUsuario(usuario);
+        if (actual == null) {
+            return Resultado.fallo(Resultado.Estado.NO_ENCONTRADO, "Error: Usuario '" + usuario + "' no encontrado.");
+        }
+        Usuario comoUsuario = actual instanceof Usuario ? (Usuario) actual : null;
+        return admin.editarUsuario(usuario, p.enteroByte("tipoDocumento", actual.getTipoDocumento()),
+                p.entero("numeroDocumento", actual.getNumeroDocumento()), p.enteroByte("rol", actual.getRol()),
+                p.texto("nombre", actual.getNombre()), p.texto("apellido", actual.getApellido()),
+                p.texto("usuario", actual.getUsuario()), p.contrasena("contrasena", null),
+                p.decimal("deuda", comoUsuario != null ? comoUsuario.getDeuda() : 0.0),
+                p.texto("sedeUniversidad", comoUsuario != null ? comoUsuario.getSedeUniversidad() : ""),
+                p.texto("carrera", comoUsuario != null ? comoUsuario.getCarrera() : ""));
+    }
+
+    // --- Respuestas ---
+
+    // Escribe los campos de un objeto del sistema dentro de un objeto JSON ya abierto.
+    @FunctionalInterface
+    private interface EscritorDatos<T> {
+        void escribir(Json.Escritor json, T valor);
+    }
+
+    // Abre el documento con "estado" y "mensaje" (sin cerrarlo).
+    private static Json.Escritor documento(Resultado.Estado estado, String mensaje) {
+        return new Json.Escritor().abrirObjeto().campo("estado", estado.name()).campo("mensaje", mensaje);
+    }
+
+    // Respuesta de una operación: el Resultado completo, con "datos" si salió bien.
+    private static <T> Respuesta enviar(Resultado<T> resultado, int codigoExito, EscritorDatos<T> datos) {
+        Json.Escritor json = documento(resultado.getEstado(), resultado.getMensaje());
+        if (resultado.getValor() != null) {
+            json.abrirObjeto("datos");
+            datos.escribir(json, resultado.getValor());
+            json.cerrarObjeto();
+        } else {
+            json.campoNulo("datos");
+        }
+        json.cerrarObjeto();
+        return new Respuesta(resultado.esExito() ? codigoExito : codigoHttp(resultado.getEstado()), json);
+    }
+
+    // Respuesta de una consulta: {"estado":"EXITO","total":n,"datos":[...]}.
+    private static <T> Respuesta enviarLista(List<T> valores, EscritorDatos<T> datos) {
+        Json.Escritor json = new Json.Escritor().abrirObjeto().campo("estado", Resultado.Estado.EXITO.name())
+                .campo("total", valores.size()).abrirLista("datos");
+        for (T valor : valores) {
+            json.abrirObjeto();
+            datos.escribir(json, valor);
+            json.cerrarObjeto();
+        }
+        json.cerrarLista().cerrarObjeto();
+        return new Respuesta(200, json);
+    }
+
+    // Código HTTP de un resultado que no salió bien.
+    private static int codigoHttp(Resultado.Estado estado) {
+        switch (estado) {
+            case INVALIDO:
+                return 400;
+            case NO_PERMITIDO:
+                return 403;
+            case NO_ENCONTRADO:
+                return 404;
+            case DUPLICADO:
+            case CONFLICTO:
+                return 409;
+            case RECHAZADO:
+                return 422;
+            default:
+                return 500;
+        }
+    }
+
+    private static void escribirLibro(Json.Escritor json, Libro libro) {
+        json.campo("codigo", libro.getCodigo())
+                .campo("nombre", libro.getNombre())
+                .campo("autor", libro.getAutor())
+                .campo("unidadesLibres", libro.getUnidadesLibres())
+                .campo("unidadesPrestadas", libro.getUnidadesPrestadas())
+                .campo("idBiblioteca", libro.getIdBiblioteca())
+                .campo("sede", libro.getSedeBiblioteca());
+    }
+
+    private static void escribirPrestamo(Json.Escritor json, Prestamo prestamo) {
+        json.campo("codigoLibro", prestamo.getCodigoLibro())
+                .campo("numeroDocumento", prestamo.getNumeroDocumentoMiembro())
+                .campo("idBiblioteca", prestamo.getIdBiblioteca())
+                .campo("estado", prestamo.getEstado())
+                .campo("fechaPrestamo", Fecha.formatear(prestamo.getDiaPrestamo()))
+                .campo("fechaDevolucionEstimada", Fecha.formatear(prestamo.getDiaDevolucionEstimada()))
+                .campo("fechaDevolucionReal", prestamo.getDiaDevolucionReal() == Fecha.SIN_FECHA ? null
+                        : Fecha.formatear(prestamo.getDiaDevolucionReal()));
+    }
+
+    // Datos públicos de un miembro (nunca la contraseña).
+    private static void escribirMiembro(Json.Escritor json, Miembro miembro) {
+        json.campo("usuario", miembro.getUsuario())
+                .campo("nombre", miembro.getNombre())
+                .campo("apellido", miembro.getApellido())
+                .campo("tipoDocumento", miembro.getTipoDocumento())
+                .campo("numeroDocumento", miembro.getNumeroDocumento())
+                .campo("rol", miembro.getRol());
+        if (miembro instanceof Usuario) {
+            Usuario usuario = (Usuario) miembro;
+            json.campo("deuda", usuario.getDeuda())
+                    .campo("sedeUniversidad", usuario.getSedeUniversidad())
+                    .campo("carrera", usuario.getCarrera());
+        }
+    }
+
+    private static void escribirBiblioteca(Json.Escritor json, Biblioteca biblioteca) {
+        json.campo("id", biblioteca.getId())
+                .campo("sede", biblioteca.getSede())
+                .campo("nombre", biblioteca.getNombreBiblioteca());
+    }
+
+    // Lee los parámetros de la URL ("a=1&b=dos") ya decodificados.
+    private static Map<String, String> leerParametros(String consulta) {
+        Map<String, String> parametros = new HashMap<>();
+        if (consulta == null || consulta.isEmpty()) {
+            return parametros;
+        }
+        for (String par : consulta.split("&")) {
+            int igual = par.indexOf('=');
+            String nombre = igual < 0 ? par : par.substring(0, igual);
+            String valor = igual < 0 ? "" : par.substring(igual + 1);
+            try {
+                parametros.put(URLDecoder.decode(nombre, StandardCharsets.UTF_8),
+                        URLDecoder.decode(valor, StandardCharsets.UTF_8));
+            } catch (IllegalArgumentException ex) {
+                throw new PeticionInvalida(400, Resultado.Estado.INVALIDO, "Error: Parametro mal codificado: " + par);
+            }
+        }
+        return parametros;
+    }
+
+    // Arranca la API: argumentos opcionales [puerto] [direccion].
+    public static void main(String[] args) {
+        int puerto = args.length > 0 ? Integer.parseInt(args[0]) : PUERTO_POR_DEFECTO;
+        try {
+            InetAddress direccion = args.length > 1 ? InetAddress.getByName(args[1])
+                    : InetAddress.getLoopbackAddress(); // Por defecto solo acepta conexiones locales.
+            EscrituraAtomica.recuperarTemporales(); // Descarta escrituras que un corte dejó a medias.
+            ServidorApi api = new ServidorApi(direccion, puerto);
+            api.iniciar();
+            MultasDiarias.getInstancia().programar(); // Suma cada día las multas de los préstamos vencidos.
+            System.out.println("API HTTP escuchando en http://" + direccion.getHostAddress() + ":" + api.getPuerto()
+                    + "/api/");
+            if (!VerificadorContrasenas.getInstancia().tokensActivos()) {
+                System.out.println("Aviso: los tokens de sesion estan desactivados; cada peticion verificara la "
+                        + "contrasena (use -Dbiblioteca.sesion.ttl.segundos=900).");
+            }
+        } catch (IOException ex) {
+            System.err.println("No se pudo iniciar la API: " + ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.mycompany.sistemabiblioteca; // Carpeta donde está organizado nuestro código.
+
+import java.io.FilterInputStream; // Para vaciar la salida antes de esperar una respuesta.
+import java.io.IOException; // Para manejar errores de red.
+import java.io.InputStream; // Entrada de la conexión.
+import java.io.PrintStream; // Salida de la conexión.
+import java.net.InetAddress; // Dirección en la que se escucha.
+import java.net.ServerSocket; // Socket que acepta conexiones.
+import java.net.Socket; // Una conexión de un terminal.
+import java.net.SocketException; // Error al cerrar el socket mientras se acepta.
+import java.nio.charset.StandardCharsets; // Codificación del texto (UTF-8).
+import java.util.NoSuchElementException; // El terminal cerró la conexión mientras se esperaba una respuesta.
+import java.util.Scanner; // Para leer lo que escribe el usuario.
+import java.util.concurrent.ExecutorService; // Para lanzar las sesiones.
+import java.util.concurrent.Executors; // Para crear el ejecutor de hilos virtuales.
+import java.util.concurrent.atomic.AtomicInteger; // Contador de sesiones abiertas, seguro entre hilos.
+
+// Esta clase atiende muchas sesiones a la vez por TCP, con el mismo protocolo de
+// líneas de texto que la consola: el servidor muestra los menús y el terminal
+// responde una línea por pregunta (se puede usar con "nc localhost 7070" o telnet).
+// Cada conexión tiene su propia Sesion y su propio hilo virtual, que solo ocupa un
+// hilo del sistema mientras está haciendo algo (no mientras espera al usuario); así
+// un solo programa atiende miles de terminales. Todas las sesiones comparten los
+// repositorios e índices en memoria.
+//
+// Uso: java -cp target/classes com.mycompany.sistemabiblioteca.SistemaBiblioteca servidor [puerto] [direccion]
+// Por defecto escucha en 127.0.0.1:7070. A diferencia de la consola, no borra los datos al arrancar.
+public class ServidorSesiones implements AutoCloseable {
+
+    public static final int PUERTO_POR_DEFECTO = 7070; // Puerto si no se indica otro.
+    private static final int COLA_CONEXIONES = 1024; // Conexiones en espera de ser aceptadas.
+
+    private final ServerSocket servidor; // Socket que acepta las conexiones.
+    private final ExecutorService sesiones = Executors.newVirtualThreadPerTaskExecutor(); // Un hilo virtual por sesión.
+    private final AtomicInteger abiertas = new AtomicInteger(); // Sesiones abiertas en este momento.
+
+    // Abre el servidor en 'direccion':'puerto' (puerto 0 = uno libre cualquiera).
+    public ServidorSesiones(InetAddress direccion, int puerto) throws IOException {
+        this.servidor = new ServerSocket(puerto, COLA_CONEXIONES, direccion);
+    }
+
+    // Puerto en el que escucha.
+    public int getPuerto() {
+        return servidor.getLocalPort();
+    }
+
+    // Cantidad de sesiones abiertas.
+    public int getSesionesAbiertas() {
+        return abiertas.get();
+    }
+
+    // Acepta conexiones hasta que se cierre el servidor. Cada una se atiende en su
+    // propio hilo virtual.
+    public void atender() {
+        while (!servidor.isClosed()) {
+            try {
+                Socket conexion = servidor.accept();
+                sesiones.submit(() -> atenderConexion(conexion));
+            } catch (SocketException ex) {
+                break; // Se cerró el servidor.
+            } catch (IOException ex) {
+                ex.printStackTrace();
+            }
+        }
+    }
+
+    // Atiende una conexión de principio a fin.
+    private void atenderConexion(Socket conexion) {
+        int n = abiertas.incrementAndGet();
+        System.out.println("Sesion abierta desde " + conexion.getRemoteSocketAddress() + " (abiertas: " + n + ")");
+        try (conexion;
+                PrintStream out = new PrintStream(conexion.getOutputStream(), true, StandardCharsets.UTF_8)) {
+            conexion.setTcpNoDelay(true); // Las respuestas son cortas: se mandan sin esperar.
+            Scanner scanner = new Scanner(new VaciarAntesDeLeer(conexion.getInputStream(), out),
+                    StandardCharsets.UTF_8);
+            new Sesion(scanner, out).ejecutar();
+        } catch (NoSuchElementException ex) {
+            // El terminal cerró la conexión en medio de una pregunta.
+        } catch (IOException ex) {
+            System.err.println("Error en la sesion de " + conexion.getRemoteSocketAddress() + ": " + ex.getMessage());
+        } catch (RuntimeException ex) {
+            ex.printStackTrace(); // Un error en una sesión no afecta a las demás.
+        } finally {
+            n = abiertas.decrementAndGet();
+            System.out.println("Sesion cerrada desde " + conexion.getRemoteSocketAddress() + " (abiertas: " + n + ")");
+        }
+    }
+
+    // Deja de aceptar conexiones. Las sesiones abiertas terminan cuando su terminal se desconecta.
+    @Override
+    public void close() throws IOException {
+        servidor.close();
+        sesiones.shutdown();
+    }
+
+    // Entrada que, antes de esperar datos del terminal, le envía lo que quedó pendiente
+    // en la salida (por ejemplo, "Usuario: ", que no termina en salto de línea).
+    private static final class VaciarAntesDeLeer extends FilterInputStream {
+        private final PrintStream out;
+
+        VaciarAntesDeLeer(InputStream in, PrintStream out) {
+            super(in);
+            this.out = out;
+        }
+
+        @Override
+        public int read() throws IOException {
+            out.flush();
+            return super.read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            out.flush();
+            return super.read(b, off, len);
+        }
+    }
+
+    // Arranca el servidor: argumentos opcionales [puerto] [direccion].
+    public static void main(String[] args) {
+        int puerto = args.length > 0 ? Integer.parseInt(args[0]) : PUERTO_POR_DEFECTO;
+        try {
+            InetAddress direccion = args.length > 1 ? InetAddress.getByName(args[1])
+                    : InetAddress.getLoopbackAddress(); // Por defecto solo acepta conexiones locales.
+            EscrituraAtomica.recuperarTemporales(); // Descarta escrituras que un corte dejó a medias.
+            MultasDiarias.getInstancia().programar(); // Suma cada día las multas de los préstamos vencidos.
+            try (ServidorSesiones servidor = new ServidorSesiones(direccion, puerto)) {
+                System.out.println("Servidor de sesiones escuchando en " + direccion.getHostAddress() + ":"
+                        + servidor.getPuerto());
+                servidor.atender();
+            }
+        } catch (IOException ex) {
+            System.err.println("No se pudo iniciar el servidor: " + ex.getMessage());
+        }
+    }
+}
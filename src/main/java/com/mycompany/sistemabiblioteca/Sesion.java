@@ -0,0 +1,805 @@
+package com.mycompany.sistemabiblioteca; // Carpeta donde está organizado nuestro código.
+
+import java.io.PrintStream; // Salida de texto de la sesión (consola o conexión).
+import java.util.InputMismatchException; // Para manejar errores si el usuario no escribe un número.
+import java.util.Iterator; // Para recorrer resultados a medida que llegan.
+import java.util.List; // Para usar listas.
+import java.util.Scanner; // Para leer lo que escribe el usuario.
+
+// Esta clase es la sesión de un operador: la biblioteca elegida, el miembro que
+// inició sesión y la entrada y salida por donde se comunica (la consola, o una
+// conexión de ServidorSesiones). Contiene el login y los menús de Admin y de Usuario.
+// Cada sesión tiene su propio estado, así que puede haber muchas a la vez en el mismo
+// programa; todas comparten los mismos repositorios e índices en memoria.
+public class Sesion {
+
+    public static final int INTENTOS_LOGIN = 3; // Intentos de login por sesión (ver ejecutar()).
+
+    // Sesión que está atendiendo el hilo actual (si hay una).
+    private static final ThreadLocal<Sesion> ACTUAL = new ThreadLocal<>();
+
+    private final Scanner scanner; // Lee lo que escribe el usuario.
+    private final PrintStream out; // Donde se muestran los menús y resultados.
+    private Miembro miembroActual = null; // Guarda el usuario que ha iniciado sesión.
+    private Biblioteca bibliotecaSeleccionada = null; // Guarda la biblioteca con la que se está trabajando.
+    private boolean sistemaOcupado = false; // El último login no se pudo verificar por saturación.
+
+    public Sesion(Scanner scanner, PrintStream out) {
+        this.scanner = scanner;
+        this.out = out;
+    }
+
+    // Devuelve la salida de la sesión que atiende el hilo actual, o System.out si no hay
+    // ninguna. Las clases del modelo que muestran listados (Admin, Usuario, Biblioteca)
+    // escriben aquí, así cada listado llega a la sesión que lo pidió.
+    public static PrintStream salida() {
+        Sesion sesion = ACTUAL.get();
+        return sesion != null ? sesion.out : System.out;
+    }
+
+    public Miembro getMiembroActual() {
+        return miembroActual;
+    }
+
+    public Biblioteca getBibliotecaSeleccionada() {
+        return bibliotecaSeleccionada;
+    }
+
+    // Ejecuta 'accion' con esta sesión como la del hilo actual.
+    private void enEsteHilo(Runnable accion) {
+        Sesion anterior = ACTUAL.get();
+        ACTUAL.set(this);
+        try {
+            accion.run();
+        } finally {
+            if (anterior != null) {
+                ACTUAL.set(anterior);
+            } else {
+                ACTUAL.remove();
+            }
+        }
+    }
+
+    // Pide elegir una de las bibliotecas dadas. Devuelve 'true' si se eligió una.
+    public boolean elegirBiblioteca(List<Biblioteca> bibliotecasDisponibles) {
+        enEsteHilo(() -> seleccionarBibliotecaInicial(bibliotecasDisponibles));
+        return bibliotecaSeleccionada != null;
+    }
+
+    // Pide usuario y contraseña y, si son correctos, muestra el menú que corresponde
+    // hasta que el miembro cierre sesión. Devuelve 'true' si el login fue correcto.
+    public boolean iniciarSesion() {
+        boolean[] correcto = { false };
+        enEsteHilo(() -> {
+            login(); // Inicia el proceso de login.
+            if (miembroActual != null) { // Si el login fue exitoso.
+                correcto[0] = true;
+                if (miembroActual.getRol() == 0) { // Si es Administrador.
+                    mostrarMenuAdmin(); // Muestra el menú de Admin.
+                } else { // Si es Usuario.
+                    mostrarMenuUsuario(); // Muestra el menú de Usuario.
+                }
+                miembroActual = null; // Sesión cerrada.
+            }
+        });
+        return correcto[0];
+    }
+
+    // Flujo completo de una sesión remota: elegir biblioteca, iniciar sesión (hasta
+    // INTENTOS_LOGIN intentos) y usar el menú. Termina al cerrar sesión.
+    public void ejecutar() {
+        out.println("¡Bienvenido al Sistema de Gestion de Bibliotecas!");
+        List<Biblioteca> bibliotecasDisponibles = Biblioteca.cargarTodasLasBibliotecas();
+        if (bibliotecasDisponibles.isEmpty()) { // Si no hay bibliotecas configuradas.
+            out.println("Error: No se encontraron bibliotecas configuradas.");
+            return;
+        }
+        if (!elegirBiblioteca(bibliotecasDisponibles)) {
+            out.println("No se pudo seleccionar una biblioteca. Saliendo del sistema.");
+            return;
+        }
+        for (int intento = 1; intento <= INTENTOS_LOGIN && !iniciarSesion(); intento++) {
+            if (sistemaOcupado) { // La contraseña no se llegó a verificar: el intento no cuenta.
+                sistemaOcupado = false;
+                intento--;
+            } else if (intento == INTENTOS_LOGIN) {
+                out.println("Demasiados intentos fallidos.");
+            }
+        }
+        out.println("Gracias por usar el Sistema de Bibliotecas. ¡Hasta pronto!"); // Mensaje de despedida.
+    }
+
+    // Permite al usuario elegir una biblioteca para la sesión actual.
+    private void seleccionarBibliotecaInicial(List<Biblioteca> bibliotecasDisponibles) {
+        out.println("\n--- SELECCION DE BIBLIOTECA ---");
+        out.println("Seleccione una biblioteca para iniciar:");
+        for (int i = 0; i < bibliotecasDisponibles.size(); i++) { // Muestra las bibliotecas con un número.
+            out.println((i + 1) + ". " + bibliotecasDisponibles.get(i).getNombreBiblioteca() + " ("
+                    + bibliotecasDisponibles.get(i).getSede() + ")");
+        }
+        int opcionBib;
+        while (true) { // Bucle hasta que elija una opción válida.
+            out.print("Ingrese el numero de la biblioteca: ");
+            try {
+                opcionBib = scanner.nextInt(); // Lee la opción.
+                scanner.nextLine(); // Consume el Enter.
+                if (opcionBib > 0 && opcionBib <= bibliotecasDisponibles.size()) { // Si la opción es válida.
+                    bibliotecaSeleccionada = bibliotecasDisponibles.get(opcionBib - 1); // Guarda la biblioteca elegida.
+                    out
+                            .println("Ha seleccionado la biblioteca: " + bibliotecaSeleccionada.getNombreBiblioteca());
+                    break; // Sale del bucle.
+                } else {
+                    out.println("Opcion no valida. Intente de nuevo.");
+                }
+            } catch (InputMismatchException e) { // Si no ingresa un número.
+                out.println("Entrada invalida. Por favor, ingrese un numero.");
+                scanner.nextLine(); // Limpia la entrada.
+            }
+        }
+    }
+
+    // Maneja el proceso de inicio de sesión.
+    private void login() {
+        out.println("\n--- INICIO DE SESION ---");
+        out.print("Usuario: ");
+        String usuario = scanner.nextLine();
+        out.print("Contrasena: ");
+        String contrasena = scanner.nextLine();
+
+        Miembro tempMiembro = new Miembro(); // Crea un Miembro temporal para llamar al método de login.
+        String lineaMiembro;
+        try {
+            lineaMiembro = tempMiembro.login(usuario, contrasena); // Intenta hacer login.
+        } catch (SistemaOcupadoException e) { // No se sabe si la contraseña es correcta.
+            out.println(e.getMessage());
+            miembroActual = null;
+            sistemaOcupado = true;
+            return;
+        }
+
+        if (!lineaMiembro.isEmpty()) { // Si el login fue exitoso.
+            // Carga el objeto Miembro completo (Admin o Usuario) para tener todos sus datos
+            // específicos.
+            Miembro foundMiembro = Miembro.encontrarMiembroPorUsuario(usuario);
+            if (foundMiembro != null) {
+                miembroActual = foundMiembro; // Establece el miembro actual.
+            } else {
+                System.err.println(
+                        "Error interno: Miembro encontrado por login pero no por findMemberByUsername. Fallo la carga del objeto completo.");
+                miembroActual = null;
+                return;
+            }
+            out.println("Inicio de sesion exitoso. ¡Bienvenido, " + miembroActual.getNombre() + "!");
+        } else {
+            out.println("Usuario o contrasena incorrectos."); // Si el login falló.
+            miembroActual = null;
+        }
+    }
+
+    // --- Implementacion de Menus (Admin y Usuario) ---
+    // Muestra el menú principal para los administradores.
+    private void mostrarMenuAdmin() {
+        Admin admin = (Admin) miembroActual; // Convierte el miembro actual a Admin.
+        int opcion;
+        do { // Bucle del menú.
+            out.println("\n--- MENU ADMINISTRADOR ---");
+            out.println("1. Administrar Libros");
+            out.println("2. Administrar Usuarios");
+            out.println("3. Administrar Bibliotecas");
+            out.println("4. Ver Libros Prestados (Todos)");
+            out.println("5. Ver Libros Prestados por un Usuario especifico");
+            out.println("6. Ver Todos los Libros");
+            out.println("7. Ver un Libro Especifico");
+            out.println("8. Ver Todos los Usuarios");
+            out.println("9. Cambiar informacion personal de Admin");
+            out.println("10. Cambiar contrasena de Admin");
+            out.println("11. Ver Prestamos Vencidos");
+            out.println("12. Ver Prestamos por Vencer");
+            out.println("0. Cerrar Sesion");
+            out.print("Seleccione una opcion: ");
+
+            try {
+                opcion = scanner.nextInt(); // Lee la opción.
+                scanner.nextLine(); // Consume el Enter.
+
+                switch (opcion) { // Ejecuta la acción según la opción.
+                    case 1:
+                        menuAdminLibros(admin);
+                        break;
+                    case 2:
+                        menuAdminUsuarios(admin);
+                        break;
+                    case 3:
+                        menuAdminBibliotecas(admin);
+                        break;
+                    case 4:
+                        admin.verLibrosPrestados();
+                        break;
+                    case 5:
+                        out.print("Ingrese el numero de documento del usuario: ");
+                        long noDocUsuario = scanner.nextLong();
+                        scanner.nextLine();
+                        admin.verLibrosPrestadosPorUsuario(noDocUsuario);
+                        break;
+                    case 6:
+                        admin.verTodosLibros();
+                        break;
+                    case 7:
+                        out.print("Ingrese el codigo del libro a ver: ");
+                        String codVerLibro = scanner.nextLine();
+                        admin.verLibro(codVerLibro);
+                        break;
+                    case 8:
+                        admin.verTodosUsuarios();
+                        break;
+                    case 9:
+                        cambiarInfoPersonalAdmin(admin);
+                        break;
+                    case 10:
+                        cambiarContrasenaAdmin(admin);
+                        break;
+                    case 11:
+                        admin.verPrestamosVencidos();
+                        break;
+                    case 12:
+                        out.print("Ingrese el numero de dias: ");
+                        int diasPorVencer = scanner.nextInt();
+                        scanner.nextLine();
+                        admin.verPrestamosPorVencer(diasPorVencer);
+                        break;
+                    case 0:
+                        out.println("Cerrando sesion de administrador.");
+                        break;
+                    default:
+                        out.println("Opcion no valida. Intente de nuevo.");
+                }
+            } catch (InputMismatchException e) { // Si no ingresa un número.
+                out.println("Entrada invalida. Por favor, ingrese un numero.");
+                scanner.nextLine();
+                opcion = -1;
+            } catch (ConflictoVersionException e) { // Otro puesto cambió los mismos datos.
+                out.println("Error: " + e.getMessage());
+                opcion = -1;
+            }
+        } while (opcion != 0); // Continúa hasta que elija 0.
+    }
+
+    // Muestra el submenú para que el admin gestione libros.
+    private void menuAdminLibros(Admin admin) {
+        int opcion;
+        do {
+            out.println("\n--- ADMINISTRAR LIBROS ---");
+            out.println("1. Agregar Libro");
+            out.println("2. Editar Libro");
+            out.println("3. Eliminar Unidades de Libro / Eliminar Libro Completo");
+            out.println("0. Volver al Menu Principal");
+            out.print("Seleccione una opcion: ");
+
+            try {
+                opcion = scanner.nextInt();
+                scanner.nextLine();
+
+                switch (opcion) {
+                    case 1: // Agregar libro.
+                        out.print("Nombre: ");
+                        String nombre = scanner.nextLine();
+                        out.print("Autor: ");
+                        String autor = scanner.nextLine();
+                        out.print("Codigo (ID unico, teclear 'auto' para generar): ");
+                        String codigo = scanner.nextLine();
+                        out.print("Unidades Totales: ");
+                        int unidades = scanner.nextInt();
+                        scanner.nextLine();
+                        out.println(admin.agregarLibro(nombre, autor, codigo, unidades,
+                                bibliotecaSeleccionada.getId(), bibliotecaSeleccionada.getSede()));
+                        break;
+                    case 2: // Editar libro.
+                        out.print("Codigo del libro a editar: ");
+                        String codEdit = scanner.nextLine();
+                        Libro libroAEditar = Libro.encontrarLibroPorCodigo(codEdit);
+                        if (libroAEditar == null) {
+                            out.println("Libro no encontrado.");
+                            break;
+                        }
+                        out.println("Editando libro: " + libroAEditar.getNombre());
+                        out.print("Nuevo Nombre (actual: " + libroAEditar.getNombre()
+                                + ", dejar vacio para no cambiar): ");
+                        String newNombre = scanner.nextLine();
+                        if (newNombre.isEmpty())
+                            newNombre = libroAEditar.getNombre();
+                        out.print(
+                                "Nuevo Autor (actual: " + libroAEditar.getAutor() + ", dejar vacio para no cambiar): ");
+                        String newAutor = scanner.nextLine();
+                        if (newAutor.isEmpty())
+                            newAutor = libroAEditar.getAutor();
+                        out.print("Nuevas Unidades Totales (actual: "
+                                + (libroAEditar.getUnidadesLibres() + libroAEditar.getUnidadesPrestadas())
+                                + ", dejar vacio para no cambiar): ");
+                        String newUnidadesStr = scanner.nextLine();
+                        int newUnidades = (newUnidadesStr.isEmpty()
+                                ? (libroAEditar.getUnidadesLibres() + libroAEditar.getUnidadesPrestadas())
+                                : Integer.parseInt(newUnidadesStr));
+                        out.println(admin.editarLibro(codEdit, newNombre, newAutor, newUnidades,
+                                libroAEditar.getIdBiblioteca(), libroAEditar.getSedeBiblioteca()));
+                        break;
+                    case 3: // Eliminar unidades o libro completo.
+                        out.print("Codigo del libro a eliminar: ");
+                        String codDel = scanner.nextLine();
+                        out.print(
+                                "¿Cuantas unidades desea eliminar? (0 para eliminar todas las unidades libres, o un numero especifico): ");
+                        String unidadesDelStr = scanner.nextLine();
+                        if (unidadesDelStr.isEmpty() || unidadesDelStr.equals("0")) {
+                            out.println(admin.eliminarLibro(codDel));
+                        } else {
+                            int unidadesAeliminar = Integer.parseInt(unidadesDelStr);
+                            out.println(admin.eliminarLibro(codDel, unidadesAeliminar));
+                        }
+                        break;
+                    case 0:
+                        break;
+                    default:
+                        out.println("Opcion no valida.");
+                }
+            } catch (InputMismatchException | NumberFormatException e) { // Si hay error de tipo de dato.
+                out.println("Entrada invalida. Asegurese de ingresar el tipo de dato correcto.");
+                scanner.nextLine();
+                opcion = -1;
+            } catch (ConflictoVersionException e) { // Otro puesto cambió los mismos datos.
+                out.println("Error: " + e.getMessage());
+                opcion = -1;
+            }
+        } while (opcion != 0);
+    }
+
+    // Muestra el submenú para que el admin gestione usuarios.
+    private void menuAdminUsuarios(Admin admin) {
+        int opcion;
+        do {
+            out.println("\n--- ADMINISTRAR USUARIOS ---");
+            out.println("1. Agregar Usuario");
+            out.println("2. Editar Usuario");
+            out.println("3. Eliminar Usuario");
+            out.println("0. Volver al Menu Principal");
+            out.print("Seleccione una opcion: ");
+
+            try {
+                opcion = scanner.nextInt();
+                scanner.nextLine();
+
+                switch (opcion) {
+                    case 1: // Agregar usuario.
+                        out.print("Tipo de Documento (1:CC, 2:TI, etc.): ");
+                        byte tipoDoc = scanner.nextByte();
+                        out.print("Numero de Documento: ");
+                        long noDoc = scanner.nextLong();
+                        out.print("Rol (1:Estudiante, 2:Profesor, 3:Administrativo Universidad): ");
+                        byte rol = scanner.nextByte();
+                        scanner.nextLine();
+                        out.print("Nombre: ");
+                        String nombre = scanner.nextLine();
+                        out.print("Apellido: ");
+                        String apellido = scanner.nextLine();
+                        out.print("Usuario: ");
+                        String usuario = scanner.nextLine();
+                        out.print("Contrasena: ");
+                        String contrasena = scanner.nextLine();
+                        out.print("Deuda inicial (0.0 por defecto): ");
+                        String deudaStr = scanner.nextLine();
+                        double deuda = (deudaStr.isEmpty() ? 0.0 : Double.parseDouble(deudaStr));
+                        out.print("Sede Universidad (Ej. Medellin): ");
+                        String sedeUni = scanner.nextLine();
+                        out.print("Carrera (Ej. Ingenieria de Sistemas): ");
+                        String carrera = scanner.nextLine();
+                        out.println(admin.crearUsuario(tipoDoc, noDoc, rol, nombre, apellido, usuario,
+                                contrasena, deuda, sedeUni, carrera));
+                        break;
+                    case 2: // Editar usuario.
+                        out.print("Usuario a editar: ");
+                        String userEdit = scanner.nextLine();
+                        Miembro miembroAEditar = Miembro.encontrarMiembroPorUsuario(userEdit);
+                        if (miembroAEditar == null) {
+                            out.println("Usuario no encontrado.");
+                            break;
+                        }
+                        out.println(
+                                "Editando miembro: " + miembroAEditar.getNombre() + " " + miembroAEditar.getApellido());
+                        out.print("Nuevo Tipo Doc (actual: " + miembroAEditar.getTipoDocumento()
+                                + ", dejar vacio para no cambiar): ");
+                        String newTipoDocStr = scanner.nextLine();
+                        byte newTipoDoc = (newTipoDocStr.isEmpty() ? miembroAEditar.getTipoDocumento()
+                                : Byte.parseByte(newTipoDocStr));
+                        out.print("Nuevo No. Doc (actual: " + miembroAEditar.getNumeroDocumento()
+                                + ", dejar vacio para no cambiar): ");
+                        String newNoDocStr = scanner.nextLine();
+                        long newNoDoc = (newNoDocStr.isEmpty() ? miembroAEditar.getNumeroDocumento()
+                                : Long.parseLong(newNoDocStr));
+                        out.print("Nuevo Rol (actual: " + miembroAEditar.getRol()
+                                + ", 0:Admin, 1:Estudiante, 2:Profesor, 3:Admin Uni, dejar vacio para no cambiar): ");
+                        String newRolStr = scanner.nextLine();
+                        byte newRol = (newRolStr.isEmpty() ? miembroAEditar.getRol() : Byte.parseByte(newRolStr));
+                        out.print("Nuevo Nombre (actual: " + miembroAEditar.getNombre()
+                                + ", dejar vacio para no cambiar): ");
+                        String newNombre = scanner.nextLine();
+                        if (newNombre.isEmpty())
+                            newNombre = miembroAEditar.getNombre();
+                        out.print("Nuevo Apellido (actual: " + miembroAEditar.getApellido()
+                                + ", dejar vacio para no cambiar): ");
+                        String newApellido = scanner.nextLine();
+                        if (newApellido.isEmpty())
+                            newApellido = miembroAEditar.getApellido();
+                        out.print("Nuevo Usuario (actual: " + miembroAEditar.getUsuario()
+                                + ", dejar vacio para no cambiar): ");
+                        String newUsuario = scanner.nextLine();
+                        if (newUsuario.isEmpty())
+                            newUsuario = miembroAEditar.getUsuario();
+                        out.print("Nueva Contrasena (dejar vacio para no cambiar): ");
+                        String newContrasena = scanner.nextLine();
+                        double nuevaDeuda = 0.0;
+                        String nuevaSedeUni = "";
+                        String nuevaCarrera = "";
+                        if (newRol != 0) { // Si el rol no es Admin, pide datos de Usuario.
+                            if (miembroAEditar instanceof Usuario) { // Si ya era un Usuario.
+                                Usuario currentUsuario = (Usuario) miembroAEditar;
+                                out.print(
+                                        "Nueva Deuda (actual: " + String.format("%.2f", currentUsuario.getDeuda())
+                                                + ", dejar vacio para no cambiar): ");
+                                String newDeudaStr = scanner.nextLine();
+                                nuevaDeuda = (newDeudaStr.isEmpty() ? currentUsuario.getDeuda()
+                                        : Double.parseDouble(newDeudaStr.replace(',', '.')));
+                                out.print("Nueva Sede Universidad (actual: "
+                                        + currentUsuario.getSedeUniversidad() + ", dejar vacio para no cambiar): ");
+                                String newSedeUniStr = scanner.nextLine();
+                                nuevaSedeUni = (newSedeUniStr.isEmpty() ? currentUsuario.getSedeUniversidad()
+                                        : newSedeUniStr);
+                                out.print("Nueva Carrera (actual: " + currentUsuario.getCarrera()
+                                        + ", dejar vacio para no cambiar): ");
+                                String newCarreraStr = scanner.nextLine();
+                                nuevaCarrera = (newCarreraStr.isEmpty() ? currentUsuario.getCarrera() : newCarreraStr);
+                            } else { // Si era Admin y cambia a Usuario.
+                                out.println(
+                                        "Este miembro pasara a ser un Usuario. Por favor, ingrese sus datos especificos:");
+                                out.print("Nueva Deuda (0.0 por defecto): ");
+                                String newDeudaStr = scanner.nextLine();
+                                nuevaDeuda = (newDeudaStr.isEmpty() ? 0.0
+                                        : Double.parseDouble(newDeudaStr.replace(',', '.')));
+                                out.print("Nueva Sede Universidad: ");
+                                nuevaSedeUni = scanner.nextLine();
+                                out.print("Nueva Carrera: ");
+                                nuevaCarrera = scanner.nextLine();
+                            }
+                        } else {
+                            out.println(
+                                    "Este miembro es o seguira siendo un Administrador; los campos de deuda, sede y carrera no aplican.");
+                        }
+                        out.println(admin.editarUsuario(userEdit, newTipoDoc, newNoDoc, newRol, newNombre,
+                                newApellido, newUsuario, newContrasena, nuevaDeuda, nuevaSedeUni, nuevaCarrera));
+                        break;
+                    case 3: // Eliminar usuario.
+                        out.print("Usuario a eliminar: ");
+                        String userDel = scanner.nextLine();
+                        out.println(admin.eliminarUsuario(userDel));
+                        break;
+                    case 0:
+                        break;
+                    default:
+                        out.println("Opcion no valida.");
+                }
+            } catch (InputMismatchException | NumberFormatException e) {
+                out.println("Entrada invalida. Asegurese de ingresar el tipo de dato correcto.");
+                scanner.nextLine();
+                opcion = -1;
+            } catch (ConflictoVersionException e) { // Otro puesto cambió los mismos datos.
+                out.println("Error: " + e.getMessage());
+                opcion = -1;
+            }
+        } while (opcion != 0);
+    }
+
+    // Muestra el submenú para que el admin gestione bibliotecas.
+    private void menuAdminBibliotecas(Admin admin) {
+        int opcion;
+        do {
+            out.println("\n--- ADMINISTRAR BIBLIOTECAS ---");
+            out.println("1. Agregar Nueva Biblioteca");
+            out.println("2. Editar Biblioteca Existente");
+            out.println("3. Eliminar Biblioteca");
+            out.println("4. Ver Todas las Bibliotecas");
+            out.println("0. Volver al Menu Principal");
+            out.print("Seleccione una opcion: ");
+
+            try {
+                opcion = scanner.nextInt();
+                scanner.nextLine();
+
+                switch (opcion) {
+                    case 1: // Agregar biblioteca.
+                        out.print("ID de la nueva biblioteca: ");
+                        int newId = scanner.nextInt();
+                        scanner.nextLine();
+                        out.print("Sede de la nueva biblioteca: ");
+                        String newSede = scanner.nextLine();
+                        out.print("Nombre de la nueva biblioteca: ");
+                        String newName = scanner.nextLine();
+                        out.println(admin.agregarBiblioteca(newId, newSede, newName));
+                        break;
+                    case 2: // Editar biblioteca.
+                        out.print("ID de la biblioteca a editar: ");
+                        int editId = scanner.nextInt();
+                        scanner.nextLine();
+                        Biblioteca bibAEditar = Biblioteca.encontrarBibliotecaPorId(editId);
+                        if (bibAEditar == null) {
+                            out.println("Biblioteca no encontrada.");
+                            break;
+                        }
+                        out.print(
+                                "Nueva Sede (actual: " + bibAEditar.getSede() + ", dejar vacio para no cambiar): ");
+                        String newSedeEdit = scanner.nextLine();
+                        if (newSedeEdit.isEmpty())
+                            newSedeEdit = bibAEditar.getSede();
+                        out.print("Nuevo Nombre (actual: " + bibAEditar.getNombreBiblioteca()
+                                + ", dejar vacio para no cambiar): ");
+                        String newNameEdit = scanner.nextLine();
+                        if (newNameEdit.isEmpty())
+                            newNameEdit = bibAEditar.getNombreBiblioteca();
+                        out.println(admin.editarBiblioteca(editId, newSedeEdit, newNameEdit));
+                        break;
+                    case 3: // Eliminar biblioteca.
+                        out.print("ID de la biblioteca a eliminar: ");
+                        int delId = scanner.nextInt();
+                        scanner.nextLine();
+                        out.println(admin.eliminarBiblioteca(delId));
+                        break;
+                    case 4: // Ver todas las bibliotecas.
+                        out.println("\n--- LISTADO DE BIBLIOTECAS ---");
+                        List<Biblioteca> todasBib = Biblioteca.cargarTodasLasBibliotecas();
+                        if (todasBib.isEmpty()) {
+                            out.println("No hay bibliotecas registradas.");
+                        } else {
+                            todasBib.forEach(out::println);
+                        }
+                        out.println("------------------------------\n");
+                        break;
+                    case 0:
+                        break;
+                    default:
+                        out.println("Opcion no valida.");
+                }
+            } catch (InputMismatchException | NumberFormatException e) {
+                out.println("Entrada invalida. Asegurese de ingresar el tipo de dato correcto.");
+                scanner.nextLine();
+                opcion = -1;
+            } catch (ConflictoVersionException e) { // Otro puesto cambió los mismos datos.
+                out.println("Error: " + e.getMessage());
+                opcion = -1;
+            }
+        } while (opcion != 0);
+    }
+
+    // Permite al admin cambiar su información personal.
+    private void cambiarInfoPersonalAdmin(Admin admin) {
+        out.println("\n--- CAMBIAR INFORMACION PERSONAL DE ADMIN ---");
+        out.print("Nuevo Tipo Doc (actual: " + admin.getTipoDocumento() + ", dejar vacio para no cambiar): ");
+        String newTipoDocStr = scanner.nextLine();
+        byte newTipoDoc = (newTipoDocStr.isEmpty() ? admin.getTipoDocumento() : Byte.parseByte(newTipoDocStr));
+        out.print("Nuevo Nombre (actual: " + admin.getNombre() + ", dejar vacio para no cambiar): ");
+        String newNombre = scanner.nextLine();
+        if (newNombre.isEmpty())
+            newNombre = admin.getNombre();
+        out.print("Nuevo Apellido (actual: " + admin.getApellido() + ", dejar vacio para no cambiar): ");
+        String newApellido = scanner.nextLine();
+        if (newApellido.isEmpty())
+            newApellido = admin.getApellido();
+
+        admin.cambiarInfoPersonal(newTipoDoc, newNombre, newApellido); // Llama al método de Admin.
+        out.println("Informacion personal actualizada con exito.");
+    }
+
+    // Permite al admin cambiar su contraseña.
+    private void cambiarContrasenaAdmin(Admin admin) {
+        out.println("\n--- CAMBIAR CONTRASENA DE ADMIN ---");
+        out.print("Ingrese la nueva contrasena: ");
+        String newPass = scanner.nextLine();
+        admin.cambiarContrasena(newPass); // Llama al método de Admin para cambiar la contraseña.
+        out.println("Contrasena actualizada con exito.");
+    }
+
+    // Muestra todos los libros que tienen unidades disponibles en cualquier
+    // biblioteca.
+    private void verTodosLibrosDisponibles() {
+        out.println("\n--- TODOS LOS LIBROS DISPONIBLES (todas las sedes) ---");
+        List<Libro> todosDisponibles = LibroRepository.getInstancia().disponibles(); // Solo los que tienen unidades libres.
+        if (todosDisponibles.isEmpty()) {
+            out.println("No hay ningun libro disponible en ninguna biblioteca.");
+        } else {
+            todosDisponibles.forEach(out::println);
+        }
+        out.println("-------------------------------------------------------------------\n");
+    }
+
+    // Permite a un usuario pagar parte o toda su deuda.
+    private void pagarDeuda(Usuario usuario) {
+        out.println("\n--- PAGAR DEUDA ---");
+        if (usuario.getDeuda() <= 0) {
+            out.println("No tienes deuda pendiente.");
+            return;
+        } // Si no tiene deuda.
+        out.println("Tu deuda actual es: " + String.format("%.2f", usuario.getDeuda()) + " pesos.");
+        out.print("¿Cuanto deseas pagar? ");
+        try {
+            double montoPago = scanner.nextDouble();
+            scanner.nextLine(); // Lee el monto.
+            if (montoPago <= 0) {
+                out.println("El monto a pagar debe ser mayor que cero.");
+                return;
+            }
+            if (montoPago > usuario.getDeuda()) { // Si paga de más.
+                out.println("Advertencia: Estas pagando mas de lo debido. Tu deuda se ajustara a 0.");
+                usuario.setDeuda(0.0); // La deuda queda en 0.
+            } else {
+                usuario.setDeuda(usuario.getDeuda() - montoPago); // Resta el pago a la deuda.
+            }
+            usuario.guardar(); // Guarda el usuario con la deuda actualizada.
+            out.println(
+                    "Pago realizado. Tu nueva deuda es: " + String.format("%.2f", usuario.getDeuda()) + " pesos.");
+        } catch (InputMismatchException e) { // Si no ingresa un número.
+            out.println("Entrada invalida. Por favor, ingresa un numero valido para el monto.");
+            scanner.nextLine();
+        } catch (ConflictoVersionException e) { // Otro puesto cambió al usuario: se descarta el pago.
+            usuario.recargar(); // Vuelve a los datos (y la deuda) que están guardados.
+            out.println("Error: " + e.getMessage());
+        }
+    }
+
+    // Muestra el menú principal para los usuarios normales.
+    private void mostrarMenuUsuario() {
+        Usuario usuario = (Usuario) miembroActual; // Convierte el miembro actual a Usuario.
+        int opcion;
+        do {
+            out.println("\n--- MENU USUARIO (" + usuario.getNombre() + ") ---");
+            out.println("Deuda Actual: " + String.format("%.2f", usuario.getDeuda()) + " pesos");
+            out.println("1. Buscar Libro (por cualquier criterio)");
+            out.println("2. Ver Libros Disponibles en MI Sede (" + usuario.getSedeUniversidad() + ")");
+            out.println("3. Ver TODOS los Libros Disponibles (sin filtro de sede)");
+            out.println("4. Prestar Libro");
+            out.println("5. Devolver Libro");
+            out.println("6. Ver Mis Libros Prestados");
+            out.println("7. Pagar Deuda");
+            out.println("8. Cambiar informacion personal");
+            out.println("9. Cambiar Contrasena");
+            out.println("0. Cerrar Sesion");
+            out.print("Seleccione una opcion: ");
+
+            try {
+                opcion = scanner.nextInt();
+                scanner.nextLine();
+
+                switch (opcion) {
+                    case 1: // Buscar Libro.
+                        out.print("Ingrese el termino de busqueda: ");
+                        String query = scanner.nextLine();
+                        out.print("Buscar por (nombre/autor/codigo/sede/idbiblioteca): ");
+                        String searchType = scanner.nextLine();
+                        Iterator<Libro> resultados = bibliotecaSeleccionada.buscarLibroStream(query, searchType)
+                                .iterator(); // Los libros se muestran a medida que se encuentran.
+                        if (!resultados.hasNext()) {
+                            out.println("No se encontraron libros.");
+                        } else {
+                            resultados.forEachRemaining(out::println);
+                        }
+                        break;
+                    case 2: // Ver Libros Disponibles en su Sede.
+                        List<Libro> disponiblesSede = bibliotecaSeleccionada
+                                .librosDisponibles(usuario.getSedeUniversidad());
+                        if (disponiblesSede.isEmpty()) {
+                            out.println(
+                                    "No hay libros disponibles en tu sede (" + usuario.getSedeUniversidad() + ").");
+                        } else {
+                            out.println(
+                                    "\n--- LIBROS DISPONIBLES EN TU SEDE (" + usuario.getSedeUniversidad() + ") ---");
+                            disponiblesSede.forEach(out::println);
+                            out.println("-------------------------------------------------------------------\n");
+                        }
+                        break;
+                    case 3:
+                        verTodosLibrosDisponibles();
+                        break; // Ver todos los libros disponibles.
+                    case 4: // Prestar Libro.
+                        out.print("Ingrese el codigo del libro a prestar: ");
+                        String codPrestamo = scanner.nextLine();
+                        Usuario userReloadedForLoan = (Usuario) Miembro
+                                .encontrarMiembroPorUsuario(usuario.getUsuario()); // Recarga el usuario para la deuda
+                                                                                   // actualizada.
+                        if (userReloadedForLoan != null) {
+                            out.println(
+                                    userReloadedForLoan.solicitarPrestamo(codPrestamo, bibliotecaSeleccionada));
+                            miembroActual = userReloadedForLoan;
+                        } else {
+                            System.err.println(
+                                    "Error: No se pudo recargar la informacion del usuario para prestar el libro.");
+                        }
+                        break;
+                    case 5: // Devolver Libro.
+                        out.print("Ingrese el codigo del libro a devolver: ");
+                        String codDevolucion = scanner.nextLine();
+                        Usuario userReloadedForReturn = (Usuario) Miembro
+                                .encontrarMiembroPorUsuario(usuario.getUsuario()); // Recarga el usuario.
+                        if (userReloadedForReturn != null) {
+                            out.println(
+                                    userReloadedForReturn.realizarDevolucion(codDevolucion, bibliotecaSeleccionada));
+                            miembroActual = userReloadedForReturn;
+                        } else {
+                            System.err.println(
+                                    "Error: No se pudo recargar la informacion del usuario para devolver el libro.");
+                        }
+                        break;
+                    case 6:
+                        usuario.verMisLibrosPrestados();
+                        break; // Ver sus libros prestados.
+                    case 7:
+                        pagarDeuda(usuario);
+                        miembroActual = Miembro.encontrarMiembroPorUsuario(usuario.getUsuario());
+                        break; // Pagar deuda.
+                    case 8:
+                        cambiarInfoPersonalUsuario(usuario);
+                        miembroActual = Miembro.encontrarMiembroPorUsuario(usuario.getUsuario());
+                        break; // Cambiar información personal.
+                    case 9:
+                        cambiarContrasenaUsuario(usuario);
+                        miembroActual = Miembro.encontrarMiembroPorUsuario(usuario.getUsuario());
+                        break; // Cambiar contraseña.
+                    case 0:
+                        out.println("Cerrando sesion de usuario.");
+                        break;
+                    default:
+                        out.println("Opcion no valida. Intente de nuevo.");
+                }
+            } catch (InputMismatchException e) {
+                out.println("Entrada invalida. Por favor, ingrese un numero.");
+                scanner.nextLine();
+                opcion = -1;
+            } catch (ConflictoVersionException e) { // Otro puesto cambió los mismos datos.
+                out.println("Error: " + e.getMessage());
+                opcion = -1;
+            }
+        } while (opcion != 0);
+    }
+
+    // Permite a un usuario cambiar su información personal (nombre, apellido, sede,
+    // carrera).
+    private void cambiarInfoPersonalUsuario(Usuario usuario) {
+        out.println("\n--- CAMBIAR INFORMACION PERSONAL DE USUARIO ---");
+        out.print("Nuevo Tipo Doc (actual: " + usuario.getTipoDocumento() + ", dejar vacio para no cambiar): ");
+        String newTipoDocStr = scanner.nextLine();
+        byte newTipoDoc = (newTipoDocStr.isEmpty() ? usuario.getTipoDocumento() : Byte.parseByte(newTipoDocStr));
+        out.print("Nuevo Nombre (actual: " + usuario.getNombre() + ", dejar vacio para no cambiar): ");
+        String newNombre = scanner.nextLine();
+        if (newNombre.isEmpty())
+            newNombre = usuario.getNombre();
+        out.print("Nuevo Apellido (actual: " + usuario.getApellido() + ", dejar vacio para no cambiar): ");
+        String newApellido = scanner.nextLine();
+        if (newApellido.isEmpty())
+            newApellido = usuario.getApellido();
+        out.print(
+                "Nueva Sede Universidad (actual: " + usuario.getSedeUniversidad() + ", dejar vacio para no cambiar): ");
+        String newSedeUni = scanner.nextLine();
+        if (newSedeUni.isEmpty())
+            newSedeUni = usuario.getSedeUniversidad();
+        out.print("Nueva Carrera (actual: " + usuario.getCarrera() + ", dejar vacio para no cambiar): ");
+        String newCarrera = scanner.nextLine();
+        if (newCarrera.isEmpty())
+            newCarrera = usuario.getCarrera();
+
+        usuario.cambiarInfoPersonal(newTipoDoc, newNombre, newApellido, newSedeUni, newCarrera); // Llama al método de
+                                                                                                 // Usuario.
+        out.println("Informacion personal actualizada con exito.");
+    }
+
+    // Permite a un usuario cambiar su contraseña.
+    private void cambiarContrasenaUsuario(Usuario usuario) {
+        out.println("\n--- CAMBIAR CONTRASENA DE USUARIO ---");
+        out.print("Ingrese la nueva contrasena: ");
+        String newPass = scanner.nextLine();
+        usuario.cambiarContrasena(newPass); // Llama al método de Usuario.
+        out.println("Contrasena actualizada con exito.");
+    }
+}
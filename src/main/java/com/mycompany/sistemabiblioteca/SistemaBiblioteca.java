@@ -5,24 +5,22 @@
 package com.mycompany.sistemabiblioteca; // Carpeta donde está organizado nuestro código.
 
 import java.io.IOException; // Para manejar errores al trabajar con archivos.
-import java.nio.charset.StandardCharsets; // Para especificar la codificación de texto (UTF-8).
 import java.nio.file.Files; // Para operar con archivos.
 import java.nio.file.Path; // Para rutas de archivos.
-import java.nio.file.StandardOpenOption; // Opciones para guardar archivos.
 import java.security.SecureRandom; // Para generar números aleatorios seguros.
 import java.util.ArrayList; // Para listas dinámicas.
-import java.util.InputMismatchException; // Para manejar errores si el usuario no escribe un número.
 import java.util.List; // Para usar listas.
+import java.util.Random; // Generador de números aleatorios (con semilla o seguro).
 import java.util.Scanner; // Para leer la entrada del usuario.
-import java.util.stream.Collectors; // Para operar con listas de forma avanzada.
 
 // Esta es la clase principal que inicia y controla todo el sistema de la biblioteca.
-// Maneja el login, los menús y ejecuta pruebas automáticas.
+// Prepara los datos, ejecuta pruebas automáticas y abre una sesión en la consola
+// (el login y los menús están en Sesion). Con el argumento "servidor" atiende en
+// cambio muchas sesiones por red (ver ServidorSesiones), y con "api" ofrece las
+// operaciones como una API HTTP/JSON (ver ServidorApi).
 public class SistemaBiblioteca {
 
-    private static Miembro miembroActual = null; // Guarda el usuario que ha iniciado sesión.
-    private static Biblioteca bibliotecaSeleccionada = null; // Guarda la biblioteca con la que se está trabajando.
-    private static Scanner scanner = new Scanner(System.in); // Herramienta para leer lo que escribe el usuario.
+    private static final Scanner scanner = new Scanner(System.in); // Herramienta para leer lo que escribe el usuario.
 
     // Caracteres permitidos para generar nombres de usuario y contraseñas
     // aleatorias.
@@ -31,17 +29,37 @@ public class SistemaBiblioteca {
 
     // Genera una cadena de texto aleatoria de una longitud específica.
     private static String stringAleatorio(int length) {
+        return stringAleatorio(RANDOM, length);
+    }
+
+    // Igual, pero con el generador dado (GeneradorDatos usa uno con semilla para que los
+    // datos salgan siempre iguales).
+    static String stringAleatorio(Random aleatorio, int length) {
         StringBuilder sb = new StringBuilder(length); // Constructor de cadenas.
         for (int i = 0; i < length; i++) { // Repite 'length' veces.
-            sb.append(CHARS.charAt(RANDOM.nextInt(CHARS.length()))); // Añade un caracter aleatorio.
+            sb.append(CHARS.charAt(aleatorio.nextInt(CHARS.length()))); // Añade un caracter aleatorio.
         }
         return sb.toString(); // Devuelve la cadena final.
     }
 
     // Este es el método que se ejecuta cuando el programa inicia.
     public static void main(String[] args) {
+        if (args.length > 0 && args[0].equalsIgnoreCase("servidor")) { // Modo servidor: no borra los datos.
+            ServidorSesiones.main(java.util.Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equalsIgnoreCase("api")) { // API HTTP/JSON: tampoco borra los datos.
+            ServidorApi.main(java.util.Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equalsIgnoreCase("generar")) { // Datos de prueba grandes (ver GeneradorDatos).
+            GeneradorDatos.main(java.util.Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
         System.out.println("¡Bienvenido al Sistema de Gestion de Bibliotecas!"); // Mensaje de bienvenida.
 
+        EscrituraAtomica.recuperarTemporales(); // Descarta escrituras que un corte dejó a medias.
+
         System.out.println("\n--- INICIANDO CONFIGURACION Y PRUEBAS AUTOMATICAS ---");
         limpiarArchivosDeDatos(); // Borra los datos antiguos para empezar de cero en cada ejecución.
 
@@ -57,9 +75,8 @@ public class SistemaBiblioteca {
             return; // El programa termina.
         }
 
-        seleccionarBibliotecaInicial(bibliotecasDisponibles); // Pide al usuario que elija una biblioteca.
-
-        if (bibliotecaSeleccionada == null) { // Si no se pudo seleccionar una biblioteca.
+        Sesion consola = new Sesion(scanner, System.out); // La sesión de quien usa la consola.
+        if (!consola.elegirBiblioteca(bibliotecasDisponibles)) { // Pide al usuario que elija una biblioteca.
             System.out.println("No se pudo seleccionar una biblioteca. Saliendo del sistema.");
             scanner.close(); // Cierra el lector de teclado.
             return; // El programa termina.
@@ -78,15 +95,7 @@ public class SistemaBiblioteca {
                 + ", **Contrasena: nuevaContrasenaUser** (cambio durante los tests)");
         System.out.println("----------------------------------------------");
 
-        login(); // Inicia el proceso de login.
-
-        if (miembroActual != null) { // Si el login fue exitoso.
-            if (miembroActual.getRol() == 0) { // Si es Administrador.
-                mostrarMenuAdmin(); // Muestra el menú de Admin.
-            } else { // Si es Usuario.
-                mostrarMenuUsuario(); // Muestra el menú de Usuario.
-            }
-        }
+        consola.iniciarSesion(); // Login y menú de Admin o de Usuario.
 
         System.out.println("Gracias por usar el Sistema de Bibliotecas. ¡Hasta pronto!"); // Mensaje de despedida.
         scanner.close(); // Cierra el lector de teclado.
@@ -103,10 +112,25 @@ public class SistemaBiblioteca {
         Path bibliotecasPath = PathManager.resolverRutaArchivo("Bibliotecas.txt");
 
         try {
+            LibroRepository.getInstancia().invalidar(); // Olvida el catálogo que hubiera en memoria.
+            IndicePrestamos.getInstancia().invalidar(); // Olvida los préstamos que hubiera en memoria.
+            IndiceMiembros.getInstancia().invalidar(); // Olvida los miembros que hubiera en memoria.
+            SecuenciasCodigos.getInstancia().invalidar(); // Olvida los números de código entregados.
+            MultasDiarias.getInstancia().invalidar(); // Olvida el último día de multas sumado.
             Files.deleteIfExists(miembrosPath); // Borra el archivo de miembros si existe.
             Files.deleteIfExists(librosPath); // Borra el archivo de libros si existe.
+            Files.deleteIfExists(LibroJournal.resolverRutaJournal()); // Borra el diario de cambios de libros.
+            Files.deleteIfExists(LibroJournal.resolverRutaJournalRotado());
             Files.deleteIfExists(prestamosPath); // Borra el archivo de préstamos si existe.
+            Files.deleteIfExists(PrestamosBinario.resolverRutaBinario()); // Y su foto binaria.
             Files.deleteIfExists(bibliotecasPath); // Borra el archivo de bibliotecas si existe.
+            Files.deleteIfExists(SecuenciasCodigos.resolverRutaSecuencias()); // Y los números de código entregados.
+            Files.deleteIfExists(MultasDiarias.resolverRutaMultas()); // Y el último día de multas sumado.
+            for (Path p : new Path[] { miembrosPath, librosPath, prestamosPath, bibliotecasPath,
+                    SecuenciasCodigos.resolverRutaSecuencias(), MultasDiarias.resolverRutaMultas() }) {
+                BloqueoArchivo bloqueo = BloqueoArchivo.de(p);
+                bloqueo.ejecutar(bloqueo::marcarCambio); // Otros procesos ven que los archivos cambiaron.
+            }
             System.out.println("Archivos de datos eliminados correctamente.");
         } catch (IOException e) { // Si ocurre un error al borrar.
             System.err.println("Error al limpiar archivos de datos: " + e.getMessage());
@@ -122,16 +146,11 @@ public class SistemaBiblioteca {
         Path bibliotecasPath = Biblioteca.resolverRutaBibliotecas();
         if (!Files.exists(bibliotecasPath) || Biblioteca.cargarTodasLasBibliotecas().isEmpty()) {
             System.out.println("Creando 'Bibliotecas.txt' con datos de ejemplo...");
-            try {
-                List<String> defaultBibliotecas = new ArrayList<>();
-                defaultBibliotecas.add("1\\Medellin\\Biblioteca Central");
-                defaultBibliotecas.add("2\\Bogota\\Biblioteca Norte");
-                Files.write(bibliotecasPath, defaultBibliotecas, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
-                        StandardOpenOption.TRUNCATE_EXISTING); // Escribe las bibliotecas en el archivo.
-                System.out.println("Bibliotecas de ejemplo creadas.");
-            } catch (IOException e) {
-                System.err.println("Error al crear Bibliotecas.txt: " + e.getMessage());
-            }
+            List<Biblioteca> defaultBibliotecas = new ArrayList<>();
+            defaultBibliotecas.add(new Biblioteca(1, "Medellin", "Biblioteca Central"));
+            defaultBibliotecas.add(new Biblioteca(2, "Bogota", "Biblioteca Norte"));
+            Biblioteca.guardarTodasLasBibliotecas(defaultBibliotecas); // Escribe las bibliotecas en el archivo.
+            System.out.println("Bibliotecas de ejemplo creadas.");
         } else {
             System.out.println("Bibliotecas existentes cargadas.");
         }
@@ -202,664 +221,6 @@ public class SistemaBiblioteca {
         System.out.println("--- CONFIGURACION INICIAL COMPLETA ---\n");
     }
 
-    // Permite al usuario elegir una biblioteca para la sesión actual.
-    private static void seleccionarBibliotecaInicial(List<Biblioteca> bibliotecasDisponibles) {
-        System.out.println("\n--- SELECCION DE BIBLIOTECA ---");
-        System.out.println("Seleccione una biblioteca para iniciar:");
-        for (int i = 0; i < bibliotecasDisponibles.size(); i++) { // Muestra las bibliotecas con un número.
-            System.out.println((i + 1) + ". " + bibliotecasDisponibles.get(i).getNombreBiblioteca() + " ("
-                    + bibliotecasDisponibles.get(i).getSede() + ")");
-        }
-        int opcionBib;
-        while (true) { // Bucle hasta que elija una opción válida.
-            System.out.print("Ingrese el numero de la biblioteca: ");
-            try {
-                opcionBib = scanner.nextInt(); // Lee la opción.
-                scanner.nextLine(); // Consume el Enter.
-                if (opcionBib > 0 && opcionBib <= bibliotecasDisponibles.size()) { // Si la opción es válida.
-                    bibliotecaSeleccionada = bibliotecasDisponibles.get(opcionBib - 1); // Guarda la biblioteca elegida.
-                    System.out
-                            .println("Ha seleccionado la biblioteca: " + bibliotecaSeleccionada.getNombreBiblioteca());
-                    break; // Sale del bucle.
-                } else {
-                    System.out.println("Opcion no valida. Intente de nuevo.");
-                }
-            } catch (InputMismatchException e) { // Si no ingresa un número.
-                System.out.println("Entrada invalida. Por favor, ingrese un numero.");
-                scanner.nextLine(); // Limpia la entrada.
-            }
-        }
-    }
-
-    // Maneja el proceso de inicio de sesión.
-    private static void login() {
-        System.out.println("\n--- INICIO DE SESION ---");
-        System.out.print("Usuario: ");
-        String usuario = scanner.nextLine();
-        System.out.print("Contrasena: ");
-        String contrasena = scanner.nextLine();
-
-        Miembro tempMiembro = new Miembro(); // Crea un Miembro temporal para llamar al método de login.
-        String lineaMiembro = tempMiembro.login(usuario, contrasena); // Intenta hacer login.
-
-        if (!lineaMiembro.isEmpty()) { // Si el login fue exitoso.
-            // Carga el objeto Miembro completo (Admin o Usuario) para tener todos sus datos
-            // específicos.
-            Miembro foundMiembro = Miembro.encontrarMiembroPorUsuario(usuario);
-            if (foundMiembro != null) {
-                miembroActual = foundMiembro; // Establece el miembro actual.
-            } else {
-                System.err.println(
-                        "Error interno: Miembro encontrado por login pero no por findMemberByUsername. Fallo la carga del objeto completo.");
-                miembroActual = null;
-                return;
-            }
-            System.out.println("Inicio de sesion exitoso. ¡Bienvenido, " + miembroActual.getNombre() + "!");
-        } else {
-            System.out.println("Usuario o contrasena incorrectos."); // Si el login falló.
-            miembroActual = null;
-        }
-    }
-
-    // --- Implementacion de Menus (Admin y Usuario) ---
-    // Muestra el menú principal para los administradores.
-    private static void mostrarMenuAdmin() {
-        Admin admin = (Admin) miembroActual; // Convierte el miembro actual a Admin.
-        int opcion;
-        do { // Bucle del menú.
-            System.out.println("\n--- MENU ADMINISTRADOR ---");
-            System.out.println("1. Administrar Libros");
-            System.out.println("2. Administrar Usuarios");
-            System.out.println("3. Administrar Bibliotecas");
-            System.out.println("4. Ver Libros Prestados (Todos)");
-            System.out.println("5. Ver Libros Prestados por un Usuario especifico");
-            System.out.println("6. Ver Todos los Libros");
-            System.out.println("7. Ver un Libro Especifico");
-            System.out.println("8. Ver Todos los Usuarios");
-            System.out.println("9. Cambiar informacion personal de Admin");
-            System.out.println("10. Cambiar contrasena de Admin");
-            System.out.println("0. Cerrar Sesion");
-            System.out.print("Seleccione una opcion: ");
-
-            try {
-                opcion = scanner.nextInt(); // Lee la opción.
-                scanner.nextLine(); // Consume el Enter.
-
-                switch (opcion) { // Ejecuta la acción según la opción.
-                    case 1:
-                        menuAdminLibros(admin);
-                        break;
-                    case 2:
-                        menuAdminUsuarios(admin);
-                        break;
-                    case 3:
-                        menuAdminBibliotecas(admin);
-                        break;
-                    case 4:
-                        admin.verLibrosPrestados();
-                        break;
-                    case 5:
-                        System.out.print("Ingrese el numero de documento del usuario: ");
-                        long noDocUsuario = scanner.nextLong();
-                        scanner.nextLine();
-                        admin.verLibrosPrestadosPorUsuario(noDocUsuario);
-                        break;
-                    case 6:
-                        admin.verTodosLibros();
-                        break;
-                    case 7:
-                        System.out.print("Ingrese el codigo del libro a ver: ");
-                        String codVerLibro = scanner.nextLine();
-                        admin.verLibro(codVerLibro);
-                        break;
-                    case 8:
-                        admin.verTodosUsuarios();
-                        break;
-                    case 9:
-                        cambiarInfoPersonalAdmin(admin);
-                        break;
-                    case 10:
-                        cambiarContrasenaAdmin(admin);
-                        break;
-                    case 0:
-                        System.out.println("Cerrando sesion de administrador.");
-                        break;
-                    default:
-                        System.out.println("Opcion no valida. Intente de nuevo.");
-                }
-            } catch (InputMismatchException e) { // Si no ingresa un número.
-                System.out.println("Entrada invalida. Por favor, ingrese un numero.");
-                scanner.nextLine();
-                opcion = -1;
-            }
-        } while (opcion != 0); // Continúa hasta que elija 0.
-    }
-
-    // Muestra el submenú para que el admin gestione libros.
-    private static void menuAdminLibros(Admin admin) {
-        int opcion;
-        do {
-            System.out.println("\n--- ADMINISTRAR LIBROS ---");
-            System.out.println("1. Agregar Libro");
-            System.out.println("2. Editar Libro");
-            System.out.println("3. Eliminar Unidades de Libro / Eliminar Libro Completo");
-            System.out.println("0. Volver al Menu Principal");
-            System.out.print("Seleccione una opcion: ");
-
-            try {
-                opcion = scanner.nextInt();
-                scanner.nextLine();
-
-                switch (opcion) {
-                    case 1: // Agregar libro.
-                        System.out.print("Nombre: ");
-                        String nombre = scanner.nextLine();
-                        System.out.print("Autor: ");
-                        String autor = scanner.nextLine();
-                        System.out.print("Codigo (ID unico, teclear 'auto' para generar): ");
-                        String codigo = scanner.nextLine();
-                        System.out.print("Unidades Totales: ");
-                        int unidades = scanner.nextInt();
-                        scanner.nextLine();
-                        System.out.println(admin.agregarLibro(nombre, autor, codigo, unidades,
-                                bibliotecaSeleccionada.getId(), bibliotecaSeleccionada.getSede()));
-                        break;
-                    case 2: // Editar libro.
-                        System.out.print("Codigo del libro a editar: ");
-                        String codEdit = scanner.nextLine();
-                        Libro libroAEditar = Libro.encontrarLibroPorCodigo(codEdit);
-                        if (libroAEditar == null) {
-                            System.out.println("Libro no encontrado.");
-                            break;
-                        }
-                        System.out.println("Editando libro: " + libroAEditar.getNombre());
-                        System.out.print("Nuevo Nombre (actual: " + libroAEditar.getNombre()
-                                + ", dejar vacio para no cambiar): ");
-                        String newNombre = scanner.nextLine();
-                        if (newNombre.isEmpty())
-                            newNombre = libroAEditar.getNombre();
-                        System.out.print(
-                                "Nuevo Autor (actual: " + libroAEditar.getAutor() + ", dejar vacio para no cambiar): ");
-                        String newAutor = scanner.nextLine();
-                        if (newAutor.isEmpty())
-                            newAutor = libroAEditar.getAutor();
-                        System.out.print("Nuevas Unidades Totales (actual: "
-                                + (libroAEditar.getUnidadesLibres() + libroAEditar.getUnidadesPrestadas())
-                                + ", dejar vacio para no cambiar): ");
-                        String newUnidadesStr = scanner.nextLine();
-                        int newUnidades = (newUnidadesStr.isEmpty()
-                                ? (libroAEditar.getUnidadesLibres() + libroAEditar.getUnidadesPrestadas())
-                                : Integer.parseInt(newUnidadesStr));
-                        System.out.println(admin.editarLibro(codEdit, newNombre, newAutor, newUnidades,
-                                libroAEditar.getIdBiblioteca(), libroAEditar.getSedeBiblioteca()));
-                        break;
-                    case 3: // Eliminar unidades o libro completo.
-                        System.out.print("Codigo del libro a eliminar: ");
-                        String codDel = scanner.nextLine();
-                        System.out.print(
-                                "¿Cuantas unidades desea eliminar? (0 para eliminar todas las unidades libres, o un numero especifico): ");
-                        String unidadesDelStr = scanner.nextLine();
-                        if (unidadesDelStr.isEmpty() || unidadesDelStr.equals("0")) {
-                            System.out.println(admin.eliminarLibro(codDel));
-                        } else {
-                            int unidadesAeliminar = Integer.parseInt(unidadesDelStr);
-                            System.out.println(admin.eliminarLibro(codDel, unidadesAeliminar));
-                        }
-                        break;
-                    case 0:
-                        break;
-                    default:
-                        System.out.println("Opcion no valida.");
-                }
-            } catch (InputMismatchException | NumberFormatException e) { // Si hay error de tipo de dato.
-                System.out.println("Entrada invalida. Asegurese de ingresar el tipo de dato correcto.");
-                scanner.nextLine();
-                opcion = -1;
-            }
-        } while (opcion != 0);
-    }
-
-    // Muestra el submenú para que el admin gestione usuarios.
-    private static void menuAdminUsuarios(Admin admin) {
-        int opcion;
-        do {
-            System.out.println("\n--- ADMINISTRAR USUARIOS ---");
-            System.out.println("1. Agregar Usuario");
-            System.out.println("2. Editar Usuario");
-            System.out.println("3. Eliminar Usuario");
-            System.out.println("0. Volver al Menu Principal");
-            System.out.print("Seleccione una opcion: ");
-
-            try {
-                opcion = scanner.nextInt();
-                scanner.nextLine();
-
-                switch (opcion) {
-                    case 1: // Agregar usuario.
-                        System.out.print("Tipo de Documento (1:CC, 2:TI, etc.): ");
-                        byte tipoDoc = scanner.nextByte();
-                        System.out.print("Numero de Documento: ");
-                        long noDoc = scanner.nextLong();
-                        System.out.print("Rol (1:Estudiante, 2:Profesor, 3:Administrativo Universidad): ");
-                        byte rol = scanner.nextByte();
-                        scanner.nextLine();
-                        System.out.print("Nombre: ");
-                        String nombre = scanner.nextLine();
-                        System.out.print("Apellido: ");
-                        String apellido = scanner.nextLine();
-                        System.out.print("Usuario: ");
-                        String usuario = scanner.nextLine();
-                        System.out.print("Contrasena: ");
-                        String contrasena = scanner.nextLine();
-                        System.out.print("Deuda inicial (0.0 por defecto): ");
-                        String deudaStr = scanner.nextLine();
-                        double deuda = (deudaStr.isEmpty() ? 0.0 : Double.parseDouble(deudaStr));
-                        System.out.print("Sede Universidad (Ej. Medellin): ");
-                        String sedeUni = scanner.nextLine();
-                        System.out.print("Carrera (Ej. Ingenieria de Sistemas): ");
-                        String carrera = scanner.nextLine();
-                        System.out.println(admin.crearUsuario(tipoDoc, noDoc, rol, nombre, apellido, usuario,
-                                contrasena, deuda, sedeUni, carrera));
-                        break;
-                    case 2: // Editar usuario.
-                        System.out.print("Usuario a editar: ");
-                        String userEdit = scanner.nextLine();
-                        Miembro miembroAEditar = Miembro.encontrarMiembroPorUsuario(userEdit);
-                        if (miembroAEditar == null) {
-                            System.out.println("Usuario no encontrado.");
-                            break;
-                        }
-                        System.out.println(
-                                "Editando miembro: " + miembroAEditar.getNombre() + " " + miembroAEditar.getApellido());
-                        System.out.print("Nuevo Tipo Doc (actual: " + miembroAEditar.getTipoDocumento()
-                                + ", dejar vacio para no cambiar): ");
-                        String newTipoDocStr = scanner.nextLine();
-                        byte newTipoDoc = (newTipoDocStr.isEmpty() ? miembroAEditar.getTipoDocumento()
-                                : Byte.parseByte(newTipoDocStr));
-                        System.out.print("Nuevo No. Doc (actual: " + miembroAEditar.getNumeroDocumento()
-                                + ", dejar vacio para no cambiar): ");
-                        String newNoDocStr = scanner.nextLine();
-                        long newNoDoc = (newNoDocStr.isEmpty() ? miembroAEditar.getNumeroDocumento()
-                                : Long.parseLong(newNoDocStr));
-                        System.out.print("Nuevo Rol (actual: " + miembroAEditar.getRol()
-                                + ", 0:Admin, 1:Estudiante, 2:Profesor, 3:Admin Uni, dejar vacio para no cambiar): ");
-                        String newRolStr = scanner.nextLine();
-                        byte newRol = (newRolStr.isEmpty() ? miembroAEditar.getRol() : Byte.parseByte(newRolStr));
-                        System.out.print("Nuevo Nombre (actual: " + miembroAEditar.getNombre()
-                                + ", dejar vacio para no cambiar): ");
-                        String newNombre = scanner.nextLine();
-                        if (newNombre.isEmpty())
-                            newNombre = miembroAEditar.getNombre();
-                        System.out.print("Nuevo Apellido (actual: " + miembroAEditar.getApellido()
-                                + ", dejar vacio para no cambiar): ");
-                        String newApellido = scanner.nextLine();
-                        if (newApellido.isEmpty())
-                            newApellido = miembroAEditar.getApellido();
-                        System.out.print("Nuevo Usuario (actual: " + miembroAEditar.getUsuario()
-                                + ", dejar vacio para no cambiar): ");
-                        String newUsuario = scanner.nextLine();
-                        if (newUsuario.isEmpty())
-                            newUsuario = miembroAEditar.getUsuario();
-                        System.out.print("Nueva Contrasena (dejar vacio para no cambiar): ");
-                        String newContrasena = scanner.nextLine();
-                        double nuevaDeuda = 0.0;
-                        String nuevaSedeUni = "";
-                        String nuevaCarrera = "";
-                        if (newRol != 0) { // Si el rol no es Admin, pide datos de Usuario.
-                            if (miembroAEditar instanceof Usuario) { // Si ya era un Usuario.
-                                Usuario currentUsuario = (Usuario) miembroAEditar;
-                                System.out.print(
-                                        "Nueva Deuda (actual: " + String.format("%.2f", currentUsuario.getDeuda())
-                                                + ", dejar vacio para no cambiar): ");
-                                String newDeudaStr = scanner.nextLine();
-                                nuevaDeuda = (newDeudaStr.isEmpty() ? currentUsuario.getDeuda()
-                                        : Double.parseDouble(newDeudaStr.replace(',', '.')));
-                                System.out.print("Nueva Sede Universidad (actual: "
-                                        + currentUsuario.getSedeUniversidad() + ", dejar vacio para no cambiar): ");
-                                String newSedeUniStr = scanner.nextLine();
-                                nuevaSedeUni = (newSedeUniStr.isEmpty() ? currentUsuario.getSedeUniversidad()
-                                        : newSedeUniStr);
-                                System.out.print("Nueva Carrera (actual: " + currentUsuario.getCarrera()
-                                        + ", dejar vacio para no cambiar): ");
-                                String newCarreraStr = scanner.nextLine();
-                                nuevaCarrera = (newCarreraStr.isEmpty() ? currentUsuario.getCarrera() : newCarreraStr);
-                            } else { // Si era Admin y cambia a Usuario.
-                                System.out.println(
-                                        "Este miembro pasara a ser un Usuario. Por favor, ingrese sus datos especificos:");
-                                System.out.print("Nueva Deuda (0.0 por defecto): ");
-                                String newDeudaStr = scanner.nextLine();
-                                nuevaDeuda = (newDeudaStr.isEmpty() ? 0.0
-                                        : Double.parseDouble(newDeudaStr.replace(',', '.')));
-                                System.out.print("Nueva Sede Universidad: ");
-                                nuevaSedeUni = scanner.nextLine();
-                                System.out.print("Nueva Carrera: ");
-                                nuevaCarrera = scanner.nextLine();
-                            }
-                        } else {
-                            System.out.println(
-                                    "Este miembro es o seguira siendo un Administrador; los campos de deuda, sede y carrera no aplican.");
-                        }
-                        System.out.println(admin.editarUsuario(userEdit, newTipoDoc, newNoDoc, newRol, newNombre,
-                                newApellido, newUsuario, newContrasena, nuevaDeuda, nuevaSedeUni, nuevaCarrera));
-                        break;
-                    case 3: // Eliminar usuario.
-                        System.out.print("Usuario a eliminar: ");
-                        String userDel = scanner.nextLine();
-                        System.out.println(admin.eliminarUsuario(userDel));
-                        break;
-                    case 0:
-                        break;
-                    default:
-                        System.out.println("Opcion no valida.");
-                }
-            } catch (InputMismatchException | NumberFormatException e) {
-                System.out.println("Entrada invalida. Asegurese de ingresar el tipo de dato correcto.");
-                scanner.nextLine();
-                opcion = -1;
-            }
-        } while (opcion != 0);
-    }
-
-    // Muestra el submenú para que el admin gestione bibliotecas.
-    private static void menuAdminBibliotecas(Admin admin) {
-        int opcion;
-        do {
-            System.out.println("\n--- ADMINISTRAR BIBLIOTECAS ---");
-            System.out.println("1. Agregar Nueva Biblioteca");
-            System.out.println("2. Editar Biblioteca Existente");
-            System.out.println("3. Eliminar Biblioteca");
-            System.out.println("4. Ver Todas las Bibliotecas");
-            System.out.println("0. Volver al Menu Principal");
-            System.out.print("Seleccione una opcion: ");
-
-            try {
-                opcion = scanner.nextInt();
-                scanner.nextLine();
-
-                switch (opcion) {
-                    case 1: // Agregar biblioteca.
-                        System.out.print("ID de la nueva biblioteca: ");
-                        int newId = scanner.nextInt();
-                        scanner.nextLine();
-                        System.out.print("Sede de la nueva biblioteca: ");
-                        String newSede = scanner.nextLine();
-                        System.out.print("Nombre de la nueva biblioteca: ");
-                        String newName = scanner.nextLine();
-                        System.out.println(admin.agregarBiblioteca(newId, newSede, newName));
-                        break;
-                    case 2: // Editar biblioteca.
-                        System.out.print("ID de la biblioteca a editar: ");
-                        int editId = scanner.nextInt();
-                        scanner.nextLine();
-                        Biblioteca bibAEditar = Biblioteca.encontrarBibliotecaPorId(editId);
-                        if (bibAEditar == null) {
-                            System.out.println("Biblioteca no encontrada.");
-                            break;
-                        }
-                        System.out.print(
-                                "Nueva Sede (actual: " + bibAEditar.getSede() + ", dejar vacio para no cambiar): ");
-                        String newSedeEdit = scanner.nextLine();
-                        if (newSedeEdit.isEmpty())
-                            newSedeEdit = bibAEditar.getSede();
-                        System.out.print("Nuevo Nombre (actual: " + bibAEditar.getNombreBiblioteca()
-                                + ", dejar vacio para no cambiar): ");
-                        String newNameEdit = scanner.nextLine();
-                        if (newNameEdit.isEmpty())
-                            newNameEdit = bibAEditar.getNombreBiblioteca();
-                        System.out.println(admin.editarBiblioteca(editId, newSedeEdit, newNameEdit));
-                        break;
-                    case 3: // Eliminar biblioteca.
-                        System.out.print("ID de la biblioteca a eliminar: ");
-                        int delId = scanner.nextInt();
-                        scanner.nextLine();
-                        System.out.println(admin.eliminarBiblioteca(delId));
-                        break;
-                    case 4: // Ver todas las bibliotecas.
-                        System.out.println("\n--- LISTADO DE BIBLIOTECAS ---");
-                        List<Biblioteca> todasBib = Biblioteca.cargarTodasLasBibliotecas();
-                        if (todasBib.isEmpty()) {
-                            System.out.println("No hay bibliotecas registradas.");
-                        } else {
-                            todasBib.forEach(System.out::println);
-                        }
-                        System.out.println("------------------------------\n");
-                        break;
-                    case 0:
-                        break;
-                    default:
-                        System.out.println("Opcion no valida.");
-                }
-            } catch (InputMismatchException | NumberFormatException e) {
-                System.out.println("Entrada invalida. Asegurese de ingresar el tipo de dato correcto.");
-                scanner.nextLine();
-                opcion = -1;
-            }
-        } while (opcion != 0);
-    }
-
-    // Permite al admin cambiar su información personal.
-    private static void cambiarInfoPersonalAdmin(Admin admin) {
-        System.out.println("\n--- CAMBIAR INFORMACION PERSONAL DE ADMIN ---");
-        System.out.print("Nuevo Tipo Doc (actual: " + admin.getTipoDocumento() + ", dejar vacio para no cambiar): ");
-        String newTipoDocStr = scanner.nextLine();
-        byte newTipoDoc = (newTipoDocStr.isEmpty() ? admin.getTipoDocumento() : Byte.parseByte(newTipoDocStr));
-        System.out.print("Nuevo Nombre (actual: " + admin.getNombre() + ", dejar vacio para no cambiar): ");
-        String newNombre = scanner.nextLine();
-        if (newNombre.isEmpty())
-            newNombre = admin.getNombre();
-        System.out.print("Nuevo Apellido (actual: " + admin.getApellido() + ", dejar vacio para no cambiar): ");
-        String newApellido = scanner.nextLine();
-        if (newApellido.isEmpty())
-            newApellido = admin.getApellido();
-
-        admin.cambiarInfoPersonal(newTipoDoc, newNombre, newApellido); // Llama al método de Admin.
-        System.out.println("Informacion personal actualizada con exito.");
-    }
-
-    // Permite al admin cambiar su contraseña.
-    private static void cambiarContrasenaAdmin(Admin admin) {
-        System.out.println("\n--- CAMBIAR CONTRASENA DE ADMIN ---");
-        System.out.print("Ingrese la nueva contrasena: ");
-        String newPass = scanner.nextLine();
-        admin.cambiarContrasena(newPass); // Llama al método de Admin para cambiar la contraseña.
-        System.out.println("Contrasena actualizada con exito.");
-    }
-
-    // Muestra todos los libros que tienen unidades disponibles en cualquier
-    // biblioteca.
-    private static void verTodosLibrosDisponibles() {
-        System.out.println("\n--- TODOS LOS LIBROS DISPONIBLES (todas las sedes) ---");
-        List<Libro> todosDisponibles = Libro.cargarTodosLosLibros().stream()
-                .filter(l -> l.getUnidadesLibres() > 0) // Filtra solo los libros con unidades libres.
-                .collect(Collectors.toList());
-        if (todosDisponibles.isEmpty()) {
-            System.out.println("No hay ningun libro disponible en ninguna biblioteca.");
-        } else {
-            todosDisponibles.forEach(System.out::println);
-        }
-        System.out.println("-------------------------------------------------------------------\n");
-    }
-
-    // Permite a un usuario pagar parte o toda su deuda.
-    private static void pagarDeuda(Usuario usuario) {
-        System.out.println("\n--- PAGAR DEUDA ---");
-        if (usuario.getDeuda() <= 0) {
-            System.out.println("No tienes deuda pendiente.");
-            return;
-        } // Si no tiene deuda.
-        System.out.println("Tu deuda actual es: " + String.format("%.2f", usuario.getDeuda()) + " pesos.");
-        System.out.print("¿Cuanto deseas pagar? ");
-        try {
-            double montoPago = scanner.nextDouble();
-            scanner.nextLine(); // Lee el monto.
-            if (montoPago <= 0) {
-                System.out.println("El monto a pagar debe ser mayor que cero.");
-                return;
-            }
-            if (montoPago > usuario.getDeuda()) { // Si paga de más.
-                System.out.println("Advertencia: Estas pagando mas de lo debido. Tu deuda se ajustara a 0.");
-                usuario.setDeuda(0.0); // La deuda queda en 0.
-            } else {
-                usuario.setDeuda(usuario.getDeuda() - montoPago); // Resta el pago a la deuda.
-            }
-            usuario.guardar(); // Guarda el usuario con la deuda actualizada.
-            System.out.println(
-                    "Pago realizado. Tu nueva deuda es: " + String.format("%.2f", usuario.getDeuda()) + " pesos.");
-        } catch (InputMismatchException e) { // Si no ingresa un número.
-            System.out.println("Entrada invalida. Por favor, ingresa un numero valido para el monto.");
-            scanner.nextLine();
-        }
-    }
-
-    // Muestra el menú principal para los usuarios normales.
-    private static void mostrarMenuUsuario() {
-        Usuario usuario = (Usuario) miembroActual; // Convierte el miembro actual a Usuario.
-        int opcion;
-        do {
-            System.out.println("\n--- MENU USUARIO (" + usuario.getNombre() + ") ---");
-            System.out.println("Deuda Actual: " + String.format("%.2f", usuario.getDeuda()) + " pesos");
-            System.out.println("1. Buscar Libro (por cualquier criterio)");
-            System.out.println("2. Ver Libros Disponibles en MI Sede (" + usuario.getSedeUniversidad() + ")");
-            System.out.println("3. Ver TODOS los Libros Disponibles (sin filtro de sede)");
-            System.out.println("4. Prestar Libro");
-            System.out.println("5. Devolver Libro");
-            System.out.println("6. Ver Mis Libros Prestados");
-            System.out.println("7. Pagar Deuda");
-            System.out.println("8. Cambiar informacion personal");
-            System.out.println("9. Cambiar Contrasena");
-            System.out.println("0. Cerrar Sesion");
-            System.out.print("Seleccione una opcion: ");
-
-            try {
-                opcion = scanner.nextInt();
-                scanner.nextLine();
-
-                switch (opcion) {
-                    case 1: // Buscar Libro.
-                        System.out.print("Ingrese el termino de busqueda: ");
-                        String query = scanner.nextLine();
-                        System.out.print("Buscar por (nombre/autor/codigo/sede/idbiblioteca): ");
-                        String searchType = scanner.nextLine();
-                        List<Libro> resultados = bibliotecaSeleccionada.buscarLibro(query, searchType);
-                        if (resultados.isEmpty()) {
-                            System.out.println("No se encontraron libros.");
-                        } else {
-                            resultados.forEach(System.out::println);
-                        }
-                        break;
-                    case 2: // Ver Libros Disponibles en su Sede.
-                        List<Libro> disponiblesSede = bibliotecaSeleccionada
-                                .librosDisponibles(usuario.getSedeUniversidad());
-                        if (disponiblesSede.isEmpty()) {
-                            System.out.println(
-                                    "No hay libros disponibles en tu sede (" + usuario.getSedeUniversidad() + ").");
-                        } else {
-                            System.out.println(
-                                    "\n--- LIBROS DISPONIBLES EN TU SEDE (" + usuario.getSedeUniversidad() + ") ---");
-                            disponiblesSede.forEach(System.out::println);
-                            System.out.println("-------------------------------------------------------------------\n");
-                        }
-                        break;
-                    case 3:
-                        verTodosLibrosDisponibles();
-                        break; // Ver todos los libros disponibles.
-                    case 4: // Prestar Libro.
-                        System.out.print("Ingrese el codigo del libro a prestar: ");
-                        String codPrestamo = scanner.nextLine();
-                        Usuario userReloadedForLoan = (Usuario) Miembro
-                                .encontrarMiembroPorUsuario(usuario.getUsuario()); // Recarga el usuario para la deuda
-                                                                                   // actualizada.
-                        if (userReloadedForLoan != null) {
-                            System.out.println(
-                                    userReloadedForLoan.solicitarPrestamo(codPrestamo, bibliotecaSeleccionada));
-                            miembroActual = userReloadedForLoan;
-                        } else {
-                            System.err.println(
-                                    "Error: No se pudo recargar la informacion del usuario para prestar el libro.");
-                        }
-                        break;
-                    case 5: // Devolver Libro.
-                        System.out.print("Ingrese el codigo del libro a devolver: ");
-                        String codDevolucion = scanner.nextLine();
-                        Usuario userReloadedForReturn = (Usuario) Miembro
-                                .encontrarMiembroPorUsuario(usuario.getUsuario()); // Recarga el usuario.
-                        if (userReloadedForReturn != null) {
-                            System.out.println(
-                                    userReloadedForReturn.realizarDevolucion(codDevolucion, bibliotecaSeleccionada));
-                            miembroActual = userReloadedForReturn;
-                        } else {
-                            System.err.println(
-                                    "Error: No se pudo recargar la informacion del usuario para devolver el libro.");
-                        }
-                        break;
-                    case 6:
-                        usuario.verMisLibrosPrestados();
-                        break; // Ver sus libros prestados.
-                    case 7:
-                        pagarDeuda(usuario);
-                        miembroActual = Miembro.encontrarMiembroPorUsuario(usuario.getUsuario());
-                        break; // Pagar deuda.
-                    case 8:
-                        cambiarInfoPersonalUsuario(usuario);
-                        miembroActual = Miembro.encontrarMiembroPorUsuario(usuario.getUsuario());
-                        break; // Cambiar información personal.
-                    case 9:
-                        cambiarContrasenaUsuario(usuario);
-                        miembroActual = Miembro.encontrarMiembroPorUsuario(usuario.getUsuario());
-                        break; // Cambiar contraseña.
-                    case 0:
-                        System.out.println("Cerrando sesion de usuario.");
-                        break;
-                    default:
-                        System.out.println("Opcion no valida. Intente de nuevo.");
-                }
-            } catch (InputMismatchException e) {
-                System.out.println("Entrada invalida. Por favor, ingrese un numero.");
-                scanner.nextLine();
-                opcion = -1;
-            }
-        } while (opcion != 0);
-    }
-
-    // Permite a un usuario cambiar su información personal (nombre, apellido, sede,
-    // carrera).
-    private static void cambiarInfoPersonalUsuario(Usuario usuario) {
-        System.out.println("\n--- CAMBIAR INFORMACION PERSONAL DE USUARIO ---");
-        System.out.print("Nuevo Tipo Doc (actual: " + usuario.getTipoDocumento() + ", dejar vacio para no cambiar): ");
-        String newTipoDocStr = scanner.nextLine();
-        byte newTipoDoc = (newTipoDocStr.isEmpty() ? usuario.getTipoDocumento() : Byte.parseByte(newTipoDocStr));
-        System.out.print("Nuevo Nombre (actual: " + usuario.getNombre() + ", dejar vacio para no cambiar): ");
-        String newNombre = scanner.nextLine();
-        if (newNombre.isEmpty())
-            newNombre = usuario.getNombre();
-        System.out.print("Nuevo Apellido (actual: " + usuario.getApellido() + ", dejar vacio para no cambiar): ");
-        String newApellido = scanner.nextLine();
-        if (newApellido.isEmpty())
-            newApellido = usuario.getApellido();
-        System.out.print(
-                "Nueva Sede Universidad (actual: " + usuario.getSedeUniversidad() + ", dejar vacio para no cambiar): ");
-        String newSedeUni = scanner.nextLine();
-        if (newSedeUni.isEmpty())
-            newSedeUni = usuario.getSedeUniversidad();
-        System.out.print("Nueva Carrera (actual: " + usuario.getCarrera() + ", dejar vacio para no cambiar): ");
-        String newCarrera = scanner.nextLine();
-        if (newCarrera.isEmpty())
-            newCarrera = usuario.getCarrera();
-
-        usuario.cambiarInfoPersonal(newTipoDoc, newNombre, newApellido, newSedeUni, newCarrera); // Llama al método de
-                                                                                                 // Usuario.
-        System.out.println("Informacion personal actualizada con exito.");
-    }
-
-    // Permite a un usuario cambiar su contraseña.
-    private static void cambiarContrasenaUsuario(Usuario usuario) {
-        System.out.println("\n--- CAMBIAR CONTRASENA DE USUARIO ---");
-        System.out.print("Ingrese la nueva contrasena: ");
-        String newPass = scanner.nextLine();
-        usuario.cambiarContrasena(newPass); // Llama al método de Usuario.
-        System.out.println("Contrasena actualizada con exito.");
-    }
-
     // Nombre de usuario del estudiante de prueba, usado en los tests.
     private static String userEstudianteTestUserName = null;
 
@@ -1039,39 +400,39 @@ public class SistemaBiblioteca {
         // Test 13: Prestar multiples libros (limite 5 para estudiante).
         System.out.println("\n--- Test Usuario: Prestar multiples libros (Estudiante) ---");
         userEstudianteTest = (Usuario) Miembro.encontrarMiembroPorUsuario(userEstudianteTest.getUsuario());
-        String prestamoResult2 = userEstudianteTest.solicitarPrestamo(codLibro2, testBiblioteca);
+        Resultado<Prestamo> prestamoResult2 = userEstudianteTest.solicitarPrestamo(codLibro2, testBiblioteca);
         System.out.println(prestamoResult2);
 
         String codLibro3 = procesarResultadoAgregarLibro(adminTest.agregarLibro("Nuevo Libro", "Autor Anonimo", "auto",
                 1, testBiblioteca.getId(), testBiblioteca.getSede()));
         userEstudianteTest = (Usuario) Miembro.encontrarMiembroPorUsuario(userEstudianteTest.getUsuario());
-        String prestamoResult3 = userEstudianteTest.solicitarPrestamo(codLibro3, testBiblioteca);
+        Resultado<Prestamo> prestamoResult3 = userEstudianteTest.solicitarPrestamo(codLibro3, testBiblioteca);
         System.out.println(prestamoResult3);
 
         String codLibro4 = procesarResultadoAgregarLibro(adminTest.agregarLibro("Cuarto Libro", "Autor Cuatro", "auto",
                 1, testBiblioteca.getId(), testBiblioteca.getSede()));
         userEstudianteTest = (Usuario) Miembro.encontrarMiembroPorUsuario(userEstudianteTest.getUsuario());
-        String prestamoResult4 = userEstudianteTest.solicitarPrestamo(codLibro4, testBiblioteca);
+        Resultado<Prestamo> prestamoResult4 = userEstudianteTest.solicitarPrestamo(codLibro4, testBiblioteca);
         System.out.println(prestamoResult4);
 
         String codLibro5 = procesarResultadoAgregarLibro(adminTest.agregarLibro("Quinto Libro", "Autor Cinco", "auto",
                 1, testBiblioteca.getId(), testBiblioteca.getSede()));
         userEstudianteTest = (Usuario) Miembro.encontrarMiembroPorUsuario(userEstudianteTest.getUsuario());
-        String prestamoResult5 = userEstudianteTest.solicitarPrestamo(codLibro5, testBiblioteca);
+        Resultado<Prestamo> prestamoResult5 = userEstudianteTest.solicitarPrestamo(codLibro5, testBiblioteca);
         System.out.println(prestamoResult5);
 
         pausar("Intentando prestar un 5to libro (debe ser exitoso para estudiante)...");
         String codLibro6 = procesarResultadoAgregarLibro(adminTest.agregarLibro("Sexto Libro (para limite)",
                 "Autor Seis", "auto", 1, testBiblioteca.getId(), testBiblioteca.getSede()));
         userEstudianteTest = (Usuario) Miembro.encontrarMiembroPorUsuario(userEstudianteTest.getUsuario());
-        String prestamoResult6 = userEstudianteTest.solicitarPrestamo(codLibro6, testBiblioteca);
+        Resultado<Prestamo> prestamoResult6 = userEstudianteTest.solicitarPrestamo(codLibro6, testBiblioteca);
         System.out.println(prestamoResult6);
 
         pausar("Intentando prestar un 6to libro (debe fallar para estudiante por limite)...");
         String codLibro7 = procesarResultadoAgregarLibro(adminTest.agregarLibro("Septimo Libro (para falla)",
                 "Autor Siete", "auto", 1, testBiblioteca.getId(), testBiblioteca.getSede()));
         userEstudianteTest = (Usuario) Miembro.encontrarMiembroPorUsuario(userEstudianteTest.getUsuario());
-        String prestamoResult7 = userEstudianteTest.solicitarPrestamo(codLibro7, testBiblioteca);
+        Resultado<Prestamo> prestamoResult7 = userEstudianteTest.solicitarPrestamo(codLibro7, testBiblioteca);
         System.out.println(prestamoResult7);
 
         pausar("Verificando libros prestados del estudiante...");
@@ -1137,18 +498,9 @@ public class SistemaBiblioteca {
         scanner.nextLine();
     }
 
-    // Ayuda a extraer el código de un libro de un mensaje de éxito.
-    private static String procesarResultadoAgregarLibro(String resultado) {
-        if (resultado.startsWith("Exito: Libro '")) { // Si el mensaje empieza con "Exito: Libro '".
-            return resultado.substring(resultado.indexOf("Codigo: ") + "Codigo: ".length()).replace(".", ""); // Extrae
-                                                                                                              // el
-                                                                                                              // código
-                                                                                                              // después
-                                                                                                              // de
-                                                                                                              // "Codigo:
-                                                                                                              // ".
-        }
-        return null;
+    // Ayuda a obtener el código del libro agregado (null si no se pudo agregar).
+    private static String procesarResultadoAgregarLibro(Resultado<Libro> resultado) {
+        return resultado.esExito() ? resultado.getValor().getCodigo() : null;
     }
 
     // Versión especial de 'pagarDeuda' para los tests, donde el monto se pasa
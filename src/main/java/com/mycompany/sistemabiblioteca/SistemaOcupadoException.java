@@ -0,0 +1,14 @@
+package com.mycompany.sistemabiblioteca; // Carpeta donde está organizado nuestro código.
+
+// Esta excepción indica que no se pudo verificar una contraseña porque el sistema está
+// saturado: la cola de VerificadorContrasenas estaba llena o la verificación tardó más
+// de lo permitido. No dice nada sobre si la contraseña es correcta, así que quien la
+// recibe debe pedir que se intente más tarde, no contarla como un intento fallido.
+public class SistemaOcupadoException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public SistemaOcupadoException(String mensaje) {
+        super(mensaje);
+    }
+}
@@ -38,6 +38,19 @@ public class Usuario extends Miembro { // 'Usuario' es un tipo especial de 'Miem
         this.carrera = carrera;
     }
 
+    // Copia los datos propios de Usuario leídos del archivo (ver Miembro.parsearLinea).
+    void cargarCamposUsuario(double deuda, String sedeUniversidad, String carrera) {
+        this.deuda = deuda;
+        this.sedeUniversidad = sedeUniversidad;
+        this.carrera = carrera;
+    }
+
+    // Suma 'monto' a la deuda sin guardar (ver Miembro.prepararDeudas, que escribe a
+    // muchos usuarios de una vez).
+    void acumularDeuda(double monto) {
+        this.deuda += monto;
+    }
+
     // Getters para los atributos específicos del Usuario.
     public double getDeuda() {
         return deuda;
@@ -70,54 +83,53 @@ public class Usuario extends Miembro { // 'Usuario' es un tipo especial de 'Miem
     // Permite al usuario ver la lista de todos los libros que tiene o ha tenido
     // prestados.
     public List<Prestamo> verMisLibrosPrestados() {
-        System.out.println("\n--- MIS LIBROS PRESTADOS (" + this.getNombre() + " " + this.getApellido() + ") ---");
+        Sesion.salida().println("\n--- MIS LIBROS PRESTADOS (" + this.getNombre() + " " + this.getApellido() + ") ---");
         // Obtiene todos los préstamos asociados a este usuario.
         List<Prestamo> misPrestamos = Prestamo.encontrarPrestamosPorMiembro(this.getNumeroDocumento());
 
         if (misPrestamos.isEmpty()) { // Si el usuario no tiene préstamos.
-            System.out.println("No tienes libros prestados o devueltos.");
+            Sesion.salida().println("No tienes libros prestados o devueltos.");
             return misPrestamos;
         } else {
-            for (Prestamo prestamo : misPrestamos) { // Para cada préstamo.
-                Libro libro = Libro.encontrarLibroPorCodigo(prestamo.getCodigoLibro()); // Busca la información del
-                                                                                        // libro.
-                String infoLibro = (libro != null) ? libro.getNombre() + " (Codigo: " + libro.getCodigo() + ")" // Formatea
-                                                                                                                // la
-                                                                                                                // información
-                                                                                                                // del
-                                                                                                                // libro.
+            for (ReportePrestamos.Fila fila : ReportePrestamos.unir(misPrestamos, false)) { // Cada préstamo con su libro.
+                Prestamo prestamo = fila.getPrestamo();
+                Libro libro = fila.getLibro(); // Los libros se buscaron todos de una vez.
+                String infoLibro = (libro != null) ? libro.getNombre() + " (Codigo: " + libro.getCodigo() + ")" // Formatea el libro.
                         : "Libro Desconocido";
-                System.out.println("  - " + infoLibro + " | Fecha Prestamo: "
-                        + Fecha.formatDate(prestamo.getFechaPrestamo()) + " | Fecha Devolucion Estimada: "
-                        + Fecha.formatDate(prestamo.getFechaDevolucionEstimada()) + " | Estado: " + prestamo.getEstado()
+                Sesion.salida().println("  - " + infoLibro + " | Fecha Prestamo: "
+                        + Fecha.formatear(prestamo.getDiaPrestamo()) + " | Fecha Devolucion Estimada: "
+                        + Fecha.formatear(prestamo.getDiaDevolucionEstimada()) + " | Estado: " + prestamo.getEstado()
                         + " | Biblioteca ID: " + prestamo.getIdBiblioteca()); // Imprime los detalles del préstamo.
             }
         }
-        System.out.println("-----------------------------------------------------------------------------------\n");
+        Sesion.salida().println("-----------------------------------------------------------------------------------\n");
         return misPrestamos;
     }
 
     // Permite al usuario solicitar un libro prestado.
     // Verifica si tiene deuda y si la biblioteca es válida.
-    public String solicitarPrestamo(String codigoLibro, Biblioteca biblioteca) {
+    public Resultado<Prestamo> solicitarPrestamo(String codigoLibro, Biblioteca biblioteca) {
         if (this.deuda > 0) { // Si el usuario tiene deuda.
-            return "Error: No puedes pedir prestado un libro nuevo. Tienes una deuda pendiente de "
-                    + String.format(Locale.US, "%.2f", this.deuda) + " pesos."; // No puede pedir más libros.
+            return Resultado.fallo(Resultado.Estado.RECHAZADO,
+                    "Error: No puedes pedir prestado un libro nuevo. Tienes una deuda pendiente de "
+                            + String.format(Locale.US, "%.2f", this.deuda) + " pesos."); // No puede pedir más libros.
         }
         if (biblioteca == null) { // Si no se ha seleccionado una biblioteca.
-            return "Error: No se ha seleccionado una biblioteca para realizar el prestamo.";
+            return Resultado.fallo(Resultado.Estado.INVALIDO,
+                    "Error: No se ha seleccionado una biblioteca para realizar el prestamo.");
         }
-        System.out.println("Intentando prestar libro '" + codigoLibro + "' para " + this.getUsuario()
+        Sesion.salida().println("Intentando prestar libro '" + codigoLibro + "' para " + this.getUsuario()
                 + " desde biblioteca " + biblioteca.getNombreBiblioteca());
         return biblioteca.prestarLibro(this, codigoLibro); // Delega la lógica del préstamo a la clase 'Biblioteca'.
     }
 
     // Permite al usuario devolver un libro prestado.
-    public String realizarDevolucion(String codigoLibro, Biblioteca biblioteca) {
+    public Resultado<Prestamo> realizarDevolucion(String codigoLibro, Biblioteca biblioteca) {
         if (biblioteca == null) { // Si no se ha seleccionado una biblioteca.
-            return "Error: No se ha seleccionado una biblioteca para realizar la devolucion.";
+            return Resultado.fallo(Resultado.Estado.INVALIDO,
+                    "Error: No se ha seleccionado una biblioteca para realizar la devolucion.");
         }
-        System.out.println("Intentando devolver libro '" + codigoLibro + "' para " + this.getUsuario()
+        Sesion.salida().println("Intentando devolver libro '" + codigoLibro + "' para " + this.getUsuario()
                 + " en biblioteca " + biblioteca.getNombreBiblioteca());
         return biblioteca.devolverLibro(this, codigoLibro); // Delega la lógica de la devolución a la clase
                                                             // 'Biblioteca'.
@@ -127,10 +139,13 @@ public class Usuario extends Miembro { // 'Usuario' es un tipo especial de 'Miem
     // Usuario).
     public void cambiarInfoPersonal(byte nuevoTipoDocumento, String nuevoNombre, String nuevoApellido,
             String nuevaSedeUniversidad, String nuevaCarrera) {
-        super.cambiarInfoPersonal(nuevoTipoDocumento, nuevoNombre, nuevoApellido); // Llama al método de la clase padre
-                                                                                   // (Miembro).
-        this.setSedeUniversidad(nuevaSedeUniversidad); // Actualiza la sede de la universidad.
-        this.setCarrera(nuevaCarrera); // Actualiza la carrera.
+        try (Persistencia.Transaccion tx = Persistencia.begin()) { // Una sola escritura de "Miembros.txt".
+            super.cambiarInfoPersonal(nuevoTipoDocumento, nuevoNombre, nuevoApellido); // Llama al método de la clase padre
+                                                                                       // (Miembro).
+            this.setSedeUniversidad(nuevaSedeUniversidad); // Actualiza la sede de la universidad.
+            this.setCarrera(nuevaCarrera); // Actualiza la carrera.
+            tx.confirmar();
+        }
         // Los setters ya llaman a 'guardar()', no es necesario hacerlo de nuevo aquí.
     }
 
@@ -0,0 +1,219 @@
+package com.mycompany.sistemabiblioteca; // Carpeta donde está organizado nuestro código.
+
+import java.security.SecureRandom; // Para generar tokens de sesión impredecibles.
+import java.util.Base64; // Para convertir el token a texto.
+import java.util.Map; // Para usar mapas.
+import java.util.concurrent.ArrayBlockingQueue; // Cola de tamaño fijo para las verificaciones pendientes.
+import java.util.concurrent.ConcurrentHashMap; // Mapa seguro entre hilos (tokens de sesión).
+import java.util.concurrent.ExecutionException; // Error lanzado dentro de una tarea.
+import java.util.concurrent.Future; // Resultado de una tarea en otro hilo.
+import java.util.concurrent.RejectedExecutionException; // Se lanza cuando la cola está llena.
+import java.util.concurrent.ThreadPoolExecutor; // Grupo de hilos configurable.
+import java.util.concurrent.TimeUnit; // Para indicar tiempos.
+import java.util.concurrent.TimeoutException; // Se lanza si la verificación tarda demasiado.
+import java.util.concurrent.atomic.AtomicInteger; // Contador seguro entre hilos (nombres de hilos).
+import java.util.concurrent.atomic.AtomicLong; // Valor seguro entre hilos (latencia máxima).
+import java.util.concurrent.atomic.LongAdder; // Contador rápido con muchos hilos escribiendo.
+
+// Esta clase verifica contraseñas (PBKDF2) en un grupo de hilos propio y de tamaño fijo.
+// PBKDF2 con 65536 iteraciones es caro a propósito; si cada login lo calcula en el hilo
+// que atiende la petición, una avalancha de logins deja sin CPU al resto del sistema.
+// Aquí las verificaciones esperan en una cola limitada: si la cola está llena, el login
+// se rechaza de inmediato (SistemaOcupadoException) en vez de acumular trabajo sin fin.
+//
+// También lleva métricas (profundidad de la cola, latencias, rechazos) y, si se activa,
+// emite tokens de sesión de vida corta: un login repetido con un token válido no vuelve
+// a calcular PBKDF2.
+//
+// Configuración (propiedades del sistema, -Dnombre=valor):
+// biblioteca.kdf.hilos -> hilos de verificación (por defecto, los núcleos disponibles).
+// biblioteca.kdf.cola -> verificaciones que pueden esperar en cola (por defecto 256).
+// biblioteca.kdf.espera.ms -> tiempo máximo de espera de un login (por defecto 10000).
+// biblioteca.sesion.ttl.segundos -> vida de un token de sesión; 0 los desactiva (por defecto 0).
+public class VerificadorContrasenas {
+
+    private static final VerificadorContrasenas INSTANCIA = new VerificadorContrasenas(); // Única instancia.
+    private static final int LIMITE_TOKENS_SIN_PURGA = 1024; // Con más tokens, se purgan los caducados.
+
+    private final ThreadPoolExecutor ejecutor; // Hilos dedicados a PBKDF2.
+    private final long esperaMaximaMs; // Tiempo máximo que un login espera su verificación.
+    private final long vidaTokenMs; // Vida de un token de sesión (0 = desactivados).
+
+    // Métricas.
+    private final LongAdder verificaciones = new LongAdder(); // Verificaciones terminadas (con respuesta).
+    private final LongAdder rechazadas = new LongAdder(); // Rechazadas por cola llena o tiempo agotado.
+    private final LongAdder latenciaTotalNs = new LongAdder(); // Suma de latencias de las terminadas (cola + cálculo).
+    private final AtomicLong latenciaMaximaNs = new AtomicLong(); // Mayor latencia observada.
+    private final LongAdder aciertosToken = new LongAdder(); // Logins resueltos con token, sin PBKDF2.
+
+    private final Map<String, SesionToken> tokens = new ConcurrentHashMap<>(); // token -> sesión.
+    private final SecureRandom aleatorio = new SecureRandom(); // Generador de tokens.
+
+    // Datos de un token de sesión emitido.
+    private static final class SesionToken {
+        final String usuario; // Usuario al que pertenece.
+        final String contrasenaAlmacenada; // Hash vigente al emitirlo (si cambia, el token deja de valer).
+        final long expiraMs; // Momento en que caduca.
+
+        SesionToken(String usuario, String contrasenaAlmacenada, long expiraMs) {
+            this.usuario = usuario;
+            this.contrasenaAlmacenada = contrasenaAlmacenada;
+            this.expiraMs = expiraMs;
+        }
+    }
+
+    private VerificadorContrasenas() {
+        int hilos = Integer.getInteger("biblioteca.kdf.hilos", Runtime.getRuntime().availableProcessors());
+        int cola = Integer.getInteger("biblioteca.kdf.cola", 256);
+        esperaMaximaMs = Long.getLong("biblioteca.kdf.espera.ms", 10000L);
+        vidaTokenMs = Long.getLong("biblioteca.sesion.ttl.segundos", 0L) * 1000L;
+
+        AtomicInteger numero = new AtomicInteger();
+        ejecutor = new ThreadPoolExecutor(Math.max(1, hilos), Math.max(1, hilos), 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, cola)), r -> {
+                    Thread t = new Thread(r, "kdf-" + numero.incrementAndGet());
+                    t.setDaemon(true); // No impide que el programa termine.
+                    return t;
+                }, new ThreadPoolExecutor.AbortPolicy()); // Cola llena: se rechaza (RejectedExecutionException).
+    }
+
+    // Devuelve el verificador compartido.
+    public static VerificadorContrasenas getInstancia() {
+        return INSTANCIA;
+    }
+
+    // Verifica la contraseña en el grupo de hilos y espera el resultado.
+    // Devuelve 'false' si no coincide. Si el sistema está saturado (cola llena o espera
+    // agotada) lanza SistemaOcupadoException: la contraseña no se llegó a comprobar.
+    public boolean verificar(String password, String stored) {
+        long inicio = System.nanoTime();
+        Future<Boolean> resultado;
+        try {
+            resultado = ejecutor.submit(() -> Miembro.compararContrasena(password, stored));
+        } catch (RejectedExecutionException ex) {
+            rechazadas.increment();
+            throw new SistemaOcupadoException(
+                    "Sistema ocupado: demasiados inicios de sesion en curso. Intente de nuevo en unos segundos.");
+        }
+        try {
+            boolean coincide = resultado.get(esperaMaximaMs, TimeUnit.MILLISECONDS);
+            // Solo las que terminaron: una rechazada o sin respuesta no es una verificación,
+            // y su espera agotada no es una latencia del cálculo.
+            registrarLatencia(System.nanoTime() - inicio);
+            return coincide;
+        } catch (TimeoutException ex) {
+            resultado.cancel(true);
+            rechazadas.increment();
+            throw new SistemaOcupadoException(
+                    "Sistema ocupado: la verificacion de la contrasena tardo demasiado. Intente de nuevo en unos segundos.");
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt(); // Conserva la marca de interrupción.
+            return false;
+        } catch (ExecutionException ex) {
+            ex.printStackTrace();
+            return false;
+        }
+    }
+
+    // Suma una latencia a las métricas.
+    private void registrarLatencia(long ns) {
+        verificaciones.increment();
+        latenciaTotalNs.add(ns);
+        latenciaMaximaNs.accumulateAndGet(ns, Math::max);
+    }
+
+    // --- Tokens de sesión ---
+
+    // Indica si los tokens de sesión están activados.
+    public boolean tokensActivos() {
+        return vidaTokenMs > 0;
+    }
+
+    // Emite un token para un usuario que acaba de iniciar sesión con su contraseña.
+    // Devuelve 'null' si los tokens están desactivados.
+    public String emitirToken(String usuario, String contrasenaAlmacenada) {
+        if (!tokensActivos()) {
+            return null;
+        }
+        byte[] bytes = new byte[24];
+        aleatorio.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        long ahora = System.currentTimeMillis();
+        if (tokens.size() >= LIMITE_TOKENS_SIN_PURGA) { // Descarta los caducados que nadie volvió a usar.
+            tokens.values().removeIf(sesion -> sesion.expiraMs < ahora);
+        }
+        tokens.put(token, new SesionToken(usuario, contrasenaAlmacenada, ahora + vidaTokenMs));
+        return token;
+    }
+
+    // Comprueba un token: debe existir, no haber caducado, ser de este usuario y
+    // corresponder a la contraseña vigente (si la contraseña cambió, deja de valer).
+    public boolean validarToken(String token, String usuario, String contrasenaAlmacenada) {
+        if (token == null || usuario == null) {
+            return false;
+        }
+        SesionToken sesion = tokens.get(token);
+        if (sesion == null) {
+            return false;
+        }
+        if (sesion.expiraMs < System.currentTimeMillis()) {
+            tokens.remove(token, sesion); // Caducado: se descarta.
+            return false;
+        }
+        boolean valido = sesion.usuario.equals(usuario.trim())
+                && sesion.contrasenaAlmacenada.equals(contrasenaAlmacenada);
+        if (valido) {
+            aciertosToken.increment();
+        }
+        return valido;
+    }
+
+    // Anula un token (por ejemplo, al cerrar sesión).
+    public void revocarToken(String token) {
+        if (token != null) {
+            tokens.remove(token);
+        }
+    }
+
+    // --- Métricas ---
+
+    // Verificaciones esperando en la cola en este momento.
+    public int getProfundidadCola() {
+        return ejecutor.getQueue().size();
+    }
+
+    // Verificaciones terminadas, coincida o no la contraseña (sin contar las rechazadas).
+    public long getVerificaciones() {
+        return verificaciones.sum();
+    }
+
+    // Logins rechazados por saturación.
+    public long getRechazadas() {
+        return rechazadas.sum();
+    }
+
+    // Latencia media de una verificación terminada (espera en cola + cálculo), en milisegundos.
+    public double getLatenciaMediaMs() {
+        long n = verificaciones.sum();
+        return n == 0 ? 0.0 : latenciaTotalNs.sum() / (double) n / 1_000_000.0;
+    }
+
+    // Mayor latencia de una verificación terminada, en milisegundos.
+    public double getLatenciaMaximaMs() {
+        return latenciaMaximaNs.get() / 1_000_000.0;
+    }
+
+    // Logins resueltos con token de sesión, sin calcular PBKDF2.
+    public long getAciertosToken() {
+        return aciertosToken.sum();
+    }
+
+    // Resumen legible de las métricas.
+    @Override
+    public String toString() {
+        return String.format(java.util.Locale.ROOT,
+                "VerificadorContrasenas { cola=%d, verificaciones=%d, rechazadas=%d, latenciaMedia=%.1f ms, latenciaMaxima=%.1f ms, aciertosToken=%d }",
+                getProfundidadCola(), getVerificaciones(), getRechazadas(), getLatenciaMediaMs(),
+                getLatenciaMaximaMs(), getAciertosToken());
+    }
+}